@@ -0,0 +1,78 @@
+package commands;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL31;
+
+import utils.DataUtils;
+import utils.OpenGlUtils;
+
+/**
+ * Executes render commands with OpenGL. Everything is drawn as triangles, and
+ * index buffers are expected to store unsigned ints. All the state changes go
+ * through {@link OpenGlUtils}, so the program and VAO of the last command can
+ * be left bound at the end - if the next list uses them too they won't need
+ * binding again.
+ * 
+ * @author Karl
+ *
+ */
+public class GlRenderBackend implements IRenderBackend {
+
+	@Override
+	public void begin() {
+	}
+
+	@Override
+	public void setBlending(boolean alphaBlending) {
+		if (alphaBlending) {
+			OpenGlUtils.enableAlphaBlending();
+		} else {
+			OpenGlUtils.disableBlending();
+		}
+	}
+
+	@Override
+	public void useProgram(int programId) {
+		OpenGlUtils.useProgram(programId);
+	}
+
+	@Override
+	public void bindVao(int vaoId) {
+		OpenGlUtils.bindVao(vaoId);
+	}
+
+	@Override
+	public void bindTexture(int unit, int textureId) {
+		OpenGlUtils.bindTexture(unit, textureId);
+	}
+
+	@Override
+	public void loadUniforms(RenderCommand command) {
+		command.getUniforms().loadUniforms(command);
+	}
+
+	@Override
+	public void draw(RenderCommand command) {
+		switch (command.getDrawType()) {
+		case RenderCommand.DRAW_ELEMENTS:
+			GL11.glDrawElements(GL11.GL_TRIANGLES, command.getCount(), GL11.GL_UNSIGNED_INT,
+					command.getFirst() * DataUtils.BYTES_IN_INT);
+			break;
+		case RenderCommand.DRAW_ARRAYS_INSTANCED:
+			GL31.glDrawArraysInstanced(GL11.GL_TRIANGLES, command.getFirst(), command.getCount(),
+					command.getInstanceCount());
+			break;
+		default:
+			GL11.glDrawArrays(GL11.GL_TRIANGLES, command.getFirst(), command.getCount());
+		}
+	}
+
+	/**
+	 * Disables blending, which the rest of the code expects to be off.
+	 */
+	@Override
+	public void end() {
+		OpenGlUtils.disableBlending();
+	}
+
+}
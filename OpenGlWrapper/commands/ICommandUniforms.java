@@ -0,0 +1,20 @@
+package commands;
+
+/**
+ * Loads the uniform values stored in a {@link RenderCommand} up to the
+ * command's shader program. Each renderer usually implements this itself,
+ * since it knows what order it stored the values in. This only gets called
+ * while the command's shader program is in use.
+ * 
+ * @author Karl
+ *
+ */
+public interface ICommandUniforms {
+
+	/**
+	 * @param command
+	 *            - The command whose uniform values should be loaded.
+	 */
+	public void loadUniforms(RenderCommand command);
+
+}
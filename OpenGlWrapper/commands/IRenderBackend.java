@@ -0,0 +1,45 @@
+package commands;
+
+/**
+ * Carries out the commands in a {@link RenderCommandList}. The list works out
+ * which state actually needs changing between commands, so a backend is only
+ * ever asked to change state that is different to the last command's. This
+ * means that counting the calls made to a backend gives the number of state
+ * changes needed to render a frame.
+ * 
+ * @author Karl
+ *
+ */
+public interface IRenderBackend {
+
+	/**
+	 * Called before the first command of a list is executed. The backend can't
+	 * assume anything about what is currently bound.
+	 */
+	public void begin();
+
+	/**
+	 * @param alphaBlending
+	 *            - Whether alpha blending should be enabled.
+	 */
+	public void setBlending(boolean alphaBlending);
+
+	public void useProgram(int programId);
+
+	public void bindVao(int vaoId);
+
+	public void bindTexture(int unit, int textureId);
+
+	/**
+	 * Loads the command's uniform values. The command's program is in use.
+	 */
+	public void loadUniforms(RenderCommand command);
+
+	public void draw(RenderCommand command);
+
+	/**
+	 * Called after the last command of a list has been executed.
+	 */
+	public void end();
+
+}
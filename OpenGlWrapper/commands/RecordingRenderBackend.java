@@ -0,0 +1,175 @@
+package commands;
+
+import java.util.Arrays;
+
+/**
+ * A backend that doesn't render anything, and doesn't need OpenGL. It just
+ * counts the calls that it gets asked to make, and can also keep a log of
+ * them. This allows the CPU cost of recording and sorting a frame, and the
+ * number of state changes that it needs, to be measured (or checked) on a
+ * machine without a GPU.
+ * 
+ * @author Karl
+ *
+ */
+public class RecordingRenderBackend implements IRenderBackend {
+
+	public static final int OP_BLENDING = 0;
+	public static final int OP_PROGRAM = 1;
+	public static final int OP_VAO = 2;
+	public static final int OP_TEXTURE = 3;
+	public static final int OP_UNIFORMS = 4;
+	public static final int OP_DRAW = 5;
+
+	private final boolean keepLog;
+
+	private int[] log = new int[64];
+	private int logSize = 0;
+
+	private int blendingChanges;
+	private int programChanges;
+	private int vaoChanges;
+	private int textureChanges;
+	private int uniformLoads;
+	private int drawCalls;
+	private long verticesDrawn;
+
+	/**
+	 * @param keepLog
+	 *            - Whether every call should be logged, or just counted. The
+	 *            log stores the type of each call and its main argument (the
+	 *            ID of the object, or the vertex count for draws).
+	 */
+	public RecordingRenderBackend(boolean keepLog) {
+		this.keepLog = keepLog;
+	}
+
+	/**
+	 * Sets all the counters back to zero and empties the log.
+	 */
+	public void reset() {
+		logSize = 0;
+		blendingChanges = 0;
+		programChanges = 0;
+		vaoChanges = 0;
+		textureChanges = 0;
+		uniformLoads = 0;
+		drawCalls = 0;
+		verticesDrawn = 0;
+	}
+
+	@Override
+	public void begin() {
+	}
+
+	@Override
+	public void setBlending(boolean alphaBlending) {
+		blendingChanges++;
+		log(OP_BLENDING, alphaBlending ? 1 : 0);
+	}
+
+	@Override
+	public void useProgram(int programId) {
+		programChanges++;
+		log(OP_PROGRAM, programId);
+	}
+
+	@Override
+	public void bindVao(int vaoId) {
+		vaoChanges++;
+		log(OP_VAO, vaoId);
+	}
+
+	@Override
+	public void bindTexture(int unit, int textureId) {
+		textureChanges++;
+		log(OP_TEXTURE, textureId);
+	}
+
+	@Override
+	public void loadUniforms(RenderCommand command) {
+		uniformLoads++;
+		log(OP_UNIFORMS, command.getProgramId());
+	}
+
+	@Override
+	public void draw(RenderCommand command) {
+		drawCalls++;
+		verticesDrawn += (long) command.getCount() * command.getInstanceCount();
+		log(OP_DRAW, command.getCount());
+	}
+
+	@Override
+	public void end() {
+	}
+
+	/**
+	 * @return The total number of state changes (everything apart from the
+	 *         draw calls).
+	 */
+	public int getStateChanges() {
+		return blendingChanges + programChanges + vaoChanges + textureChanges + uniformLoads;
+	}
+
+	public int getBlendingChanges() {
+		return blendingChanges;
+	}
+
+	public int getProgramChanges() {
+		return programChanges;
+	}
+
+	public int getVaoChanges() {
+		return vaoChanges;
+	}
+
+	public int getTextureChanges() {
+		return textureChanges;
+	}
+
+	public int getUniformLoads() {
+		return uniformLoads;
+	}
+
+	public int getDrawCalls() {
+		return drawCalls;
+	}
+
+	public long getVerticesDrawn() {
+		return verticesDrawn;
+	}
+
+	/**
+	 * @return The number of calls in the log.
+	 */
+	public int getLogSize() {
+		return logSize;
+	}
+
+	/**
+	 * @return The type of a logged call (one of the OP constants).
+	 */
+	public int getLoggedOp(int index) {
+		return log[index * 2];
+	}
+
+	/**
+	 * @return The main argument of a logged call.
+	 */
+	public int getLoggedArg(int index) {
+		return log[index * 2 + 1];
+	}
+
+	private void log(int op, int arg) {
+		if (!keepLog) {
+			return;
+		}
+		if (logSize * 2 + 2 > log.length) {
+			log = Arrays.copyOf(log, log.length * 2);
+		}
+		log[logSize * 2] = op;
+		log[logSize * 2 + 1] = arg;
+		logSize++;
+	}
+
+}
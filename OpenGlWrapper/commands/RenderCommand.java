@@ -0,0 +1,285 @@
+package commands;
+
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector2f;
+import org.lwjgl.util.vector.Vector3f;
+import org.lwjgl.util.vector.Vector4f;
+
+/**
+ * A single draw call, along with all the state that needs to be set up before
+ * it can be carried out - the shader program, the VAO, the textures, and the
+ * uniform values. Commands don't do any rendering themselves, they just get
+ * recorded into a {@link RenderCommandList} which sorts them and then hands
+ * them to a {@link IRenderBackend} to be carried out.
+ *
+ * Only the IDs of the OpenGL objects are stored, so that commands can be
+ * recorded and executed without any OpenGL context (e.g. with a
+ * {@link RecordingRenderBackend}). The uniform values are copied into the
+ * command when it's recorded, and are loaded up to the shader by an
+ * {@link ICommandUniforms} when the command is executed.
+ *
+ * Commands are reused from frame to frame by the command list, so they should
+ * never be held on to after the list has been cleared.
+ *
+ * @author Karl
+ *
+ */
+public class RenderCommand {
+
+	public static final int DRAW_ARRAYS = 0;
+	public static final int DRAW_ELEMENTS = 1;
+	public static final int DRAW_ARRAYS_INSTANCED = 2;
+
+	public static final int LAYER_OPAQUE = 0;
+	public static final int LAYER_TRANSPARENT = 1;
+
+	public static final int MAX_TEXTURE_UNITS = 4;
+	public static final int MAX_UNIFORM_FLOATS = 32;
+
+	private final int[] textures = new int[MAX_TEXTURE_UNITS];
+	private final float[] uniformData = new float[MAX_UNIFORM_FLOATS];
+
+	private int programId;
+	private int vaoId;
+	private int layer;
+	private ICommandUniforms uniforms;
+	private int uniformCount;
+	private int drawType;
+	private int first;
+	private int count;
+	private int instanceCount;
+
+	/**
+	 * Resets the command so that it can be reused.
+	 */
+	void reset() {
+		for (int i = 0; i < MAX_TEXTURE_UNITS; i++) {
+			textures[i] = 0;
+		}
+		programId = 0;
+		vaoId = 0;
+		layer = LAYER_OPAQUE;
+		uniforms = null;
+		uniformCount = 0;
+		drawType = DRAW_ARRAYS;
+		first = 0;
+		count = 0;
+		instanceCount = 1;
+	}
+
+	public RenderCommand program(int programId) {
+		this.programId = programId;
+		return this;
+	}
+
+	public RenderCommand vao(int vaoId) {
+		this.vaoId = vaoId;
+		return this;
+	}
+
+	/**
+	 * Sets the layer that the command gets drawn in. All the opaque commands
+	 * in a list get drawn before any of the transparent ones, and transparent
+	 * commands are drawn with alpha blending enabled.
+	 *
+	 * @param layer
+	 *            - Either {@link #LAYER_OPAQUE} or {@link #LAYER_TRANSPARENT}.
+	 * @return This command.
+	 */
+	public RenderCommand layer(int layer) {
+		this.layer = layer;
+		return this;
+	}
+
+	/**
+	 * Sets a texture to be bound to a texture unit for this command. Units
+	 * which are left as 0 aren't needed by the command, so whatever is bound
+	 * to them gets left alone.
+	 *
+	 * @param unit
+	 *            - The index of the texture unit.
+	 * @param textureId
+	 *            - The ID of the texture.
+	 * @return This command.
+	 */
+	public RenderCommand texture(int unit, int textureId) {
+		textures[unit] = textureId;
+		return this;
+	}
+
+	/**
+	 * Sets the object that will load this command's uniform values to the
+	 * shader. The values themselves should then be added with the "put"
+	 * methods, in the order that the uniforms object reads them.
+	 *
+	 * @param uniforms
+	 *            - Loads up the uniform values.
+	 * @return This command.
+	 */
+	public RenderCommand uniforms(ICommandUniforms uniforms) {
+		this.uniforms = uniforms;
+		this.uniformCount = 0;
+		return this;
+	}
+
+	public RenderCommand put(float value) {
+		uniformData[uniformCount++] = value;
+		return this;
+	}
+
+	public RenderCommand put(Vector2f vector) {
+		return put(vector.x).put(vector.y);
+	}
+
+	public RenderCommand put(Vector3f vector) {
+		return put(vector.x).put(vector.y).put(vector.z);
+	}
+
+	public RenderCommand put(Vector4f vector) {
+		return put(vector.x).put(vector.y).put(vector.z).put(vector.w);
+	}
+
+	/**
+	 * Adds a matrix to the uniform data, in the same order that
+	 * {@link Matrix4f#store(java.nio.FloatBuffer)} uses.
+	 */
+	public RenderCommand put(Matrix4f matrix) {
+		put(matrix.m00).put(matrix.m01).put(matrix.m02).put(matrix.m03);
+		put(matrix.m10).put(matrix.m11).put(matrix.m12).put(matrix.m13);
+		put(matrix.m20).put(matrix.m21).put(matrix.m22).put(matrix.m23);
+		return put(matrix.m30).put(matrix.m31).put(matrix.m32).put(matrix.m33);
+	}
+
+	/**
+	 * Copies the uniforms object and all the uniform values from another
+	 * command.
+	 *
+	 * @param other
+	 *            - The command to copy from.
+	 * @return This command.
+	 */
+	public RenderCommand copyUniforms(RenderCommand other) {
+		this.uniforms = other.uniforms;
+		this.uniformCount = other.uniformCount;
+		System.arraycopy(other.uniformData, 0, uniformData, 0, uniformCount);
+		return this;
+	}
+
+	public RenderCommand drawArrays(int first, int count) {
+		return setDraw(DRAW_ARRAYS, first, count, 1);
+	}
+
+	/**
+	 * Draws a range of the VAO's index buffer (of unsigned ints).
+	 *
+	 * @param first
+	 *            - The index of the first index in the index buffer.
+	 * @param count
+	 *            - The number of indices.
+	 * @return This command.
+	 */
+	public RenderCommand drawElements(int first, int count) {
+		return setDraw(DRAW_ELEMENTS, first, count, 1);
+	}
+
+	public RenderCommand drawArraysInstanced(int first, int count, int instanceCount) {
+		return setDraw(DRAW_ARRAYS_INSTANCED, first, count, instanceCount);
+	}
+
+	public float getUniform(int index) {
+		return uniformData[index];
+	}
+
+	/**
+	 * Reads a matrix out of the uniform data.
+	 *
+	 * @param index
+	 *            - The index of the first of the matrix's 16 values.
+	 * @param dest
+	 *            - The matrix to store the values in.
+	 * @return The matrix.
+	 */
+	public Matrix4f getMatrix(int index, Matrix4f dest) {
+		float[] d = uniformData;
+		dest.m00 = d[index];
+		dest.m01 = d[index + 1];
+		dest.m02 = d[index + 2];
+		dest.m03 = d[index + 3];
+		dest.m10 = d[index + 4];
+		dest.m11 = d[index + 5];
+		dest.m12 = d[index + 6];
+		dest.m13 = d[index + 7];
+		dest.m20 = d[index + 8];
+		dest.m21 = d[index + 9];
+		dest.m22 = d[index + 10];
+		dest.m23 = d[index + 11];
+		dest.m30 = d[index + 12];
+		dest.m31 = d[index + 13];
+		dest.m32 = d[index + 14];
+		dest.m33 = d[index + 15];
+		return dest;
+	}
+
+	/**
+	 * @return Whether this command loads exactly the same uniform values to
+	 *         the same program as another command, in which case they don't
+	 *         need loading again.
+	 */
+	public boolean hasSameUniforms(RenderCommand other) {
+		if (other == null || programId != other.programId || uniforms != other.uniforms
+				|| uniformCount != other.uniformCount) {
+			return false;
+		}
+		for (int i = 0; i < uniformCount; i++) {
+			if (uniformData[i] != other.uniformData[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public int getProgramId() {
+		return programId;
+	}
+
+	public int getVaoId() {
+		return vaoId;
+	}
+
+	public int getLayer() {
+		return layer;
+	}
+
+	public int getTexture(int unit) {
+		return textures[unit];
+	}
+
+	public ICommandUniforms getUniforms() {
+		return uniforms;
+	}
+
+	public int getDrawType() {
+		return drawType;
+	}
+
+	public int getFirst() {
+		return first;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public int getInstanceCount() {
+		return instanceCount;
+	}
+
+	private RenderCommand setDraw(int drawType, int first, int count, int instanceCount) {
+		this.drawType = drawType;
+		this.first = first;
+		this.count = count;
+		this.instanceCount = instanceCount;
+		return this;
+	}
+
+}
@@ -0,0 +1,185 @@
+package commands;
+
+import java.util.Arrays;
+
+/**
+ * A list of draw commands that make up one rendering pass. Instead of calling
+ * OpenGL straight away, renderers add commands to the list. Once everything
+ * has been recorded the list is sorted so that commands which use the same
+ * shader program, VAO and textures end up next to each other, and then it's
+ * executed by a {@link IRenderBackend}. While executing, the list keeps track
+ * of the state that the last command set up, and only asks the backend to
+ * change the state that is actually different.
+ *
+ * The commands are sorted by layer first (so transparent things are always
+ * drawn after opaque things), then by shader program, then by VAO, then by the
+ * texture in the first unit. Commands with identical keys stay in the order
+ * that they were added. The order that passes are rendered in matters
+ * (they render to different FBOs), so each pass should have its own list, or
+ * the list should be executed and cleared at the end of each pass.
+ *
+ * Command objects are pooled and reused, so recording a frame doesn't
+ * allocate anything once the list has grown big enough.
+ *
+ * @author Karl
+ *
+ */
+public class RenderCommandList {
+
+	private static final int INDEX_BITS = 16;
+	private static final int TEXTURE_BITS = 15;
+	private static final int VAO_BITS = 14;
+	private static final int PROGRAM_BITS = 14;
+	private static final int MAX_COMMANDS = 1 << INDEX_BITS;
+
+	private RenderCommand[] commands = new RenderCommand[0];
+	private long[] sortKeys = new long[0];
+	private int size = 0;
+	private boolean sorted = true;
+
+	private final int[] boundTextures = new int[RenderCommand.MAX_TEXTURE_UNITS];
+
+	/**
+	 * Adds a new command to the end of the list. The command's settings should
+	 * then be set by the caller.
+	 *
+	 * @return The new command.
+	 */
+	public RenderCommand add() {
+		if (size == MAX_COMMANDS) {
+			throw new IllegalStateException("Too many render commands in one list: " + MAX_COMMANDS);
+		}
+		if (size == commands.length) {
+			grow();
+		}
+		RenderCommand command = commands[size++];
+		command.reset();
+		sorted = false;
+		return command;
+	}
+
+	/**
+	 * Removes all the commands, ready for the next pass to be recorded.
+	 */
+	public void clear() {
+		size = 0;
+		sorted = true;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param index
+	 *            - The position of the command in the list. After sorting
+	 *            this is the position in the sorted order.
+	 * @return The command.
+	 */
+	public RenderCommand get(int index) {
+		return commands[getCommandIndex(index)];
+	}
+
+	/**
+	 * Sorts the commands to minimise the amount of state that needs changing
+	 * between them. The sorting is done on an array of longs, each of which
+	 * holds a command's sort key in the upper bits and the command's original
+	 * position in the lower bits, so nothing gets allocated.
+	 */
+	public void sort() {
+		for (int i = 0; i < size; i++) {
+			sortKeys[i] = createSortKey(commands[i], i);
+		}
+		Arrays.sort(sortKeys, 0, size);
+		sorted = true;
+	}
+
+	/**
+	 * Executes all the commands in the list (in sorted order if the list has
+	 * been sorted since the last command was added).
+	 *
+	 * @param backend
+	 *            - The backend that carries out the commands.
+	 */
+	public void execute(IRenderBackend backend) {
+		if (size == 0) {
+			return;
+		}
+		backend.begin();
+		int layer = -1;
+		int program = -1;
+		int vao = -1;
+		RenderCommand lastUniforms = null;
+		for (int i = 0; i < boundTextures.length; i++) {
+			boundTextures[i] = -1;
+		}
+		for (int i = 0; i < size; i++) {
+			RenderCommand command = get(i);
+			if (command.getLayer() != layer) {
+				layer = command.getLayer();
+				backend.setBlending(layer == RenderCommand.LAYER_TRANSPARENT);
+			}
+			if (command.getProgramId() != program) {
+				program = command.getProgramId();
+				backend.useProgram(program);
+			}
+			if (command.getVaoId() != vao) {
+				vao = command.getVaoId();
+				backend.bindVao(vao);
+			}
+			bindTextures(command, backend);
+			if (command.getUniforms() != null && !command.hasSameUniforms(lastUniforms)) {
+				backend.loadUniforms(command);
+				lastUniforms = command;
+			}
+			backend.draw(command);
+		}
+		backend.end();
+	}
+
+	/**
+	 * Binds any of the command's textures that aren't already bound.
+	 */
+	private void bindTextures(RenderCommand command, IRenderBackend backend) {
+		for (int unit = 0; unit < boundTextures.length; unit++) {
+			int texture = command.getTexture(unit);
+			if (texture != 0 && texture != boundTextures[unit]) {
+				boundTextures[unit] = texture;
+				backend.bindTexture(unit, texture);
+			}
+		}
+	}
+
+	private int getCommandIndex(int index) {
+		if (!sorted || index >= size) {
+			return index;
+		}
+		return (int) (sortKeys[index] & (MAX_COMMANDS - 1));
+	}
+
+	/**
+	 * Creates the key that the command gets sorted by. The IDs are masked to
+	 * fit in the key, so if the IDs get very large then some commands which
+	 * use different objects may get the same key. That just means they might
+	 * not get grouped together as well as they could, and they stay in the
+	 * order that they were added.
+	 */
+	private static long createSortKey(RenderCommand command, int index) {
+		long key = command.getLayer();
+		key = (key << PROGRAM_BITS) | (command.getProgramId() & ((1 << PROGRAM_BITS) - 1));
+		key = (key << VAO_BITS) | (command.getVaoId() & ((1 << VAO_BITS) - 1));
+		key = (key << TEXTURE_BITS) | (command.getTexture(0) & ((1 << TEXTURE_BITS) - 1));
+		return (key << INDEX_BITS) | index;
+	}
+
+	private void grow() {
+		int newLength = Math.max(16, commands.length * 2);
+		RenderCommand[] newCommands = Arrays.copyOf(commands, newLength);
+		for (int i = commands.length; i < newLength; i++) {
+			newCommands[i] = new RenderCommand();
+		}
+		commands = newCommands;
+		sortKeys = new long[newLength];
+	}
+
+}
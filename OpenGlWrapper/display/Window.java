@@ -6,9 +6,10 @@ import java.util.List;
 import org.lwjgl.LWJGLException;
 import org.lwjgl.opengl.Display;
 import org.lwjgl.opengl.DisplayMode;
-import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.PixelFormat;
 
+import utils.OpenGlUtils;
+
 public class Window {
 	
 	private static final int MIN_HEIGHT = 700;
@@ -35,7 +36,7 @@ public class Window {
 			Display.setVSyncEnabled(settings.isvSync());
 			Display.setTitle(settings.getTitle());
 			Display.create(new PixelFormat().withDepthBits(24).withSamples(4), context.getAttribs());
-			GL11.glViewport(0, 0, resolution.getWidth(), resolution.getHeight());
+			OpenGlUtils.viewport(0, 0, resolution.getWidth(), resolution.getHeight());
 		} catch (LWJGLException e) {
 			e.printStackTrace();
 		}
@@ -70,8 +71,14 @@ public class Window {
 		}
 	}
 
+	/**
+	 * Swaps the buffers, after waiting long enough to hold the FPS cap. If the
+	 * cap is 0 (or less) the frame rate isn't limited.
+	 */
 	public void update() {
-		Display.sync(fpsCap);
+		if (fpsCap > 0) {
+			Display.sync(fpsCap);
+		}
 		Display.update();
 	}
 
@@ -6,6 +6,8 @@ import org.lwjgl.opengl.Display;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL30;
 
+import utils.OpenGlUtils;
+
 /**
  * Represents an Frame Buffer Object. Holds the ID of the object, and the
  * width/height of the FBO.
@@ -37,13 +39,13 @@ public class Fbo {
 	 *            - The index of the colour buffer that should be blitted.
 	 */
 	public void blitToScreen(int colourIndex) {
-		GL30.glBindFramebuffer(GL30.GL_DRAW_FRAMEBUFFER, 0);
+		OpenGlUtils.bindFramebuffer(GL30.GL_DRAW_FRAMEBUFFER, 0);
 		GL11.glDrawBuffer(GL11.GL_BACK);
-		GL30.glBindFramebuffer(GL30.GL_READ_FRAMEBUFFER, fboId);
+		OpenGlUtils.bindFramebuffer(GL30.GL_READ_FRAMEBUFFER, fboId);
 		GL11.glReadBuffer(GL30.GL_COLOR_ATTACHMENT0 + colourIndex);
 		GL30.glBlitFramebuffer(0, 0, width, height, 0, 0, Display.getWidth(), Display.getHeight(),
 				GL11.GL_COLOR_BUFFER_BIT, GL11.GL_NEAREST);
-		GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
+		OpenGlUtils.bindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
 	}
 
 	/**
@@ -58,16 +60,16 @@ public class Fbo {
 	 *            - The index of the target colour buffer in the target FBO.
 	 */
 	public void blitToFbo(int srcColourIndex, Fbo target, int targetColourIndex) {
-		GL30.glBindFramebuffer(GL30.GL_DRAW_FRAMEBUFFER, target.fboId);
+		OpenGlUtils.bindFramebuffer(GL30.GL_DRAW_FRAMEBUFFER, target.fboId);
 		GL11.glDrawBuffer(GL30.GL_COLOR_ATTACHMENT0 + targetColourIndex);
 
-		GL30.glBindFramebuffer(GL30.GL_READ_FRAMEBUFFER, fboId);
+		OpenGlUtils.bindFramebuffer(GL30.GL_READ_FRAMEBUFFER, fboId);
 		GL11.glReadBuffer(GL30.GL_COLOR_ATTACHMENT0 + srcColourIndex);
 
 		int bufferBit = depthAttachment != null && target.depthAttachment != null
 				? GL11.GL_COLOR_BUFFER_BIT | GL11.GL_DEPTH_BUFFER_BIT : GL11.GL_COLOR_BUFFER_BIT;
 		GL30.glBlitFramebuffer(0, 0, width, height, 0, 0, target.width, target.height, bufferBit, GL11.GL_NEAREST);
-		GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
+		OpenGlUtils.bindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
 	}
 
 	/**
@@ -95,9 +97,9 @@ public class Fbo {
 	 *         complete.
 	 */
 	public boolean isComplete() {
-		GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, fboId);
+		OpenGlUtils.bindFramebuffer(GL30.GL_FRAMEBUFFER, fboId);
 		boolean complete = GL30.glCheckFramebufferStatus(GL30.GL_FRAMEBUFFER) == GL30.GL_FRAMEBUFFER_COMPLETE;
-		GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
+		OpenGlUtils.bindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
 		return complete;
 	}
 
@@ -111,17 +113,17 @@ public class Fbo {
 	public void bindForRender(int colourIndex) {
 		// should add support for binding multiple colour attachments
 		GL11.glDrawBuffer(GL30.GL_COLOR_ATTACHMENT0 + colourIndex);
-		GL30.glBindFramebuffer(GL30.GL_DRAW_FRAMEBUFFER, fboId);
-		GL11.glViewport(0, 0, width, height);
+		OpenGlUtils.bindFramebuffer(GL30.GL_DRAW_FRAMEBUFFER, fboId);
+		OpenGlUtils.viewport(0, 0, width, height);
 	}
 
 	/**
 	 * Switch back to the default frame buffer.
 	 */
 	public void unbindAfterRender() {
-		GL30.glBindFramebuffer(GL30.GL_DRAW_FRAMEBUFFER, 0);
+		OpenGlUtils.bindFramebuffer(GL30.GL_DRAW_FRAMEBUFFER, 0);
 		GL11.glDrawBuffer(GL11.GL_BACK);
-		GL11.glViewport(0, 0, Display.getWidth(), Display.getHeight());
+		OpenGlUtils.viewport(0, 0, Display.getWidth(), Display.getHeight());
 	}
 
 	/**
@@ -134,6 +136,8 @@ public class Fbo {
 		if (depthAttachment != null) {
 			depthAttachment.delete();
 		}
+		GL30.glDeleteFramebuffers(fboId);
+		OpenGlUtils.framebufferDeleted(fboId);
 	}
 
 	/**
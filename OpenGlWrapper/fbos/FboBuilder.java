@@ -6,6 +6,8 @@ import java.util.Map.Entry;
 
 import org.lwjgl.opengl.GL30;
 
+import utils.OpenGlUtils;
+
 /**
  * A class which makes the construction of FBOs a bit easier.
  * 
@@ -62,6 +64,7 @@ public class FboBuilder {
 		int fboId = createFbo();
 		createColourAttachments();
 		createDepthAttachment();
+		OpenGlUtils.bindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
 		return new Fbo(fboId, width, height, colourAttachments, depthAttachment);
 	}
 
@@ -72,7 +75,7 @@ public class FboBuilder {
 	 */
 	private int createFbo() {
 		int fboId = GL30.glGenFramebuffers();
-		GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, fboId);
+		OpenGlUtils.bindFramebuffer(GL30.GL_FRAMEBUFFER, fboId);
 		return fboId;
 	}
 
@@ -6,6 +6,8 @@ import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL12;
 import org.lwjgl.opengl.GL30;
 
+import utils.OpenGlUtils;
+
 /**Represents a texture attachment for an FBO.
  * @author Karl
  *
@@ -33,13 +35,14 @@ public class TextureAttachment extends Attachment{
 	@Override
 	public void delete() {
 		GL11.glDeleteTextures(getBufferId());
+		OpenGlUtils.textureDeleted(getBufferId());
 	}
 
 	@Override
 	public void init(int attachment, int width, int height, int samples) {	
 		int texture = GL11.glGenTextures();
 		super.setBufferId(texture);	
-		GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);	
+		OpenGlUtils.bindTexture(0, texture);
 		indicateStorageType(width, height);
 		setTextureParams();
 		GL30.glFramebufferTexture2D(GL30.GL_FRAMEBUFFER, attachment, GL11.GL_TEXTURE_2D, texture, 0);
@@ -0,0 +1,24 @@
+package openglObjects;
+
+import org.lwjgl.opengl.GL33;
+
+/**
+ * An attribute which advances once per instance instead of once per vertex,
+ * for use with instanced rendering.
+ * 
+ * @author Karl
+ *
+ */
+public class InstanceAttribute extends Attribute {
+
+	public InstanceAttribute(int attrNumber, int dataType, int componentCount) {
+		super(attrNumber, dataType, componentCount);
+	}
+
+	@Override
+	protected void link(int offset, int stride) {
+		super.link(offset, stride);
+		GL33.glVertexAttribDivisor(attributeNumber, 1);
+	}
+
+}
@@ -11,6 +11,7 @@ import org.lwjgl.opengl.GL20;
 import org.lwjgl.opengl.GL30;
 
 import utils.DataUtils;
+import utils.OpenGlUtils;
 
 public class Vao {
 
@@ -30,11 +31,11 @@ public class Vao {
 	}
 
 	public void bind() {
-		GL30.glBindVertexArray(id);
+		OpenGlUtils.bindVao(id);
 	}
 
 	public void unbind() {
-		GL30.glBindVertexArray(0);
+		OpenGlUtils.bindVao(0);
 	}
 
 	public void enableAttributes() {
@@ -96,6 +97,7 @@ public class Vao {
 
 	public void delete(boolean deleteVbos) {
 		GL30.glDeleteVertexArrays(id);
+		OpenGlUtils.vaoDeleted(id);
 		if (deleteVbos) {
 			for (Vbo vbo : relatedVbos) {
 				vbo.delete();
@@ -6,6 +6,8 @@ import java.nio.IntBuffer;
 
 import org.lwjgl.opengl.GL15;
 
+import utils.OpenGlUtils;
+
 public class Vbo {
 	
 	private final int vboId;
@@ -24,12 +26,16 @@ public class Vbo {
 		return new Vbo(id, type, usage);
 	}
 	
+	public int getId(){
+		return vboId;
+	}
+	
 	public void bind(){
-		GL15.glBindBuffer(type, vboId);
+		OpenGlUtils.bindBuffer(type, vboId);
 	}
 	
 	public void unbind(){
-		GL15.glBindBuffer(type, 0);
+		OpenGlUtils.bindBuffer(type, 0);
 	}
 	
 	public void allocateData(long sizeInBytes){
@@ -50,6 +56,7 @@ public class Vbo {
 	
 	public void delete(){
 		GL15.glDeleteBuffers(vboId);
+		OpenGlUtils.bufferDeleted(vboId);
 	}
 
 }
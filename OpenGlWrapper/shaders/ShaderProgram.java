@@ -4,9 +4,11 @@ import java.io.BufferedReader;
 
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL31;
 import org.lwjgl.opengl.GL32;
 
 import utils.MyFile;
+import utils.OpenGlUtils;
 
 public class ShaderProgram {
 
@@ -57,21 +59,48 @@ public class ShaderProgram {
 		}
 	}
 	
+	/**
+	 * Links a uniform block in the shader to a uniform buffer binding point,
+	 * so that the block's values are read from the {@link UniformBlock} bound
+	 * to that point.
+	 * 
+	 * @param blockName
+	 *            - The name of the block in the GLSL code.
+	 * @param bindingPoint
+	 *            - The index of the binding point.
+	 */
+	protected void bindUniformBlock(String blockName, int bindingPoint){
+		int blockIndex = GL31.glGetUniformBlockIndex(programID, blockName);
+		if(blockIndex == GL31.GL_INVALID_INDEX){
+			System.err.println("No uniform block called \"" + blockName + "\" found for shader program: "+programID);
+			return;
+		}
+		GL31.glUniformBlockBinding(programID, blockIndex, bindingPoint);
+	}
+	
 	protected void validateProgram(){
 		GL20.glValidateProgram(programID);
 	}
 
+	/**
+	 * @return The ID of the OpenGL program object.
+	 */
+	public int getProgramId() {
+		return programID;
+	}
+
 	public void start() {
-		GL20.glUseProgram(programID);
+		OpenGlUtils.useProgram(programID);
 	}
 
 	public void stop() {
-		GL20.glUseProgram(0);
+		OpenGlUtils.useProgram(0);
 	}
 
 	public void cleanUp() {
-		GL20.glUseProgram(0);
+		OpenGlUtils.useProgram(0);
 		GL20.glDeleteProgram(programID);
+		OpenGlUtils.programDeleted(programID);
 	}
 	
 	private void bindAttributes(String[] inVariables){
@@ -6,6 +6,9 @@ public abstract class Uniform {
 	
 	private static final int NOT_FOUND = -1;
 	
+	private static int uploads = 0;
+	private static int skippedUploads = 0;
+	
 	private String name;
 	private int location;
 	
@@ -23,5 +26,43 @@ public abstract class Uniform {
 	protected int getLocation(){
 		return location;
 	}
+	
+	/**
+	 * Should be called by the subclasses every time a value is uploaded.
+	 */
+	protected static void countUpload(){
+		uploads++;
+	}
+	
+	/**
+	 * Should be called by the subclasses every time a value isn't uploaded
+	 * because it's the same as the value that the uniform already has. Each
+	 * uniform object belongs to one shader program, so the last value that
+	 * was uploaded is always the program's current value.
+	 */
+	protected static void countSkippedUpload(){
+		skippedUploads++;
+	}
+	
+	/**
+	 * @return The number of uniform values uploaded since the counts were
+	 *         last reset.
+	 */
+	public static int getUploadCount(){
+		return uploads;
+	}
+	
+	/**
+	 * @return The number of uniform uploads skipped since the counts were last
+	 *         reset, because the value hadn't changed.
+	 */
+	public static int getSkippedUploadCount(){
+		return skippedUploads;
+	}
+	
+	public static void resetUploadCounts(){
+		uploads = 0;
+		skippedUploads = 0;
+	}
 
 }
@@ -0,0 +1,97 @@
+package shaders;
+
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+
+import openglObjects.Vbo;
+
+/**
+ * A uniform buffer object holding the data for a uniform block. The buffer is
+ * bound to a binding point, and any shader program which has its block
+ * linked to the same binding point (see
+ * {@link ShaderProgram#bindUniformBlock(String, int)}) reads its values from
+ * this buffer. This means that values shared by lots of programs only need
+ * uploading once.
+ * 
+ * A block can also be created without a buffer, for code which packs the
+ * values without an OpenGL context (e.g. in benchmarks). Updating it then
+ * just marks the data as uploaded.
+ * 
+ * @author Karl
+ *
+ */
+public class UniformBlock {
+
+	private final Vbo buffer;
+	private final UniformBlockData data;
+	private final int bindingPoint;
+
+	/**
+	 * Creates the buffer and binds it to its binding point.
+	 * 
+	 * @param layout
+	 *            - The layout of the block.
+	 * @param bindingPoint
+	 *            - The index of the uniform buffer binding point.
+	 */
+	public UniformBlock(UniformBlockLayout layout, int bindingPoint) {
+		this(layout, bindingPoint, true);
+	}
+
+	/**
+	 * @param layout
+	 *            - The layout of the block.
+	 * @param bindingPoint
+	 *            - The index of the uniform buffer binding point.
+	 * @param createBuffer
+	 *            - Whether the uniform buffer should be created. If not, no
+	 *            OpenGL calls are made by the block.
+	 */
+	public UniformBlock(UniformBlockLayout layout, int bindingPoint, boolean createBuffer) {
+		this.data = new UniformBlockData(layout);
+		this.bindingPoint = bindingPoint;
+		this.buffer = createBuffer ? Vbo.create(GL31.GL_UNIFORM_BUFFER, GL15.GL_DYNAMIC_DRAW) : null;
+		if (buffer != null) {
+			buffer.bind();
+			buffer.allocateData(layout.getSize());
+			buffer.unbind();
+			GL30.glBindBufferBase(GL31.GL_UNIFORM_BUFFER, bindingPoint, buffer.getId());
+		}
+	}
+
+	/**
+	 * @return The data of the block. Change the values in here and then call
+	 *         {@link #update()} to upload them.
+	 */
+	public UniformBlockData getData() {
+		return data;
+	}
+
+	public int getBindingPoint() {
+		return bindingPoint;
+	}
+
+	/**
+	 * Uploads the block's data to the buffer, if any of the values have
+	 * changed since the last upload.
+	 */
+	public void update() {
+		if (!data.hasChanged()) {
+			return;
+		}
+		if (buffer != null) {
+			buffer.bind();
+			buffer.storeData(0, data.getBuffer());
+			buffer.unbind();
+		}
+		data.markUploaded();
+	}
+
+	public void delete() {
+		if (buffer != null) {
+			buffer.delete();
+		}
+	}
+
+}
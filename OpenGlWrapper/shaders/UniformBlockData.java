@@ -0,0 +1,104 @@
+package shaders;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector2f;
+import org.lwjgl.util.vector.Vector3f;
+import org.lwjgl.util.vector.Vector4f;
+
+/**
+ * The packed bytes of a uniform block, ready to be uploaded to a uniform
+ * buffer. Values are written at the offsets given by the block's
+ * {@link UniformBlockLayout}. The data is only marked as changed if a value
+ * actually changes, so that unchanged data doesn't get uploaded again. None of
+ * this uses OpenGL, so the packed bytes can be checked without a context.
+ * 
+ * @author Karl
+ *
+ */
+public class UniformBlockData {
+
+	private final UniformBlockLayout layout;
+	private final ByteBuffer buffer;
+	private boolean changed = true;
+
+	public UniformBlockData(UniformBlockLayout layout) {
+		this.layout = layout;
+		this.buffer = ByteBuffer.allocateDirect(layout.getSize()).order(ByteOrder.nativeOrder());
+	}
+
+	public UniformBlockLayout getLayout() {
+		return layout;
+	}
+
+	public void setFloat(int offset, float value) {
+		if (buffer.getFloat(offset) != value) {
+			buffer.putFloat(offset, value);
+			changed = true;
+		}
+	}
+
+	public void setVec2(int offset, Vector2f vector) {
+		setFloat(offset, vector.x);
+		setFloat(offset + 4, vector.y);
+	}
+
+	public void setVec3(int offset, Vector3f vector) {
+		setFloat(offset, vector.x);
+		setFloat(offset + 4, vector.y);
+		setFloat(offset + 8, vector.z);
+	}
+
+	public void setVec4(int offset, Vector4f vector) {
+		setFloat(offset, vector.x);
+		setFloat(offset + 4, vector.y);
+		setFloat(offset + 8, vector.z);
+		setFloat(offset + 12, vector.w);
+	}
+
+	/**
+	 * Stores a matrix as 4 columns, which is how std140 stores a mat4.
+	 */
+	public void setMatrix(int offset, Matrix4f matrix) {
+		setFloat(offset, matrix.m00);
+		setFloat(offset + 4, matrix.m01);
+		setFloat(offset + 8, matrix.m02);
+		setFloat(offset + 12, matrix.m03);
+		setFloat(offset + 16, matrix.m10);
+		setFloat(offset + 20, matrix.m11);
+		setFloat(offset + 24, matrix.m12);
+		setFloat(offset + 28, matrix.m13);
+		setFloat(offset + 32, matrix.m20);
+		setFloat(offset + 36, matrix.m21);
+		setFloat(offset + 40, matrix.m22);
+		setFloat(offset + 44, matrix.m23);
+		setFloat(offset + 48, matrix.m30);
+		setFloat(offset + 52, matrix.m31);
+		setFloat(offset + 56, matrix.m32);
+		setFloat(offset + 60, matrix.m33);
+	}
+
+	/**
+	 * @return Whether any of the values have changed since the data was last
+	 *         marked as uploaded.
+	 */
+	public boolean hasChanged() {
+		return changed;
+	}
+
+	public void markUploaded() {
+		changed = false;
+	}
+
+	/**
+	 * @return The packed bytes of the whole block. The buffer's position is 0
+	 *         and its limit is the size of the block.
+	 */
+	public ByteBuffer getBuffer() {
+		buffer.clear();
+		return buffer;
+	}
+
+}
@@ -0,0 +1,59 @@
+package shaders;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The memory layout of a uniform block that uses the std140 layout rules.
+ * Stores the byte offset of each member of the block, and the total size of
+ * the block. The layout doesn't need OpenGL, so it can be created (and
+ * checked) anywhere. Create one with {@link #newLayout()}.
+ * 
+ * @author Karl
+ *
+ */
+public class UniformBlockLayout {
+
+	private final Map<String, Integer> offsets;
+	private final int size;
+
+	protected UniformBlockLayout(Map<String, Integer> offsets, int size) {
+		this.offsets = new HashMap<String, Integer>(offsets);
+		this.size = size;
+	}
+
+	/**
+	 * @param name
+	 *            - The name of a member of the block.
+	 * @return The byte offset of the member from the start of the block.
+	 */
+	public int getOffset(String name) {
+		Integer offset = offsets.get(name);
+		if (offset == null) {
+			throw new IllegalArgumentException("No member called \"" + name + "\" in the uniform block.");
+		}
+		return offset;
+	}
+
+	/**
+	 * @return The size of the whole block in bytes.
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	public int getMemberCount() {
+		return offsets.size();
+	}
+
+	/**
+	 * Starts creating a new layout. The members need to be added in the same
+	 * order that they're declared in the GLSL block.
+	 * 
+	 * @return The builder for the layout.
+	 */
+	public static UniformBlockLayoutBuilder newLayout() {
+		return new UniformBlockLayoutBuilder();
+	}
+
+}
@@ -0,0 +1,69 @@
+package shaders;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Works out the offsets of the members of a std140 uniform block as they get
+ * added. In std140 every type has a base alignment - 4 bytes for a float, 8
+ * for a vec2, and 16 for a vec3 or vec4. A vec3 only takes up 12 bytes, so a
+ * float can be packed straight after it, but the next vec3 has to start on
+ * the next 16 byte boundary. A mat4 is stored as 4 vec4 columns. The size of
+ * the whole block is rounded up to a multiple of 16 bytes.
+ * 
+ * @author Karl
+ *
+ */
+public class UniformBlockLayoutBuilder {
+
+	private static final int FLOAT_SIZE = 4;
+	private static final int VEC4_ALIGNMENT = 16;
+
+	private final Map<String, Integer> offsets = new HashMap<String, Integer>();
+	private int size = 0;
+
+	protected UniformBlockLayoutBuilder() {
+	}
+
+	public UniformBlockLayoutBuilder addFloat(String name) {
+		return addMember(name, FLOAT_SIZE, FLOAT_SIZE);
+	}
+
+	public UniformBlockLayoutBuilder addVec2(String name) {
+		return addMember(name, 2 * FLOAT_SIZE, 2 * FLOAT_SIZE);
+	}
+
+	public UniformBlockLayoutBuilder addVec3(String name) {
+		return addMember(name, VEC4_ALIGNMENT, 3 * FLOAT_SIZE);
+	}
+
+	public UniformBlockLayoutBuilder addVec4(String name) {
+		return addMember(name, VEC4_ALIGNMENT, 4 * FLOAT_SIZE);
+	}
+
+	public UniformBlockLayoutBuilder addMat4(String name) {
+		return addMember(name, VEC4_ALIGNMENT, 16 * FLOAT_SIZE);
+	}
+
+	/**
+	 * @return The finished layout.
+	 */
+	public UniformBlockLayout create() {
+		return new UniformBlockLayout(offsets, align(size, VEC4_ALIGNMENT));
+	}
+
+	private UniformBlockLayoutBuilder addMember(String name, int alignment, int memberSize) {
+		if (offsets.containsKey(name)) {
+			throw new IllegalArgumentException("The uniform block already has a member called \"" + name + "\".");
+		}
+		int offset = align(size, alignment);
+		offsets.put(name, offset);
+		size = offset + memberSize;
+		return this;
+	}
+
+	private static int align(int offset, int alignment) {
+		return (offset + alignment - 1) / alignment * alignment;
+	}
+
+}
@@ -16,6 +16,9 @@ public class UniformBoolean extends Uniform{
 			GL20.glUniform1f(super.getLocation(), bool ? 1f : 0f);
 			used = true;
 			currentBool = bool;
+			countUpload();
+		}else{
+			countSkippedUpload();
 		}
 	}
 	
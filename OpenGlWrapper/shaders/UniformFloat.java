@@ -16,6 +16,9 @@ public class UniformFloat extends Uniform{
 			GL20.glUniform1f(super.getLocation(), value);
 			used = true;
 			currentValue = value;
+			countUpload();
+		}else{
+			countSkippedUpload();
 		}
 	}
 
@@ -9,17 +9,61 @@ import org.lwjgl.util.vector.Matrix4f;
 public class UniformMatrix extends Uniform{
 	
 	private static FloatBuffer matrixBuffer = BufferUtils.createFloatBuffer(16);
+	
+	private final float[] currentValues = new float[16];
+	private boolean used = false;
 
 	public UniformMatrix(String name) {
 		super(name);
 	}
 	
 	public void loadMatrix(Matrix4f matrix){
+		boolean changed = storeIfChanged(matrix);
+		if(used && !changed){
+			countSkippedUpload();
+			return;
+		}
+		used = true;
 		matrix.store(matrixBuffer);
 		matrixBuffer.flip();
 		GL20.glUniformMatrix4(super.getLocation(), false, matrixBuffer);
+		countUpload();
+	}
+	
+	/**
+	 * Compares the matrix to the last one that was uploaded, and remembers it
+	 * if it's different.
+	 * 
+	 * @return True if the matrix was different to the last one.
+	 */
+	private boolean storeIfChanged(Matrix4f matrix){
+		boolean changed = false;
+		changed |= store(0, matrix.m00);
+		changed |= store(1, matrix.m01);
+		changed |= store(2, matrix.m02);
+		changed |= store(3, matrix.m03);
+		changed |= store(4, matrix.m10);
+		changed |= store(5, matrix.m11);
+		changed |= store(6, matrix.m12);
+		changed |= store(7, matrix.m13);
+		changed |= store(8, matrix.m20);
+		changed |= store(9, matrix.m21);
+		changed |= store(10, matrix.m22);
+		changed |= store(11, matrix.m23);
+		changed |= store(12, matrix.m30);
+		changed |= store(13, matrix.m31);
+		changed |= store(14, matrix.m32);
+		changed |= store(15, matrix.m33);
+		return changed;
 	}
 	
+	private boolean store(int index, float value){
+		if(currentValues[index] != value){
+			currentValues[index] = value;
+			return true;
+		}
+		return false;
+	}
 	
 
 }
@@ -16,6 +16,9 @@ public class UniformSampler extends Uniform {
 			GL20.glUniform1i(super.getLocation(), texUnit);
 			used = true;
 			currentValue = texUnit;
+			countUpload();
+		} else {
+			countSkippedUpload();
 		}
 	}
 
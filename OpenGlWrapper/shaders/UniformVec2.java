@@ -23,6 +23,9 @@ public class UniformVec2 extends Uniform {
 			this.currentY = y;
 			used = true;
 			GL20.glUniform2f(super.getLocation(), x, y);
+			countUpload();
+		} else {
+			countSkippedUpload();
 		}
 	}
 
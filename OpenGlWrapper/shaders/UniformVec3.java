@@ -24,6 +24,9 @@ public class UniformVec3 extends Uniform {
 			this.currentZ = z;
 			used = true;
 			GL20.glUniform3f(super.getLocation(), x, y, z);
+			countUpload();
+		} else {
+			countSkippedUpload();
 		}
 	}
 
@@ -0,0 +1,107 @@
+package timing;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * Prints the results of a benchmark run: the throughput (frames per second
+ * over the whole run), the CPU and GPU times of each pass, and the summary of
+ * the frame times. Everything is printed as one "name value" pair per column
+ * in a fixed order, so that the output of two runs can be compared line by
+ * line (or by a script).
+ *
+ * @author Karl
+ *
+ */
+public class BenchmarkReport {
+
+	private static final double NANOS_PER_MICRO = 1000.0;
+	private static final double NANOS_PER_SECOND = 1000000000.0;
+
+	private final PrintStream out;
+
+	/**
+	 * @param out
+	 *            - Where the report gets printed.
+	 */
+	public BenchmarkReport(PrintStream out) {
+		this.out = out;
+	}
+
+	/**
+	 * Prints the number of frames, how long they took altogether, and the
+	 * average frame rate.
+	 *
+	 * @param frames
+	 *            - The number of frames that were measured.
+	 * @param elapsedNanos
+	 *            - The total time of those frames, in nanoseconds.
+	 */
+	public void printThroughput(long frames, long elapsedNanos) {
+		double seconds = elapsedNanos / NANOS_PER_SECOND;
+		out.println("frames " + frames + " seconds " + format(seconds) + " fps " + format(frames / seconds));
+	}
+
+	/**
+	 * Prints an amount of work per frame and per second, e.g. the number of
+	 * draw calls.
+	 *
+	 * @param name
+	 *            - The name of the amount.
+	 * @param total
+	 *            - The total amount over all the frames.
+	 * @param frames
+	 *            - The number of frames.
+	 * @param elapsedNanos
+	 *            - The total time of the frames, in nanoseconds.
+	 */
+	public void printRate(String name, long total, long frames, long elapsedNanos) {
+		double seconds = elapsedNanos / NANOS_PER_SECOND;
+		out.println(name + " total " + total + " per_frame " + format((double) total / frames) + " per_second "
+				+ format(total / seconds));
+	}
+
+	/**
+	 * Prints the median, 95th and 99th percentile CPU times of each pass, and
+	 * the GPU times too if there are any.
+	 *
+	 * @param passTimer
+	 *            - The timer that the passes were timed with.
+	 */
+	public void printPasses(PassTimer passTimer) {
+		for (int i = 0; i < passTimer.getPassCount(); i++) {
+			StringBuilder line = new StringBuilder("pass ").append(passTimer.getPassName(i));
+			line.append(" cpu_p50_us ").append(micros(passTimer.getCpuPercentile(i, 50)));
+			line.append(" cpu_p95_us ").append(micros(passTimer.getCpuPercentile(i, 95)));
+			line.append(" cpu_p99_us ").append(micros(passTimer.getCpuPercentile(i, 99)));
+			if (passTimer.hasGpuTimes(i)) {
+				line.append(" gpu_p50_us ").append(micros(passTimer.getGpuPercentile(i, 50)));
+				line.append(" gpu_p95_us ").append(micros(passTimer.getGpuPercentile(i, 95)));
+				line.append(" gpu_p99_us ").append(micros(passTimer.getGpuPercentile(i, 99)));
+			}
+			out.println(line);
+		}
+	}
+
+	/**
+	 * Prints the summary of the frame times.
+	 *
+	 * @param frameTimes
+	 *            - The frame times of the run.
+	 */
+	public void printFrameTimes(FrameTimeHistogram frameTimes) {
+		out.println("frame_ms mean " + format(frameTimes.getMeanMillis()) + " p50 "
+				+ format(frameTimes.getPercentileMillis(50)) + " p95 " + format(frameTimes.getPercentileMillis(95))
+				+ " p99 " + format(frameTimes.getPercentileMillis(99)) + " max " + format(frameTimes.getMaxMillis())
+				+ " stutters " + frameTimes.getStutterCount());
+	}
+
+	private static String micros(long nanos) {
+		return format(nanos / NANOS_PER_MICRO);
+	}
+
+	private static String format(double value) {
+		return String.format(Locale.ROOT, "%.3f", value);
+	}
+
+}
@@ -0,0 +1,266 @@
+package timing;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * A histogram of frame times, for measuring how smoothly frames are being
+ * delivered. The buckets are laid out like an HDR histogram: the first 64
+ * buckets are one microsecond wide, and after that each doubling of the frame
+ * time is split into 32 buckets, so every frame time is recorded to within
+ * about 3%. There's a fixed number of buckets (enough for frames up to a
+ * couple of minutes long), so recording a frame is just an array increment and nothing
+ * is ever allocated.
+ * 
+ * As well as the percentiles, the number of stutters is counted. A stutter is
+ * a frame which took more than a certain multiple of the recent average frame
+ * time.
+ * 
+ * The histogram can be written to a CSV or JSON file, so that the frame pacing
+ * of different builds or settings can be compared.
+ * 
+ * @author Karl
+ *
+ */
+public class FrameTimeHistogram {
+
+	private static final int SUB_BUCKET_BITS = 6;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+	private static final int MAX_SHIFT = 21;
+	private static final int BUCKET_COUNT = SUB_BUCKETS + MAX_SHIFT * HALF_SUB_BUCKETS;
+
+	private static final float AVERAGE_SMOOTHING = 0.05f;
+	private static final double MICROS_PER_MILLI = 1000.0;
+
+	private final long[] counts = new long[BUCKET_COUNT];
+	private final float stutterFactor;
+
+	private long frameCount = 0;
+	private long totalMicros = 0;
+	private long maxMicros = 0;
+	private long stutterCount = 0;
+	private float averageMicros = -1;
+
+	/**
+	 * @param stutterFactor
+	 *            - How many times longer than the recent average a frame has to
+	 *            take to count as a stutter.
+	 */
+	public FrameTimeHistogram(float stutterFactor) {
+		this.stutterFactor = stutterFactor;
+	}
+
+	/**
+	 * Records the time taken by a frame.
+	 * 
+	 * @param frameNanos
+	 *            - The time between the end of the last frame and the end of
+	 *            this one, in nanoseconds.
+	 */
+	public void record(long frameNanos) {
+		long micros = Math.max(frameNanos / 1000, 0);
+		counts[getBucket(micros)]++;
+		frameCount++;
+		totalMicros += micros;
+		maxMicros = Math.max(maxMicros, micros);
+		if (averageMicros < 0) {
+			averageMicros = micros;
+		} else {
+			if (micros > averageMicros * stutterFactor) {
+				stutterCount++;
+			}
+			averageMicros += (micros - averageMicros) * AVERAGE_SMOOTHING;
+		}
+	}
+
+	/**
+	 * @param percentile
+	 *            - The percentile, between 0 and 100.
+	 * @return The frame time (in milliseconds) that at least the given
+	 *         percentage of frames were no longer than, or 0 if no frames have
+	 *         been recorded. This is the top of the bucket that the percentile
+	 *         falls in, so it's never less than the real value.
+	 */
+	public double getPercentileMillis(double percentile) {
+		if (frameCount == 0) {
+			return 0;
+		}
+		long rank = Math.max((long) Math.ceil(percentile / 100 * frameCount), 1);
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(getBucketTop(i), maxMicros) / MICROS_PER_MILLI;
+			}
+		}
+		return maxMicros / MICROS_PER_MILLI;
+	}
+
+	public double getMaxMillis() {
+		return maxMicros / MICROS_PER_MILLI;
+	}
+
+	public double getMeanMillis() {
+		return frameCount == 0 ? 0 : totalMicros / MICROS_PER_MILLI / frameCount;
+	}
+
+	public long getFrameCount() {
+		return frameCount;
+	}
+
+	/**
+	 * @return The number of frames that took more than the stutter factor
+	 *         times the recent average frame time.
+	 */
+	public long getStutterCount() {
+		return stutterCount;
+	}
+
+	/**
+	 * Removes all the recorded frames.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts[i] = 0;
+		}
+		frameCount = 0;
+		totalMicros = 0;
+		maxMicros = 0;
+		stutterCount = 0;
+		averageMicros = -1;
+	}
+
+	/**
+	 * Writes the summary and all the non-empty buckets to a file. If the file
+	 * name ends in ".json" it's written as JSON, otherwise as CSV.
+	 * 
+	 * @param file
+	 *            - The file to write to. It gets replaced if it exists.
+	 * @return Whether the file was written successfully.
+	 */
+	public boolean save(File file) {
+		Writer writer = null;
+		try {
+			writer = new BufferedWriter(new FileWriter(file));
+			if (file.getName().toLowerCase(Locale.ROOT).endsWith(".json")) {
+				writeJson(writer);
+			} else {
+				writeCsv(writer);
+			}
+			return true;
+		} catch (IOException e) {
+			System.err.println("Couldn't write the frame times to " + file);
+			e.printStackTrace();
+			return false;
+		} finally {
+			close(writer);
+		}
+	}
+
+	/**
+	 * Writes the summary, followed by one line for each non-empty bucket with
+	 * the bucket's range (in milliseconds) and the number of frames in it.
+	 */
+	public void writeCsv(Writer writer) throws IOException {
+		writer.write("frames,mean_ms,p50_ms,p95_ms,p99_ms,max_ms,stutters\n");
+		writer.write(frameCount + "," + format(getMeanMillis()) + "," + format(getPercentileMillis(50)) + ","
+				+ format(getPercentileMillis(95)) + "," + format(getPercentileMillis(99)) + ","
+				+ format(getMaxMillis()) + "," + stutterCount + "\n");
+		writer.write("\nbucket_from_ms,bucket_to_ms,count\n");
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			if (counts[i] > 0) {
+				writer.write(format(getBucketBottom(i) / MICROS_PER_MILLI) + ","
+						+ format(getBucketTop(i) / MICROS_PER_MILLI) + "," + counts[i] + "\n");
+			}
+		}
+	}
+
+	/**
+	 * Writes the summary and the non-empty buckets as a JSON object.
+	 */
+	public void writeJson(Writer writer) throws IOException {
+		writer.write("{\n");
+		writer.write("  \"frames\": " + frameCount + ",\n");
+		writer.write("  \"meanMs\": " + format(getMeanMillis()) + ",\n");
+		writer.write("  \"p50Ms\": " + format(getPercentileMillis(50)) + ",\n");
+		writer.write("  \"p95Ms\": " + format(getPercentileMillis(95)) + ",\n");
+		writer.write("  \"p99Ms\": " + format(getPercentileMillis(99)) + ",\n");
+		writer.write("  \"maxMs\": " + format(getMaxMillis()) + ",\n");
+		writer.write("  \"stutters\": " + stutterCount + ",\n");
+		writer.write("  \"buckets\": [");
+		boolean first = true;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			if (counts[i] == 0) {
+				continue;
+			}
+			writer.write(first ? "\n" : ",\n");
+			writer.write("    {\"fromMs\": " + format(getBucketBottom(i) / MICROS_PER_MILLI) + ", \"toMs\": "
+					+ format(getBucketTop(i) / MICROS_PER_MILLI) + ", \"count\": " + counts[i] + "}");
+			first = false;
+		}
+		writer.write(first ? "]\n" : "\n  ]\n");
+		writer.write("}\n");
+	}
+
+	/**
+	 * Finds the bucket that a frame time goes in. Times below 64us each have
+	 * their own bucket. Above that, the top 6 bits of the time pick the
+	 * bucket within its power of two.
+	 */
+	private static int getBucket(long micros) {
+		if (micros < SUB_BUCKETS) {
+			return (int) micros;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(micros) - (SUB_BUCKET_BITS - 1);
+		if (shift > MAX_SHIFT) {
+			return BUCKET_COUNT - 1;
+		}
+		int subBucket = (int) (micros >>> shift);
+		return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + (subBucket - HALF_SUB_BUCKETS);
+	}
+
+	/**
+	 * @return The smallest time (in microseconds) that goes in a bucket.
+	 */
+	private static long getBucketBottom(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = (bucket - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+		int subBucket = (bucket - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+		return (long) subBucket << shift;
+	}
+
+	/**
+	 * @return The largest time (in microseconds) that goes in a bucket. The
+	 *         last bucket takes everything that's too long for the others, so
+	 *         the longest frame is used as its top.
+	 */
+	private long getBucketTop(int bucket) {
+		if (bucket == BUCKET_COUNT - 1) {
+			return Math.max(maxMicros, getBucketBottom(bucket));
+		}
+		return getBucketBottom(bucket + 1) - 1;
+	}
+
+	private static String format(double value) {
+		return String.format(Locale.ROOT, "%.3f", value);
+	}
+
+	private static void close(Writer writer) {
+		if (writer == null) {
+			return;
+		}
+		try {
+			writer.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+}
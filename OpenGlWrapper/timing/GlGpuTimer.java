@@ -0,0 +1,95 @@
+package timing;
+
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL33;
+
+/**
+ * Measures the GPU time of each pass with GL_TIME_ELAPSED timer queries. The
+ * result of a query isn't available until the GPU has finished the work, and
+ * waiting for it would stall the CPU, so there's a set of queries for each of
+ * the last few frames. At the end of each frame the queries from a few frames
+ * ago are read, and are then reused for the new frame. If a result still
+ * isn't ready by then it's dropped rather than waited for.
+ * 
+ * Timer queries can't be nested, so if a pass is started while another one is
+ * still being timed the inner pass doesn't get a GPU time.
+ * 
+ * @author Karl
+ *
+ */
+public class GlGpuTimer implements IGpuTimer {
+
+	private static final int FRAMES_IN_FLIGHT = 4;
+
+	private final int passCount;
+	private final int[] queries;
+	private final boolean[] pending;
+
+	private int frame = 0;
+	private int activePass = -1;
+
+	/**
+	 * Creates all the timer queries.
+	 * 
+	 * @param passCount
+	 *            - The number of passes that will be timed.
+	 */
+	public GlGpuTimer(int passCount) {
+		this.passCount = passCount;
+		this.queries = new int[passCount * FRAMES_IN_FLIGHT];
+		this.pending = new boolean[queries.length];
+		for (int i = 0; i < queries.length; i++) {
+			queries[i] = GL15.glGenQueries();
+		}
+	}
+
+	@Override
+	public void begin(int pass) {
+		if (activePass >= 0) {
+			return;
+		}
+		GL15.glBeginQuery(GL33.GL_TIME_ELAPSED, queries[getIndex(frame, pass)]);
+		activePass = pass;
+	}
+
+	@Override
+	public void end(int pass) {
+		if (activePass != pass) {
+			return;
+		}
+		GL15.glEndQuery(GL33.GL_TIME_ELAPSED);
+		pending[getIndex(frame, pass)] = true;
+		activePass = -1;
+	}
+
+	/**
+	 * Moves on to the next set of queries, reading the results that they hold
+	 * from a few frames ago first.
+	 */
+	@Override
+	public void endFrame(PassTimer timer) {
+		frame = (frame + 1) % FRAMES_IN_FLIGHT;
+		for (int pass = 0; pass < passCount; pass++) {
+			int index = getIndex(frame, pass);
+			if (!pending[index]) {
+				continue;
+			}
+			pending[index] = false;
+			if (GL15.glGetQueryObjecti(queries[index], GL15.GL_QUERY_RESULT_AVAILABLE) != 0) {
+				timer.recordGpuTime(pass, GL33.glGetQueryObjectui64(queries[index], GL15.GL_QUERY_RESULT));
+			}
+		}
+	}
+
+	@Override
+	public void delete() {
+		for (int i = 0; i < queries.length; i++) {
+			GL15.glDeleteQueries(queries[i]);
+		}
+	}
+
+	private int getIndex(int frame, int pass) {
+		return frame * passCount + pass;
+	}
+
+}
@@ -0,0 +1,69 @@
+package timing;
+
+/**
+ * Measures how long the GPU spends on each pass. GPU work finishes some time
+ * after the CPU has submitted it, so the results are handed to the
+ * {@link PassTimer} a few frames later, when they're ready.
+ * 
+ * @author Karl
+ *
+ */
+public interface IGpuTimer {
+
+	/**
+	 * A GPU timer that doesn't measure anything. Used when there's no OpenGL
+	 * context (or the timer queries aren't wanted), in which case only the CPU
+	 * times get recorded.
+	 */
+	public static final IGpuTimer NONE = new IGpuTimer() {
+
+		@Override
+		public void begin(int pass) {
+		}
+
+		@Override
+		public void end(int pass) {
+		}
+
+		@Override
+		public void endFrame(PassTimer timer) {
+		}
+
+		@Override
+		public void delete() {
+		}
+
+	};
+
+	/**
+	 * Starts timing the GPU work for a pass.
+	 * 
+	 * @param pass
+	 *            - The index of the pass.
+	 */
+	public void begin(int pass);
+
+	/**
+	 * Stops timing the GPU work for a pass.
+	 * 
+	 * @param pass
+	 *            - The index of the pass.
+	 */
+	public void end(int pass);
+
+	/**
+	 * Called at the end of each frame. Any results which have become
+	 * available are given to the timer with
+	 * {@link PassTimer#recordGpuTime(int, long)}.
+	 * 
+	 * @param timer
+	 *            - The timer that the results are recorded in.
+	 */
+	public void endFrame(PassTimer timer);
+
+	/**
+	 * Deletes any OpenGL objects used by the timer.
+	 */
+	public void delete();
+
+}
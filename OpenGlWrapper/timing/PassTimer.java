@@ -0,0 +1,286 @@
+package timing;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import utils.IClock;
+
+/**
+ * Records how long each pass of a frame takes, on the CPU and on the GPU. Each
+ * pass is wrapped in calls to {@link #begin(int)} and {@link #end(int)}, and
+ * {@link #endFrame()} is called once at the end of the frame. The CPU time is
+ * measured with the clock, and the GPU time by an {@link IGpuTimer} (whose
+ * results arrive a few frames later). Use {@link IGpuTimer#NONE} to only
+ * record CPU times, e.g. when there's no OpenGL context.
+ * 
+ * The times for the recent frames of each pass are kept, and percentiles over
+ * them can be read through this class or through JMX once
+ * {@link #registerMBean(String)} has been called. Each measurement can also be
+ * sent to Java Flight Recorder as a {@link PassTimingEvent}, but that's turned
+ * off by default because it allocates an event for each measurement.
+ * Otherwise nothing is allocated while timing.
+ * 
+ * @author Karl
+ *
+ */
+public class PassTimer implements PassTimerMXBean {
+
+	public static final int DEFAULT_HISTORY_SIZE = 300;
+	private static final double NANOS_PER_MILLI = 1000000.0;
+
+	private final String[] passNames;
+	private final IGpuTimer gpuTimer;
+	private final IClock clock;
+	private final RollingPercentiles[] cpuTimes;
+	private final RollingPercentiles[] gpuTimes;
+	private final long[] startTimes;
+
+	private volatile long frameCount = 0;
+	private boolean jfrEvents = false;
+	private ObjectName mbeanName;
+
+	/**
+	 * @param passNames
+	 *            - The names of the passes. Passes are referred to by their
+	 *            index in this array.
+	 * @param gpuTimer
+	 *            - Measures the GPU time of the passes.
+	 * @param clock
+	 *            - Measures the CPU time of the passes.
+	 */
+	public PassTimer(String[] passNames, IGpuTimer gpuTimer, IClock clock) {
+		this(passNames, gpuTimer, clock, DEFAULT_HISTORY_SIZE);
+	}
+
+	/**
+	 * @param passNames
+	 *            - The names of the passes. Passes are referred to by their
+	 *            index in this array.
+	 * @param gpuTimer
+	 *            - Measures the GPU time of the passes.
+	 * @param clock
+	 *            - Measures the CPU time of the passes.
+	 * @param historySize
+	 *            - The number of recent frames whose times are kept for each
+	 *            pass.
+	 */
+	public PassTimer(String[] passNames, IGpuTimer gpuTimer, IClock clock, int historySize) {
+		this.passNames = passNames;
+		this.gpuTimer = gpuTimer;
+		this.clock = clock;
+		this.cpuTimes = new RollingPercentiles[passNames.length];
+		this.gpuTimes = new RollingPercentiles[passNames.length];
+		this.startTimes = new long[passNames.length];
+		for (int i = 0; i < passNames.length; i++) {
+			cpuTimes[i] = new RollingPercentiles(historySize);
+			gpuTimes[i] = new RollingPercentiles(historySize);
+		}
+	}
+
+	/**
+	 * Starts timing a pass.
+	 * 
+	 * @param pass
+	 *            - The index of the pass.
+	 */
+	public void begin(int pass) {
+		startTimes[pass] = clock.nanoTime();
+		gpuTimer.begin(pass);
+	}
+
+	/**
+	 * Stops timing a pass, and records the CPU time it took.
+	 * 
+	 * @param pass
+	 *            - The index of the pass.
+	 */
+	public void end(int pass) {
+		gpuTimer.end(pass);
+		long time = clock.nanoTime() - startTimes[pass];
+		cpuTimes[pass].add(time);
+		if (jfrEvents) {
+			commitEvent(pass, false, time);
+		}
+	}
+
+	/**
+	 * Should be called at the end of each frame. Picks up any GPU times that
+	 * have become available.
+	 */
+	public void endFrame() {
+		gpuTimer.endFrame(this);
+		frameCount++;
+	}
+
+	/**
+	 * Records the GPU time of a pass. Called by the {@link IGpuTimer}.
+	 * 
+	 * @param pass
+	 *            - The index of the pass.
+	 * @param nanos
+	 *            - The time that the GPU spent on the pass, in nanoseconds.
+	 */
+	public void recordGpuTime(int pass, long nanos) {
+		gpuTimes[pass].add(nanos);
+		if (jfrEvents) {
+			commitEvent(pass, true, nanos);
+		}
+	}
+
+	/**
+	 * @param pass
+	 *            - The index of the pass.
+	 * @param percentile
+	 *            - The percentile, between 0 and 100.
+	 * @return The percentile of the recent CPU times of the pass, in
+	 *         nanoseconds.
+	 */
+	public long getCpuPercentile(int pass, double percentile) {
+		return cpuTimes[pass].getPercentile(percentile);
+	}
+
+	/**
+	 * @param pass
+	 *            - The index of the pass.
+	 * @param percentile
+	 *            - The percentile, between 0 and 100.
+	 * @return The percentile of the recent GPU times of the pass, in
+	 *         nanoseconds, or 0 if there are no GPU times.
+	 */
+	public long getGpuPercentile(int pass, double percentile) {
+		return gpuTimes[pass].getPercentile(percentile);
+	}
+
+	/**
+	 * @return Whether any GPU times have been recorded for the pass. There
+	 *         won't be any if the GPU timer is {@link IGpuTimer#NONE}.
+	 */
+	public boolean hasGpuTimes(int pass) {
+		return gpuTimes[pass].getCount() > 0;
+	}
+
+	/**
+	 * Forgets all the times recorded so far, e.g. at the end of a warm up.
+	 */
+	public void clear() {
+		for (int i = 0; i < passNames.length; i++) {
+			cpuTimes[i].clear();
+			gpuTimes[i].clear();
+		}
+		frameCount = 0;
+	}
+
+	public int getPassCount() {
+		return passNames.length;
+	}
+
+	public String getPassName(int pass) {
+		return passNames[pass];
+	}
+
+	/**
+	 * Turns the Java Flight Recorder events on or off.
+	 */
+	public void setJfrEventsEnabled(boolean enabled) {
+		this.jfrEvents = enabled;
+	}
+
+	/**
+	 * Makes the timings available through JMX, under the name
+	 * "lowpoly:type=PassTimer,name=[name]". If the registration fails the
+	 * timings just aren't available through JMX.
+	 * 
+	 * @param name
+	 *            - The name to register the timings under.
+	 */
+	public void registerMBean(String name) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			mbeanName = new ObjectName("lowpoly:type=PassTimer,name=" + name);
+			server.registerMBean(this, mbeanName);
+		} catch (JMException e) {
+			System.err.println("Couldn't register the pass timings with JMX.");
+			e.printStackTrace();
+			mbeanName = null;
+		}
+	}
+
+	/**
+	 * Removes the timings from JMX (if they were registered) and deletes the
+	 * GPU timer.
+	 */
+	public void delete() {
+		gpuTimer.delete();
+		if (mbeanName == null) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(mbeanName);
+		} catch (JMException e) {
+			e.printStackTrace();
+		}
+		mbeanName = null;
+	}
+
+	@Override
+	public String[] getPassNames() {
+		return passNames.clone();
+	}
+
+	@Override
+	public long getFrameCount() {
+		return frameCount;
+	}
+
+	@Override
+	public double[] getCpuMedianMillis() {
+		return getMillis(cpuTimes, 50);
+	}
+
+	@Override
+	public double[] getCpu95thPercentileMillis() {
+		return getMillis(cpuTimes, 95);
+	}
+
+	@Override
+	public double[] getCpu99thPercentileMillis() {
+		return getMillis(cpuTimes, 99);
+	}
+
+	@Override
+	public double[] getGpuMedianMillis() {
+		return getMillis(gpuTimes, 50);
+	}
+
+	@Override
+	public double[] getGpu95thPercentileMillis() {
+		return getMillis(gpuTimes, 95);
+	}
+
+	@Override
+	public double[] getGpu99thPercentileMillis() {
+		return getMillis(gpuTimes, 99);
+	}
+
+	private void commitEvent(int pass, boolean gpu, long time) {
+		PassTimingEvent event = new PassTimingEvent();
+		if (event.shouldCommit()) {
+			event.pass = passNames[pass];
+			event.gpu = gpu;
+			event.time = time;
+			event.commit();
+		}
+	}
+
+	private static double[] getMillis(RollingPercentiles[] times, double percentile) {
+		double[] millis = new double[times.length];
+		for (int i = 0; i < times.length; i++) {
+			millis[i] = times[i].getPercentile(percentile) / NANOS_PER_MILLI;
+		}
+		return millis;
+	}
+
+}
@@ -0,0 +1,29 @@
+package timing;
+
+/**
+ * The pass timings as seen through JMX (e.g. in JConsole or VisualVM). Each
+ * array has one value per pass, in the same order as {@link #getPassNames()}.
+ * The times are in milliseconds, over the recent frames that are kept.
+ * 
+ * @author Karl
+ *
+ */
+public interface PassTimerMXBean {
+
+	public String[] getPassNames();
+
+	public long getFrameCount();
+
+	public double[] getCpuMedianMillis();
+
+	public double[] getCpu95thPercentileMillis();
+
+	public double[] getCpu99thPercentileMillis();
+
+	public double[] getGpuMedianMillis();
+
+	public double[] getGpu95thPercentileMillis();
+
+	public double[] getGpu99thPercentileMillis();
+
+}
@@ -0,0 +1,35 @@
+package timing;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A Java Flight Recorder event for one measurement of a rendering pass. These
+ * are only created if JFR events have been turned on in the
+ * {@link PassTimer}.
+ * 
+ * @author Karl
+ *
+ */
+@Name("lowpoly.PassTiming")
+@Label("Render Pass Timing")
+@Category("Rendering")
+@Description("The CPU or GPU time taken by one rendering pass")
+public class PassTimingEvent extends Event {
+
+	@Label("Pass")
+	String pass;
+
+	@Label("GPU")
+	@Description("True for GPU time, false for CPU time")
+	boolean gpu;
+
+	@Label("Duration")
+	@Timespan(Timespan.NANOSECONDS)
+	long time;
+
+}
@@ -0,0 +1,81 @@
+package timing;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the most recent samples of a measurement (e.g. the time a rendering
+ * pass took) and works out percentiles over them. The samples are stored in a
+ * ring buffer, and only get sorted when a percentile is asked for after new
+ * samples have been added. Nothing is allocated after construction.
+ * 
+ * The methods are synchronized, so the samples can be added on the render
+ * thread while the percentiles are read on another thread (e.g. by JMX).
+ * 
+ * @author Karl
+ *
+ */
+public class RollingPercentiles {
+
+	private final long[] samples;
+	private final long[] sorted;
+
+	private int count = 0;
+	private int next = 0;
+	private boolean needsSorting = false;
+
+	/**
+	 * @param size
+	 *            - The number of recent samples to keep.
+	 */
+	public RollingPercentiles(int size) {
+		this.samples = new long[size];
+		this.sorted = new long[size];
+	}
+
+	/**
+	 * Adds a new sample, replacing the oldest one if the buffer is full.
+	 */
+	public synchronized void add(long sample) {
+		samples[next] = sample;
+		next = (next + 1) % samples.length;
+		count = Math.min(count + 1, samples.length);
+		needsSorting = true;
+	}
+
+	/**
+	 * @param percentile
+	 *            - The percentile, between 0 and 100.
+	 * @return The smallest sample that at least the given percentage of the
+	 *         samples are less than or equal to, or 0 if there aren't any
+	 *         samples yet.
+	 */
+	public synchronized long getPercentile(double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		if (needsSorting) {
+			System.arraycopy(samples, 0, sorted, 0, count);
+			Arrays.sort(sorted, 0, count);
+			needsSorting = false;
+		}
+		int index = (int) Math.ceil(percentile / 100 * count) - 1;
+		return sorted[Math.min(Math.max(index, 0), count - 1)];
+	}
+
+	/**
+	 * @return The number of samples currently being kept.
+	 */
+	public synchronized int getCount() {
+		return count;
+	}
+
+	/**
+	 * Removes all the samples.
+	 */
+	public synchronized void clear() {
+		count = 0;
+		next = 0;
+		needsSorting = false;
+	}
+
+}
@@ -0,0 +1,94 @@
+package utils;
+
+/**
+ * Drives updates at a fixed rate, however often it gets checked. The time
+ * that has passed since the last check is added to an accumulator, and one
+ * update is due for each whole update period in the accumulator. Whatever is
+ * left over is the fraction of the way through to the next update, which can
+ * be used to interpolate between the last two updates when rendering.
+ * 
+ * Because every update moves things on by exactly the same amount of time, the
+ * results of the simulation don't depend on the frame rate (or on how often
+ * the update thread gets woken up). If the updates fall a long way behind,
+ * some of the missed time is thrown away rather than running a huge number of
+ * updates all at once.
+ * 
+ * @author Karl
+ *
+ */
+public class FixedTimestep {
+
+	private final IClock clock;
+	private final long tickNanos;
+	private final int maxTicksPerAdvance;
+
+	private long lastTime = -1;
+	private long accumulator = 0;
+
+	/**
+	 * @param clock
+	 *            - The source of time.
+	 * @param ticksPerSecond
+	 *            - The number of updates per second.
+	 * @param maxTicksPerAdvance
+	 *            - The most updates that {@link #advance()} will ask for at
+	 *            once. Any more than this are skipped.
+	 */
+	public FixedTimestep(IClock clock, int ticksPerSecond, int maxTicksPerAdvance) {
+		this.clock = clock;
+		this.tickNanos = 1000000000L / ticksPerSecond;
+		this.maxTicksPerAdvance = maxTicksPerAdvance;
+	}
+
+	/**
+	 * Adds the time since the last call to the accumulator, and takes off the
+	 * updates that are now due. The first call just starts the clock, and
+	 * returns 1 so that there's an update to start with.
+	 * 
+	 * @return The number of updates that should be carried out now.
+	 */
+	public int advance() {
+		long now = clock.nanoTime();
+		if (lastTime < 0) {
+			lastTime = now;
+			return 1;
+		}
+		accumulator += now - lastTime;
+		lastTime = now;
+		long ticks = accumulator / tickNanos;
+		accumulator -= ticks * tickNanos;
+		return (int) Math.min(ticks, maxTicksPerAdvance);
+	}
+
+	/**
+	 * @return How far it is to the next update (as of the last call to
+	 *         {@link #advance()}), from 0 (an update has just happened) to 1.
+	 */
+	public float getAlpha() {
+		return (float) accumulator / tickNanos;
+	}
+
+	/**
+	 * @return The number of nanoseconds until the next update is due, as of
+	 *         the last call to {@link #advance()}.
+	 */
+	public long getNanosUntilNextTick() {
+		return tickNanos - accumulator;
+	}
+
+	/**
+	 * @return The length of an update, in nanoseconds.
+	 */
+	public long getTickNanos() {
+		return tickNanos;
+	}
+
+	/**
+	 * @return The length of an update, in seconds. This is the delta that
+	 *         every update should use.
+	 */
+	public float getTickSeconds() {
+		return tickNanos / 1000000000f;
+	}
+
+}
@@ -0,0 +1,31 @@
+package utils;
+
+/**
+ * A source of time. Code which makes decisions based on how long things take
+ * gets its time from one of these rather than straight from System.nanoTime(),
+ * so that it can be driven by a fake clock when checking how it behaves.
+ * 
+ * @author Karl
+ *
+ */
+public interface IClock {
+
+	/**
+	 * The real system clock.
+	 */
+	public static final IClock SYSTEM = new IClock() {
+
+		@Override
+		public long nanoTime() {
+			return System.nanoTime();
+		}
+
+	};
+
+	/**
+	 * @return The current time in nanoseconds. Only the difference between two
+	 *         times means anything.
+	 */
+	public long nanoTime();
+
+}
@@ -5,6 +5,9 @@ import org.lwjgl.util.vector.Vector3f;
 
 public class Maths {
 	
+	private static final Vector3f X_AXIS = new Vector3f(1, 0, 0);
+	private static final Vector3f Y_AXIS = new Vector3f(0, 1, 0);
+	
 	public static float clamp(float value, float min, float max){
 		return Math.max(Math.min(value, max), min);
 	}
@@ -24,12 +27,20 @@ public class Maths {
 		return normal;
 	}
 	
+	/**
+	 * Sets up a view matrix for a camera. Nothing gets allocated, so this can
+	 * be called every frame. The axis vectors are shared and never changed.
+	 * The translation is the same as Matrix4f.translate() with the negative
+	 * camera position, but done here so that no vector needs creating.
+	 */
 	public static void updateViewMatrix(Matrix4f viewMatrix, float x, float y, float z, float pitch, float yaw){
 		viewMatrix.setIdentity();
-		Matrix4f.rotate((float) Math.toRadians(pitch), new Vector3f(1, 0, 0), viewMatrix, viewMatrix);
-		Matrix4f.rotate((float) Math.toRadians(yaw), new Vector3f(0, 1, 0), viewMatrix, viewMatrix);
-		Vector3f negativeCameraPos = new Vector3f(-x, -y, -z);
-		Matrix4f.translate(negativeCameraPos, viewMatrix, viewMatrix);
+		Matrix4f.rotate((float) Math.toRadians(pitch), X_AXIS, viewMatrix, viewMatrix);
+		Matrix4f.rotate((float) Math.toRadians(yaw), Y_AXIS, viewMatrix, viewMatrix);
+		viewMatrix.m30 -= viewMatrix.m00 * x + viewMatrix.m10 * y + viewMatrix.m20 * z;
+		viewMatrix.m31 -= viewMatrix.m01 * x + viewMatrix.m11 * y + viewMatrix.m21 * z;
+		viewMatrix.m32 -= viewMatrix.m02 * x + viewMatrix.m12 * y + viewMatrix.m22 * z;
+		viewMatrix.m33 -= viewMatrix.m03 * x + viewMatrix.m13 * y + viewMatrix.m23 * z;
 	}
 	
 }
@@ -2,15 +2,30 @@ package utils;
 
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
 
 /**
  * Useful class for updating OpenGL state, such as alpha blending, depth testing, etc.
- * 
+ *
+ * All the state that gets changed often (the shader program, VAO, buffers,
+ * textures, framebuffers, viewport and clip distances) is also tracked here,
+ * and changes which wouldn't actually change anything aren't sent to OpenGL.
+ * This only works if all the code changes this state through here, and if the
+ * tracked state is told about objects being deleted (OpenGL unbinds them, and
+ * their IDs can get reused). The number of calls that were made and skipped
+ * are counted for each frame.
+ *
  * @author Karl
  *
  */
 public class OpenGlUtils {
-	
+
+	private static final int UNKNOWN = -1;
+	private static final int MAX_TEXTURE_UNITS = 16;
+	private static final int MAX_CLIP_DISTANCES = 8;
+
 	private static boolean cullingBackFace = false;
 	private static boolean inWireframe = false;
 	private static boolean isAlphaBlending = false;
@@ -18,13 +33,36 @@ public class OpenGlUtils {
 	private static boolean antialiasing = false;
 	private static boolean depthTesting = false;
 
+	private static int program = 0;
+	private static int vao = 0;
+	private static int arrayBuffer = 0;
+	private static int elementBuffer = 0;
+	private static int activeUnit = 0;
+	private static final int[] textures = new int[MAX_TEXTURE_UNITS];
+	private static int drawFramebuffer = 0;
+	private static int readFramebuffer = 0;
+	private static int viewportX = UNKNOWN;
+	private static int viewportY = UNKNOWN;
+	private static int viewportWidth = UNKNOWN;
+	private static int viewportHeight = UNKNOWN;
+	private static int clipDistances = 0;
+
+	private static int issuedCalls = 0;
+	private static int elidedCalls = 0;
+	private static int lastFrameIssued = 0;
+	private static int lastFrameElided = 0;
+
 	public static void antialias(boolean enable) {
 		if (enable && !antialiasing) {
 			GL11.glEnable(GL13.GL_MULTISAMPLE);
 			antialiasing = true;
+			issuedCalls++;
 		} else if (!enable && antialiasing) {
 			GL11.glDisable(GL13.GL_MULTISAMPLE);
 			antialiasing = false;
+			issuedCalls++;
+		} else {
+			elidedCalls++;
 		}
 	}
 
@@ -34,6 +72,9 @@ public class OpenGlUtils {
 			GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
 			isAlphaBlending = true;
 			additiveBlending = false;
+			issuedCalls++;
+		} else {
+			elidedCalls++;
 		}
 	}
 
@@ -43,6 +84,9 @@ public class OpenGlUtils {
 			GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE);
 			additiveBlending = true;
 			isAlphaBlending = false;
+			issuedCalls++;
+		} else {
+			elidedCalls++;
 		}
 	}
 
@@ -51,16 +95,23 @@ public class OpenGlUtils {
 			GL11.glDisable(GL11.GL_BLEND);
 			isAlphaBlending = false;
 			additiveBlending = false;
+			issuedCalls++;
+		} else {
+			elidedCalls++;
 		}
 	}
-	
+
 	public static void enableDepthTesting(boolean enable){
 		if(enable && !depthTesting){
 			GL11.glEnable(GL11.GL_DEPTH_TEST);
 			depthTesting = true;
+			issuedCalls++;
 		}else if(!enable && depthTesting){
 			GL11.glDisable(GL11.GL_DEPTH_TEST);
 			depthTesting = false;
+			issuedCalls++;
+		}else{
+			elidedCalls++;
 		}
 	}
 
@@ -69,9 +120,13 @@ public class OpenGlUtils {
 			GL11.glEnable(GL11.GL_CULL_FACE);
 			GL11.glCullFace(GL11.GL_BACK);
 			cullingBackFace = true;
+			issuedCalls++;
 		} else if (!cull && cullingBackFace) {
 			GL11.glDisable(GL11.GL_CULL_FACE);
 			cullingBackFace = false;
+			issuedCalls++;
+		} else {
+			elidedCalls++;
 		}
 	}
 
@@ -79,10 +134,258 @@ public class OpenGlUtils {
 		if (goWireframe && !inWireframe) {
 			GL11.glPolygonMode(GL11.GL_FRONT_AND_BACK, GL11.GL_LINE);
 			inWireframe = true;
+			issuedCalls++;
 		} else if (!goWireframe && inWireframe) {
 			GL11.glPolygonMode(GL11.GL_FRONT_AND_BACK, GL11.GL_FILL);
 			inWireframe = false;
+			issuedCalls++;
+		} else {
+			elidedCalls++;
+		}
+	}
+
+	public static void useProgram(int programId) {
+		if (programId != program) {
+			GL20.glUseProgram(programId);
+			program = programId;
+			issuedCalls++;
+		} else {
+			elidedCalls++;
+		}
+	}
+
+	/**
+	 * Binds a VAO. The element array buffer binding is part of the VAO's
+	 * state, so it isn't known any more after the VAO changes.
+	 *
+	 * @param vaoId
+	 *            - The ID of the VAO, or 0 to unbind.
+	 */
+	public static void bindVao(int vaoId) {
+		if (vaoId != vao) {
+			GL30.glBindVertexArray(vaoId);
+			vao = vaoId;
+			elementBuffer = UNKNOWN;
+			issuedCalls++;
+		} else {
+			elidedCalls++;
+		}
+	}
+
+	/**
+	 * Binds a buffer. Only the array buffer and element array buffer bindings
+	 * are tracked, any other type of buffer always gets bound.
+	 *
+	 * @param target
+	 *            - The buffer binding point, e.g. GL_ARRAY_BUFFER.
+	 * @param bufferId
+	 *            - The ID of the buffer, or 0 to unbind.
+	 */
+	public static void bindBuffer(int target, int bufferId) {
+		if (target == GL15.GL_ARRAY_BUFFER) {
+			if (bufferId == arrayBuffer) {
+				elidedCalls++;
+				return;
+			}
+			arrayBuffer = bufferId;
+		} else if (target == GL15.GL_ELEMENT_ARRAY_BUFFER) {
+			if (bufferId == elementBuffer) {
+				elidedCalls++;
+				return;
+			}
+			elementBuffer = bufferId;
+		}
+		GL15.glBindBuffer(target, bufferId);
+		issuedCalls++;
+	}
+
+	/**
+	 * Binds a 2D texture to a texture unit. The active texture unit is only
+	 * changed if the texture actually needs binding.
+	 *
+	 * @param unit
+	 *            - The index of the texture unit.
+	 * @param textureId
+	 *            - The ID of the texture, or 0 to unbind.
+	 */
+	public static void bindTexture(int unit, int textureId) {
+		if (unit < MAX_TEXTURE_UNITS && textures[unit] == textureId) {
+			elidedCalls++;
+			return;
+		}
+		if (unit != activeUnit) {
+			GL13.glActiveTexture(GL13.GL_TEXTURE0 + unit);
+			activeUnit = unit;
+			issuedCalls++;
+		}
+		GL11.glBindTexture(GL11.GL_TEXTURE_2D, textureId);
+		if (unit < MAX_TEXTURE_UNITS) {
+			textures[unit] = textureId;
+		}
+		issuedCalls++;
+	}
+
+	/**
+	 * Binds a framebuffer. Binding to GL_FRAMEBUFFER binds it for both drawing
+	 * and reading.
+	 *
+	 * @param target
+	 *            - GL_FRAMEBUFFER, GL_DRAW_FRAMEBUFFER or GL_READ_FRAMEBUFFER.
+	 * @param fboId
+	 *            - The ID of the FBO, or 0 for the default framebuffer.
+	 */
+	public static void bindFramebuffer(int target, int fboId) {
+		boolean draw = target != GL30.GL_READ_FRAMEBUFFER;
+		boolean read = target != GL30.GL_DRAW_FRAMEBUFFER;
+		if ((!draw || drawFramebuffer == fboId) && (!read || readFramebuffer == fboId)) {
+			elidedCalls++;
+			return;
+		}
+		GL30.glBindFramebuffer(target, fboId);
+		if (draw) {
+			drawFramebuffer = fboId;
+		}
+		if (read) {
+			readFramebuffer = fboId;
+		}
+		issuedCalls++;
+	}
+
+	public static void viewport(int x, int y, int width, int height) {
+		if (x == viewportX && y == viewportY && width == viewportWidth && height == viewportHeight) {
+			elidedCalls++;
+			return;
 		}
+		GL11.glViewport(x, y, width, height);
+		viewportX = x;
+		viewportY = y;
+		viewportWidth = width;
+		viewportHeight = height;
+		issuedCalls++;
+	}
+
+	/**
+	 * Enables or disables one of the clip distances (GL_CLIP_DISTANCE0 +
+	 * index).
+	 */
+	public static void enableClipDistance(int index, boolean enable) {
+		int bit = 1 << index;
+		if (enable == ((clipDistances & bit) != 0)) {
+			elidedCalls++;
+		} else if (enable) {
+			GL11.glEnable(GL30.GL_CLIP_DISTANCE0 + index);
+			clipDistances |= bit;
+			issuedCalls++;
+		} else {
+			GL11.glDisable(GL30.GL_CLIP_DISTANCE0 + index);
+			clipDistances &= ~bit;
+			issuedCalls++;
+		}
+	}
+
+	/**
+	 * Should be called when a shader program is deleted.
+	 */
+	public static void programDeleted(int programId) {
+		if (program == programId) {
+			program = UNKNOWN;
+		}
+	}
+
+	/**
+	 * Should be called when a VAO is deleted. OpenGL unbinds a deleted VAO if
+	 * it's bound.
+	 */
+	public static void vaoDeleted(int vaoId) {
+		if (vao == vaoId) {
+			vao = 0;
+			elementBuffer = UNKNOWN;
+		}
+	}
+
+	/**
+	 * Should be called when a buffer is deleted. OpenGL unbinds a deleted
+	 * buffer if it's bound.
+	 */
+	public static void bufferDeleted(int bufferId) {
+		if (arrayBuffer == bufferId) {
+			arrayBuffer = 0;
+		}
+		if (elementBuffer == bufferId) {
+			elementBuffer = UNKNOWN;
+		}
+	}
+
+	/**
+	 * Should be called when a texture is deleted. OpenGL unbinds a deleted
+	 * texture from any units that it's bound to.
+	 */
+	public static void textureDeleted(int textureId) {
+		for (int i = 0; i < MAX_TEXTURE_UNITS; i++) {
+			if (textures[i] == textureId) {
+				textures[i] = 0;
+			}
+		}
+	}
+
+	/**
+	 * Should be called when an FBO is deleted. OpenGL switches back to the
+	 * default framebuffer if a deleted FBO is bound.
+	 */
+	public static void framebufferDeleted(int fboId) {
+		if (drawFramebuffer == fboId) {
+			drawFramebuffer = 0;
+		}
+		if (readFramebuffer == fboId) {
+			readFramebuffer = 0;
+		}
+	}
+
+	/**
+	 * Forgets all the tracked bindings, so that the next time each one is set
+	 * it definitely gets sent to OpenGL. Should be used if something changes
+	 * the state without going through this class.
+	 */
+	public static void invalidate() {
+		program = UNKNOWN;
+		vao = UNKNOWN;
+		arrayBuffer = UNKNOWN;
+		elementBuffer = UNKNOWN;
+		activeUnit = UNKNOWN;
+		for (int i = 0; i < MAX_TEXTURE_UNITS; i++) {
+			textures[i] = UNKNOWN;
+		}
+		drawFramebuffer = UNKNOWN;
+		readFramebuffer = UNKNOWN;
+		viewportX = UNKNOWN;
+	}
+
+	/**
+	 * Marks the start of a new frame. The counts of the calls made and skipped
+	 * during the frame that just finished are stored, and the counting starts
+	 * again.
+	 */
+	public static void newFrame() {
+		lastFrameIssued = issuedCalls;
+		lastFrameElided = elidedCalls;
+		issuedCalls = 0;
+		elidedCalls = 0;
+	}
+
+	/**
+	 * @return The number of state changes that were sent to OpenGL during the
+	 *         last frame.
+	 */
+	public static int getIssuedCalls() {
+		return lastFrameIssued;
+	}
+
+	/**
+	 * @return The number of state changes that were skipped during the last
+	 *         frame because they wouldn't have changed anything.
+	 */
+	public static int getElidedCalls() {
+		return lastFrameElided;
 	}
 
 }
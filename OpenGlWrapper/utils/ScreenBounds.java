@@ -0,0 +1,179 @@
+package utils;
+
+import org.lwjgl.util.vector.Matrix4f;
+
+/**
+ * Works out the rectangle of the screen that a box in the world covers, by
+ * projecting the corners of the box with a projection-view matrix. Corners
+ * behind the camera can't be projected, so the edges of the box which go
+ * behind the camera are cut off just in front of it first. The result is
+ * always big enough to cover the whole box, although it may be a bit bigger
+ * than needed.
+ * 
+ * Nothing here touches OpenGL, so it can be used (and checked) without a
+ * display. The rectangle is in texture coordinates, going from 0 to 1 across
+ * the screen.
+ * 
+ * @author Karl
+ *
+ */
+public class ScreenBounds {
+
+	private static final float MIN_W = 0.0001f;
+
+	private final float[] clipX = new float[8];
+	private final float[] clipY = new float[8];
+	private final float[] clipZ = new float[8];
+	private final float[] clipW = new float[8];
+
+	private float minX;
+	private float minY;
+	private float maxX;
+	private float maxY;
+	private boolean visible;
+
+	/**
+	 * Projects a box onto the screen.
+	 * 
+	 * @param projectionViewMatrix
+	 *            - The camera's projection-view matrix.
+	 * @param boxMinX
+	 *            - The lowest x coordinate of the box.
+	 * @param boxMinY
+	 *            - The lowest y coordinate of the box.
+	 * @param boxMinZ
+	 *            - The lowest z coordinate of the box.
+	 * @param boxMaxX
+	 *            - The highest x coordinate of the box.
+	 * @param boxMaxY
+	 *            - The highest y coordinate of the box.
+	 * @param boxMaxZ
+	 *            - The highest z coordinate of the box.
+	 * @return True if any of the box might be visible on the screen.
+	 */
+	public boolean update(Matrix4f projectionViewMatrix, float boxMinX, float boxMinY, float boxMinZ, float boxMaxX,
+			float boxMaxY, float boxMaxZ) {
+		for (int i = 0; i < 8; i++) {
+			float x = (i & 1) == 0 ? boxMinX : boxMaxX;
+			float y = (i & 2) == 0 ? boxMinY : boxMaxY;
+			float z = (i & 4) == 0 ? boxMinZ : boxMaxZ;
+			transformCorner(projectionViewMatrix, i, x, y, z);
+		}
+		if (isOutsideFrustum()) {
+			visible = false;
+			return false;
+		}
+		minX = Float.POSITIVE_INFINITY;
+		minY = Float.POSITIVE_INFINITY;
+		maxX = Float.NEGATIVE_INFINITY;
+		maxY = Float.NEGATIVE_INFINITY;
+		for (int i = 0; i < 8; i++) {
+			if (clipW[i] >= MIN_W) {
+				addPoint(clipX[i] / clipW[i], clipY[i] / clipW[i]);
+			}
+			for (int bit = 1; bit < 8; bit <<= 1) {
+				if ((i & bit) == 0) {
+					addClippedEdge(i, i | bit);
+				}
+			}
+		}
+		minX = Math.max(minX, -1);
+		minY = Math.max(minY, -1);
+		maxX = Math.min(maxX, 1);
+		maxY = Math.min(maxY, 1);
+		visible = minX < maxX && minY < maxY;
+		return visible;
+	}
+
+	/**
+	 * @return True if the box was visible the last time it was projected.
+	 */
+	public boolean isVisible() {
+		return visible;
+	}
+
+	/**
+	 * @return The left edge of the rectangle, from 0 to 1.
+	 */
+	public float getMinX() {
+		return minX * 0.5f + 0.5f;
+	}
+
+	/**
+	 * @return The bottom edge of the rectangle, from 0 to 1.
+	 */
+	public float getMinY() {
+		return minY * 0.5f + 0.5f;
+	}
+
+	/**
+	 * @return The right edge of the rectangle, from 0 to 1.
+	 */
+	public float getMaxX() {
+		return maxX * 0.5f + 0.5f;
+	}
+
+	/**
+	 * @return The top edge of the rectangle, from 0 to 1.
+	 */
+	public float getMaxY() {
+		return maxY * 0.5f + 0.5f;
+	}
+
+	/**
+	 * @return The fraction of the screen that the rectangle covers.
+	 */
+	public float getArea() {
+		return visible ? (getMaxX() - getMinX()) * (getMaxY() - getMinY()) : 0;
+	}
+
+	private void transformCorner(Matrix4f matrix, int corner, float x, float y, float z) {
+		clipX[corner] = matrix.m00 * x + matrix.m10 * y + matrix.m20 * z + matrix.m30;
+		clipY[corner] = matrix.m01 * x + matrix.m11 * y + matrix.m21 * z + matrix.m31;
+		clipZ[corner] = matrix.m02 * x + matrix.m12 * y + matrix.m22 * z + matrix.m32;
+		clipW[corner] = matrix.m03 * x + matrix.m13 * y + matrix.m23 * z + matrix.m33;
+	}
+
+	/**
+	 * @return True if all the corners are outside of the same plane of the
+	 *         view frustum, meaning none of the box can be seen.
+	 */
+	private boolean isOutsideFrustum() {
+		int left = 0, right = 0, bottom = 0, top = 0, near = 0, far = 0;
+		for (int i = 0; i < 8; i++) {
+			float w = clipW[i];
+			left += clipX[i] < -w ? 1 : 0;
+			right += clipX[i] > w ? 1 : 0;
+			bottom += clipY[i] < -w ? 1 : 0;
+			top += clipY[i] > w ? 1 : 0;
+			near += clipZ[i] < -w || w < MIN_W ? 1 : 0;
+			far += clipZ[i] > w ? 1 : 0;
+		}
+		return left == 8 || right == 8 || bottom == 8 || top == 8 || near == 8 || far == 8;
+	}
+
+	/**
+	 * If an edge of the box goes from in front of the camera to behind it,
+	 * the point where it crosses to behind the camera gets added to the
+	 * rectangle.
+	 */
+	private void addClippedEdge(int start, int end) {
+		boolean startInFront = clipW[start] >= MIN_W;
+		boolean endInFront = clipW[end] >= MIN_W;
+		if (startInFront == endInFront) {
+			return;
+		}
+		float t = (MIN_W - clipW[start]) / (clipW[end] - clipW[start]);
+		float x = clipX[start] + t * (clipX[end] - clipX[start]);
+		float y = clipY[start] + t * (clipY[end] - clipY[start]);
+		addPoint(x / MIN_W, y / MIN_W);
+	}
+
+	private void addPoint(float x, float y) {
+		minX = Math.min(minX, x);
+		minY = Math.min(minY, y);
+		maxX = Math.max(maxX, x);
+		maxY = Math.max(maxY, y);
+	}
+
+}
@@ -0,0 +1,78 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands objects from one thread (the writer) to another (the reader) without
+ * any locking and without either thread ever having to wait for the other.
+ * There are three slots. The writer fills in its slot and publishes it, which
+ * swaps it with the shared middle slot. The reader swaps its slot with the
+ * middle slot whenever something new has been published, so it always gets
+ * the most recently published object. Objects that get published while the
+ * reader isn't looking are simply skipped.
+ * 
+ * The slots are reused, so nothing is allocated after the buffer is created.
+ * Once an object has been published the writer must not touch it again, and
+ * the reader should treat it as read-only.
+ * 
+ * @author Karl
+ *
+ * @param <T>
+ *            - The type of object being passed between the threads.
+ */
+public class TripleBuffer<T> {
+
+	private static final int INDEX_MASK = 3;
+	private static final int NEW_FLAG = 4;
+
+	private final Object[] slots;
+	private final AtomicInteger middle = new AtomicInteger(1);
+
+	private int writeIndex = 0;
+	private int readIndex = 2;
+
+	/**
+	 * @param first
+	 *            - One of the three objects that get passed around.
+	 * @param second
+	 *            - Another of the objects.
+	 * @param third
+	 *            - The last of the objects.
+	 */
+	public TripleBuffer(T first, T second, T third) {
+		this.slots = new Object[] { first, second, third };
+	}
+
+	/**
+	 * Should only be used by the writer thread.
+	 * 
+	 * @return The object that the writer should fill in next.
+	 */
+	@SuppressWarnings("unchecked")
+	public T getWriteSlot() {
+		return (T) slots[writeIndex];
+	}
+
+	/**
+	 * Publishes the writer's object, so that the reader gets it the next time
+	 * it asks for the latest object. Should only be used by the writer thread.
+	 */
+	public void publish() {
+		writeIndex = middle.getAndSet(writeIndex | NEW_FLAG) & INDEX_MASK;
+	}
+
+	/**
+	 * Should only be used by the reader thread.
+	 * 
+	 * @return The most recently published object, which can be used until the
+	 *         next time this is called.
+	 */
+	@SuppressWarnings("unchecked")
+	public T getLatest() {
+		if ((middle.get() & NEW_FLAG) != 0) {
+			readIndex = middle.getAndSet(readIndex) & INDEX_MASK;
+		}
+		return (T) slots[readIndex];
+	}
+
+}
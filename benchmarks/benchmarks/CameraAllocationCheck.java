@@ -0,0 +1,101 @@
+package benchmarks;
+
+import java.lang.management.ManagementFactory;
+
+import org.lwjgl.util.vector.Matrix4f;
+
+import main.Camera;
+import main.Configs;
+
+/**
+ * Checks that moving the {@link Camera} and getting its matrices doesn't
+ * allocate anything once it's warmed up. The camera is driven by a
+ * {@link ScriptedCameraInput}, and every update gets the view matrix and both
+ * the normal and the reflected projection-view matrix, like a frame that
+ * renders the water reflection does.
+ * 
+ * The bytes allocated by this thread are measured around a number of updates
+ * using the JVM's per-thread allocation counter, for a few rounds. If any
+ * round allocates anything at all the check fails, and the program exits with
+ * a non-zero status. The warm up is long enough for the camera script to
+ * settle into its loop, so the measured updates don't take any path that the
+ * JIT compiler hasn't seen yet.
+ * 
+ * Usage: CameraAllocationCheck [warmUpUpdates] [updatesPerRound] [rounds]
+ * 
+ * @author Karl
+ *
+ */
+public class CameraAllocationCheck {
+
+	private static final int DEFAULT_WARM_UP_UPDATES = 20000;
+	private static final int DEFAULT_MEASURED_UPDATES = 10000;
+	private static final int DEFAULT_ROUNDS = 5;
+	private static final float DELTA = 1f / Configs.FPS_CAP;
+
+	private static float checksum;
+
+	public static void main(String[] args) {
+		int warmUpUpdates = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_WARM_UP_UPDATES;
+		int measuredUpdates = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_MEASURED_UPDATES;
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_ROUNDS;
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		if (!threads.isThreadAllocatedMemorySupported()) {
+			System.err.println("This JVM can't measure thread allocations.");
+			System.exit(2);
+		}
+		threads.setThreadAllocatedMemoryEnabled(true);
+		long threadId = Thread.currentThread().getId();
+
+		ScriptedCameraInput input = new ScriptedCameraInput();
+		Camera camera = new Camera(input, (float) Configs.WIDTH / Configs.HEIGHT);
+		update(camera, input, warmUpUpdates);
+		long overhead = measureOverhead(threads, threadId);
+		int failedRounds = 0;
+		for (int round = 0; round < rounds; round++) {
+			long start = threads.getThreadAllocatedBytes(threadId);
+			update(camera, input, measuredUpdates);
+			long allocated = threads.getThreadAllocatedBytes(threadId) - start - overhead;
+			System.out.println("Round " + round + ": " + allocated + " bytes in " + measuredUpdates + " updates");
+			if (allocated > 0) {
+				System.out.println("FAILED round " + round + ": the camera allocated.");
+				failedRounds++;
+			}
+		}
+		System.out.println("Checksum: " + checksum);
+		if (failedRounds > 0) {
+			System.out.println("FAILED: the camera allocated in " + failedRounds + " of " + rounds + " rounds.");
+			System.exit(1);
+		}
+		System.out.println("PASSED: no allocation in the camera updates.");
+	}
+
+	/**
+	 * Moves the camera and gets its matrices, adding a value from each matrix
+	 * to the checksum so that none of the work can be optimised away.
+	 */
+	private static void update(Camera camera, ScriptedCameraInput input, int updates) {
+		for (int i = 0; i < updates; i++) {
+			input.nextFrame();
+			camera.move(DELTA);
+			Matrix4f view = camera.getViewMatrix();
+			Matrix4f projectionView = camera.getProjectionViewMatrix();
+			camera.reflect();
+			Matrix4f reflected = camera.getProjectionViewMatrix();
+			camera.reflect();
+			checksum += view.m30 + projectionView.m31 + reflected.m32;
+		}
+	}
+
+	/**
+	 * @return The number of bytes that reading the allocation counter
+	 *         allocates itself, so that it can be taken off the measurement.
+	 */
+	private static long measureOverhead(com.sun.management.ThreadMXBean threads, long threadId) {
+		long first = threads.getThreadAllocatedBytes(threadId);
+		long second = threads.getThreadAllocatedBytes(threadId);
+		return second - first;
+	}
+
+}
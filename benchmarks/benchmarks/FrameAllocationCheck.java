@@ -0,0 +1,102 @@
+package benchmarks;
+
+import java.lang.management.ManagementFactory;
+
+import main.Configs;
+import timing.BenchmarkReport;
+import timing.PassTimer;
+
+/**
+ * Checks that the frame loop doesn't allocate anything once it's warmed up.
+ * The demo's frame loop is run without a display on a single thread by a
+ * {@link HeadlessScene}, with the camera driven by a
+ * {@link ScriptedCameraInput} and the demo's FPS cap, so the render engine's
+ * resolution controller is running too. The passes are timed with the
+ * engine's {@link PassTimer} (CPU only), and the timings are printed at the
+ * end.
+ * 
+ * The bytes allocated by this thread are measured around a number of frames
+ * using the JVM's per-thread allocation counter. This is repeated for a few
+ * rounds, and if any round allocates anything at all the check fails, and the
+ * program exits with a non-zero status so that it can be used as a regression
+ * check. The warm up is long enough for the camera script to settle into its
+ * loop, so the measured frames don't take any path that the JIT compiler
+ * hasn't seen yet (when it does, the deoptimization allocates on this thread).
+ * For the same reason the statistics are reset every so often during the warm
+ * up, so that the "slowest frame so far" paths get run too.
+ * 
+ * Usage: FrameAllocationCheck [warmUpFrames] [framesPerRound] [rounds]
+ * 
+ * @author Karl
+ *
+ */
+public class FrameAllocationCheck {
+
+	private static final int DEFAULT_WARM_UP_FRAMES = 20000;
+	private static final int DEFAULT_MEASURED_FRAMES = 2000;
+	private static final int DEFAULT_ROUNDS = 5;
+	private static final float INTERPOLATION = 0.5f;
+	private static final int RESET_INTERVAL = 500;
+
+	public static void main(String[] args) {
+		int warmUpFrames = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_WARM_UP_FRAMES;
+		int measuredFrames = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_MEASURED_FRAMES;
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_ROUNDS;
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		if (!threads.isThreadAllocatedMemorySupported()) {
+			System.err.println("This JVM can't measure thread allocations.");
+			System.exit(2);
+		}
+		threads.setThreadAllocatedMemoryEnabled(true);
+		long threadId = Thread.currentThread().getId();
+
+		ScriptedCameraInput input = new ScriptedCameraInput();
+		HeadlessScene scene = new HeadlessScene(input, null, INTERPOLATION, Configs.FPS_CAP,
+				PassTimer.DEFAULT_HISTORY_SIZE);
+		for (int i = 0; i < warmUpFrames; i++) {
+			if (i % RESET_INTERVAL == 0) {
+				scene.resetStatistics();
+			}
+			input.nextFrame();
+			scene.simulateFrame();
+		}
+		scene.resetStatistics();
+		long overhead = measureOverhead(threads, threadId);
+		int failedRounds = 0;
+		for (int round = 0; round < rounds; round++) {
+			long start = threads.getThreadAllocatedBytes(threadId);
+			for (int i = 0; i < measuredFrames; i++) {
+				input.nextFrame();
+				scene.simulateFrame();
+			}
+			long allocated = threads.getThreadAllocatedBytes(threadId) - start - overhead;
+			System.out.println("Round " + round + ": " + allocated + " bytes in " + measuredFrames + " frames ("
+					+ ((double) allocated / measuredFrames) + " per frame)");
+			if (allocated > 0) {
+				System.out.println("FAILED round " + round + ": the frame loop allocated.");
+				failedRounds++;
+			}
+		}
+		System.out.println("Draw calls in last frame: " + scene.getLastFrameDrawCalls());
+		BenchmarkReport report = new BenchmarkReport(System.out);
+		report.printPasses(scene.getPassTimer());
+		report.printFrameTimes(scene.getFrameTimes());
+		if (failedRounds > 0) {
+			System.out.println("FAILED: the frame loop allocated in " + failedRounds + " of " + rounds + " rounds.");
+			System.exit(1);
+		}
+		System.out.println("PASSED: no allocation in the frame loop.");
+	}
+
+	/**
+	 * @return The number of bytes that reading the allocation counter
+	 *         allocates itself, so that it can be taken off the measurement.
+	 */
+	private static long measureOverhead(com.sun.management.ThreadMXBean threads, long threadId) {
+		long first = threads.getThreadAllocatedBytes(threadId);
+		long second = threads.getThreadAllocatedBytes(threadId);
+		return second - first;
+	}
+
+}
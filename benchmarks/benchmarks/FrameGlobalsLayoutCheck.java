@@ -0,0 +1,169 @@
+package benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector2f;
+import org.lwjgl.util.vector.Vector3f;
+
+import rendering.FrameGlobals;
+import rendering.Light;
+import shaders.UniformBlockData;
+import shaders.UniformBlockLayout;
+import utils.Colour;
+
+/**
+ * Checks the packing of the {@link FrameGlobals} uniform block without an
+ * OpenGL context. The shaders declare the block with the std140 layout, so
+ * the offsets worked out by the {@link UniformBlockLayout} have to match the
+ * ones that std140 gives: the mat4 at 0, each vec3 starting on a 16 byte
+ * boundary (64 and 80), the vec2 straight after the second vec3 (96), and the
+ * whole block rounded up to 16 bytes (112).
+ *
+ * The bytes written by {@link UniformBlockData#setMatrix(int, Matrix4f)} and
+ * {@link UniformBlockData#setVec3(int, Vector3f)} are then compared with the
+ * expected bytes: the matrix column by column, each vector's components one
+ * after the other, and the padding left as zeros. Storing the same values a
+ * second time mustn't mark the data as changed.
+ *
+ * If anything doesn't match the program exits with a non-zero status.
+ *
+ * @author Karl
+ *
+ */
+public class FrameGlobalsLayoutCheck {
+
+	private static final int BLOCK_SIZE = 112;
+
+	private static int failures;
+
+	public static void main(String[] args) {
+		UniformBlockLayout layout = FrameGlobals.LAYOUT;
+		checkValue("projectionViewMatrix offset", layout.getOffset("projectionViewMatrix"), 0);
+		checkValue("lightDirection offset", layout.getOffset("lightDirection"), 64);
+		checkValue("lightColour offset", layout.getOffset("lightColour"), 80);
+		checkValue("lightBias offset", layout.getOffset("lightBias"), 96);
+		checkValue("block size", layout.getSize(), BLOCK_SIZE);
+		checkMatrix();
+		checkVec3();
+		checkFrameGlobals();
+		if (failures > 0) {
+			System.out.println("FAILED: " + failures + " of the checks failed.");
+			System.exit(1);
+		}
+		System.out.println("PASSED: the frame globals are packed as std140.");
+	}
+
+	private static void checkValue(String name, int actual, int expected) {
+		if (actual != expected) {
+			System.out.println("MISMATCH " + name + ": expected " + expected + ", got " + actual);
+			failures++;
+		}
+	}
+
+	/**
+	 * A matrix at offset 0 should be stored as its 4 columns, one after the
+	 * other.
+	 */
+	private static void checkMatrix() {
+		UniformBlockData data = new UniformBlockData(FrameGlobals.LAYOUT);
+		data.setMatrix(0, createMatrix());
+		ByteBuffer expected = createBuffer();
+		putColumns(expected, createMatrix());
+		checkBytes("setMatrix", data, expected);
+	}
+
+	/**
+	 * A vec3 at offset 64 should take up 12 bytes, and leave the 4 bytes of
+	 * padding after it alone.
+	 */
+	private static void checkVec3() {
+		UniformBlockData data = new UniformBlockData(FrameGlobals.LAYOUT);
+		data.setVec3(64, new Vector3f(-0.25f, 1.5f, 1e-7f));
+		ByteBuffer expected = createBuffer();
+		expected.position(64);
+		expected.putFloat(-0.25f).putFloat(1.5f).putFloat(1e-7f);
+		checkBytes("setVec3", data, expected);
+	}
+
+	/**
+	 * Stores a whole set of frame globals, and checks every byte of the block.
+	 */
+	private static void checkFrameGlobals() {
+		Light light = new Light(new Vector3f(0, -1, 0), new Colour(0.9f, 0.8f, 0.7f), new Vector2f(0.3f, 0.8f));
+		light.getDirection().set(0.3f, -0.8f, 0.5f);
+		UniformBlockData data = new UniformBlockData(FrameGlobals.LAYOUT);
+		FrameGlobals.store(data, createMatrix(), light);
+		ByteBuffer expected = createBuffer();
+		putColumns(expected, createMatrix());
+		expected.putFloat(0.3f).putFloat(-0.8f).putFloat(0.5f).putFloat(0);
+		expected.putFloat(0.9f).putFloat(0.8f).putFloat(0.7f).putFloat(0);
+		expected.putFloat(0.3f).putFloat(0.8f);
+		checkBytes("FrameGlobals.store", data, expected);
+		data.markUploaded();
+		FrameGlobals.store(data, createMatrix(), light);
+		if (data.hasChanged()) {
+			System.out.println("MISMATCH FrameGlobals.store: storing the same values marked the data as changed");
+			failures++;
+		}
+	}
+
+	/**
+	 * @return A matrix where every element has a different value, so that any
+	 *         mix up in the order shows.
+	 */
+	private static Matrix4f createMatrix() {
+		Matrix4f matrix = new Matrix4f();
+		matrix.m00 = 1;
+		matrix.m01 = 2;
+		matrix.m02 = 3;
+		matrix.m03 = 4;
+		matrix.m10 = 5;
+		matrix.m11 = 6;
+		matrix.m12 = 7;
+		matrix.m13 = 8;
+		matrix.m20 = 9;
+		matrix.m21 = 10;
+		matrix.m22 = 11;
+		matrix.m23 = 12;
+		matrix.m30 = 13;
+		matrix.m31 = 14;
+		matrix.m32 = 15;
+		matrix.m33 = 16;
+		return matrix;
+	}
+
+	/**
+	 * Stores the matrix in the order that std140 expects for a mat4: the
+	 * first column (m00 to m03), then the second, and so on.
+	 */
+	private static void putColumns(ByteBuffer buffer, Matrix4f matrix) {
+		buffer.putFloat(matrix.m00).putFloat(matrix.m01).putFloat(matrix.m02).putFloat(matrix.m03);
+		buffer.putFloat(matrix.m10).putFloat(matrix.m11).putFloat(matrix.m12).putFloat(matrix.m13);
+		buffer.putFloat(matrix.m20).putFloat(matrix.m21).putFloat(matrix.m22).putFloat(matrix.m23);
+		buffer.putFloat(matrix.m30).putFloat(matrix.m31).putFloat(matrix.m32).putFloat(matrix.m33);
+	}
+
+	private static ByteBuffer createBuffer() {
+		return ByteBuffer.allocate(BLOCK_SIZE).order(ByteOrder.nativeOrder());
+	}
+
+	private static void checkBytes(String name, UniformBlockData data, ByteBuffer expected) {
+		ByteBuffer actual = data.getBuffer();
+		if (actual.limit() != BLOCK_SIZE) {
+			System.out.println("MISMATCH " + name + ": the buffer holds " + actual.limit() + " bytes");
+			failures++;
+			return;
+		}
+		for (int i = 0; i < BLOCK_SIZE; i++) {
+			if (actual.get(i) != expected.get(i)) {
+				System.out.println("MISMATCH " + name + " at byte " + i + ": expected " + expected.get(i) + ", got "
+						+ actual.get(i));
+				failures++;
+				return;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,176 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import generation.ColourGenerator;
+import generation.PerlinNoise;
+import hybridTerrain.HybridTerrainGenerator;
+import hybridTerrain.IndexGenerator;
+import main.Configs;
+import terrains.TerrainGenerator;
+import utils.Colour;
+import utils.DataUtils;
+import water.WaterGenerator;
+import water.WaterMask;
+
+/**
+ * JMH benchmarks for all the steps of generating the world: the heights, the
+ * colours, the terrain's vertex data and index buffer, and the water's vertex
+ * data. None of these need OpenGL, so they're measured without a display. Each
+ * of them is run for worlds of 64 up to 4096 grid squares along each side,
+ * generated with the demo's settings and seed. The noise function and the
+ * normal packing are also measured on their own, one call at a time, as they
+ * get called for every vertex.
+ *
+ * Running this class's main method runs all the benchmarks with the GC
+ * profiler, which reports how much each of them allocates (per operation and
+ * per second) along with the time. Any of the usual JMH command line options
+ * can be given too, e.g. "-p size=256" to only run one size. The biggest worlds
+ * need a lot of memory, so the benchmarks are run in a forked JVM with a large
+ * heap.
+ *
+ * This needs the JMH jars (jmh-core, and jmh-generator-annprocess as an
+ * annotation processor) on the build path.
+ *
+ * @author Karl
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms8g", "-Xmx8g" })
+public class GenerationBenchmark {
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		new Runner(new OptionsBuilder().parent(new CommandLineOptions(args))
+				.include(GenerationBenchmark.class.getSimpleName()).addProfiler(GCProfiler.class).build()).run();
+	}
+
+	/**
+	 * The inputs for each step of generating a world of a certain size. Every
+	 * step gets the output of the steps before it, generated once at the start.
+	 */
+	@State(Scope.Benchmark)
+	public static class World {
+
+		@Param({ "64", "256", "1024", "4096" })
+		public int size;
+
+		PerlinNoise noise;
+		ColourGenerator colourGenerator;
+		float[][] heights;
+		Colour[][] colours;
+		WaterMask waterMask;
+
+		@Setup
+		public void setUp() {
+			noise = new PerlinNoise(Configs.SEED, Configs.OCTAVES, Configs.AMPLITUDE, Configs.ROUGHNESS);
+			colourGenerator = new ColourGenerator(Configs.TERRAIN_COLS, Configs.COLOUR_SPREAD);
+			heights = TerrainGenerator.generateHeights(size, noise);
+			colours = colourGenerator.generateColours(heights, noise.getAmplitude());
+			waterMask = new WaterMask(heights, Configs.WATER_HEIGHT + WaterGenerator.MAX_WAVE_HEIGHT);
+		}
+
+	}
+
+	/**
+	 * The inputs for the single call benchmarks. The values are different for
+	 * every call, so the JIT compiler can't work the answer out in advance.
+	 */
+	@State(Scope.Thread)
+	public static class Vertex {
+
+		private static final int COUNT = 1024;
+
+		final PerlinNoise noise = new PerlinNoise(Configs.SEED, Configs.OCTAVES, Configs.AMPLITUDE,
+				Configs.ROUGHNESS);
+		final float[] normals = new float[COUNT * 3];
+		int pointer = 0;
+
+		@Setup
+		public void setUp() {
+			Random random = new Random(Configs.SEED);
+			for (int i = 0; i < COUNT; i++) {
+				float x = random.nextFloat() * 2 - 1;
+				float y = random.nextFloat() * 2 - 1;
+				float z = random.nextFloat() * 2 - 1;
+				float length = (float) Math.sqrt(x * x + y * y + z * z);
+				normals[i * 3] = x / length;
+				normals[i * 3 + 1] = y / length;
+				normals[i * 3 + 2] = z / length;
+			}
+		}
+
+		int next() {
+			pointer = (pointer + 1) & (COUNT - 1);
+			return pointer;
+		}
+
+	}
+
+	@Benchmark
+	public float[][] heights(World world) {
+		return TerrainGenerator.generateHeights(world.size, world.noise);
+	}
+
+	@Benchmark
+	public Colour[][] colours(World world) {
+		return world.colourGenerator.generateColours(world.heights, world.noise.getAmplitude());
+	}
+
+	@Benchmark
+	public byte[] terrainMeshData(World world) {
+		return HybridTerrainGenerator.createMeshData(world.heights, world.colours);
+	}
+
+	@Benchmark
+	public int[] indexBuffer(World world) {
+		return IndexGenerator.generateIndexBuffer(world.heights.length);
+	}
+
+	@Benchmark
+	public byte[] waterMeshData(World world) {
+		return WaterGenerator.createMeshData(world.size, null);
+	}
+
+	@Benchmark
+	public byte[] maskedWaterMeshData(World world) {
+		return WaterGenerator.createMeshData(world.size, world.waterMask);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public float perlinNoise(Vertex vertex) {
+		int i = vertex.next();
+		return vertex.noise.getPerlinNoise(i & 31, i >> 5);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public int packNormal(Vertex vertex) {
+		int i = vertex.next() * 3;
+		float[] normals = vertex.normals;
+		return DataUtils.pack_2_10_10_10_REV_int(normals[i], normals[i + 1], normals[i + 2], 0);
+	}
+
+}
@@ -0,0 +1,235 @@
+package benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import generation.ColourGenerator;
+import generation.PerlinNoise;
+import hybridTerrain.HybridTerrainGenerator;
+import hybridTerrain.IndexGenerator;
+import main.Configs;
+import terrains.TerrainGenerator;
+import terrains.TerrainMesh;
+import utils.Colour;
+import water.WaterGenerator;
+import water.WaterLodBuilder;
+import water.WaterMask;
+import water.WaterMesh;
+
+/**
+ * Checks that the generated world is exactly the same, bit for bit, as it was
+ * when the golden checksums below were recorded. The heights, colours, terrain
+ * vertex data, index buffers and all the kinds of water mesh are generated for
+ * a few fixed seeds and sizes (without a display), and a SHA-256 hash of each
+ * one is compared with its golden value. This is meant to be run before and
+ * after changing any of the generation code (e.g. to make it faster, or to
+ * spread it over several threads), to prove that the output hasn't changed.
+ * If anything doesn't match the program exits with a non-zero status, so it
+ * can be used as a regression check.
+ *
+ * The ints and floats are hashed in little-endian order. The vertex data is
+ * hashed exactly as it gets stored in the VAO, which is in the machine's native
+ * byte order, so the golden values only match on little-endian machines.
+ *
+ * If the output is meant to change, run with "--print" to print the new
+ * checksums, and paste them over the old ones.
+ *
+ * Usage: GenerationChecksums [--print]
+ *
+ * @author Karl
+ *
+ */
+public class GenerationChecksums {
+
+	private static final int[] SEEDS = { Configs.SEED, 42 };
+	private static final int[] SIZES = { 64, 200 };
+	private static final float LOD_CAMERA_HEIGHT = 20;
+
+	private static final String[][] GOLDEN = {
+			{ "10164313/64/heights", "c448c68b75d237984d77d89735011aa80220bf1903e3bc0e147cc70e5c9cfa83" },
+			{ "10164313/64/colours", "2de251ea45add633483c9e946cc4cbc3429c298d4b3e130d6eb37e4cd1e2c25d" },
+			{ "10164313/64/terrainVertices", "121a6bd9c90c100207a7dab5cc602217312d6a82e7e9f86bdb65acf549beb801" },
+			{ "10164313/64/indices", "6efb2af8d133f61c71a7289dd0c093e2c2639db11365b5e831db466789a42be3" },
+			{ "10164313/64/regionIndices", "ee5da040b9dba0fcf1f2019f743d1fe469bdbd10474a4a7e82f363829c4fcc63" },
+			{ "10164313/64/water", "84517fc7f4426ada081e00daf1f9962102a0115ae6f6b9a39f5a8e9faec330a9" },
+			{ "10164313/64/maskedWater", "698cfb084ebfd2c9cb152870b2735757ef814faf80ddfb6debbed1c81d3baf96" },
+			{ "10164313/64/maskedWaterDepths", "27cbaa4359b228d07e38597cc8c62ddbefee9c0aa198a817d12eaf7f9471cc88" },
+			{ "10164313/64/instancedWater", "ee2e98b482511eaa56b6f38f98666360bb6a93267ca5f222d1104ff9a0dc2ce1" },
+			{ "10164313/64/instanceOffsets", "05597f1f300e32a60a2b9e680505ccb85fb966f8ecee5a6b46d808efa8c2b15d" },
+			{ "10164313/64/lodWater", "c7b61dea69c623d548c2f529eeb6f1149ad8bb429c2ef8003d76701956ff4f25" },
+			{ "10164313/200/heights", "d370349c32c453108202303e2fb6a182217d1563c2dc0d02982c81ceab057b36" },
+			{ "10164313/200/colours", "2c4c1247c0c730462660e8473782531cab5904d2cc7ca6b47f2269e6b625dc73" },
+			{ "10164313/200/terrainVertices", "903620f25f3b92bdad9303d7b436e9cf941f401172812acecf9837c1607dc8da" },
+			{ "10164313/200/indices", "8f0b79345bf3e4f6910ab770cd65ce75b49a54b742194df4c5394669f8f09a81" },
+			{ "10164313/200/regionIndices", "5f2bdd0d959b76d6f71143bfe1abd94f7ba2633f6c70531b16bc8dca6b9030c0" },
+			{ "10164313/200/water", "067c6065f91b35e7a6e3572cd8daf1146d0e39f201cf41a0a4e0e2856b2f82cb" },
+			{ "10164313/200/maskedWater", "c8aa4edf6fe808ac1f10ae378326a0324088d52f18d4df2cdc3c9cfe29e310fa" },
+			{ "10164313/200/maskedWaterDepths", "35b6ebd68bf40fed4b61666494f9a03fcb69445357ed46116b3d7ed005ff6ddc" },
+			{ "10164313/200/instancedWater", "ee2e98b482511eaa56b6f38f98666360bb6a93267ca5f222d1104ff9a0dc2ce1" },
+			{ "10164313/200/instanceOffsets", "f81eb35c3574608b5b850d8c32bebe51e97e067f7247c4b751dafe3b1d249658" },
+			{ "10164313/200/lodWater", "949acde796b506fd7e4777f14cab36c0084cf96a2f829c87c53e345fec93db48" },
+			{ "42/64/heights", "cadb6d5e2e5ae1c191dedb6a66bb2b7df55147a62fed3d0ad84781116ffe73c9" },
+			{ "42/64/colours", "89698460bf3e920ac8aa1e70d411defcda03d7749ff12758161216e7018115c5" },
+			{ "42/64/terrainVertices", "8c92662195d06eec8ba7e1ad4f66cac262353d99b3aadd24a46573465280ae6e" },
+			{ "42/64/indices", "6efb2af8d133f61c71a7289dd0c093e2c2639db11365b5e831db466789a42be3" },
+			{ "42/64/regionIndices", "ee5da040b9dba0fcf1f2019f743d1fe469bdbd10474a4a7e82f363829c4fcc63" },
+			{ "42/64/water", "84517fc7f4426ada081e00daf1f9962102a0115ae6f6b9a39f5a8e9faec330a9" },
+			{ "42/64/maskedWater", "695a413ca0895297cd2f5b077b656c94c704a97c4ff2a11be97810ad342484f2" },
+			{ "42/64/maskedWaterDepths", "c2e2ae0d584b3f0a13ab6c40ad8b9e1c18d21fb14b8552cc6f381217802df87b" },
+			{ "42/64/instancedWater", "ee2e98b482511eaa56b6f38f98666360bb6a93267ca5f222d1104ff9a0dc2ce1" },
+			{ "42/64/instanceOffsets", "9a836b7fe3bd30d5ec3b8a1a984e81f8135f7d43b54cde048e7f361508a76e7b" },
+			{ "42/64/lodWater", "bb4d3b19614e9f34a3cabf4c4ca0826009d1e81f8c2cdfac29c19bf145cbc813" },
+			{ "42/200/heights", "73a95f21ddcc07e65c20b3c4e418570d67841cef3d607e233917e6ddf3b64f84" },
+			{ "42/200/colours", "446e222baa2ceb3310b2c75f6adba36f3234041e400cf9ef23402c921c94d1f1" },
+			{ "42/200/terrainVertices", "727d7a0642517b379d22a7efd8bf11eea84722cd5c23e0163da3716df0ea4087" },
+			{ "42/200/indices", "8f0b79345bf3e4f6910ab770cd65ce75b49a54b742194df4c5394669f8f09a81" },
+			{ "42/200/regionIndices", "5f2bdd0d959b76d6f71143bfe1abd94f7ba2633f6c70531b16bc8dca6b9030c0" },
+			{ "42/200/water", "067c6065f91b35e7a6e3572cd8daf1146d0e39f201cf41a0a4e0e2856b2f82cb" },
+			{ "42/200/maskedWater", "5b6c6593eab19f2815d8651d6421ca1552f3e530b8cf962246af4f0dd3b19b3c" },
+			{ "42/200/maskedWaterDepths", "652d99d13319f5fe93778bcc57576e276b682e314dca58855aa58c17bf926acd" },
+			{ "42/200/instancedWater", "ee2e98b482511eaa56b6f38f98666360bb6a93267ca5f222d1104ff9a0dc2ce1" },
+			{ "42/200/instanceOffsets", "94ba2aa980203c233a785489052c924fd6247e846e722610e4bffaea3b0ace0a" },
+			{ "42/200/lodWater", "847bb56171f06027f7354e931e9891de1ec748e0f2b4539a6ebd0545a94c747e" },
+	};
+
+	public static void main(String[] args) {
+		boolean print = args.length > 0 && args[0].equals("--print");
+		if (ByteOrder.nativeOrder() != ByteOrder.LITTLE_ENDIAN) {
+			System.out.println("Warning: this machine is big-endian, so the vertex data checksums won't match.");
+		}
+		Map<String, String> checksums = calculateChecksums();
+		if (print) {
+			for (Map.Entry<String, String> entry : checksums.entrySet()) {
+				System.out.println("\t\t\t{ \"" + entry.getKey() + "\", \"" + entry.getValue() + "\" },");
+			}
+			return;
+		}
+		int failures = 0;
+		for (String[] golden : GOLDEN) {
+			String actual = checksums.remove(golden[0]);
+			if (!golden[1].equals(actual)) {
+				System.out.println("MISMATCH " + golden[0] + ": expected " + golden[1] + ", got " + actual);
+				failures++;
+			}
+		}
+		for (String name : checksums.keySet()) {
+			System.out.println("NO GOLDEN VALUE " + name);
+			failures++;
+		}
+		if (failures > 0) {
+			System.out.println("FAILED: " + failures + " of the checksums don't match.");
+			System.exit(1);
+		}
+		System.out.println("PASSED: all " + GOLDEN.length + " checksums match.");
+	}
+
+	/**
+	 * Generates everything for each of the seeds and sizes, and hashes it.
+	 *
+	 * @return The checksums, in a fixed order.
+	 */
+	private static Map<String, String> calculateChecksums() {
+		Map<String, String> checksums = new LinkedHashMap<String, String>();
+		ColourGenerator colourGen = new ColourGenerator(Configs.TERRAIN_COLS, Configs.COLOUR_SPREAD);
+		for (int seed : SEEDS) {
+			PerlinNoise noise = new PerlinNoise(seed, Configs.OCTAVES, Configs.AMPLITUDE, Configs.ROUGHNESS);
+			for (int size : SIZES) {
+				String name = seed + "/" + size + "/";
+				float[][] heights = TerrainGenerator.generateHeights(size, noise);
+				checksums.put(name + "heights", hash(heights));
+				Colour[][] colours = colourGen.generateColours(heights, noise.getAmplitude());
+				checksums.put(name + "colours", hash(colours));
+				TerrainMesh terrain = HybridTerrainGenerator.createMesh(heights, colours);
+				checksums.put(name + "terrainVertices", hash(terrain.getVertexData()));
+				checksums.put(name + "indices", hash(IndexGenerator.generateIndexBuffer(heights.length)));
+				checksums.put(name + "regionIndices", hash(terrain.getIndices()));
+				addWater(checksums, name, size, heights);
+			}
+		}
+		return checksums;
+	}
+
+	private static void addWater(Map<String, String> checksums, String name, int size, float[][] heights) {
+		WaterMesh water = WaterGenerator.createMesh(size);
+		checksums.put(name + "water", hash(water.getVertexData()));
+		WaterMesh masked = WaterGenerator.createMesh(size, Configs.WATER_HEIGHT, heights);
+		checksums.put(name + "maskedWater", hash(masked.getVertexData()));
+		checksums.put(name + "maskedWaterDepths", hash(masked.getDepths()));
+		WaterMesh instanced = WaterGenerator.createInstancedMesh(size, Configs.WATER_PATCH_SIZE, Configs.WATER_HEIGHT,
+				heights);
+		checksums.put(name + "instancedWater", hash(instanced.getVertexData()));
+		checksums.put(name + "instanceOffsets", hash(instanced.getInstanceOffsets()));
+		WaterMask mask = new WaterMask(heights, Configs.WATER_HEIGHT + WaterGenerator.MAX_WAVE_HEIGHT);
+		WaterLodBuilder lodBuilder = new WaterLodBuilder(size, mask);
+		checksums.put(name + "lodWater", hash(lodBuilder.build(size / 2f, LOD_CAMERA_HEIGHT, size / 2f)));
+	}
+
+	private static String hash(byte[] data) {
+		MessageDigest digest = createDigest();
+		digest.update(data);
+		return toHex(digest.digest());
+	}
+
+	private static String hash(int[] data) {
+		ByteBuffer buffer = createBuffer(data.length);
+		for (int value : data) {
+			buffer.putInt(value);
+		}
+		return hash(buffer.array());
+	}
+
+	private static String hash(float[] data) {
+		ByteBuffer buffer = createBuffer(data.length);
+		for (float value : data) {
+			buffer.putInt(Float.floatToRawIntBits(value));
+		}
+		return hash(buffer.array());
+	}
+
+	private static String hash(float[][] data) {
+		ByteBuffer buffer = createBuffer(data.length * data[0].length);
+		for (float[] row : data) {
+			for (float value : row) {
+				buffer.putInt(Float.floatToRawIntBits(value));
+			}
+		}
+		return hash(buffer.array());
+	}
+
+	private static String hash(Colour[][] data) {
+		ByteBuffer buffer = createBuffer(data.length * data[0].length * 3);
+		for (Colour[] row : data) {
+			for (Colour colour : row) {
+				buffer.putInt(Float.floatToRawIntBits(colour.getR()));
+				buffer.putInt(Float.floatToRawIntBits(colour.getG()));
+				buffer.putInt(Float.floatToRawIntBits(colour.getB()));
+			}
+		}
+		return hash(buffer.array());
+	}
+
+	private static ByteBuffer createBuffer(int valueCount) {
+		return ByteBuffer.allocate(valueCount * 4).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 isn't available.", e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder builder = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return builder.toString();
+	}
+
+}
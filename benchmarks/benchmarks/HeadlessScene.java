@@ -0,0 +1,158 @@
+package benchmarks;
+
+import commands.RecordingRenderBackend;
+import generation.ColourGenerator;
+import generation.PerlinNoise;
+import hybridTerrain.HybridTerrainGenerator;
+import main.BufferedCameraInput;
+import main.Camera;
+import main.CameraPath;
+import main.Configs;
+import main.ICameraInput;
+import main.Simulation;
+import rendering.HeadlessRenderDevice;
+import rendering.InterpolatedCamera;
+import rendering.Light;
+import rendering.RenderEngine;
+import terrains.Terrain;
+import terrains.TerrainGenerator;
+import terrains.TerrainMesh;
+import timing.FrameTimeHistogram;
+import timing.PassTimer;
+import utils.Colour;
+import water.WaterGenerator;
+import water.WaterTile;
+
+/**
+ * The same scene as the demo (generated from the same seed every time), and
+ * all the CPU work of the demo's frame loop, without a display. Each frame
+ * carries out an update of the {@link Simulation}, interpolates the camera,
+ * updates the water, and then renders the frame with a real
+ * {@link RenderEngine}, which uses a {@link HeadlessRenderDevice} instead of
+ * OpenGL. So the frame is planned, each pass is recorded, the frame globals
+ * are packed, and the commands are sorted and executed in exactly the same
+ * way as in the demo, and the engine's resolution controller, pass timer and
+ * frame time histogram all do their usual work. The commands are carried out
+ * by a {@link RecordingRenderBackend}, and the amount of work they would have
+ * done (draw calls, vertices and state changes) is added up.
+ *
+ * Nothing here allocates once the scene has been set up.
+ *
+ * @author Karl
+ *
+ */
+public class HeadlessScene {
+
+	private final BufferedCameraInput input;
+	private final Camera camera;
+	private final Simulation simulation;
+	private final InterpolatedCamera renderCamera;
+	private final float interpolation;
+	private final Light light = new Light(Configs.LIGHT_POS, Configs.LIGHT_COL, Configs.LIGHT_BIAS);
+	private final RenderEngine engine;
+	private final RecordingRenderBackend backend = new RecordingRenderBackend(false);
+
+	private final Terrain terrain;
+	private final WaterTile water;
+
+	private int lastFrameDrawCalls;
+	private long drawCalls;
+	private long verticesDrawn;
+	private long stateChanges;
+
+	/**
+	 * Sets up the same scene as the demo, but without creating any VAOs. The
+	 * water is made in the same way as the demo's (see
+	 * {@link Configs#WATER_MODE}).
+	 *
+	 * @param source
+	 *            - The input that moves the camera.
+	 * @param path
+	 *            - The path for the camera to follow, or null if it should be
+	 *            moved by the input.
+	 * @param interpolation
+	 *            - How far between the previous and current update each frame
+	 *            is rendered (see {@link InterpolatedCamera}).
+	 * @param fps
+	 *            - The FPS cap that the render engine tries to hold by scaling
+	 *            the water FBOs, or 0 to always keep them at full resolution.
+	 * @param timedFrames
+	 *            - The number of recent frames whose pass times are kept.
+	 */
+	public HeadlessScene(ICameraInput source, CameraPath path, float interpolation, int fps, int timedFrames) {
+		this.input = new BufferedCameraInput(source);
+		this.camera = new Camera(input, (float) Configs.WIDTH / Configs.HEIGHT);
+		this.simulation = new Simulation(camera, input, Configs.TICK_RATE);
+		simulation.setPath(path);
+		this.renderCamera = new InterpolatedCamera(camera.getProjectionMatrix(), camera.getNearPlane(),
+				camera.getFarPlane(), Configs.WATER_HEIGHT);
+		this.interpolation = interpolation;
+		this.engine = new RenderEngine(new HeadlessRenderDevice(), fps, Configs.WIDTH, Configs.HEIGHT, timedFrames);
+		engine.setBackend(backend);
+		PerlinNoise noise = new PerlinNoise(Configs.SEED, Configs.OCTAVES, Configs.AMPLITUDE, Configs.ROUGHNESS);
+		float[][] heights = TerrainGenerator.generateHeights(Configs.WORLD_SIZE, noise);
+		ColourGenerator colourGen = new ColourGenerator(Configs.TERRAIN_COLS, Configs.COLOUR_SPREAD);
+		Colour[][] colours = colourGen.generateColours(heights, noise.getAmplitude());
+		TerrainMesh mesh = HybridTerrainGenerator.createMesh(heights, colours);
+		this.terrain = new Terrain(null, mesh.getIndices().length, null, heights, mesh.getHeightPyramid(),
+				mesh.getRegions());
+		this.water = WaterGenerator.createTile(Configs.WATER_MODE, Configs.WORLD_SIZE, Configs.WATER_PATCH_SIZE,
+				Configs.WATER_HEIGHT, heights);
+	}
+
+	/**
+	 * Does all the CPU work of one frame of the demo's loop.
+	 */
+	public void simulateFrame() {
+		input.collect();
+		simulation.step();
+		renderCamera.update(simulation.getLatestFrame(), interpolation);
+		water.update(renderCamera.getPosition());
+		engine.render(terrain, water, renderCamera, light, renderCamera.getWaveTime());
+		lastFrameDrawCalls = backend.getDrawCalls();
+		drawCalls += backend.getDrawCalls();
+		verticesDrawn += backend.getVerticesDrawn();
+		stateChanges += backend.getStateChanges();
+		backend.reset();
+	}
+
+	/**
+	 * Forgets the timings and the amount of work done so far, e.g. at the end
+	 * of a warm up.
+	 */
+	public void resetStatistics() {
+		engine.getPassTimer().clear();
+		engine.getFrameTimes().reset();
+		drawCalls = 0;
+		verticesDrawn = 0;
+		stateChanges = 0;
+	}
+
+	public PassTimer getPassTimer() {
+		return engine.getPassTimer();
+	}
+
+	public FrameTimeHistogram getFrameTimes() {
+		return engine.getFrameTimes();
+	}
+
+	/**
+	 * @return The number of draw calls in the last frame.
+	 */
+	public int getLastFrameDrawCalls() {
+		return lastFrameDrawCalls;
+	}
+
+	public long getDrawCalls() {
+		return drawCalls;
+	}
+
+	public long getVerticesDrawn() {
+		return verticesDrawn;
+	}
+
+	public long getStateChanges() {
+		return stateChanges;
+	}
+
+}
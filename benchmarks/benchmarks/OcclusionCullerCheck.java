@@ -0,0 +1,217 @@
+package benchmarks;
+
+import java.util.Arrays;
+
+import org.lwjgl.util.vector.Vector3f;
+
+import terrains.HeightPyramid;
+import terrains.OcclusionCuller;
+import terrains.TerrainRegions;
+
+/**
+ * Checks the {@link OcclusionCuller} against a few made up terrains: a ridge
+ * in front of the camera, a ridge that is lower than the camera, a valley
+ * behind a ridge (with a taller mountain behind that), and the camera sitting
+ * on top of a ridge or just above it. The terrains are flat apart from rows of
+ * hills running along the x axis, so it's easy to work out what should be
+ * hidden.
+ *
+ * For each one the regions that the culler marks as visible are compared with
+ * the expected result. On top of that, every vertex of every region that was
+ * culled gets a ray cast at it from the camera, to make sure that something
+ * really is in the way. The culler must never hide terrain that can be seen,
+ * but it's allowed to keep a few regions which are actually hidden (it's
+ * conservative), so the expected results aren't always as tight as they could
+ * be. If anything doesn't match the program exits with a non-zero status.
+ *
+ * If the culler is meant to change, run with "--print" to print the new
+ * results, check them, and paste them over the old ones.
+ *
+ * Usage: OcclusionCullerCheck [--print]
+ *
+ * @author Karl
+ *
+ */
+public class OcclusionCullerCheck {
+
+	private static final int GRID_SIZE = 128;
+	private static final int REGION_LEVEL = 4;
+	private static final float HIDDEN_LIMIT = 0.999f;
+
+	private static boolean print;
+	private static int failures;
+
+	public static void main(String[] args) {
+		print = args.length > 0 && args[0].equals("--print");
+		check("ridgeInFront", ridgeInFront(), new Vector3f(64, 4, 8), new String[] {
+				"########",
+				"########",
+				"########",
+				"########",
+				"...##...",
+				"...##...",
+				"...##...",
+				"...##..." });
+		check("ridgeBelowCamera", ridgeBelowCamera(), new Vector3f(64, 60, 8), new String[] {
+				"########",
+				"########",
+				"########",
+				"########",
+				"########",
+				"########",
+				"########",
+				"########" });
+		check("valleyBehindRidge", valleyBehindRidge(), new Vector3f(64, 24, 8), new String[] {
+				"########",
+				"########",
+				"########",
+				"########",
+				"...##...",
+				"########",
+				"########",
+				"########" });
+		check("cameraOnRidge", ridgeInFront(), new Vector3f(64, 40, 40), new String[] {
+				"...#####",
+				"########",
+				"########",
+				"########",
+				"...#####",
+				"...#####",
+				"...#####",
+				"...#####" });
+		check("cameraAboveRidge", ridgeInFront(), new Vector3f(72, 41, 40), new String[] {
+				".#######",
+				"########",
+				"########",
+				"########",
+				".#######",
+				"########",
+				"########",
+				"########" });
+		if (print) {
+			return;
+		}
+		if (failures > 0) {
+			System.out.println("FAILED: " + failures + " of the checks failed.");
+			System.exit(1);
+		}
+		System.out.println("PASSED: all the culling results are as expected.");
+	}
+
+	/**
+	 * Flat ground with a ridge of height 40 running across the whole terrain,
+	 * covering the third row of regions.
+	 */
+	private static float[][] ridgeInFront() {
+		float[][] heights = new float[GRID_SIZE + 1][GRID_SIZE + 1];
+		setRows(heights, 32, 48, 40);
+		return heights;
+	}
+
+	/**
+	 * The same ridge, but only 10 high.
+	 */
+	private static float[][] ridgeBelowCamera() {
+		float[][] heights = new float[GRID_SIZE + 1][GRID_SIZE + 1];
+		setRows(heights, 32, 48, 10);
+		return heights;
+	}
+
+	/**
+	 * Ground at a height of 20, with a ridge of height 40, then a valley down
+	 * to 0, then a mountain of height 80 at the far end of the terrain.
+	 */
+	private static float[][] valleyBehindRidge() {
+		float[][] heights = new float[GRID_SIZE + 1][GRID_SIZE + 1];
+		setRows(heights, 0, 31, 20);
+		setRows(heights, 32, 48, 40);
+		setRows(heights, 49, 95, 0);
+		setRows(heights, 96, GRID_SIZE, 80);
+		return heights;
+	}
+
+	private static void setRows(float[][] heights, int firstRow, int lastRow, float height) {
+		for (int z = firstRow; z <= lastRow; z++) {
+			for (int x = 0; x <= GRID_SIZE; x++) {
+				heights[z][x] = height;
+			}
+		}
+	}
+
+	private static void check(String name, float[][] heights, Vector3f cameraPos, String[] expected) {
+		HeightPyramid pyramid = new HeightPyramid(heights);
+		TerrainRegions regions = new TerrainRegions(pyramid, REGION_LEVEL);
+		OcclusionCuller culler = new OcclusionCuller();
+		culler.update(regions, cameraPos);
+		String[] actual = toRows(culler.getVisibleRegions(), regions.getRegionsPerSide());
+		if (print) {
+			printRows(name, actual);
+			return;
+		}
+		if (!Arrays.equals(expected, actual)) {
+			System.out.println("MISMATCH " + name + ":");
+			for (int i = 0; i < actual.length; i++) {
+				System.out.println("\texpected " + (i < expected.length ? expected[i] : "") + "  got " + actual[i]);
+			}
+			failures++;
+		}
+		checkHidden(name, heights, pyramid, regions, culler.getVisibleRegions(), cameraPos);
+	}
+
+	/**
+	 * Casts a ray from the camera at every vertex of every culled region, and
+	 * checks that the ray hits some other terrain first.
+	 */
+	private static void checkHidden(String name, float[][] heights, HeightPyramid pyramid, TerrainRegions regions,
+			boolean[] visible, Vector3f cameraPos) {
+		Vector3f direction = new Vector3f();
+		Vector3f hit = new Vector3f();
+		for (int region = 0; region < visible.length; region++) {
+			if (visible[region]) {
+				continue;
+			}
+			for (int z = (int) regions.getMinZ(region); z <= regions.getMaxZ(region); z++) {
+				for (int x = (int) regions.getMinX(region); x <= regions.getMaxX(region); x++) {
+					direction.set(x - cameraPos.x, heights[z][x] - cameraPos.y, z - cameraPos.z);
+					if (pyramid.raycast(cameraPos, direction, hit) == null || getDistance(cameraPos, hit,
+							direction) >= HIDDEN_LIMIT) {
+						System.out.println("VISIBLE BUT CULLED " + name + ": vertex " + x + "," + z + " of region "
+								+ region);
+						failures++;
+						return;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return How far along the direction vector the hit point is.
+	 */
+	private static float getDistance(Vector3f origin, Vector3f hit, Vector3f direction) {
+		float dx = hit.x - origin.x;
+		float dy = hit.y - origin.y;
+		float dz = hit.z - origin.z;
+		return (float) Math.sqrt((dx * dx + dy * dy + dz * dz) / direction.lengthSquared());
+	}
+
+	private static String[] toRows(boolean[] visible, int perSide) {
+		String[] rows = new String[perSide];
+		for (int z = 0; z < perSide; z++) {
+			StringBuilder row = new StringBuilder(perSide);
+			for (int x = 0; x < perSide; x++) {
+				row.append(visible[z * perSide + x] ? '#' : '.');
+			}
+			rows[z] = row.toString();
+		}
+		return rows;
+	}
+
+	private static void printRows(String name, String[] rows) {
+		System.out.println(name + ":");
+		for (int i = 0; i < rows.length; i++) {
+			System.out.println("\t\t\t\t\"" + rows[i] + "\"" + (i < rows.length - 1 ? "," : " });"));
+		}
+	}
+
+}
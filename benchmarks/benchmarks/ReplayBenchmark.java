@@ -0,0 +1,65 @@
+package benchmarks;
+
+import java.io.File;
+
+import main.CameraPath;
+import main.ICameraInput;
+import timing.BenchmarkReport;
+
+/**
+ * Measures the CPU side of rendering the demo without a display, so that it
+ * can be run anywhere (e.g. on a build server) and the results of two
+ * versions of the render code can be compared. The camera follows a
+ * {@link CameraPath} (a recorded one, or {@link CameraPath#createDefault()}),
+ * the world is generated from the same seed every time, and exactly one
+ * update is carried out per frame, so every run does exactly the same work.
+ * The frames are rendered by a {@link HeadlessScene}, with the draw commands
+ * carried out by a recording backend instead of OpenGL. There's no FPS cap,
+ * so the water FBOs always stay at full resolution.
+ *
+ * A separate scene is run first to warm up the JIT compiler, and then a new
+ * scene is measured from the start of the path. The throughput (frames, draw
+ * calls, vertices and state changes per second), the CPU time of each pass
+ * and the frame times are printed at the end.
+ *
+ * Usage: ReplayBenchmark [frames] [pathFile] [warmUpFrames]
+ *
+ * @author Karl
+ *
+ */
+public class ReplayBenchmark {
+
+	private static final int DEFAULT_FRAMES = 1200;
+	private static final int DEFAULT_WARM_UP_FRAMES = 5000;
+	private static final float INTERPOLATION = 1;
+
+	public static void main(String[] args) {
+		int frames = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_FRAMES;
+		CameraPath path = args.length > 1 ? CameraPath.load(new File(args[1])) : CameraPath.createDefault();
+		int warmUpFrames = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_WARM_UP_FRAMES;
+		if (path == null) {
+			System.exit(1);
+		}
+
+		HeadlessScene warmUp = new HeadlessScene(ICameraInput.NONE, path, INTERPOLATION, 0, 1);
+		for (int i = 0; i < warmUpFrames; i++) {
+			warmUp.simulateFrame();
+		}
+
+		HeadlessScene scene = new HeadlessScene(ICameraInput.NONE, path, INTERPOLATION, 0, frames);
+		long start = System.nanoTime();
+		for (int i = 0; i < frames; i++) {
+			scene.simulateFrame();
+		}
+		long elapsed = System.nanoTime() - start;
+
+		BenchmarkReport report = new BenchmarkReport(System.out);
+		report.printThroughput(frames, elapsed);
+		report.printRate("draw_calls", scene.getDrawCalls(), frames, elapsed);
+		report.printRate("vertices", scene.getVerticesDrawn(), frames, elapsed);
+		report.printRate("state_changes", scene.getStateChanges(), frames, elapsed);
+		report.printPasses(scene.getPassTimer());
+		report.printFrameTimes(scene.getFrameTimes());
+	}
+
+}
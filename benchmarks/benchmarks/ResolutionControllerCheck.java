@@ -0,0 +1,151 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import rendering.ResolutionController;
+import utils.IClock;
+
+/**
+ * Drives a {@link ResolutionController} with a scripted clock, and checks when
+ * it changes the quality level. Each scenario is a list of phases, where every
+ * frame in a phase takes the same amount of time. The target is 100fps (10ms
+ * frames), and the quality has 4 steps like in the demo.
+ *
+ * The scenarios cover a steady frame rate (nothing should change), a slow
+ * patch followed by a fast one (the quality goes down a step at a time, then
+ * comes back up after the doubled wait, which gets halved again after 30
+ * steady seconds), and lots of slow patches followed by a long steady period
+ * and one more slow patch. After the long steady period the wait has to be
+ * back at the start, so the quality recovers 8 seconds after each step down
+ * (doubled twice by the two steps down) rather than the maximum of 16.
+ *
+ * If the controller is meant to change, run with "--print" to print the new
+ * results, check them, and paste them over the old ones.
+ *
+ * Usage: ResolutionControllerCheck [--print]
+ *
+ * @author Karl
+ *
+ */
+public class ResolutionControllerCheck {
+
+	private static final int TARGET_FPS = 100;
+	private static final int STEPS = 4;
+	private static final float FAST = 9;
+	private static final float SLOW = 20;
+
+	private static boolean print;
+	private static int failures;
+
+	public static void main(String[] args) {
+		print = args.length > 0 && args[0].equals("--print");
+		check("steady", new float[][] { { 60, FAST } }, new String[] {});
+		check("slowThenFast", new float[][] { { 3, SLOW }, { 60, FAST } }, new String[] {
+				"0.50s 0.75",
+				"1.02s 0.5",
+				"1.54s 0.25",
+				"2.06s 0.0",
+				"19.18s 0.25",
+				"33.14s 0.5",
+				"41.15s 0.75",
+				"49.16s 1.0" });
+		float[][] recovery = new float[13][];
+		for (int i = 0; i < 10; i += 2) {
+			recovery[i] = new float[] { 1, SLOW };
+			recovery[i + 1] = new float[] { 20, FAST };
+		}
+		recovery[10] = new float[] { 120, FAST };
+		recovery[11] = new float[] { 1, SLOW };
+		recovery[12] = new float[] { 20, FAST };
+		check("recovery", recovery, new String[] {
+				"0.50s 0.75",
+				"1.03s 0.5",
+				"9.04s 0.75",
+				"17.05s 1.0",
+				"21.55s 0.75",
+				"22.07s 0.5",
+				"38.08s 0.75",
+				"42.55s 0.5",
+				"43.08s 0.25",
+				"59.09s 0.5",
+				"63.56s 0.25",
+				"64.08s 0.0",
+				"80.10s 0.25",
+				"84.57s 0.0",
+				"101.21s 0.25",
+				"115.17s 0.5",
+				"123.18s 0.75",
+				"131.19s 1.0",
+				"225.58s 0.75",
+				"226.10s 0.5",
+				"234.11s 0.75",
+				"242.12s 1.0" });
+		if (print) {
+			return;
+		}
+		if (failures > 0) {
+			System.out.println("FAILED: " + failures + " of the checks failed.");
+			System.exit(1);
+		}
+		System.out.println("PASSED: all the quality changes are as expected.");
+	}
+
+	/**
+	 * Runs a scenario and compares the quality changes with the expected ones.
+	 * 
+	 * @param phases
+	 *            - The length of each phase in seconds, and the frame time in
+	 *            milliseconds during that phase.
+	 * @param expected
+	 *            - The time (in seconds) and new quality of every change.
+	 */
+	private static void check(String name, float[][] phases, String[] expected) {
+		List<String> actual = run(phases);
+		if (print) {
+			System.out.println(name + ":");
+			for (String change : actual) {
+				System.out.println("\t\t\t\t\"" + change + "\",");
+			}
+			return;
+		}
+		if (!actual.equals(Arrays.asList(expected))) {
+			System.out.println("MISMATCH " + name + ":");
+			System.out.println("\texpected " + Arrays.asList(expected));
+			System.out.println("\tgot      " + actual);
+			failures++;
+		}
+	}
+
+	private static List<String> run(float[][] phases) {
+		ScriptedClock clock = new ScriptedClock();
+		ResolutionController controller = new ResolutionController(clock, TARGET_FPS, STEPS);
+		List<String> changes = new ArrayList<String>();
+		controller.update();
+		for (float[] phase : phases) {
+			long frameTime = (long) (phase[1] * 1000000L);
+			long end = clock.time + (long) (phase[0] * 1000000000L);
+			while (clock.time < end) {
+				clock.time += frameTime;
+				if (controller.update()) {
+					changes.add(String.format(Locale.ROOT, "%.2fs %s", clock.time / 1e9, controller.getQuality()));
+				}
+			}
+		}
+		return changes;
+	}
+
+	private static class ScriptedClock implements IClock {
+
+		private long time = 0;
+
+		@Override
+		public long nanoTime() {
+			return time;
+		}
+
+	}
+
+}
@@ -0,0 +1,61 @@
+package benchmarks;
+
+import main.ICameraInput;
+
+/**
+ * Camera input that follows a fixed script instead of the mouse, so that the
+ * camera moves in exactly the same way on every run. The script alternates
+ * between dragging the camera around (with some zooming) and leaving it still,
+ * so that both the frames where the water passes are rendered and the frames
+ * where they are reused get exercised. Every second drag plays the one before
+ * it backwards, so the script is a loop that brings the camera back to (about)
+ * where it started, and a long enough run goes over the same frames again and
+ * again instead of wandering off to new parts of the scene.
+ * 
+ * @author Karl
+ *
+ */
+public class ScriptedCameraInput implements ICameraInput {
+
+	private static final int PHASE_LENGTH = 120;
+	private static final float DRAG_SPEED = 6;
+	private static final float ZOOM_SPEED = 40;
+
+	private int frame = -1;
+	private int dragFrame = 0;
+	private float direction = 1;
+
+	/**
+	 * Moves the script on by a frame. Should be called once per frame, before
+	 * the camera is moved.
+	 */
+	public void nextFrame() {
+		frame++;
+		int phase = (frame / PHASE_LENGTH) % 4;
+		int phaseFrame = frame % PHASE_LENGTH;
+		boolean forwards = phase == 0;
+		dragFrame = forwards ? phaseFrame : PHASE_LENGTH - 1 - phaseFrame;
+		direction = forwards ? 1 : -1;
+	}
+
+	@Override
+	public boolean isDragging() {
+		return (frame / PHASE_LENGTH) % 2 == 0;
+	}
+
+	@Override
+	public float getDX() {
+		return isDragging() ? direction * DRAG_SPEED : 0;
+	}
+
+	@Override
+	public float getDY() {
+		return isDragging() ? direction * (float) Math.sin(dragFrame * 0.05) * DRAG_SPEED : 0;
+	}
+
+	@Override
+	public float getDWheel() {
+		return isDragging() ? direction * (float) Math.cos(dragFrame * 0.03) * ZOOM_SPEED : 0;
+	}
+
+}
@@ -0,0 +1,223 @@
+package benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import generation.PerlinNoise;
+import main.Configs;
+import terrains.TerrainGenerator;
+import water.WaterGenerator;
+import water.WaterLodBuilder;
+import water.WaterMask;
+
+/**
+ * Checks that the {@link WaterLodBuilder} doesn't leave any cracks in the
+ * water where patches with different sized grid squares meet, and that it only
+ * reports a change in the detail levels when it should.
+ *
+ * For the cracks, meshes are built from lots of camera positions (over water
+ * covering a whole area, and over the demo's terrain with the dry parts left
+ * out) and every triangle edge in them is counted. An edge which is shared
+ * with a neighbouring triangle appears twice. An edge that only appears once
+ * is on the edge of the water, but if another one of those edges lies along
+ * part of it (on the same line, overlapping, but with different end points)
+ * then two patches disagree about where the vertices along their shared edge
+ * are, and there is a crack. No edge should ever appear more than twice. When
+ * the water covers the whole area, the only edges that appear once should be
+ * the ones around the outside.
+ *
+ * For the detail levels, the camera is moved across the water in small steps.
+ * Every time the builder reports a change, the camera is moved back one step,
+ * which mustn't change anything (a node which was just split doesn't get
+ * merged straight away, and the other way round).
+ *
+ * If anything fails the program exits with a non-zero status.
+ *
+ * @author Karl
+ *
+ */
+public class WaterLodCheck {
+
+	private static final int FULL_GRID_SIZE = 256;
+	private static final float[] CAMERA_HEIGHTS = { 0, 5, 20, 60 };
+	private static final float CAMERA_STEP = 37;
+	private static final float MOVE_STEP = 0.25f;
+	private static final int VERTEX_SIZE_BYTES = 12;
+
+	private static int failures;
+
+	public static void main(String[] args) {
+		checkCracks("fullWater", new WaterLodBuilder(FULL_GRID_SIZE, null), FULL_GRID_SIZE, true);
+		PerlinNoise noise = new PerlinNoise(Configs.SEED, Configs.OCTAVES, Configs.AMPLITUDE, Configs.ROUGHNESS);
+		float[][] heights = TerrainGenerator.generateHeights(Configs.WORLD_SIZE, noise);
+		WaterMask mask = new WaterMask(heights, Configs.WATER_HEIGHT + WaterGenerator.MAX_WAVE_HEIGHT);
+		checkCracks("demoWater", new WaterLodBuilder(Configs.WORLD_SIZE, mask), Configs.WORLD_SIZE, false);
+		checkSelection("fullWater", new WaterLodBuilder(FULL_GRID_SIZE, null), FULL_GRID_SIZE);
+		checkSelection("demoWater", new WaterLodBuilder(Configs.WORLD_SIZE, mask), Configs.WORLD_SIZE);
+		if (failures > 0) {
+			System.out.println("FAILED: " + failures + " of the checks failed.");
+			System.exit(1);
+		}
+		System.out.println("PASSED: the LOD water has no cracks and only changes when it should.");
+	}
+
+	private static void checkCracks(String name, WaterLodBuilder builder, int gridSize, boolean fullArea) {
+		int meshes = 0;
+		for (float cameraY : CAMERA_HEIGHTS) {
+			for (float cameraZ = 0; cameraZ <= gridSize; cameraZ += CAMERA_STEP) {
+				for (float cameraX = 0; cameraX <= gridSize; cameraX += CAMERA_STEP) {
+					byte[] meshData = builder.build(cameraX, cameraY, cameraZ);
+					String camera = cameraX + "," + cameraY + "," + cameraZ;
+					if (!checkMesh(name + " from " + camera, meshData, gridSize, fullArea)) {
+						failures++;
+						return;
+					}
+					meshes++;
+				}
+			}
+		}
+		System.out.println(name + ": checked " + meshes + " meshes for cracks.");
+	}
+
+	/**
+	 * Counts every edge of every triangle in a mesh, and checks the edges
+	 * which only appear once.
+	 */
+	private static boolean checkMesh(String name, byte[] meshData, int gridSize, boolean fullArea) {
+		ByteBuffer buffer = ByteBuffer.wrap(meshData).order(ByteOrder.nativeOrder());
+		int vertexCount = meshData.length / VERTEX_SIZE_BYTES;
+		Map<Edge, Integer> edgeCounts = new HashMap<Edge, Integer>();
+		int[] x = new int[3];
+		int[] z = new int[3];
+		for (int triangle = 0; triangle < vertexCount; triangle += 3) {
+			for (int i = 0; i < 3; i++) {
+				x[i] = (int) buffer.getFloat((triangle + i) * VERTEX_SIZE_BYTES);
+				z[i] = (int) buffer.getFloat((triangle + i) * VERTEX_SIZE_BYTES + 4);
+			}
+			for (int i = 0; i < 3; i++) {
+				int next = (i + 1) % 3;
+				edgeCounts.merge(new Edge(x[i], z[i], x[next], z[next]), 1, Integer::sum);
+			}
+		}
+		List<Edge> outerEdges = new ArrayList<Edge>();
+		for (Map.Entry<Edge, Integer> entry : edgeCounts.entrySet()) {
+			Edge edge = entry.getKey();
+			if (entry.getValue() > 2) {
+				System.out.println("EDGE USED " + entry.getValue() + " TIMES in " + name + ": " + edge);
+				return false;
+			} else if (entry.getValue() == 1) {
+				if (fullArea && !edge.isOnBorder(gridSize)) {
+					System.out.println("CRACK in " + name + ": " + edge + " isn't shared with anything");
+					return false;
+				}
+				outerEdges.add(edge);
+			}
+		}
+		for (int i = 0; i < outerEdges.size(); i++) {
+			for (int j = i + 1; j < outerEdges.size(); j++) {
+				if (outerEdges.get(i).overlaps(outerEdges.get(j))) {
+					System.out.println("CRACK in " + name + ": " + outerEdges.get(i) + " and " + outerEdges.get(j)
+							+ " overlap");
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Moves the camera along a few lines across the water, and checks that
+	 * moving back by one step after every change doesn't change anything.
+	 */
+	private static void checkSelection(String name, WaterLodBuilder builder, int gridSize) {
+		int changes = 0;
+		for (float cameraY : CAMERA_HEIGHTS) {
+			for (float cameraZ = 0; cameraZ <= gridSize; cameraZ += CAMERA_STEP) {
+				builder.select(-MOVE_STEP, cameraY, cameraZ);
+				for (float cameraX = 0; cameraX <= gridSize; cameraX += MOVE_STEP) {
+					if (!builder.select(cameraX, cameraY, cameraZ)) {
+						continue;
+					}
+					changes++;
+					if (builder.select(cameraX - MOVE_STEP, cameraY, cameraZ)
+							|| builder.select(cameraX, cameraY, cameraZ)) {
+						System.out.println("FLICKER in " + name + ": the detail levels changed back at " + cameraX
+								+ "," + cameraY + "," + cameraZ);
+						failures++;
+						return;
+					}
+				}
+			}
+		}
+		System.out.println(name + ": " + changes + " changes to the detail levels.");
+	}
+
+	private static class Edge {
+
+		private final int x1;
+		private final int z1;
+		private final int x2;
+		private final int z2;
+
+		/**
+		 * The end points are put in order, so that the same edge in two
+		 * different triangles is equal.
+		 */
+		private Edge(int xA, int zA, int xB, int zB) {
+			boolean swap = xA > xB || (xA == xB && zA > zB);
+			this.x1 = swap ? xB : xA;
+			this.z1 = swap ? zB : zA;
+			this.x2 = swap ? xA : xB;
+			this.z2 = swap ? zA : zB;
+		}
+
+		private boolean isOnBorder(int gridSize) {
+			return (x1 == x2 && (x1 == 0 || x1 == gridSize)) || (z1 == z2 && (z1 == 0 || z1 == gridSize));
+		}
+
+		/**
+		 * @return True if the two edges lie on the same line and share part of
+		 *         their length, but aren't the same edge.
+		 */
+		private boolean overlaps(Edge other) {
+			long dx = x2 - x1;
+			long dz = z2 - z1;
+			if (dx * (other.z1 - z1) - dz * (other.x1 - x1) != 0 || dx * (other.z2 - z1) - dz * (other.x2 - x1) != 0) {
+				return false;
+			}
+			long start = project(other.x1, other.z1);
+			long end = project(other.x2, other.z2);
+			long length = dx * dx + dz * dz;
+			return Math.max(start, end) > 0 && Math.min(start, end) < length && !equals(other);
+		}
+
+		private long project(int x, int z) {
+			return (long) (x - x1) * (x2 - x1) + (long) (z - z1) * (z2 - z1);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Edge)) {
+				return false;
+			}
+			Edge other = (Edge) obj;
+			return x1 == other.x1 && z1 == other.z1 && x2 == other.x2 && z2 == other.z2;
+		}
+
+		@Override
+		public int hashCode() {
+			return ((x1 * 31 + z1) * 31 + x2) * 31 + z2;
+		}
+
+		@Override
+		public String toString() {
+			return "(" + x1 + "," + z1 + ")-(" + x2 + "," + z2 + ")";
+		}
+
+	}
+
+}
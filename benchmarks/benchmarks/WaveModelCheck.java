@@ -0,0 +1,175 @@
+package benchmarks;
+
+import java.util.Random;
+
+import org.lwjgl.util.vector.Vector3f;
+
+import main.Configs;
+import water.WaveModel;
+
+/**
+ * Checks the {@link WaveModel} against a reference copy of the water vertex
+ * shader's wave calculations, done with doubles. The reference moves every
+ * grid vertex near a point in the same way as "applyDistortion" in the shader,
+ * searches all the moved triangles for the one that the point is under, and
+ * interpolates its height. The wave model should give the same heights (apart
+ * from float rounding) at random points all over the demo's water, at a few
+ * different wave times. The moved vertices themselves are compared too, and
+ * the points include some which are right on top of moved vertices, where the
+ * height has to be exactly the vertex's height.
+ *
+ * If anything is out by more than {@link #TOLERANCE} the program exits with a
+ * non-zero status.
+ *
+ * @author Karl
+ *
+ */
+public class WaveModelCheck {
+
+	/**
+	 * The largest difference allowed from the reference. The shader's wave
+	 * calculations multiply the grid coordinates together, so for points a
+	 * few hundred units from the origin the float rounding is a bit more than
+	 * 0.001.
+	 */
+	private static final double TOLERANCE = 0.005;
+	private static final int POINT_COUNT = 20000;
+	private static final float[] WAVE_TIMES = { 0, 0.37f, 5.5f, 123.456f };
+	private static final int SEARCH_RADIUS = 2;
+
+	private static final int[] CORNER_X = { 0, 0, 1, 1 };
+	private static final int[] CORNER_Z = { 0, 1, 0, 1 };
+	private static final int[] TRIANGLE_CORNERS = { 0, 1, 2, 2, 1, 3 };
+
+	public static void main(String[] args) {
+		Random random = new Random(Configs.SEED);
+		WaveModel model = new WaveModel(Configs.WATER_HEIGHT);
+		double maxHeightError = 0;
+		double maxVertexError = 0;
+		int failures = 0;
+		Vector3f vertex = new Vector3f();
+		double[] reference = new double[3];
+		float[] xs = new float[POINT_COUNT];
+		float[] zs = new float[POINT_COUNT];
+		float[] heights = new float[POINT_COUNT];
+		for (float waveTime : WAVE_TIMES) {
+			model.setWaveTime(waveTime);
+			for (int i = 0; i < POINT_COUNT; i++) {
+				if (i % 10 == 0) {
+					// right on top of a moved vertex
+					model.getDistortedVertex(random.nextInt(Configs.WORLD_SIZE), random.nextInt(Configs.WORLD_SIZE),
+							vertex);
+					xs[i] = vertex.x;
+					zs[i] = vertex.z;
+				} else {
+					xs[i] = random.nextFloat() * Configs.WORLD_SIZE;
+					zs[i] = random.nextFloat() * Configs.WORLD_SIZE;
+				}
+			}
+			model.sampleHeights(xs, zs, heights);
+			for (int i = 0; i < POINT_COUNT; i++) {
+				double expected = getReferenceHeight(xs[i], zs[i], Configs.WATER_HEIGHT, waveTime);
+				double error = Math.abs(heights[i] - expected);
+				maxHeightError = Math.max(maxHeightError, error);
+				if (error > TOLERANCE) {
+					System.out.println("HEIGHT MISMATCH at " + xs[i] + "," + zs[i] + " (wave time " + waveTime
+							+ "): expected " + expected + ", got " + heights[i]);
+					failures++;
+				}
+			}
+			for (int z = 0; z <= Configs.WORLD_SIZE; z += 7) {
+				for (int x = 0; x <= Configs.WORLD_SIZE; x += 7) {
+					model.getDistortedVertex(x, z, vertex);
+					distort(x, z, Configs.WATER_HEIGHT, waveTime, reference);
+					double error = Math.max(Math.max(Math.abs(vertex.x - reference[0]),
+							Math.abs(vertex.y - reference[1])), Math.abs(vertex.z - reference[2]));
+					maxVertexError = Math.max(maxVertexError, error);
+					if (error > TOLERANCE) {
+						System.out.println("VERTEX MISMATCH at " + x + "," + z + " (wave time " + waveTime + ")");
+						failures++;
+					}
+				}
+			}
+		}
+		if (!rejectsDifferentLengths(model)) {
+			System.out.println("sampleHeights() accepted arrays of different lengths.");
+			failures++;
+		}
+		System.out.println("Largest height error: " + maxHeightError + ", largest vertex error: " + maxVertexError);
+		if (failures > 0) {
+			System.out.println("FAILED: " + failures + " of the checks failed.");
+			System.exit(1);
+		}
+		System.out.println("PASSED: the wave model matches the reference.");
+	}
+
+	private static boolean rejectsDifferentLengths(WaveModel model) {
+		try {
+			model.sampleHeights(new float[2], new float[2], new float[1]);
+			return false;
+		} catch (IllegalArgumentException e) {
+			return true;
+		}
+	}
+
+	/**
+	 * Finds the height of the water at a point by testing every moved triangle
+	 * within a couple of grid squares of it, and using the one that the point
+	 * is furthest inside of.
+	 */
+	private static double getReferenceHeight(double x, double z, double height, double waveTime) {
+		int gridX = (int) Math.floor(x);
+		int gridZ = (int) Math.floor(z);
+		double[][] corners = new double[4][3];
+		double bestInside = Double.NEGATIVE_INFINITY;
+		double bestHeight = Double.NaN;
+		for (int squareZ = gridZ - SEARCH_RADIUS; squareZ <= gridZ + SEARCH_RADIUS; squareZ++) {
+			for (int squareX = gridX - SEARCH_RADIUS; squareX <= gridX + SEARCH_RADIUS; squareX++) {
+				for (int i = 0; i < 4; i++) {
+					distort(squareX + CORNER_X[i], squareZ + CORNER_Z[i], height, waveTime, corners[i]);
+				}
+				for (int i = 0; i < TRIANGLE_CORNERS.length; i += 3) {
+					double[] a = corners[TRIANGLE_CORNERS[i]];
+					double[] b = corners[TRIANGLE_CORNERS[i + 1]];
+					double[] c = corners[TRIANGLE_CORNERS[i + 2]];
+					double det = (b[2] - c[2]) * (a[0] - c[0]) + (c[0] - b[0]) * (a[2] - c[2]);
+					double weightA = ((b[2] - c[2]) * (x - c[0]) + (c[0] - b[0]) * (z - c[2])) / det;
+					double weightB = ((c[2] - a[2]) * (x - c[0]) + (a[0] - c[0]) * (z - c[2])) / det;
+					double weightC = 1 - weightA - weightB;
+					double inside = Math.min(Math.min(weightA, weightB), weightC);
+					if (inside > bestInside) {
+						bestInside = inside;
+						bestHeight = weightA * a[1] + weightB * b[1] + weightC * c[1];
+					}
+				}
+			}
+		}
+		return bestHeight;
+	}
+
+	/**
+	 * "applyDistortion" from the vertex shader.
+	 */
+	private static void distort(double x, double z, double height, double waveTime, double[] dest) {
+		dest[0] = x + generateOffset(x, z, 0.2, 0.1, waveTime);
+		dest[1] = height + generateOffset(x, z, 0.1, 0.3, waveTime);
+		dest[2] = z + generateOffset(x, z, 0.15, 0.2, waveTime);
+	}
+
+	/**
+	 * "generateOffset" from the vertex shader.
+	 */
+	private static double generateOffset(double x, double z, double val1, double val2, double waveTime) {
+		double waveLength = WaveModel.WAVE_LENGTH;
+		double radiansX = ((mod(x + z * x * val1, waveLength) / waveLength) + waveTime * mod(x * 0.8 + z, 1.5)) * 2.0
+				* Math.PI;
+		double radiansZ = ((mod(val2 * (z * x + x * z), waveLength) / waveLength) + waveTime * 2.0 * mod(x, 2.0))
+				* 2.0 * Math.PI;
+		return WaveModel.WAVE_AMPLITUDE * 0.5 * (Math.sin(radiansZ) + Math.cos(radiansX));
+	}
+
+	private static double mod(double x, double y) {
+		return x - y * Math.floor(x / y);
+	}
+
+}
@@ -0,0 +1,93 @@
+package main;
+
+/**
+ * Passes the user's input over from the render thread to the update thread.
+ * LWJGL's input can only be read on the thread that owns the display, so the
+ * render thread collects the input every frame and adds it up here. The update
+ * thread then takes everything that has been collected since its last update
+ * at the start of each update. Mouse movement is only added up while the user
+ * is dragging, because that's the only time the camera uses it.
+ * 
+ * @author Karl
+ *
+ */
+public class BufferedCameraInput implements ICameraInput {
+
+	private final ICameraInput source;
+	private final Object lock = new Object();
+
+	private boolean pendingDragging;
+	private float pendingDX;
+	private float pendingDY;
+	private float pendingDWheel;
+
+	private boolean dragging;
+	private float dx;
+	private float dy;
+	private float dWheel;
+
+	/**
+	 * @param source
+	 *            - The real input, which gets read on the render thread.
+	 */
+	public BufferedCameraInput(ICameraInput source) {
+		this.source = source;
+	}
+
+	/**
+	 * Reads the input that has happened since the last frame. Should be called
+	 * once per frame by the render thread.
+	 */
+	public void collect() {
+		boolean isDragging = source.isDragging();
+		float newDX = source.getDX();
+		float newDY = source.getDY();
+		float newDWheel = source.getDWheel();
+		synchronized (lock) {
+			if (isDragging) {
+				pendingDragging = true;
+				pendingDX += newDX;
+				pendingDY += newDY;
+			}
+			pendingDWheel += newDWheel;
+		}
+	}
+
+	/**
+	 * Takes all the input that has been collected since the last update.
+	 * Should be called by the update thread at the start of each update.
+	 */
+	public void nextTick() {
+		synchronized (lock) {
+			dragging = pendingDragging;
+			dx = pendingDX;
+			dy = pendingDY;
+			dWheel = pendingDWheel;
+			pendingDragging = false;
+			pendingDX = 0;
+			pendingDY = 0;
+			pendingDWheel = 0;
+		}
+	}
+
+	@Override
+	public boolean isDragging() {
+		return dragging;
+	}
+
+	@Override
+	public float getDX() {
+		return dx;
+	}
+
+	@Override
+	public float getDY() {
+		return dy;
+	}
+
+	@Override
+	public float getDWheel() {
+		return dWheel;
+	}
+
+}
@@ -1,7 +1,5 @@
 package main;
 
-import org.lwjgl.input.Mouse;
-import org.lwjgl.opengl.Display;
 import org.lwjgl.util.vector.Matrix4f;
 import org.lwjgl.util.vector.Vector3f;
 
@@ -15,6 +13,10 @@ import utils.SmoothFloat;
  * with the left mouse button. By far the messiest class in the whole project!
  * If I had more time I'd give this a good cleaning - it's super messy!
  * 
+ * The input is read through an {@link ICameraInput} and the aspect ratio is
+ * given to the camera, so the camera itself doesn't need a display (e.g. it
+ * can be driven by a script in a benchmark).
+ * 
  * @author Karl
  *
  */
@@ -30,36 +32,104 @@ public class Camera implements ICamera {
 
 	private static final float Y_OFFSET = 5;
 
+	private final ICameraInput input;
 	private Matrix4f projectionMatrix;
 	private Matrix4f viewMatrix = new Matrix4f();
 	private Matrix4f reflectedMatrix = new Matrix4f();
+	private Matrix4f projectionViewMatrix = new Matrix4f();
+	private Matrix4f reflectedProjectionViewMatrix = new Matrix4f();
 	
 	private boolean reflected = false;
+	private boolean matricesValid = false;
+	private float matrixX;
+	private float matrixY;
+	private float matrixZ;
+	private float matrixPitch;
+	private float matrixYaw;
 
 	private Vector3f position = new Vector3f(0, 0, 0);
 
 	private float yaw = 0;
 	private SmoothFloat pitch = new SmoothFloat(10, 10);
 	private SmoothFloat angleAroundPlayer = new SmoothFloat(0, 10);
-	private SmoothFloat distanceFromPlayer = new SmoothFloat(10, 5);
+	private SmoothFloat distanceFromPlayer = new SmoothFloat(10, 3);
 
-	public Camera() {
-		this.projectionMatrix = createProjectionMatrix();
+	/**
+	 * @param input
+	 *            - The input used to rotate and zoom the camera.
+	 * @param aspectRatio
+	 *            - The aspect ratio of the display (width / height).
+	 */
+	public Camera(ICameraInput input, float aspectRatio) {
+		this.input = input;
+		this.projectionMatrix = createProjectionMatrix(aspectRatio);
 	}
 
-	public void move() {
-		calculatePitch();
-		calculateAngleAroundPlayer();
-		calculateZoom();
+	/**
+	 * Updates the camera. All the smoothing is done in terms of time rather
+	 * than frames, so the camera moves the same however often this is called.
+	 * 
+	 * @param delta
+	 *            - The time since the last update, in seconds.
+	 */
+	public void move(float delta) {
+		calculatePitch(delta);
+		calculateAngleAroundPlayer(delta);
+		calculateZoom(delta);
 		float horizontalDistance = calculateHorizontalDistance();
 		float verticalDistance = calculateVerticalDistance();
 		calculateCameraPosition(horizontalDistance, verticalDistance);
 		this.yaw = 360 - angleAroundPlayer.get();
 		yaw %= 360;
-		updateViewMatrices();
 	}
 
 
+	/**
+	 * Sets where the camera is heading to, instead of (or as well as) using
+	 * the input. The camera still moves there smoothly over the next few
+	 * updates. The pitch and distance get clamped in the same way as they are
+	 * for the input.
+	 * 
+	 * @param pitch
+	 *            - The target pitch in degrees.
+	 * @param angle
+	 *            - The target angle around the centre of the world in degrees.
+	 * @param distance
+	 *            - The target distance from the aim point.
+	 */
+	public void setTarget(float pitch, float angle, float distance) {
+		this.pitch.setTarget(pitch);
+		clampPitch();
+		this.angleAroundPlayer.setTarget(angle);
+		this.distanceFromPlayer.setTarget(Math.max(distance, 1));
+	}
+
+	public float getTargetPitch() {
+		return pitch.getTarget();
+	}
+
+	public float getTargetAngle() {
+		return angleAroundPlayer.getTarget();
+	}
+
+	public float getTargetDistance() {
+		return distanceFromPlayer.getTarget();
+	}
+
+	/**
+	 * @return The current pitch in degrees.
+	 */
+	public float getPitch() {
+		return pitch.get();
+	}
+
+	/**
+	 * @return The current yaw in degrees.
+	 */
+	public float getYaw() {
+		return yaw;
+	}
+
 	@Override
 	public Vector3f getPosition() {
 		return position;
@@ -67,6 +137,7 @@ public class Camera implements ICamera {
 
 	@Override
 	public Matrix4f getViewMatrix() {
+		updateViewMatrices();
 		return viewMatrix;
 	}
 
@@ -80,12 +151,18 @@ public class Camera implements ICamera {
 		this.reflected = !reflected;
 	}
 
+	/**
+	 * @return The cached projection-view matrix (reflected or not). These are
+	 *         only recalculated when they're asked for after the camera has
+	 *         actually moved, and must not be changed by the caller.
+	 */
 	@Override
 	public Matrix4f getProjectionViewMatrix() {
+		updateViewMatrices();
 		if(reflected){
-			return Matrix4f.mul(projectionMatrix, reflectedMatrix, null);
+			return reflectedProjectionViewMatrix;
 		}else{
-			return Matrix4f.mul(projectionMatrix, viewMatrix, null);
+			return projectionViewMatrix;
 		}
 	}
 
@@ -99,16 +176,36 @@ public class Camera implements ICamera {
 		return FAR_PLANE;
 	}
 
+	/**
+	 * Updates the view matrices and the cached projection-view matrices, but
+	 * only if the camera has moved since they were last calculated (or they
+	 * have never been calculated). This is done when the matrices are asked
+	 * for rather than in {@link #move(float)}, because when the camera is only
+	 * feeding snapshots to the render thread nothing ever asks for them.
+	 * Nothing is allocated here.
+	 */
 	private void updateViewMatrices() {
-		Maths.updateViewMatrix(viewMatrix, position.x, position.y, position.z, pitch.get(), yaw);
+		float currentPitch = pitch.get();
+		if (matricesValid && position.x == matrixX && position.y == matrixY && position.z == matrixZ
+				&& currentPitch == matrixPitch && yaw == matrixYaw) {
+			return;
+		}
+		Maths.updateViewMatrix(viewMatrix, position.x, position.y, position.z, currentPitch, yaw);
 		float posY = position.y - (2 * (position.y - Configs.WATER_HEIGHT));
-		float pitchReflect = -pitch.get();
+		float pitchReflect = -currentPitch;
 		Maths.updateViewMatrix(reflectedMatrix, position.x, posY, position.z, pitchReflect, yaw);
+		Matrix4f.mul(projectionMatrix, viewMatrix, projectionViewMatrix);
+		Matrix4f.mul(projectionMatrix, reflectedMatrix, reflectedProjectionViewMatrix);
+		matrixX = position.x;
+		matrixY = position.y;
+		matrixZ = position.z;
+		matrixPitch = currentPitch;
+		matrixYaw = yaw;
+		matricesValid = true;
 	}
 
-	private static Matrix4f createProjectionMatrix() {
+	private static Matrix4f createProjectionMatrix(float aspectRatio) {
 		Matrix4f projectionMatrix = new Matrix4f();
-		float aspectRatio = (float) Display.getWidth() / (float) Display.getHeight();
 		float y_scale = (float) ((1f / Math.tan(Math.toRadians(FOV / 2f))));
 		float x_scale = y_scale / aspectRatio;
 		float frustum_length = FAR_PLANE - NEAR_PLANE;
@@ -147,24 +244,24 @@ public class Camera implements ICamera {
 	 * Calculate the pitch and change the pitch if the user is moving the mouse
 	 * up or down with the LMB pressed.
 	 */
-	private void calculatePitch() {
-		if (Mouse.isButtonDown(0)) {
-			float pitchChange = Mouse.getDY() * PITCH_SENSITIVITY;
+	private void calculatePitch(float delta) {
+		if (input.isDragging()) {
+			float pitchChange = input.getDY() * PITCH_SENSITIVITY;
 			pitch.increaseTarget(-pitchChange);
 			clampPitch();
 		}
-		pitch.update(1f / 60);
+		pitch.update(delta);
 	}
 
-	private void calculateZoom() {
+	private void calculateZoom(float delta) {
 		float targetZoom = distanceFromPlayer.getTarget();
-		float zoomLevel = Mouse.getDWheel() * 0.0008f * targetZoom;
+		float zoomLevel = input.getDWheel() * 0.0008f * targetZoom;
 		targetZoom -= zoomLevel;
 		if (targetZoom < 1) {
 			targetZoom = 1;
 		}
 		distanceFromPlayer.setTarget(targetZoom);
-		distanceFromPlayer.update(0.01f);
+		distanceFromPlayer.update(delta);
 	}
 
 	/**
@@ -172,12 +269,12 @@ public class Camera implements ICamera {
 	 * the camera from above). Basically the yaw. Changes the yaw when the user
 	 * moves the mouse horizontally with the LMB down.
 	 */
-	private void calculateAngleAroundPlayer() {
-		if (Mouse.isButtonDown(0)) {
-			float angleChange = Mouse.getDX() * YAW_SENSITIVITY;
+	private void calculateAngleAroundPlayer(float delta) {
+		if (input.isDragging()) {
+			float angleChange = input.getDX() * YAW_SENSITIVITY;
 			angleAroundPlayer.increaseTarget(-angleChange);
 		}
-		angleAroundPlayer.update(1f / 60);
+		angleAroundPlayer.update(delta);
 	}
 
 	/**
@@ -0,0 +1,257 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * A path for the {@link Camera} to follow, made up of keyframes of the
+ * camera's pitch, angle around the world and zoom (distance) at different
+ * times. Between keyframes the values are blended linearly, and once the end
+ * of the path is reached it starts again from the beginning (carrying on round
+ * in the same direction, if the path ends at a different angle to the one it
+ * started at). The path only sets the camera's targets, so the camera still
+ * moves smoothly towards them in the same way it does for the mouse.
+ *
+ * This is used to move the camera in exactly the same way on every run of a
+ * benchmark. A path can be recorded from the mouse (one keyframe per update)
+ * and saved to a text file, with one keyframe per line in the form "time
+ * pitch angle distance". Blank lines and lines starting with # are ignored.
+ *
+ * @author Karl
+ *
+ */
+public class CameraPath {
+
+	private static final int STRIDE = 4;
+	private static final int TIME = 0;
+	private static final int PITCH = 1;
+	private static final int ANGLE = 2;
+	private static final int DISTANCE = 3;
+
+	private float[] keyframes = new float[STRIDE * 16];
+	private int count = 0;
+
+	/**
+	 * Creates the path used when no recording is given. It circles all the
+	 * way round the world, dropping down close to the water and zooming out
+	 * to see the whole world, with a couple of pauses where the camera stays
+	 * still.
+	 *
+	 * @return The path.
+	 */
+	public static CameraPath createDefault() {
+		CameraPath path = new CameraPath();
+		path.addKeyframe(0, 10, 0, 10);
+		path.addKeyframe(4, 25, 90, 60);
+		path.addKeyframe(6, 25, 90, 60);
+		path.addKeyframe(10, 3, 180, 30);
+		path.addKeyframe(14, 60, 270, 200);
+		path.addKeyframe(16, 60, 270, 200);
+		path.addKeyframe(20, 10, 360, 10);
+		return path;
+	}
+
+	/**
+	 * Loads a path that was saved with {@link #save(File)}.
+	 *
+	 * @param file
+	 *            - The file to read.
+	 * @return The path, or null if the file couldn't be read.
+	 */
+	public static CameraPath load(File file) {
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new FileReader(file));
+			CameraPath path = new CameraPath();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				String[] values = line.split("\\s+");
+				path.addKeyframe(Float.parseFloat(values[TIME]), Float.parseFloat(values[PITCH]),
+						Float.parseFloat(values[ANGLE]), Float.parseFloat(values[DISTANCE]));
+			}
+			return path;
+		} catch (IOException | RuntimeException e) {
+			System.err.println("Couldn't read the camera path from " + file);
+			e.printStackTrace();
+			return null;
+		} finally {
+			close(reader);
+		}
+	}
+
+	/**
+	 * Adds a keyframe to the end of the path.
+	 *
+	 * @param time
+	 *            - The time of the keyframe in seconds, which must be after
+	 *            the previous keyframe.
+	 * @param pitch
+	 *            - The camera's pitch in degrees.
+	 * @param angle
+	 *            - The camera's angle around the world in degrees.
+	 * @param distance
+	 *            - The camera's distance from the aim point.
+	 */
+	public void addKeyframe(float time, float pitch, float angle, float distance) {
+		if (count > 0 && time <= getTime(count - 1)) {
+			throw new IllegalArgumentException("Keyframe at " + time + "s isn't after the previous one.");
+		}
+		if (count * STRIDE == keyframes.length) {
+			keyframes = Arrays.copyOf(keyframes, keyframes.length * 2);
+		}
+		int i = count * STRIDE;
+		keyframes[i + TIME] = time;
+		keyframes[i + PITCH] = pitch;
+		keyframes[i + ANGLE] = angle;
+		keyframes[i + DISTANCE] = distance;
+		count++;
+	}
+
+	/**
+	 * Records the camera's current targets as a new keyframe.
+	 *
+	 * @param time
+	 *            - The time since the start of the recording, in seconds.
+	 * @param camera
+	 *            - The camera being recorded.
+	 */
+	public void record(float time, Camera camera) {
+		addKeyframe(time, camera.getTargetPitch(), camera.getTargetAngle(), camera.getTargetDistance());
+	}
+
+	/**
+	 * Sets the camera's targets to the point on the path at a certain time.
+	 * Nothing is allocated here.
+	 *
+	 * @param camera
+	 *            - The camera following the path.
+	 * @param time
+	 *            - The time since the start of the path, in seconds.
+	 */
+	public void apply(Camera camera, float time) {
+		if (count == 0) {
+			return;
+		}
+		float start = getTime(0);
+		float duration = getDuration();
+		float angleOffset = 0;
+		if (duration > 0 && time > start) {
+			float loops = (float) Math.floor((time - start) / duration);
+			time -= loops * duration;
+			angleOffset = loops * (get(count - 1, ANGLE) - get(0, ANGLE));
+		}
+		int next = findNext(time);
+		if (next == 0 || next == count) {
+			int i = next == 0 ? 0 : count - 1;
+			camera.setTarget(get(i, PITCH), get(i, ANGLE) + angleOffset, get(i, DISTANCE));
+			return;
+		}
+		int previous = next - 1;
+		float blend = (time - getTime(previous)) / (getTime(next) - getTime(previous));
+		camera.setTarget(interpolate(previous, next, PITCH, blend),
+				interpolate(previous, next, ANGLE, blend) + angleOffset, interpolate(previous, next, DISTANCE, blend));
+	}
+
+	/**
+	 * @return The time between the first and last keyframes, in seconds.
+	 */
+	public float getDuration() {
+		return count == 0 ? 0 : getTime(count - 1) - getTime(0);
+	}
+
+	public int getKeyframeCount() {
+		return count;
+	}
+
+	/**
+	 * Writes the path to a file, which can be loaded with {@link #load(File)}.
+	 *
+	 * @param file
+	 *            - The file to write to. It gets replaced if it exists.
+	 * @return Whether the file was written successfully.
+	 */
+	public boolean save(File file) {
+		Writer writer = null;
+		try {
+			writer = new BufferedWriter(new FileWriter(file));
+			writer.write("# time pitch angle distance\n");
+			for (int i = 0; i < count; i++) {
+				writer.write(String.format(Locale.ROOT, "%.4f %.4f %.4f %.4f\n", getTime(i), get(i, PITCH),
+						get(i, ANGLE), get(i, DISTANCE)));
+			}
+			return true;
+		} catch (IOException e) {
+			System.err.println("Couldn't write the camera path to " + file);
+			e.printStackTrace();
+			return false;
+		} finally {
+			close(writer);
+		}
+	}
+
+	/**
+	 * @return The index of the first keyframe after the time, or the number
+	 *         of keyframes if there isn't one.
+	 */
+	private int findNext(float time) {
+		int low = 0;
+		int high = count;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (getTime(middle) <= time) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private float interpolate(int previous, int next, int value, float blend) {
+		float start = get(previous, value);
+		return start + (get(next, value) - start) * blend;
+	}
+
+	private float getTime(int keyframe) {
+		return get(keyframe, TIME);
+	}
+
+	private float get(int keyframe, int value) {
+		return keyframes[keyframe * STRIDE + value];
+	}
+
+	private static void close(Reader reader) {
+		if (reader == null) {
+			return;
+		}
+		try {
+			reader.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static void close(Writer writer) {
+		if (writer == null) {
+			return;
+		}
+		try {
+			writer.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+}
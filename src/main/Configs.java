@@ -4,6 +4,7 @@ import org.lwjgl.util.vector.Vector2f;
 import org.lwjgl.util.vector.Vector3f;
 
 import utils.Colour;
+import water.WaterMode;
 
 /**
  * A load of configs for the application.
@@ -14,6 +15,8 @@ import utils.Colour;
 public class Configs {
 
 	public static final int FPS_CAP = 100;
+	public static final int TICK_RATE = 60;
+	public static final String FRAME_TIMES_FILE = "frameTimes.json";
 	public static final int WIDTH = 1280;
 	public static final int HEIGHT = 720;
 
@@ -34,5 +37,7 @@ public class Configs {
 	public static final int OCTAVES = 5;
 	
 	public static final float WATER_HEIGHT = -1;
+	public static final WaterMode WATER_MODE = WaterMode.LOD;
+	public static final int WATER_PATCH_SIZE = 20;
 	
 }
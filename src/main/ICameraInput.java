@@ -0,0 +1,61 @@
+package main;
+
+/**
+ * The user input that controls the {@link Camera}. The camera is rotated by
+ * dragging (moving the mouse with the left button held down) and zoomed with
+ * the scroll wheel.
+ * 
+ * @author Karl
+ *
+ */
+public interface ICameraInput {
+
+	/**
+	 * Input that never does anything, for when the camera is being moved some
+	 * other way (e.g. by a {@link CameraPath}).
+	 */
+	public static final ICameraInput NONE = new ICameraInput() {
+
+		@Override
+		public boolean isDragging() {
+			return false;
+		}
+
+		@Override
+		public float getDX() {
+			return 0;
+		}
+
+		@Override
+		public float getDY() {
+			return 0;
+		}
+
+		@Override
+		public float getDWheel() {
+			return 0;
+		}
+
+	};
+
+	/**
+	 * @return Whether the user is currently dragging to rotate the camera.
+	 */
+	public boolean isDragging();
+
+	/**
+	 * @return The horizontal movement since the last frame.
+	 */
+	public float getDX();
+
+	/**
+	 * @return The vertical movement since the last frame.
+	 */
+	public float getDY();
+
+	/**
+	 * @return How far the scroll wheel has moved since the last frame.
+	 */
+	public float getDWheel();
+
+}
@@ -1,22 +1,65 @@
 package main;
 
+import java.io.File;
+
+import org.lwjgl.input.Keyboard;
+
 import generation.ColourGenerator;
 import generation.PerlinNoise;
 import hybridTerrain.HybridTerrainGenerator;
+import rendering.FrameSnapshot;
+import rendering.InterpolatedCamera;
 import rendering.Light;
 import rendering.RenderEngine;
 import terrains.Terrain;
 import terrains.TerrainGenerator;
+import timing.BenchmarkReport;
 import water.WaterGenerator;
 import water.WaterTile;
 
+/**
+ * Runs the demo. With no arguments the camera is controlled with the mouse.
+ * The other ways of running it are:
+ *
+ * --record [file] - runs the demo as normal, but records the camera's movement
+ * to a {@link CameraPath} file when it closes.
+ *
+ * --benchmark [frames] [file] - renders a fixed number of frames (after a
+ * short warm up) of the same world every time, with the camera following the
+ * path in the file (or {@link CameraPath#createDefault()} if no file is
+ * given). The frame rate is uncapped, vsync is off, the water FBOs stay at
+ * full resolution, and exactly one update is carried out per frame, so every
+ * run does the same work. The throughput and the time of each pass are
+ * printed at the end.
+ *
+ * @author Karl
+ *
+ */
 public class LowPolyDemoApp {
 
+	private static final int DEFAULT_BENCHMARK_FRAMES = 1200;
+	private static final int BENCHMARK_WARM_UP_FRAMES = 120;
+
 	public static void main(String[] args) {
-		
+		if (args.length > 0 && args[0].equals("--benchmark")) {
+			int frames = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_BENCHMARK_FRAMES;
+			CameraPath path = args.length > 2 ? CameraPath.load(new File(args[2])) : CameraPath.createDefault();
+			if (path == null) {
+				System.exit(1);
+			}
+			runBenchmark(frames, path);
+		} else {
+			File recordingFile = args.length > 1 && args[0].equals("--record") ? new File(args[1]) : null;
+			runDemo(recordingFile);
+		}
+	}
+
+	private static void runDemo(File recordingFile) {
+
 		//init engine and scene objects
 		RenderEngine engine = new RenderEngine(Configs.FPS_CAP, Configs.WIDTH, Configs.HEIGHT);
-		Camera camera = new Camera();
+		BufferedCameraInput input = new BufferedCameraInput(new MouseCameraInput());
+		Camera camera = new Camera(input, engine.getWindow().getAspectRatio());
 		Light light = new Light(Configs.LIGHT_POS, Configs.LIGHT_COL, Configs.LIGHT_BIAS);
 
 		//init terrain
@@ -24,12 +67,94 @@ public class LowPolyDemoApp {
 		ColourGenerator colourGen = new ColourGenerator(Configs.TERRAIN_COLS, Configs.COLOUR_SPREAD);
 		TerrainGenerator terrainGenerator = new HybridTerrainGenerator(noise, colourGen);
 		Terrain terrain = terrainGenerator.generateTerrain(Configs.WORLD_SIZE);
-		
-		WaterTile water = WaterGenerator.generate(Configs.WORLD_SIZE, Configs.WATER_HEIGHT);
-		
+		WaterTile water = generateWater(terrain);
+
+		//the camera and waves get updated on their own thread at a fixed rate
+		Simulation simulation = new Simulation(camera, input, Configs.TICK_RATE);
+		InterpolatedCamera renderCamera = new InterpolatedCamera(camera.getProjectionMatrix(), camera.getNearPlane(),
+				camera.getFarPlane(), Configs.WATER_HEIGHT);
+		CameraPath recording = recordingFile != null ? new CameraPath() : null;
+		simulation.setRecording(recording);
+		simulation.start();
+
+		//the frame time histogram gets saved on exit, or when F12 is pressed
+		File frameTimesFile = new File(Configs.FRAME_TIMES_FILE);
+		boolean saveKeyDown = false;
+
 		while (!engine.getWindow().isCloseRequested()) {
-			camera.move();
-			engine.render(terrain, water, camera, light);
+			input.collect();
+			FrameSnapshot frame = simulation.getLatestFrame();
+			renderCamera.update(frame, simulation.getInterpolation(frame));
+			water.update(renderCamera.getPosition());
+			engine.render(terrain, water, renderCamera, light, renderCamera.getWaveTime());
+			boolean saveKeyPressed = Keyboard.isKeyDown(Keyboard.KEY_F12);
+			if (saveKeyPressed && !saveKeyDown) {
+				engine.getFrameTimes().save(frameTimesFile);
+			}
+			saveKeyDown = saveKeyPressed;
+		}
+
+		simulation.stop();
+		engine.getFrameTimes().save(frameTimesFile);
+		if (recording != null) {
+			recording.save(recordingFile);
+		}
+
+		water.delete();
+		terrainGenerator.cleanUp();
+		terrain.delete();
+
+		engine.close();
+
+	}
+
+	private static void runBenchmark(int frames, CameraPath path) {
+
+		//no FPS cap (vsync is off by default), and the pass times of every frame are kept
+		RenderEngine engine = new RenderEngine(0, Configs.WIDTH, Configs.HEIGHT, frames);
+		BufferedCameraInput input = new BufferedCameraInput(ICameraInput.NONE);
+		Camera camera = new Camera(input, engine.getWindow().getAspectRatio());
+		Light light = new Light(Configs.LIGHT_POS, Configs.LIGHT_COL, Configs.LIGHT_BIAS);
+
+		//the same world every run
+		PerlinNoise noise = new PerlinNoise(Configs.SEED, Configs.OCTAVES, Configs.AMPLITUDE, Configs.ROUGHNESS);
+		ColourGenerator colourGen = new ColourGenerator(Configs.TERRAIN_COLS, Configs.COLOUR_SPREAD);
+		TerrainGenerator terrainGenerator = new HybridTerrainGenerator(noise, colourGen);
+		Terrain terrain = terrainGenerator.generateTerrain(Configs.WORLD_SIZE);
+		WaterTile water = generateWater(terrain);
+
+		//one update per frame on this thread, rendered without blending back to the previous update
+		Simulation simulation = new Simulation(camera, input, Configs.TICK_RATE);
+		simulation.setPath(path);
+		InterpolatedCamera renderCamera = new InterpolatedCamera(camera.getProjectionMatrix(), camera.getNearPlane(),
+				camera.getFarPlane(), Configs.WATER_HEIGHT);
+
+		long start = 0;
+		int rendered = 0;
+		for (int i = 0; i < BENCHMARK_WARM_UP_FRAMES + frames; i++) {
+			if (engine.getWindow().isCloseRequested()) {
+				break;
+			}
+			if (i == BENCHMARK_WARM_UP_FRAMES) {
+				engine.getPassTimer().clear();
+				engine.getFrameTimes().reset();
+				start = System.nanoTime();
+			}
+			simulation.step();
+			renderCamera.update(simulation.getLatestFrame(), 1);
+			water.update(renderCamera.getPosition());
+			engine.render(terrain, water, renderCamera, light, renderCamera.getWaveTime());
+			if (i >= BENCHMARK_WARM_UP_FRAMES) {
+				rendered++;
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+
+		if (rendered > 0) {
+			BenchmarkReport report = new BenchmarkReport(System.out);
+			report.printThroughput(rendered, elapsed);
+			report.printPasses(engine.getPassTimer());
+			report.printFrameTimes(engine.getFrameTimes());
 		}
 
 		water.delete();
@@ -40,4 +165,9 @@ public class LowPolyDemoApp {
 
 	}
 
+	private static WaterTile generateWater(Terrain terrain) {
+		return WaterGenerator.generate(Configs.WATER_MODE, Configs.WORLD_SIZE, Configs.WATER_PATCH_SIZE,
+				Configs.WATER_HEIGHT, terrain.getHeights());
+	}
+
 }
@@ -0,0 +1,34 @@
+package main;
+
+import org.lwjgl.input.Mouse;
+
+/**
+ * Controls the camera with the mouse. The camera rotates while the left mouse
+ * button is held down.
+ * 
+ * @author Karl
+ *
+ */
+public class MouseCameraInput implements ICameraInput {
+
+	@Override
+	public boolean isDragging() {
+		return Mouse.isButtonDown(0);
+	}
+
+	@Override
+	public float getDX() {
+		return Mouse.getDX();
+	}
+
+	@Override
+	public float getDY() {
+		return Mouse.getDY();
+	}
+
+	@Override
+	public float getDWheel() {
+		return Mouse.getDWheel();
+	}
+
+}
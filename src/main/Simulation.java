@@ -0,0 +1,194 @@
+package main;
+
+import java.util.concurrent.locks.LockSupport;
+
+import rendering.FrameSnapshot;
+import utils.FixedTimestep;
+import utils.IClock;
+import utils.TripleBuffer;
+import waterRendering.WaterRenderer;
+
+/**
+ * Runs the game's updates on their own thread at a fixed rate, separately from
+ * the rendering. The update thread owns the camera and the wave time. At the
+ * end of each update a {@link FrameSnapshot} of the state is published through
+ * a {@link TripleBuffer}, and the render thread renders whichever snapshot is
+ * the latest when it starts a frame. Neither thread ever waits for the other,
+ * so a slow update doesn't hold up a frame (or the frame rate cap in
+ * Display.sync) and a slow frame doesn't hold up the updates.
+ * 
+ * The updates are driven by a {@link FixedTimestep}, so every update moves
+ * the simulation on by exactly the same amount of time and the results don't
+ * depend on the frame rate. The render thread blends between the last two
+ * updates (see {@link #getInterpolation(FrameSnapshot)}), so the camera still
+ * moves smoothly when the frame rate is higher than the update rate.
+ * 
+ * Instead of the input, the camera can follow a {@link CameraPath}, and the
+ * camera's movement can be recorded to a path. For benchmarks the thread
+ * doesn't need to be started at all, and {@link #step()} can be used to carry
+ * out exactly one update per frame.
+ * 
+ * @author Karl
+ *
+ */
+public class Simulation implements Runnable {
+
+	private static final int MAX_TICKS_PER_ADVANCE = 5;
+
+	private final Camera camera;
+	private final BufferedCameraInput input;
+	private final IClock clock;
+	private final FixedTimestep timestep;
+	private final FrameSnapshot state = new FrameSnapshot();
+	private final TripleBuffer<FrameSnapshot> frames = new TripleBuffer<FrameSnapshot>(new FrameSnapshot(),
+			new FrameSnapshot(), new FrameSnapshot());
+
+	private volatile boolean running = false;
+	private Thread thread;
+
+	private float waveTime = 0;
+	private long ticks = 0;
+	private CameraPath path;
+	private CameraPath recording;
+
+	/**
+	 * Sets up the simulation and publishes the first snapshot, so that there's
+	 * always a snapshot available to render.
+	 * 
+	 * @param camera
+	 *            - The camera, which must be using the input below.
+	 * @param input
+	 *            - The input which the render thread collects.
+	 * @param ticksPerSecond
+	 *            - The number of updates per second.
+	 */
+	public Simulation(Camera camera, BufferedCameraInput input, int ticksPerSecond) {
+		this.camera = camera;
+		this.input = input;
+		this.clock = IClock.SYSTEM;
+		this.timestep = new FixedTimestep(clock, ticksPerSecond, MAX_TICKS_PER_ADVANCE);
+		timestep.advance();
+		update();
+	}
+
+	/**
+	 * Makes the camera follow a path instead of the input. Must be called
+	 * before the update thread is started.
+	 * 
+	 * @param path
+	 *            - The path, or null to go back to using the input.
+	 */
+	public void setPath(CameraPath path) {
+		this.path = path;
+	}
+
+	/**
+	 * Records the camera's movement to a path, adding a keyframe every update.
+	 * Must be called before the update thread is started, and the path
+	 * shouldn't be used until the thread has been stopped.
+	 * 
+	 * @param recording
+	 *            - The path that the keyframes get added to, or null to stop
+	 *            recording.
+	 */
+	public void setRecording(CameraPath recording) {
+		this.recording = recording;
+	}
+
+	/**
+	 * Carries out one update straight away on the calling thread. This is
+	 * used instead of the update thread when every frame should render the
+	 * next update, whatever the timing (e.g. for a benchmark which should do
+	 * the same work on every run). The snapshot returned by
+	 * {@link #getLatestFrame()} is then the result of this update, and should
+	 * be rendered without blending back to the previous update.
+	 */
+	public void step() {
+		update();
+	}
+
+	/**
+	 * Starts the update thread.
+	 */
+	public void start() {
+		running = true;
+		thread = new Thread(this, "Update");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops the update thread, and waits for it to finish its current update.
+	 */
+	public void stop() {
+		running = false;
+		if (thread == null) {
+			return;
+		}
+		LockSupport.unpark(thread);
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Should only be used by the render thread.
+	 * 
+	 * @return The most recent snapshot of the simulation, which can be
+	 *         rendered until the next time this is called.
+	 */
+	public FrameSnapshot getLatestFrame() {
+		return frames.getLatest();
+	}
+
+	/**
+	 * Works out how far the current time is between the previous update and
+	 * the current update of a snapshot. Rendering is always up to one update
+	 * behind the simulation, so that there are always two updates to blend
+	 * between.
+	 * 
+	 * @param frame
+	 *            - The snapshot being rendered.
+	 * @return The amount to blend between the snapshot's previous (0) and
+	 *         current (1) state.
+	 */
+	public float getInterpolation(FrameSnapshot frame) {
+		float alpha = (float) (clock.nanoTime() - frame.getTickTime()) / timestep.getTickNanos();
+		return Math.min(Math.max(alpha, 0), 1);
+	}
+
+	@Override
+	public void run() {
+		while (running) {
+			int ticks = timestep.advance();
+			for (int i = 0; i < ticks; i++) {
+				update();
+			}
+			LockSupport.parkNanos(timestep.getNanosUntilNextTick());
+		}
+	}
+
+	/**
+	 * Carries out one update and publishes the new state.
+	 */
+	private void update() {
+		float delta = timestep.getTickSeconds();
+		input.nextTick();
+		float time = ticks * delta;
+		if (path != null) {
+			path.apply(camera, time);
+		}
+		camera.move(delta);
+		if (recording != null) {
+			recording.record(time, camera);
+		}
+		ticks++;
+		waveTime += WaterRenderer.WAVE_SPEED * delta;
+		state.advance(camera.getPosition(), camera.getPitch(), camera.getYaw(), waveTime, clock.nanoTime());
+		frames.getWriteSlot().copy(state);
+		frames.publish();
+	}
+
+}
@@ -0,0 +1,86 @@
+package rendering;
+
+import org.lwjgl.util.vector.Matrix4f;
+
+import shaders.UniformBlock;
+import shaders.UniformBlockData;
+import shaders.UniformBlockLayout;
+
+/**
+ * The uniform values that are the same for every shader program during a
+ * pass - the camera's projection-view matrix and the light. These are stored
+ * in a uniform buffer which both the terrain and water shaders read from, so
+ * they only get uploaded once per pass instead of once per program. The
+ * shaders must declare the block like this:
+ * 
+ * <pre>
+ * layout(std140) uniform FrameGlobals {
+ * 	mat4 projectionViewMatrix;
+ * 	vec3 lightDirection;
+ * 	vec3 lightColour;
+ * 	vec2 lightBias;
+ * };
+ * </pre>
+ * 
+ * @author Karl
+ *
+ */
+public class FrameGlobals {
+
+	public static final String BLOCK_NAME = "FrameGlobals";
+	public static final int BINDING_POINT = 0;
+
+	public static final UniformBlockLayout LAYOUT = UniformBlockLayout.newLayout().addMat4("projectionViewMatrix")
+			.addVec3("lightDirection").addVec3("lightColour").addVec2("lightBias").create();
+
+	private static final int PROJECTION_VIEW = LAYOUT.getOffset("projectionViewMatrix");
+	private static final int LIGHT_DIRECTION = LAYOUT.getOffset("lightDirection");
+	private static final int LIGHT_COLOUR = LAYOUT.getOffset("lightColour");
+	private static final int LIGHT_BIAS = LAYOUT.getOffset("lightBias");
+
+	private final UniformBlock block;
+
+	/**
+	 * @param device
+	 *            - Creates the uniform block.
+	 */
+	public FrameGlobals(IRenderDevice device) {
+		this.block = device.createUniformBlock(LAYOUT, BINDING_POINT);
+	}
+
+	/**
+	 * Stores the values for the next pass and uploads them, if they've
+	 * changed since the last pass.
+	 * 
+	 * @param camera
+	 *            - The camera being used for the pass.
+	 * @param light
+	 *            - The light in the scene.
+	 */
+	public void update(ICamera camera, Light light) {
+		store(block.getData(), camera.getProjectionViewMatrix(), light);
+		block.update();
+	}
+
+	public void delete() {
+		block.delete();
+	}
+
+	/**
+	 * Packs the values into the block's data.
+	 * 
+	 * @param data
+	 *            - The data of a block with the frame globals {@link #LAYOUT}.
+	 * @param projectionViewMatrix
+	 *            - The camera's projection-view matrix.
+	 * @param light
+	 *            - The light in the scene.
+	 */
+	public static void store(UniformBlockData data, Matrix4f projectionViewMatrix, Light light) {
+		data.setMatrix(PROJECTION_VIEW, projectionViewMatrix);
+		data.setVec3(LIGHT_DIRECTION, light.getDirection());
+		data.setVec3(LIGHT_COLOUR, light.getColour().getVector());
+		data.setVec2(LIGHT_BIAS, light.getLightBias());
+	}
+
+}
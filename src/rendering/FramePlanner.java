@@ -0,0 +1,288 @@
+package rendering;
+
+import org.lwjgl.util.vector.Vector4f;
+
+import terrains.OcclusionCuller;
+import terrains.RegionHeightFilter;
+import terrains.Terrain;
+import utils.ScreenBounds;
+import water.WaterGenerator;
+import water.WaterTile;
+
+/**
+ * Works out what needs rendering in a frame, before any rendering happens.
+ * This decides which of the water passes need doing, which terrain regions
+ * need drawing in each pass, the clip plane for each pass, and where the water
+ * is on the screen. None of this uses OpenGL, so a frame can be planned (and
+ * recorded into command lists) without a display, e.g. by a benchmark.
+ * 
+ * The clip planes and region arrays are owned by the planner and reused every
+ * frame, so planning a frame doesn't allocate anything once the arrays have
+ * been created for the terrain.
+ * 
+ * @author Karl
+ *
+ */
+public class FramePlanner {
+
+	private static final float REFRACT_OFFSET = 1f;
+	private static final float REFLECT_OFFSET = 0.1f;
+
+	private static final float REUSE_THRESHOLD = 0.0005f;
+	private static final int REUSE_REFRESH_INTERVAL = 30;
+
+	private final WaterPassReuse passReuse = new WaterPassReuse(REUSE_THRESHOLD, REUSE_REFRESH_INTERVAL);
+	private final OcclusionCuller occlusionCuller = new OcclusionCuller();
+	private final RegionHeightFilter reflectionFilter = new RegionHeightFilter(true);
+	private final RegionHeightFilter refractionFilter = new RegionHeightFilter(false);
+	private final ScreenBounds waterScreenBounds = new ScreenBounds();
+
+	private final Vector4f reflectionClipPlane = new Vector4f();
+	private final Vector4f refractionClipPlane = new Vector4f();
+	private final Vector4f mainClipPlane = new Vector4f(0, 0, 0, 0);
+
+	private boolean renderReflection;
+	private boolean renderRefraction;
+	private boolean[] visibleRegions;
+	private boolean[] reflectionRegions;
+	private boolean[] refractionRegions;
+	private boolean[] refractionMask = new boolean[0];
+
+	private int hiddenWaterFrames;
+	private int reflectionRegionCount;
+	private int refractionRegionCount;
+	private int mainRegionCount;
+
+	/**
+	 * Plans the next frame. The terrain regions hidden behind other parts of
+	 * the terrain are worked out, so that they can be skipped in the
+	 * refraction and main passes. The reflection pass views the terrain from
+	 * under the water, so occlusion isn't used in that pass. The reflection
+	 * and refraction passes also skip any regions which are completely on the
+	 * wrong side of their clip planes.
+	 * 
+	 * If the camera and light haven't moved since the reflection and
+	 * refraction textures were last rendered, the old textures can be reused
+	 * and those passes are skipped (see {@link WaterPassReuse}). They're also
+	 * skipped if none of the water is on the screen.
+	 * 
+	 * @param terrain
+	 *            - The terrain in the scene.
+	 * @param water
+	 *            - The water in the scene.
+	 * @param camera
+	 *            - The scene's camera.
+	 * @param light
+	 *            - The light being used to illuminate the scene.
+	 */
+	public void plan(Terrain terrain, WaterTile water, ICamera camera, Light light) {
+		passReuse.update(camera, light);
+		boolean waterVisible = findWaterOnScreen(water, camera);
+		visibleRegions = findVisibleRegions(terrain, camera);
+		renderReflection = waterVisible && passReuse.shouldRenderReflection();
+		renderRefraction = waterVisible && passReuse.shouldRenderRefraction();
+		if (renderReflection) {
+			planReflection(terrain, water.getHeight());
+		}
+		if (renderRefraction) {
+			planRefraction(terrain, water.getHeight());
+		}
+		if (!waterVisible) {
+			hiddenWaterFrames++;
+		}
+		mainRegionCount = countRegions(visibleRegions);
+	}
+
+	/**
+	 * Forces the reflection and refraction textures to be rendered again next
+	 * frame.
+	 */
+	public void invalidate() {
+		passReuse.invalidate();
+	}
+
+	public boolean shouldRenderReflection() {
+		return renderReflection;
+	}
+
+	public boolean shouldRenderRefraction() {
+		return renderRefraction;
+	}
+
+	/**
+	 * @return The rectangle of the screen that the water might cover.
+	 */
+	public ScreenBounds getWaterScreenBounds() {
+		return waterScreenBounds;
+	}
+
+	/**
+	 * @return The clip plane for the reflection pass, which cuts off
+	 *         everything under the water.
+	 */
+	public Vector4f getReflectionClipPlane() {
+		return reflectionClipPlane;
+	}
+
+	/**
+	 * @return The clip plane for the refraction pass, which cuts off
+	 *         everything above the water.
+	 */
+	public Vector4f getRefractionClipPlane() {
+		return refractionClipPlane;
+	}
+
+	/**
+	 * @return The clip plane for the main pass, which doesn't cut anything
+	 *         off.
+	 */
+	public Vector4f getMainClipPlane() {
+		return mainClipPlane;
+	}
+
+	/**
+	 * @return The regions to draw in the reflection pass, or null if the
+	 *         terrain isn't split into regions.
+	 */
+	public boolean[] getReflectionRegions() {
+		return reflectionRegions;
+	}
+
+	/**
+	 * @return The regions to draw in the refraction pass, or null if the
+	 *         terrain isn't split into regions.
+	 */
+	public boolean[] getRefractionRegions() {
+		return refractionRegions;
+	}
+
+	/**
+	 * @return The regions to draw in the main pass (the ones that aren't
+	 *         occluded), or null if the terrain isn't split into regions.
+	 */
+	public boolean[] getVisibleRegions() {
+		return visibleRegions;
+	}
+
+	/**
+	 * @return The number of terrain regions drawn in the last reflection pass.
+	 */
+	public int getReflectionRegionCount() {
+		return reflectionRegionCount;
+	}
+
+	/**
+	 * @return The number of terrain regions drawn in the last refraction pass.
+	 */
+	public int getRefractionRegionCount() {
+		return refractionRegionCount;
+	}
+
+	/**
+	 * @return The number of terrain regions drawn in the last main pass.
+	 */
+	public int getMainRegionCount() {
+		return mainRegionCount;
+	}
+
+	/**
+	 * @return The number of frames where the reflection and refraction passes
+	 *         were skipped because none of the water was on the screen.
+	 */
+	public int getHiddenWaterFrames() {
+		return hiddenWaterFrames;
+	}
+
+	/**
+	 * Sets up the reflection clip plane, which only lets through things above
+	 * the water, and finds the regions which aren't completely under it.
+	 */
+	private void planReflection(Terrain terrain, float waterHeight) {
+		float clipHeight = waterHeight - REFLECT_OFFSET;
+		reflectionClipPlane.set(0, 1, 0, -clipHeight);
+		reflectionRegions = null;
+		if (terrain.getRegions() != null) {
+			reflectionRegions = reflectionFilter.select(terrain.getRegions(), clipHeight);
+		}
+		reflectionRegionCount = countRegions(reflectionRegions);
+	}
+
+	/**
+	 * Sets up the refraction clip plane, which only lets through things under
+	 * the water, and finds the regions which aren't occluded and which have
+	 * some terrain under the plane.
+	 */
+	private void planRefraction(Terrain terrain, float waterHeight) {
+		float clipHeight = waterHeight + REFRACT_OFFSET;
+		refractionClipPlane.set(0, -1, 0, clipHeight);
+		refractionRegions = null;
+		if (terrain.getRegions() != null) {
+			boolean[] underWater = refractionFilter.select(terrain.getRegions(), clipHeight);
+			if (refractionMask.length != underWater.length) {
+				refractionMask = new boolean[underWater.length];
+			}
+			for (int i = 0; i < underWater.length; i++) {
+				refractionMask[i] = underWater[i] && visibleRegions[i];
+			}
+			refractionRegions = refractionMask;
+		}
+		refractionRegionCount = countRegions(refractionRegions);
+	}
+
+	/**
+	 * Works out the rectangle of the screen covered by the water's bounding
+	 * box, including the furthest that the waves can move the water.
+	 * 
+	 * @param water
+	 *            - The water.
+	 * @param camera
+	 *            - The camera.
+	 * @return True if any of the water might be on the screen.
+	 */
+	private boolean findWaterOnScreen(WaterTile water, ICamera camera) {
+		if (!water.hasBounds()) {
+			return waterScreenBounds.update(camera.getProjectionViewMatrix(), -1e6f, water.getHeight(), -1e6f, 1e6f,
+					water.getHeight(), 1e6f);
+		}
+		float wave = WaterGenerator.MAX_WAVE_HEIGHT;
+		return waterScreenBounds.update(camera.getProjectionViewMatrix(), water.getMinX() - wave,
+				water.getHeight() - wave, water.getMinZ() - wave, water.getMaxX() + wave, water.getHeight() + wave,
+				water.getMaxZ() + wave);
+	}
+
+	/**
+	 * Works out which of the terrain's regions aren't occluded by the rest of
+	 * the terrain from the camera's current position.
+	 * 
+	 * @param terrain
+	 *            - The terrain.
+	 * @param camera
+	 *            - The camera.
+	 * @return Which regions are visible, or null if the terrain isn't split
+	 *         into regions.
+	 */
+	private boolean[] findVisibleRegions(Terrain terrain, ICamera camera) {
+		if (terrain.getRegions() == null) {
+			return null;
+		}
+		occlusionCuller.update(terrain.getRegions(), camera.getPosition());
+		return occlusionCuller.getVisibleRegions();
+	}
+
+	/**
+	 * @return The number of regions that are going to be drawn.
+	 */
+	private static int countRegions(boolean[] regions) {
+		if (regions == null) {
+			return 0;
+		}
+		int count = 0;
+		for (int i = 0; i < regions.length; i++) {
+			if (regions[i]) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+}
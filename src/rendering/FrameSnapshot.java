@@ -0,0 +1,129 @@
+package rendering;
+
+import org.lwjgl.util.vector.Vector3f;
+
+/**
+ * The state that the renderer needs from the simulation, for the last two
+ * updates: the camera's position, pitch and yaw, and the time used to animate
+ * the waves. The simulation publishes one of these at the end of each update
+ * (see {@link utils.TripleBuffer}), and the render thread uses an
+ * {@link InterpolatedCamera} to blend between the previous and current values,
+ * depending on how far the frame is between the two updates. This way the
+ * camera moves smoothly whatever the frame rate is, even though it's only
+ * updated at a fixed rate.
+ * 
+ * Snapshots are reused, so the values are copied in rather than referenced.
+ * Once a snapshot has been handed over it should only be read.
+ * 
+ * @author Karl
+ *
+ */
+public class FrameSnapshot {
+
+	private final Vector3f previousPosition = new Vector3f();
+	private final Vector3f position = new Vector3f();
+	private float previousPitch;
+	private float pitch;
+	private float previousYaw;
+	private float yaw;
+	private float previousWaveTime;
+	private float waveTime;
+	private long tick = -1;
+	private long tickTime;
+
+	/**
+	 * Records the state after a new update. The values from the last update
+	 * become the previous values. On the first update the previous values are
+	 * the same as the new ones.
+	 * 
+	 * @param position
+	 *            - The camera's position.
+	 * @param pitch
+	 *            - The camera's pitch in degrees.
+	 * @param yaw
+	 *            - The camera's yaw in degrees.
+	 * @param waveTime
+	 *            - The "waveTime" value for the water shader.
+	 * @param tickTime
+	 *            - The time (in nanoseconds) when the update happened.
+	 */
+	public void advance(Vector3f position, float pitch, float yaw, float waveTime, long tickTime) {
+		boolean first = tick < 0;
+		this.previousPosition.set(first ? position : this.position);
+		this.previousPitch = first ? pitch : this.pitch;
+		this.previousYaw = first ? yaw : this.yaw;
+		this.previousWaveTime = first ? waveTime : this.waveTime;
+		this.position.set(position);
+		this.pitch = pitch;
+		this.yaw = yaw;
+		this.waveTime = waveTime;
+		this.tickTime = tickTime;
+		this.tick++;
+	}
+
+	/**
+	 * Copies another snapshot into this one.
+	 * 
+	 * @param other
+	 *            - The snapshot to copy.
+	 */
+	public void copy(FrameSnapshot other) {
+		this.previousPosition.set(other.previousPosition);
+		this.position.set(other.position);
+		this.previousPitch = other.previousPitch;
+		this.pitch = other.pitch;
+		this.previousYaw = other.previousYaw;
+		this.yaw = other.yaw;
+		this.previousWaveTime = other.previousWaveTime;
+		this.waveTime = other.waveTime;
+		this.tick = other.tick;
+		this.tickTime = other.tickTime;
+	}
+
+	public Vector3f getPreviousPosition() {
+		return previousPosition;
+	}
+
+	public Vector3f getPosition() {
+		return position;
+	}
+
+	public float getPreviousPitch() {
+		return previousPitch;
+	}
+
+	public float getPitch() {
+		return pitch;
+	}
+
+	public float getPreviousYaw() {
+		return previousYaw;
+	}
+
+	public float getYaw() {
+		return yaw;
+	}
+
+	public float getPreviousWaveTime() {
+		return previousWaveTime;
+	}
+
+	public float getWaveTime() {
+		return waveTime;
+	}
+
+	/**
+	 * @return The number of the update that this snapshot was taken in.
+	 */
+	public long getTick() {
+		return tick;
+	}
+
+	/**
+	 * @return The time (in nanoseconds) when the update happened.
+	 */
+	public long getTickTime() {
+		return tickTime;
+	}
+
+}
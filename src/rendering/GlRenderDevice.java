@@ -0,0 +1,191 @@
+package rendering;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL14;
+import org.lwjgl.opengl.GL32;
+import org.lwjgl.util.vector.Vector4f;
+
+import commands.GlRenderBackend;
+import commands.IRenderBackend;
+import commands.RenderCommandList;
+import display.Window;
+import fbos.Attachment;
+import fbos.Fbo;
+import fbos.RenderBufferAttachment;
+import fbos.TextureAttachment;
+import shaders.UniformBlock;
+import shaders.UniformBlockLayout;
+import terrains.Terrain;
+import timing.GlGpuTimer;
+import timing.IGpuTimer;
+import utils.OpenGlUtils;
+import water.WaterTile;
+import waterRendering.WaterRenderer;
+
+/**
+ * Renders with OpenGL to a display. The display and the water shader are
+ * created along with the device, and the terrain is recorded by the terrain's
+ * own renderer.
+ * 
+ * @author Karl
+ *
+ */
+public class GlRenderDevice implements IRenderDevice {
+
+	private final Window window;
+	private final WaterRenderer waterRenderer;
+
+	/**
+	 * Opens the display and sets up the water renderer.
+	 * 
+	 * @param displayWidth
+	 *            - The width of the display in pixels.
+	 * @param displayHeight
+	 *            - The height of the display in pixels.
+	 * @param fps
+	 *            - The FPS cap, or 0 for no cap.
+	 */
+	public GlRenderDevice(int displayWidth, int displayHeight, int fps) {
+		this.window = Window.newWindow(displayWidth, displayHeight, fps).antialias(true).create();
+		this.waterRenderer = new WaterRenderer();
+	}
+
+	@Override
+	public Window getWindow() {
+		return window;
+	}
+
+	@Override
+	public IRenderBackend createBackend() {
+		return new GlRenderBackend();
+	}
+
+	/**
+	 * Sets up an FBO with a texture colour attachment, and either a render
+	 * buffer or texture attachment for the depth buffer.
+	 */
+	@Override
+	public IRenderTarget createRenderTarget(int width, int height, boolean textureForDepth) {
+		Attachment colourAttach = new TextureAttachment(GL11.GL_RGBA8);
+		Attachment depthAttach;
+		if (textureForDepth) {
+			depthAttach = new TextureAttachment(GL14.GL_DEPTH_COMPONENT24);
+		} else {
+			depthAttach = new RenderBufferAttachment(GL14.GL_DEPTH_COMPONENT24);
+		}
+		Fbo fbo = Fbo.newFbo(width, height).addColourAttachment(0, colourAttach).addDepthAttachment(depthAttach)
+				.init();
+		return new FboTarget(fbo);
+	}
+
+	@Override
+	public UniformBlock createUniformBlock(UniformBlockLayout layout, int bindingPoint) {
+		return new UniformBlock(layout, bindingPoint);
+	}
+
+	@Override
+	public IGpuTimer createGpuTimer(int passCount) {
+		return new GlGpuTimer(passCount);
+	}
+
+	@Override
+	public void newFrame() {
+		OpenGlUtils.newFrame();
+	}
+
+	@Override
+	public void enableClipPlane(boolean enable) {
+		OpenGlUtils.enableClipDistance(0, enable);
+	}
+
+	@Override
+	public void startScissor(int x, int y, int width, int height) {
+		GL11.glEnable(GL11.GL_SCISSOR_TEST);
+		GL11.glScissor(x, y, width, height);
+	}
+
+	@Override
+	public void stopScissor() {
+		GL11.glDisable(GL11.GL_SCISSOR_TEST);
+	}
+
+	/**
+	 * The depth and colour buffers of the current framebuffer are cleared and
+	 * a few other default settings are set.
+	 */
+	@Override
+	public void prepare() {
+		GL11.glClearColor(1f, 1f, 1f, 1f);
+		GL11.glClear(GL11.GL_COLOR_BUFFER_BIT | GL11.GL_DEPTH_BUFFER_BIT);
+		GL32.glProvokingVertex(GL32.GL_FIRST_VERTEX_CONVENTION);
+		OpenGlUtils.cullBackFaces(true);
+		OpenGlUtils.enableDepthTesting(true);
+		OpenGlUtils.antialias(true);
+	}
+
+	@Override
+	public void recordTerrain(RenderCommandList commands, Terrain terrain, Vector4f clipPlane, boolean[] regions) {
+		terrain.record(commands, clipPlane, regions);
+	}
+
+	@Override
+	public void recordWater(RenderCommandList commands, WaterTile water, ICamera camera, float waveTime,
+			int reflectionTexture, int refractionTexture, int depthTexture) {
+		waterRenderer.record(commands, water, camera, waveTime, reflectionTexture, refractionTexture, depthTexture);
+	}
+
+	@Override
+	public float nextWaveTime() {
+		return waterRenderer.nextWaveTime();
+	}
+
+	@Override
+	public void swapBuffers() {
+		window.update();
+	}
+
+	@Override
+	public void delete() {
+		waterRenderer.cleanUp();
+		window.destroy();
+	}
+
+	/**
+	 * Renders to an FBO with one colour attachment.
+	 */
+	private static class FboTarget implements IRenderTarget {
+
+		private final Fbo fbo;
+
+		private FboTarget(Fbo fbo) {
+			this.fbo = fbo;
+		}
+
+		@Override
+		public void bindForRender() {
+			fbo.bindForRender(0);
+		}
+
+		@Override
+		public void unbindAfterRender() {
+			fbo.unbindAfterRender();
+		}
+
+		@Override
+		public int getColourTexture() {
+			return fbo.getColourBuffer(0);
+		}
+
+		@Override
+		public int getDepthTexture() {
+			return fbo.getDepthBuffer();
+		}
+
+		@Override
+		public void delete() {
+			fbo.delete();
+		}
+
+	}
+
+}
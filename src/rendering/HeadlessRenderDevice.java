@@ -0,0 +1,175 @@
+package rendering;
+
+import org.lwjgl.util.vector.Vector4f;
+
+import commands.ICommandUniforms;
+import commands.IRenderBackend;
+import commands.RecordingRenderBackend;
+import commands.RenderCommand;
+import commands.RenderCommandList;
+import display.Window;
+import shaders.UniformBlock;
+import shaders.UniformBlockLayout;
+import terrains.Terrain;
+import timing.IGpuTimer;
+import utils.IClock;
+import water.WaterTile;
+import waterRendering.WaterRenderer;
+
+/**
+ * A device that doesn't use OpenGL or need a display, so that the
+ * {@link RenderEngine}'s frame loop can be run on its own (e.g. in a
+ * benchmark). The commands are recorded in the same way as with OpenGL, but
+ * with made up program, VAO and texture IDs, and the backend it creates only
+ * counts the work that the commands would have done (see
+ * {@link RecordingRenderBackend}). The uniform blocks still pack their values,
+ * they just don't upload them anywhere. The GPU can't be timed, so only the
+ * CPU time of each pass gets measured.
+ * 
+ * Terrain and water don't need VAOs to be recorded here, so they can be
+ * created without them too.
+ * 
+ * @author Karl
+ *
+ */
+public class HeadlessRenderDevice implements IRenderDevice {
+
+	private static final int TERRAIN_PROGRAM = 1;
+	private static final int TERRAIN_VAO = 1;
+	private static final int WATER_PROGRAM = 2;
+	private static final int WATER_VAO = 2;
+	private static final float NANOS_PER_SECOND = 1000000000f;
+
+	private static final ICommandUniforms NO_UNIFORMS = new ICommandUniforms() {
+		@Override
+		public void loadUniforms(RenderCommand command) {
+		}
+	};
+
+	private final IClock clock = IClock.SYSTEM;
+
+	private int nextTextureId = 1;
+	private float waveTime = 0;
+	private long lastTime = -1;
+
+	@Override
+	public Window getWindow() {
+		return null;
+	}
+
+	@Override
+	public IRenderBackend createBackend() {
+		return new RecordingRenderBackend(false);
+	}
+
+	/**
+	 * Each target gets its own texture IDs (never 0, which would mean "no
+	 * texture"), so that the texture changes are counted in the same way as
+	 * with real FBOs.
+	 */
+	@Override
+	public IRenderTarget createRenderTarget(int width, int height, boolean textureForDepth) {
+		int colourTexture = nextTextureId++;
+		int depthTexture = textureForDepth ? nextTextureId++ : 0;
+		return new HeadlessTarget(colourTexture, depthTexture);
+	}
+
+	@Override
+	public UniformBlock createUniformBlock(UniformBlockLayout layout, int bindingPoint) {
+		return new UniformBlock(layout, bindingPoint, false);
+	}
+
+	@Override
+	public IGpuTimer createGpuTimer(int passCount) {
+		return IGpuTimer.NONE;
+	}
+
+	@Override
+	public void newFrame() {
+	}
+
+	@Override
+	public void enableClipPlane(boolean enable) {
+	}
+
+	@Override
+	public void startScissor(int x, int y, int width, int height) {
+	}
+
+	@Override
+	public void stopScissor() {
+	}
+
+	@Override
+	public void prepare() {
+	}
+
+	@Override
+	public void recordTerrain(RenderCommandList commands, Terrain terrain, Vector4f clipPlane, boolean[] regions) {
+		TerrainRenderer.recordTerrain(commands, TERRAIN_PROGRAM, TERRAIN_VAO, NO_UNIFORMS, true, terrain, clipPlane,
+				regions);
+	}
+
+	@Override
+	public void recordWater(RenderCommandList commands, WaterTile water, ICamera camera, float waveTime,
+			int reflectionTexture, int refractionTexture, int depthTexture) {
+		WaterRenderer.recordWater(commands, WATER_PROGRAM, WATER_VAO, NO_UNIFORMS, water, camera, waveTime,
+				reflectionTexture, refractionTexture, depthTexture);
+	}
+
+	/**
+	 * Moves the waves on in the same way as {@link WaterRenderer#nextWaveTime()}.
+	 */
+	@Override
+	public float nextWaveTime() {
+		long now = clock.nanoTime();
+		if (lastTime >= 0) {
+			waveTime += WaterRenderer.WAVE_SPEED * (now - lastTime) / NANOS_PER_SECOND;
+		}
+		lastTime = now;
+		return waveTime;
+	}
+
+	@Override
+	public void swapBuffers() {
+	}
+
+	@Override
+	public void delete() {
+	}
+
+	private static class HeadlessTarget implements IRenderTarget {
+
+		private final int colourTexture;
+		private final int depthTexture;
+
+		private HeadlessTarget(int colourTexture, int depthTexture) {
+			this.colourTexture = colourTexture;
+			this.depthTexture = depthTexture;
+		}
+
+		@Override
+		public void bindForRender() {
+		}
+
+		@Override
+		public void unbindAfterRender() {
+		}
+
+		@Override
+		public int getColourTexture() {
+			return colourTexture;
+		}
+
+		@Override
+		public int getDepthTexture() {
+			return depthTexture;
+		}
+
+		@Override
+		public void delete() {
+		}
+
+	}
+
+}
@@ -4,7 +4,10 @@ import org.lwjgl.util.vector.Matrix4f;
 import org.lwjgl.util.vector.Vector3f;
 
 /**
- * Represents a camera in the scene.
+ * Represents a camera in the scene. The matrices and vectors returned by a
+ * camera belong to the camera and are reused from frame to frame, so they
+ * should only ever be read. Anything that needs to keep hold of one of them
+ * should copy it.
  * 
  * @author Karl
  *
@@ -17,6 +20,11 @@ public interface ICamera {
 
 	public Matrix4f getProjectionMatrix();
 
+	/**
+	 * @return The projection matrix multiplied by the view matrix (or by the
+	 *         reflected view matrix while the camera is reflected). This
+	 *         shouldn't need calculating every time it's asked for.
+	 */
 	public Matrix4f getProjectionViewMatrix();
 
 	public float getNearPlane();
@@ -0,0 +1,146 @@
+package rendering;
+
+import org.lwjgl.util.vector.Vector4f;
+
+import commands.IRenderBackend;
+import commands.RenderCommandList;
+import display.Window;
+import shaders.UniformBlock;
+import shaders.UniformBlockLayout;
+import terrains.Terrain;
+import timing.IGpuTimer;
+import water.WaterTile;
+
+/**
+ * Everything that the {@link RenderEngine} needs from OpenGL and the display:
+ * the objects it renders with, the state that gets set up for each pass, and
+ * swapping the buffers at the end of a frame. The engine itself only plans the
+ * frame, records and sorts the commands for each pass, and times it all, so
+ * with a device that doesn't use OpenGL (see {@link HeadlessRenderDevice})
+ * exactly the same frame loop can be run without a display.
+ * 
+ * @author Karl
+ *
+ */
+public interface IRenderDevice {
+
+	/**
+	 * @return The display, or null if there isn't one.
+	 */
+	public Window getWindow();
+
+	/**
+	 * @return A new backend for carrying out the draw commands.
+	 */
+	public IRenderBackend createBackend();
+
+	/**
+	 * Creates something that passes can be rendered to instead of the screen.
+	 * 
+	 * @param width
+	 *            - The width in pixels.
+	 * @param height
+	 *            - The height in pixels.
+	 * @param textureForDepth
+	 *            - Whether the depth buffer should be a texture (so that it
+	 *            can be sampled) rather than a render buffer.
+	 * @return The new render target.
+	 */
+	public IRenderTarget createRenderTarget(int width, int height, boolean textureForDepth);
+
+	/**
+	 * @param layout
+	 *            - The layout of the block.
+	 * @param bindingPoint
+	 *            - The index of the uniform buffer binding point.
+	 * @return A new uniform block.
+	 */
+	public UniformBlock createUniformBlock(UniformBlockLayout layout, int bindingPoint);
+
+	/**
+	 * @param passCount
+	 *            - The number of passes that will be timed.
+	 * @return A timer for the GPU time of each pass.
+	 */
+	public IGpuTimer createGpuTimer(int passCount);
+
+	/**
+	 * Called at the start of every frame.
+	 */
+	public void newFrame();
+
+	/**
+	 * @param enable
+	 *            - Whether the clip plane should be used.
+	 */
+	public void enableClipPlane(boolean enable);
+
+	/**
+	 * Limits rendering (and clearing) to a rectangle of the current render
+	 * target, in pixels.
+	 */
+	public void startScissor(int x, int y, int width, int height);
+
+	public void stopScissor();
+
+	/**
+	 * Clears the current render target and sets up the default state for a
+	 * pass.
+	 */
+	public void prepare();
+
+	/**
+	 * Adds the commands for rendering some of the terrain's regions to a
+	 * command list.
+	 * 
+	 * @param commands
+	 *            - The list that the commands get added to.
+	 * @param terrain
+	 *            - The terrain.
+	 * @param clipPlane
+	 *            - The equation of the clipping plane.
+	 * @param regions
+	 *            - Which of the terrain's regions should be rendered.
+	 */
+	public void recordTerrain(RenderCommandList commands, Terrain terrain, Vector4f clipPlane, boolean[] regions);
+
+	/**
+	 * Adds the command for rendering the water to a command list.
+	 * 
+	 * @param commands
+	 *            - The list that the command gets added to.
+	 * @param water
+	 *            - The water.
+	 * @param camera
+	 *            - The camera being used to render the water.
+	 * @param waveTime
+	 *            - The "waveTime" value to render the waves with.
+	 * @param reflectionTexture
+	 *            - The reflection texture.
+	 * @param refractionTexture
+	 *            - The refraction texture.
+	 * @param depthTexture
+	 *            - The refraction pass's depth texture.
+	 */
+	public void recordWater(RenderCommandList commands, WaterTile water, ICamera camera, float waveTime,
+			int reflectionTexture, int refractionTexture, int depthTexture);
+
+	/**
+	 * Moves the waves on by the real time that has passed since this was last
+	 * called. Used when the wave time isn't kept by anything else.
+	 * 
+	 * @return The new "waveTime" value.
+	 */
+	public float nextWaveTime();
+
+	/**
+	 * Shows the finished frame.
+	 */
+	public void swapBuffers();
+
+	/**
+	 * Deletes everything created by the device, and closes the display.
+	 */
+	public void delete();
+
+}
@@ -0,0 +1,36 @@
+package rendering;
+
+/**
+ * Something that a pass can be rendered to instead of the screen, and whose
+ * colour and depth can then be sampled as textures (e.g. one of the water
+ * FBOs). Created by an {@link IRenderDevice}.
+ * 
+ * @author Karl
+ *
+ */
+public interface IRenderTarget {
+
+	/**
+	 * Makes the following passes render to this target.
+	 */
+	public void bindForRender();
+
+	/**
+	 * Makes the following passes render to the screen again.
+	 */
+	public void unbindAfterRender();
+
+	/**
+	 * @return The ID of the texture holding the rendered colours.
+	 */
+	public int getColourTexture();
+
+	/**
+	 * @return The ID of the texture holding the depth buffer, or 0 if the
+	 *         depth buffer isn't a texture.
+	 */
+	public int getDepthTexture();
+
+	public void delete();
+
+}
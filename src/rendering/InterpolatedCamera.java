@@ -0,0 +1,150 @@
+package rendering;
+
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector3f;
+
+import utils.Maths;
+
+/**
+ * The camera used by the render thread. Each frame it's set up from the
+ * latest {@link FrameSnapshot}, part of the way between the snapshot's
+ * previous and current state, and the matrices are worked out from the
+ * blended position, pitch and yaw. The projection matrix doesn't change.
+ * 
+ * If a frame uses the same snapshot tick and blend amount as the last one
+ * (e.g. when frames are rendered faster than the simulation updates and the
+ * blend is clamped) nothing needs working out again. Nothing is allocated when
+ * the camera is updated.
+ * 
+ * @author Karl
+ *
+ */
+public class InterpolatedCamera implements ICamera {
+
+	private final Matrix4f projectionMatrix = new Matrix4f();
+	private final float nearPlane;
+	private final float farPlane;
+	private final float reflectionHeight;
+
+	private final Vector3f position = new Vector3f();
+	private final Matrix4f viewMatrix = new Matrix4f();
+	private final Matrix4f reflectedMatrix = new Matrix4f();
+	private final Matrix4f projectionViewMatrix = new Matrix4f();
+	private final Matrix4f reflectedProjectionViewMatrix = new Matrix4f();
+
+	private float waveTime;
+	private boolean reflected = false;
+	private long lastTick = Long.MIN_VALUE;
+	private float lastAlpha;
+
+	/**
+	 * @param projectionMatrix
+	 *            - The projection matrix, which gets copied.
+	 * @param nearPlane
+	 *            - The distance of the near plane.
+	 * @param farPlane
+	 *            - The distance of the far plane.
+	 * @param reflectionHeight
+	 *            - The height of the surface that the camera gets reflected in
+	 *            for the reflection pass.
+	 */
+	public InterpolatedCamera(Matrix4f projectionMatrix, float nearPlane, float farPlane, float reflectionHeight) {
+		this.projectionMatrix.load(projectionMatrix);
+		this.nearPlane = nearPlane;
+		this.farPlane = farPlane;
+		this.reflectionHeight = reflectionHeight;
+	}
+
+	/**
+	 * Sets the camera up for a frame.
+	 * 
+	 * @param snapshot
+	 *            - The latest snapshot from the simulation.
+	 * @param alpha
+	 *            - How far the frame is between the snapshot's previous update
+	 *            (0) and its current update (1).
+	 */
+	public void update(FrameSnapshot snapshot, float alpha) {
+		reflected = false;
+		if (snapshot.getTick() == lastTick && alpha == lastAlpha) {
+			return;
+		}
+		lastTick = snapshot.getTick();
+		lastAlpha = alpha;
+		Vector3f previous = snapshot.getPreviousPosition();
+		Vector3f current = snapshot.getPosition();
+		position.x = lerp(previous.x, current.x, alpha);
+		position.y = lerp(previous.y, current.y, alpha);
+		position.z = lerp(previous.z, current.z, alpha);
+		float pitch = lerp(snapshot.getPreviousPitch(), snapshot.getPitch(), alpha);
+		float yaw = lerpAngle(snapshot.getPreviousYaw(), snapshot.getYaw(), alpha);
+		waveTime = lerp(snapshot.getPreviousWaveTime(), snapshot.getWaveTime(), alpha);
+		Maths.updateViewMatrix(viewMatrix, position.x, position.y, position.z, pitch, yaw);
+		float reflectedY = position.y - (2 * (position.y - reflectionHeight));
+		Maths.updateViewMatrix(reflectedMatrix, position.x, reflectedY, position.z, -pitch, yaw);
+		Matrix4f.mul(projectionMatrix, viewMatrix, projectionViewMatrix);
+		Matrix4f.mul(projectionMatrix, reflectedMatrix, reflectedProjectionViewMatrix);
+	}
+
+	/**
+	 * @return The "waveTime" value that the water should be rendered with this
+	 *         frame.
+	 */
+	public float getWaveTime() {
+		return waveTime;
+	}
+
+	@Override
+	public Matrix4f getViewMatrix() {
+		return viewMatrix;
+	}
+
+	@Override
+	public Vector3f getPosition() {
+		return position;
+	}
+
+	@Override
+	public Matrix4f getProjectionMatrix() {
+		return projectionMatrix;
+	}
+
+	@Override
+	public Matrix4f getProjectionViewMatrix() {
+		return reflected ? reflectedProjectionViewMatrix : projectionViewMatrix;
+	}
+
+	@Override
+	public float getNearPlane() {
+		return nearPlane;
+	}
+
+	@Override
+	public float getFarPlane() {
+		return farPlane;
+	}
+
+	@Override
+	public void reflect() {
+		this.reflected = !reflected;
+	}
+
+	private static float lerp(float a, float b, float alpha) {
+		return a + (b - a) * alpha;
+	}
+
+	/**
+	 * Blends between two angles (in degrees) the short way round, so that
+	 * going from 359 to 1 doesn't swing all the way back through 180.
+	 */
+	private static float lerpAngle(float a, float b, float alpha) {
+		float difference = b - a;
+		if (difference > 180) {
+			difference -= 360;
+		} else if (difference < -180) {
+			difference += 360;
+		}
+		return a + difference * alpha;
+	}
+
+}
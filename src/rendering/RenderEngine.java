@@ -1,38 +1,55 @@
 package rendering;
 
-import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL14;
-import org.lwjgl.opengl.GL30;
-import org.lwjgl.opengl.GL32;
-import org.lwjgl.util.vector.Vector4f;
-
+import commands.IRenderBackend;
+import commands.RenderCommandList;
 import display.Window;
-import fbos.Attachment;
-import fbos.Fbo;
-import fbos.RenderBufferAttachment;
-import fbos.TextureAttachment;
 import terrains.Terrain;
-import utils.OpenGlUtils;
+import timing.FrameTimeHistogram;
+import timing.PassTimer;
+import utils.IClock;
+import utils.ScreenBounds;
 import water.WaterTile;
-import waterRendering.WaterRenderer;
 
 /**
  * The overall rendering pipeline for rendering a frame. This is in charge of
  * setting up the display, rendering the scene, updating the display, and
- * closing the display when the game is closed.
+ * closing the display when the game is closed. Everything that needs OpenGL
+ * or the display goes through an {@link IRenderDevice}.
  * 
  * @author Karl
  *
  */
 public class RenderEngine {
 
-	private static final float REFRACT_OFFSET = 1f;
-	private static final float REFLECT_OFFSET = 0.1f;
+	public static final int PASS_REFLECTION = 0;
+	public static final int PASS_REFRACTION = 1;
+	public static final int PASS_MAIN_TERRAIN = 2;
+	public static final int PASS_WATER = 3;
+	public static final int PASS_SWAP = 4;
+	public static final String[] PASS_NAMES = { "reflection", "refraction", "mainTerrain", "water", "swap" };
+
+	private static final float REFLECTION_MIN_SCALE = 0.5f;
+	private static final float REFLECTION_MAX_SCALE = 1f;
+	private static final float REFRACTION_MIN_SCALE = 0.25f;
+	private static final float REFRACTION_MAX_SCALE = 0.5f;
+	private static final int RESOLUTION_STEPS = 4;
+	private static final int SCISSOR_PADDING = 2;
+	private static final float STUTTER_FACTOR = 2f;
+
+	private final IRenderDevice device;
+	private final FrameGlobals frameGlobals;
+	private final ScalableFbo reflectionFbo;
+	private final ScalableFbo refractionFbo;
+	private final ResolutionController resolutionController;
+	private final PassTimer passTimer;
+	private final FrameTimeHistogram frameTimes = new FrameTimeHistogram(STUTTER_FACTOR);
+	private final FramePlanner planner = new FramePlanner();
+	private final RenderCommandList commands = new RenderCommandList();
+
+	private IRenderBackend backend;
 
-	private final Window window;
-	private final WaterRenderer waterRenderer;
-	private final Fbo reflectionFbo;
-	private final Fbo refractionFbo;
+	private long scissorPixelsSaved;
+	private long lastFrameEnd = -1;
 
 	/**
 	 * Sets up the render engine and initialises the display. It also creates
@@ -40,24 +57,75 @@ public class RenderEngine {
 	 * scene to be rendered to textures which can then be sampled in the shader.
 	 * The dimensions of the refraction FBO have been scaled down for
 	 * performance reasons, although this results in a slight decrease in
-	 * quality.
+	 * quality. If the frame rate can't be held, both FBOs get scaled down
+	 * further (see {@link ResolutionController}).
 	 * 
 	 * The refraction FBO is set up with a texture depth attachment, so that the
 	 * image of the depth buffer can be sampled in the shaders. This is not
-	 * necessary for the reflection pass.
+	 * necessary for the reflection pass, or for water that has its depth baked
+	 * into the mesh, in which case a render buffer gets used instead.
 	 * 
 	 * @param fps
-	 *            - The FPS cap.
+	 *            - The FPS cap. If this is 0 the frame rate isn't limited, and
+	 *            the FBOs are always kept at full resolution so that the work
+	 *            done each frame doesn't depend on how fast the frames are
+	 *            (which is what a benchmark wants).
 	 * @param displayWidth
 	 *            - The width of the display in pixels.
 	 * @param displayHeight
 	 *            - The height of the display in pixels.
 	 */
 	public RenderEngine(int fps, int displayWidth, int displayHeight) {
-		this.window = Window.newWindow(displayWidth, displayHeight, fps).antialias(true).create();
-		this.waterRenderer = new WaterRenderer();
-		this.refractionFbo = createWaterFbo(displayWidth / 2, displayHeight / 2, true);
-		this.reflectionFbo = createWaterFbo(displayWidth, displayHeight, false);
+		this(fps, displayWidth, displayHeight, PassTimer.DEFAULT_HISTORY_SIZE);
+	}
+
+	/**
+	 * Sets up the render engine in the same way as above, but keeps the pass
+	 * times of more (or fewer) frames. A benchmark can keep the times of every
+	 * frame, so that the percentiles cover the whole run.
+	 * 
+	 * @param fps
+	 *            - The FPS cap, or 0 for no cap.
+	 * @param displayWidth
+	 *            - The width of the display in pixels.
+	 * @param displayHeight
+	 *            - The height of the display in pixels.
+	 * @param timedFrames
+	 *            - The number of recent frames whose pass times are kept.
+	 */
+	public RenderEngine(int fps, int displayWidth, int displayHeight, int timedFrames) {
+		this(new GlRenderDevice(displayWidth, displayHeight, fps), fps, displayWidth, displayHeight, timedFrames);
+		passTimer.registerMBean("RenderEngine");
+	}
+
+	/**
+	 * Sets up the render engine to render with the given device, which has
+	 * already set up the display (if there is one). Using a
+	 * {@link HeadlessRenderDevice} runs exactly the same frame loop without a
+	 * display, so that its CPU cost can be measured.
+	 * 
+	 * @param device
+	 *            - Carries out everything that needs OpenGL or the display.
+	 * @param fps
+	 *            - The FPS cap, or 0 for no cap.
+	 * @param displayWidth
+	 *            - The width of the display in pixels.
+	 * @param displayHeight
+	 *            - The height of the display in pixels.
+	 * @param timedFrames
+	 *            - The number of recent frames whose pass times are kept.
+	 */
+	public RenderEngine(IRenderDevice device, int fps, int displayWidth, int displayHeight, int timedFrames) {
+		this.device = device;
+		this.backend = device.createBackend();
+		this.frameGlobals = new FrameGlobals(device);
+		this.refractionFbo = new ScalableFbo(device, displayWidth, displayHeight, REFRACTION_MIN_SCALE,
+				REFRACTION_MAX_SCALE, true);
+		this.reflectionFbo = new ScalableFbo(device, displayWidth, displayHeight, REFLECTION_MIN_SCALE,
+				REFLECTION_MAX_SCALE, false);
+		this.resolutionController = fps > 0 ? new ResolutionController(IClock.SYSTEM, fps, RESOLUTION_STEPS) : null;
+		this.passTimer = new PassTimer(PASS_NAMES, device.createGpuTimer(PASS_NAMES.length), IClock.SYSTEM,
+				timedFrames);
 	}
 
 	/**
@@ -67,6 +135,17 @@ public class RenderEngine {
 	 * water. The main render pass then takes place, rendering the scene
 	 * (including the water) to the screen.
 	 * 
+	 * Before any rendering, the frame is planned by the {@link FramePlanner},
+	 * which works out which passes are needed and which terrain regions each
+	 * of them should draw. The water textures are only sampled where the water
+	 * is on the screen, so the reflection and refraction passes only render
+	 * inside the water's rectangle on the screen.
+	 * 
+	 * Each pass is recorded as a list of draw commands, which gets sorted to
+	 * reduce the number of state changes and is then carried out by the
+	 * engine's {@link IRenderBackend}. The CPU and GPU time of each pass (and
+	 * of swapping the buffers) is recorded by the engine's {@link PassTimer}.
+	 * 
 	 * @param terrain
 	 *            - The terrain in the scene.
 	 * @param water
@@ -77,18 +156,129 @@ public class RenderEngine {
 	 *            - The light being used to illuminate the scene.
 	 */
 	public void render(Terrain terrain, WaterTile water, ICamera camera, Light light) {
-		GL11.glEnable(GL30.GL_CLIP_DISTANCE0);
-		doReflectionPass(terrain, camera, light, water.getHeight());
-		doRefractionPass(terrain, camera, light, water.getHeight());
-		GL11.glDisable(GL30.GL_CLIP_DISTANCE0);
-		doMainRenderPass(terrain, water, camera, light);
+		render(terrain, water, camera, light, device.nextWaveTime());
 	}
 
 	/**
-	 * @return The current display.
+	 * Carries out all the rendering for a frame, with the waves at a given
+	 * point in time. This is used when the wave time is kept by the
+	 * simulation rather than being moved on by the renderer every frame, e.g.
+	 * when rendering with an {@link InterpolatedCamera}.
+	 * 
+	 * @param terrain
+	 *            - The terrain in the scene.
+	 * @param water
+	 *            - The water in the scene.
+	 * @param camera
+	 *            - The scene's camera.
+	 * @param light
+	 *            - The light being used to illuminate the scene.
+	 * @param waveTime
+	 *            - The "waveTime" value to render the water with.
+	 */
+	public void render(Terrain terrain, WaterTile water, ICamera camera, Light light, float waveTime) {
+		device.newFrame();
+		updateResolution();
+		updateRefractionDepth(water);
+		planner.plan(terrain, water, camera, light);
+		device.enableClipPlane(true);
+		if (planner.shouldRenderReflection()) {
+			doReflectionPass(terrain, camera, light);
+		}
+		if (planner.shouldRenderRefraction()) {
+			doRefractionPass(terrain, camera, light);
+		}
+		device.enableClipPlane(false);
+		doMainRenderPass(terrain, water, camera, light, waveTime);
+		passTimer.begin(PASS_SWAP);
+		device.swapBuffers();
+		passTimer.end(PASS_SWAP);
+		passTimer.endFrame();
+		recordFrameTime();
+	}
+
+	/**
+	 * @return The current display, or null if the engine is running without
+	 *         one.
 	 */
 	public Window getWindow() {
-		return window;
+		return device.getWindow();
+	}
+
+	/**
+	 * @return The timings of each pass (see {@link #PASS_NAMES}). These are
+	 *         also available through JMX.
+	 */
+	public PassTimer getPassTimer() {
+		return passTimer;
+	}
+
+	/**
+	 * @return The histogram of the times between the ends of the frames,
+	 *         which includes the time spent waiting to hold the frame rate
+	 *         cap. It can be saved to a file at any time.
+	 */
+	public FrameTimeHistogram getFrameTimes() {
+		return frameTimes;
+	}
+
+	/**
+	 * @return The number of terrain regions drawn in the last reflection pass.
+	 */
+	public int getReflectionRegionCount() {
+		return planner.getReflectionRegionCount();
+	}
+
+	/**
+	 * @return The number of terrain regions drawn in the last refraction pass.
+	 */
+	public int getRefractionRegionCount() {
+		return planner.getRefractionRegionCount();
+	}
+
+	/**
+	 * @return The number of terrain regions drawn in the last main pass.
+	 */
+	public int getMainRegionCount() {
+		return planner.getMainRegionCount();
+	}
+
+	/**
+	 * @return The total number of pixels in the water FBOs that haven't needed
+	 *         rendering because they were outside of the water's rectangle on
+	 *         the screen.
+	 */
+	public long getScissorPixelsSaved() {
+		return scissorPixelsSaved;
+	}
+
+	/**
+	 * @return The number of frames where the reflection and refraction passes
+	 *         were skipped because none of the water was on the screen.
+	 */
+	public int getHiddenWaterFrames() {
+		return planner.getHiddenWaterFrames();
+	}
+
+	/**
+	 * Changes the backend that carries out the draw commands of each pass.
+	 * Setting a {@link commands.RecordingRenderBackend} here means that the
+	 * scene doesn't actually get drawn, which is useful for measuring the CPU
+	 * cost of a frame on its own.
+	 * 
+	 * @param backend
+	 *            - The new backend.
+	 */
+	public void setBackend(IRenderBackend backend) {
+		this.backend = backend;
+	}
+
+	/**
+	 * Forces the reflection and refraction textures to be rendered again next
+	 * frame. Should be called if the terrain changes.
+	 */
+	public void refreshWaterTextures() {
+		planner.invalidate();
 	}
 
 	/**
@@ -97,21 +287,90 @@ public class RenderEngine {
 	public void close() {
 		reflectionFbo.delete();
 		refractionFbo.delete();
-		waterRenderer.cleanUp();
-		window.destroy();
+		frameGlobals.delete();
+		passTimer.delete();
+		device.delete();
+	}
+
+	/**
+	 * Records the time since the end of the last frame in the frame time
+	 * histogram.
+	 */
+	private void recordFrameTime() {
+		long now = IClock.SYSTEM.nanoTime();
+		if (lastFrameEnd >= 0) {
+			frameTimes.record(now - lastFrameEnd);
+		}
+		lastFrameEnd = now;
+	}
+
+	/**
+	 * Changes the resolution of the water FBOs if the frame rate has been too
+	 * low, or if there's been enough spare time to go back up a level.
+	 */
+	private void updateResolution() {
+		if (resolutionController != null && resolutionController.update()) {
+			float quality = resolutionController.getQuality();
+			reflectionFbo.setQuality(quality);
+			refractionFbo.setQuality(quality);
+			planner.invalidate();
+		}
+	}
+
+	/**
+	 * The refraction FBO only needs a depth texture if the water doesn't have
+	 * its depth baked in. Otherwise a render buffer is used, which is cheaper
+	 * and doesn't get sampled by the water shader.
+	 * 
+	 * @param water
+	 *            - The water being rendered.
+	 */
+	private void updateRefractionDepth(WaterTile water) {
+		if (refractionFbo.setTextureForDepth(!water.hasBakedDepth())) {
+			planner.invalidate();
+		}
 	}
 
 	/**
-	 * Prepares for a rendering pass. The depth and colour buffers of the
-	 * current framebuffer are cleared and a few other default settings are set.
+	 * Limits rendering to the part of an FBO that will actually be sampled
+	 * when rendering the water. The reflection texture is sampled upside down,
+	 * so the rectangle needs flipping for the reflection pass. The scissor
+	 * test also limits the clearing of the FBO.
+	 * 
+	 * @param fbo
+	 *            - The FBO being rendered to.
+	 * @param flipY
+	 *            - Whether the water's rectangle should be flipped vertically.
 	 */
-	private void prepare() {
-		GL11.glClearColor(1f, 1f, 1f, 1f);
-		GL11.glClear(GL11.GL_COLOR_BUFFER_BIT | GL11.GL_DEPTH_BUFFER_BIT);
-		GL32.glProvokingVertex(GL32.GL_FIRST_VERTEX_CONVENTION);
-		OpenGlUtils.cullBackFaces(true);
-		OpenGlUtils.enableDepthTesting(true);
-		OpenGlUtils.antialias(true);
+	private void startScissor(ScalableFbo fbo, boolean flipY) {
+		ScreenBounds waterScreenBounds = planner.getWaterScreenBounds();
+		float minY = flipY ? 1 - waterScreenBounds.getMaxY() : waterScreenBounds.getMinY();
+		float maxY = flipY ? 1 - waterScreenBounds.getMinY() : waterScreenBounds.getMaxY();
+		int x = Math.max((int) Math.floor(waterScreenBounds.getMinX() * fbo.getWidth()) - SCISSOR_PADDING, 0);
+		int y = Math.max((int) Math.floor(minY * fbo.getHeight()) - SCISSOR_PADDING, 0);
+		int endX = Math.min((int) Math.ceil(waterScreenBounds.getMaxX() * fbo.getWidth()) + SCISSOR_PADDING,
+				fbo.getWidth());
+		int endY = Math.min((int) Math.ceil(maxY * fbo.getHeight()) + SCISSOR_PADDING, fbo.getHeight());
+		scissorPixelsSaved += (long) fbo.getWidth() * fbo.getHeight() - (long) (endX - x) * (endY - y);
+		device.startScissor(x, y, endX - x, endY - y);
+	}
+
+	/**
+	 * Sorts the commands that have been recorded for the current pass and
+	 * carries them out, then empties the list ready for the next pass. The
+	 * camera and light values shared by all the shaders are uploaded first
+	 * (if they've changed since the last pass).
+	 * 
+	 * @param camera
+	 *            - The camera being used for the pass.
+	 * @param light
+	 *            - The light in the scene.
+	 */
+	private void executeCommands(ICamera camera, Light light) {
+		frameGlobals.update(camera, light);
+		commands.sort();
+		commands.execute(backend);
+		commands.clear();
 	}
 
 	/**
@@ -120,7 +379,8 @@ public class RenderEngine {
 	 * the scene. After rendering the camera is reverted to its original
 	 * position. The clip plane used when rendering the scene ensures that only
 	 * things above the water get rendered to the reflection texture, as things
-	 * under the water shouldn't be getting reflected.
+	 * under the water shouldn't be getting reflected. Regions of the terrain
+	 * which are completely under the clip plane aren't drawn at all.
 	 * 
 	 * @param terrain
 	 *            - The terrain in the scene.
@@ -128,23 +388,28 @@ public class RenderEngine {
 	 *            - The scene's camera
 	 * @param light
 	 *            - The light in the scene.
-	 * @param waterHeight
-	 *            - The height of the water.
 	 */
-	private void doReflectionPass(Terrain terrain, ICamera camera, Light light, float waterHeight) {
-		reflectionFbo.bindForRender(0);
+	private void doReflectionPass(Terrain terrain, ICamera camera, Light light) {
+		passTimer.begin(PASS_REFLECTION);
+		reflectionFbo.getTarget().bindForRender();
+		startScissor(reflectionFbo, true);
 		camera.reflect();
-		prepare();
-		terrain.render(camera, light, new Vector4f(0, 1, 0, -waterHeight + REFLECT_OFFSET));
+		device.prepare();
+		device.recordTerrain(commands, terrain, planner.getReflectionClipPlane(), planner.getReflectionRegions());
+		executeCommands(camera, light);
 		camera.reflect();
-		reflectionFbo.unbindAfterRender();
+		device.stopScissor();
+		reflectionFbo.getTarget().unbindAfterRender();
+		passTimer.end(PASS_REFLECTION);
 	}
 
 	/**
 	 * Renders the scene to the refraction FBO. The scene is rendered from the
 	 * normal camera position, and the result is stored in the refraction
 	 * texture. A clipping plane is used to ensure that only parts of the scene
-	 * that are under the water are rendered to the refraction FBO.
+	 * that are under the water are rendered to the refraction FBO, and regions
+	 * of the terrain which are completely above the clip plane (or occluded)
+	 * aren't drawn at all.
 	 * 
 	 * @param terrain
 	 *            - The terrain.
@@ -152,20 +417,25 @@ public class RenderEngine {
 	 *            - The camera being used in the scene.
 	 * @param light
 	 *            - The scene's light.
-	 * @param waterHeight
-	 *            - The height of the water in the world.
 	 */
-	private void doRefractionPass(Terrain terrain, ICamera camera, Light light, float waterHeight) {
-		refractionFbo.bindForRender(0);
-		prepare();
-		terrain.render(camera, light, new Vector4f(0, -1, 0, waterHeight + REFRACT_OFFSET));
-		refractionFbo.unbindAfterRender();
+	private void doRefractionPass(Terrain terrain, ICamera camera, Light light) {
+		passTimer.begin(PASS_REFRACTION);
+		refractionFbo.getTarget().bindForRender();
+		startScissor(refractionFbo, false);
+		device.prepare();
+		device.recordTerrain(commands, terrain, planner.getRefractionClipPlane(), planner.getRefractionRegions());
+		executeCommands(camera, light);
+		device.stopScissor();
+		refractionFbo.getTarget().unbindAfterRender();
+		passTimer.end(PASS_REFRACTION);
 	}
 
 	/**
 	 * Renders the entire scene (terrain and water) to the screen. No clip plane
 	 * is used here, so that the entire scene is rendered. Both the terrain and
-	 * water are rendered during this pass.
+	 * water are rendered during this pass. The terrain and water commands are
+	 * executed separately so that they can be timed separately. The water is
+	 * transparent, so it would have been drawn after the terrain anyway.
 	 * 
 	 * @param terrain
 	 *            - The terrain in the scene.
@@ -175,38 +445,20 @@ public class RenderEngine {
 	 *            - The camera.
 	 * @param light
 	 *            - The light.
+	 * @param waveTime
+	 *            - The "waveTime" value for the water.
 	 */
-	private void doMainRenderPass(Terrain terrain, WaterTile water, ICamera camera, Light light) {
-		prepare();
-		terrain.render(camera, light, new Vector4f(0, 0, 0, 0));
-		waterRenderer.render(water, camera, light, reflectionFbo.getColourBuffer(0), refractionFbo.getColourBuffer(0),
-				refractionFbo.getDepthBuffer());
-		window.update();
-	}
-
-	/**
-	 * Sets up an FBO for one of the extra render passes. The FBO is initialised
-	 * with a texture colour attachment, and can be initialised with either a
-	 * render buffer or texture attachment for the depth buffer.
-	 * 
-	 * @param width
-	 *            - The width of the FBO in pixels.
-	 * @param height
-	 *            - The height of the FBO in pixels.
-	 * @param useTextureForDepth
-	 *            - Whether the depth buffer attachment should be a texture or a
-	 *            render buffer.
-	 * @return The completed FBO.
-	 */
-	private static Fbo createWaterFbo(int width, int height, boolean useTextureForDepth) {
-		Attachment colourAttach = new TextureAttachment(GL11.GL_RGBA8);
-		Attachment depthAttach;
-		if (useTextureForDepth) {
-			depthAttach = new TextureAttachment(GL14.GL_DEPTH_COMPONENT24);
-		} else {
-			depthAttach = new RenderBufferAttachment(GL14.GL_DEPTH_COMPONENT24);
-		}
-		return Fbo.newFbo(width, height).addColourAttachment(0, colourAttach).addDepthAttachment(depthAttach).init();
+	private void doMainRenderPass(Terrain terrain, WaterTile water, ICamera camera, Light light, float waveTime) {
+		passTimer.begin(PASS_MAIN_TERRAIN);
+		device.prepare();
+		device.recordTerrain(commands, terrain, planner.getMainClipPlane(), planner.getVisibleRegions());
+		executeCommands(camera, light);
+		passTimer.end(PASS_MAIN_TERRAIN);
+		passTimer.begin(PASS_WATER);
+		device.recordWater(commands, water, camera, waveTime, reflectionFbo.getTarget().getColourTexture(),
+				refractionFbo.getTarget().getColourTexture(), refractionFbo.getTarget().getDepthTexture());
+		executeCommands(camera, light);
+		passTimer.end(PASS_WATER);
 	}
 
 }
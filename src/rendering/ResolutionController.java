@@ -0,0 +1,158 @@
+package rendering;
+
+import utils.IClock;
+
+/**
+ * Decides how much detail the water FBOs can afford, based on how long the
+ * recent frames have taken. The result is a quality level between 0 (the
+ * lowest allowed resolution) and 1 (the highest allowed resolution), which is
+ * lowered a step at a time while frames are taking too long, and raised a step
+ * at a time while the target frame rate is being held.
+ * 
+ * Frame times are smoothed with a moving average, and the frame time has to
+ * stay over (or under) the limit for a while before the quality changes. The
+ * limit for going down is well above the target frame time, while the limit
+ * for going up is only just above it, which leaves a gap in between where
+ * nothing happens. Every time the quality has to be lowered the wait before
+ * trying to raise it again is doubled, so a machine that can't quite manage
+ * the higher level doesn't keep flicking between the two. Once the frame time
+ * has stayed under the limit for going down for a long time, the wait is
+ * halved again (but never below where it started), so a few bad moments don't
+ * slow down the recovery for the rest of the game.
+ * 
+ * All of the timing comes from an {@link IClock}, so the behaviour can be
+ * checked using a fake clock.
+ * 
+ * @author Karl
+ *
+ */
+public class ResolutionController {
+
+	private static final float SMOOTHING = 0.1f;
+	private static final float OVER_BUDGET_MARGIN = 0.15f;
+	private static final float UNDER_BUDGET_MARGIN = 0.03f;
+	private static final long DECREASE_DELAY = 500000000L;
+	private static final long INCREASE_DELAY = 2000000000L;
+	private static final long MAX_INCREASE_DELAY = 16000000000L;
+	private static final long RELAX_DELAY = 30000000000L;
+
+	private final IClock clock;
+	private final long targetFrameTime;
+	private final int steps;
+
+	private int level;
+	private long lastTime = -1;
+	private float averageFrameTime = 0;
+	private long overBudgetTime = 0;
+	private long underBudgetTime = 0;
+	private long steadyTime = 0;
+	private long increaseDelay = INCREASE_DELAY;
+
+	/**
+	 * @param clock
+	 *            - The clock used to time the frames.
+	 * @param targetFps
+	 *            - The frame rate that should be held.
+	 * @param steps
+	 *            - The number of steps between the lowest and highest quality.
+	 */
+	public ResolutionController(IClock clock, int targetFps, int steps) {
+		this.clock = clock;
+		this.targetFrameTime = 1000000000L / targetFps;
+		this.steps = steps;
+		this.level = steps;
+	}
+
+	/**
+	 * Should be called once at the start of every frame. Measures how long the
+	 * last frame took and changes the quality level if needed.
+	 * 
+	 * @return True if the quality level has changed.
+	 */
+	public boolean update() {
+		long now = clock.nanoTime();
+		if (lastTime < 0) {
+			lastTime = now;
+			return false;
+		}
+		long frameTime = now - lastTime;
+		lastTime = now;
+		updateAverage(frameTime);
+		updateBudgetTimes(frameTime);
+		relaxIncreaseDelay(frameTime);
+		if (overBudgetTime >= DECREASE_DELAY && level > 0) {
+			level--;
+			increaseDelay = Math.min(increaseDelay * 2, MAX_INCREASE_DELAY);
+			onLevelChanged();
+			return true;
+		} else if (underBudgetTime >= increaseDelay && level < steps) {
+			level++;
+			onLevelChanged();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return The current quality, between 0 and 1.
+	 */
+	public float getQuality() {
+		return (float) level / steps;
+	}
+
+	/**
+	 * @return The smoothed frame time, in nanoseconds.
+	 */
+	public float getAverageFrameTime() {
+		return averageFrameTime;
+	}
+
+	private void updateAverage(long frameTime) {
+		if (averageFrameTime == 0) {
+			averageFrameTime = frameTime;
+		} else {
+			averageFrameTime += (frameTime - averageFrameTime) * SMOOTHING;
+		}
+	}
+
+	private void updateBudgetTimes(long frameTime) {
+		if (averageFrameTime > targetFrameTime * (1 + OVER_BUDGET_MARGIN)) {
+			overBudgetTime += frameTime;
+			underBudgetTime = 0;
+		} else if (averageFrameTime < targetFrameTime * (1 + UNDER_BUDGET_MARGIN)) {
+			underBudgetTime += frameTime;
+			overBudgetTime = 0;
+		} else {
+			overBudgetTime = 0;
+			underBudgetTime = 0;
+		}
+	}
+
+	/**
+	 * Halves the wait before raising the quality every time the frame time has
+	 * stayed under the limit for going down for {@link #RELAX_DELAY}.
+	 */
+	private void relaxIncreaseDelay(long frameTime) {
+		if (overBudgetTime > 0) {
+			steadyTime = 0;
+			return;
+		}
+		steadyTime += frameTime;
+		if (steadyTime >= RELAX_DELAY) {
+			increaseDelay = Math.max(increaseDelay / 2, INCREASE_DELAY);
+			steadyTime = 0;
+		}
+	}
+
+	/**
+	 * Starts measuring again from scratch. The frame where the quality changes
+	 * is ignored, because recreating the FBOs makes it slower than normal.
+	 */
+	private void onLevelChanged() {
+		lastTime = -1;
+		averageFrameTime = 0;
+		overBudgetTime = 0;
+		underBudgetTime = 0;
+	}
+
+}
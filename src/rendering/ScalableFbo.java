@@ -0,0 +1,112 @@
+package rendering;
+
+/**
+ * One of the water FBOs, whose resolution can be changed while the game is
+ * running. The resolution is a fraction of the display size somewhere between
+ * a minimum and maximum scale, chosen by a quality value. The FBO is only
+ * recreated when the quality change actually changes its size in pixels. The
+ * FBO itself is created by an {@link IRenderDevice}.
+ * 
+ * @author Karl
+ *
+ */
+public class ScalableFbo {
+
+	private final IRenderDevice device;
+	private final int displayWidth;
+	private final int displayHeight;
+	private final float minScale;
+	private final float maxScale;
+	private boolean useTextureForDepth;
+
+	private IRenderTarget target;
+	private int width;
+	private int height;
+
+	/**
+	 * @param device
+	 *            - Creates the FBO.
+	 * @param displayWidth
+	 *            - The width of the display in pixels.
+	 * @param displayHeight
+	 *            - The height of the display in pixels.
+	 * @param minScale
+	 *            - The size of the FBO compared to the display at the lowest
+	 *            quality.
+	 * @param maxScale
+	 *            - The size of the FBO compared to the display at the highest
+	 *            quality.
+	 * @param useTextureForDepth
+	 *            - Whether the depth buffer attachment should be a texture or a
+	 *            render buffer.
+	 */
+	public ScalableFbo(IRenderDevice device, int displayWidth, int displayHeight, float minScale, float maxScale,
+			boolean useTextureForDepth) {
+		this.device = device;
+		this.displayWidth = displayWidth;
+		this.displayHeight = displayHeight;
+		this.minScale = minScale;
+		this.maxScale = maxScale;
+		this.useTextureForDepth = useTextureForDepth;
+		setQuality(1);
+	}
+
+	/**
+	 * Changes the resolution of the FBO.
+	 * 
+	 * @param quality
+	 *            - The quality, between 0 (the minimum scale) and 1 (the
+	 *            maximum scale).
+	 */
+	public void setQuality(float quality) {
+		float scale = minScale + (maxScale - minScale) * quality;
+		int newWidth = Math.max(1, Math.round(displayWidth * scale));
+		int newHeight = Math.max(1, Math.round(displayHeight * scale));
+		if (target != null && newWidth == width && newHeight == height) {
+			return;
+		}
+		delete();
+		this.width = newWidth;
+		this.height = newHeight;
+		this.target = device.createRenderTarget(newWidth, newHeight, useTextureForDepth);
+	}
+
+	/**
+	 * Changes the type of depth attachment that the FBO uses, recreating the
+	 * FBO if necessary. A texture is only needed if something is going to
+	 * sample the depth buffer.
+	 * 
+	 * @param useTextureForDepth
+	 *            - Whether the depth buffer attachment should be a texture or a
+	 *            render buffer.
+	 * @return True if the FBO had to be recreated.
+	 */
+	public boolean setTextureForDepth(boolean useTextureForDepth) {
+		if (this.useTextureForDepth == useTextureForDepth) {
+			return false;
+		}
+		this.useTextureForDepth = useTextureForDepth;
+		delete();
+		this.target = device.createRenderTarget(width, height, useTextureForDepth);
+		return true;
+	}
+
+	public IRenderTarget getTarget() {
+		return target;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public void delete() {
+		if (target != null) {
+			target.delete();
+		}
+	}
+
+}
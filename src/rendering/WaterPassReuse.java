@@ -0,0 +1,137 @@
+package rendering;
+
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector3f;
+
+/**
+ * Decides when the reflection and refraction textures need to be rendered
+ * again. Those textures only show the terrain, so if the camera and the light
+ * haven't moved since they were last rendered they would come out exactly the
+ * same, and the textures from the last time can be used again instead. This
+ * saves two of the three passes over the terrain whenever the view is still
+ * (e.g. when the player isn't touching the mouse).
+ * 
+ * The camera's movement is smoothed, so it never quite stops moving. Changes
+ * smaller than a threshold are ignored, so that the passes stop once the
+ * camera has settled. While the view is still the textures can also be
+ * refreshed every so often, with the reflection and refraction refreshes
+ * staggered so they never happen in the same frame.
+ * 
+ * @author Karl
+ *
+ */
+public class WaterPassReuse {
+
+	private final float threshold;
+	private final int refreshInterval;
+
+	private final Matrix4f lastViewMatrix = new Matrix4f();
+	private final Vector3f lastLightDirection = new Vector3f();
+	private final Vector3f lastLightColour = new Vector3f();
+
+	private boolean valid = false;
+	private int staticFrames = 0;
+	private boolean renderReflection = true;
+	private boolean renderRefraction = true;
+	private int skippedPasses = 0;
+
+	/**
+	 * @param threshold
+	 *            - The biggest change in the camera's view matrix or the
+	 *            light's direction and colour that still counts as not moving.
+	 * @param refreshInterval
+	 *            - How often (in frames) the textures get refreshed while the
+	 *            view is still, or 0 if they should never be refreshed.
+	 */
+	public WaterPassReuse(float threshold, int refreshInterval) {
+		this.threshold = threshold;
+		this.refreshInterval = refreshInterval;
+	}
+
+	/**
+	 * Should be called once per frame, before the water passes, to work out
+	 * which of the passes need to be done this frame.
+	 * 
+	 * @param camera
+	 *            - The scene's camera.
+	 * @param light
+	 *            - The scene's light.
+	 */
+	public void update(ICamera camera, Light light) {
+		if (!valid || hasChanged(camera, light)) {
+			storeState(camera, light);
+			valid = true;
+			staticFrames = 0;
+			renderReflection = true;
+			renderRefraction = true;
+			return;
+		}
+		staticFrames++;
+		renderReflection = refreshInterval > 0 && staticFrames % refreshInterval == 0;
+		renderRefraction = refreshInterval > 0 && staticFrames % refreshInterval == refreshInterval / 2;
+		if (!renderReflection) {
+			skippedPasses++;
+		}
+		if (!renderRefraction) {
+			skippedPasses++;
+		}
+	}
+
+	/**
+	 * Makes sure that both textures get rendered next frame, e.g. because the
+	 * FBOs have been recreated or the terrain has changed.
+	 */
+	public void invalidate() {
+		valid = false;
+	}
+
+	public boolean shouldRenderReflection() {
+		return renderReflection;
+	}
+
+	public boolean shouldRenderRefraction() {
+		return renderRefraction;
+	}
+
+	/**
+	 * @return The total number of reflection and refraction passes that have
+	 *         been skipped.
+	 */
+	public int getSkippedPasses() {
+		return skippedPasses;
+	}
+
+	private boolean hasChanged(ICamera camera, Light light) {
+		Matrix4f view = camera.getViewMatrix();
+		float change = 0;
+		change = Math.max(change, Math.abs(view.m00 - lastViewMatrix.m00));
+		change = Math.max(change, Math.abs(view.m01 - lastViewMatrix.m01));
+		change = Math.max(change, Math.abs(view.m02 - lastViewMatrix.m02));
+		change = Math.max(change, Math.abs(view.m10 - lastViewMatrix.m10));
+		change = Math.max(change, Math.abs(view.m11 - lastViewMatrix.m11));
+		change = Math.max(change, Math.abs(view.m12 - lastViewMatrix.m12));
+		change = Math.max(change, Math.abs(view.m20 - lastViewMatrix.m20));
+		change = Math.max(change, Math.abs(view.m21 - lastViewMatrix.m21));
+		change = Math.max(change, Math.abs(view.m22 - lastViewMatrix.m22));
+		change = Math.max(change, Math.abs(view.m30 - lastViewMatrix.m30));
+		change = Math.max(change, Math.abs(view.m31 - lastViewMatrix.m31));
+		change = Math.max(change, Math.abs(view.m32 - lastViewMatrix.m32));
+		change = Math.max(change, getChange(light.getDirection(), lastLightDirection));
+		change = Math.max(change, getChange(light.getColour().getVector(), lastLightColour));
+		return change > threshold;
+	}
+
+	private void storeState(ICamera camera, Light light) {
+		lastViewMatrix.load(camera.getViewMatrix());
+		lastLightDirection.set(light.getDirection());
+		lastLightColour.set(light.getColour().getVector());
+	}
+
+	private static float getChange(Vector3f current, Vector3f last) {
+		float dx = Math.abs(current.x - last.x);
+		float dy = Math.abs(current.y - last.y);
+		float dz = Math.abs(current.z - last.z);
+		return Math.max(dx, Math.max(dy, dz));
+	}
+
+}
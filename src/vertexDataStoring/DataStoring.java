@@ -43,8 +43,25 @@ public class DataStoring {
 	 *            Will get stored in the VAO.
 	 */
 	public static void packVertexData(Vector2f position, byte[] indicators, ByteBuffer buffer) {
-		buffer.putFloat(position.x);
-		buffer.putFloat(position.y);
+		packVertexData(position.x, position.y, indicators, buffer);
+	}
+
+	/**
+	 * Stores the x,z position and the 4 indicator bytes of a water vertex into
+	 * the byte buffer, without needing a Vector2f for the position.
+	 * 
+	 * @param x
+	 *            - The x position of the vertex.
+	 * @param z
+	 *            - The z position of the vertex.
+	 * @param indicators
+	 *            - The 4 indicator bytes of the vertex.
+	 * @param buffer
+	 *            - The byte buffer containing the vertex data for the water.
+	 */
+	public static void packVertexData(float x, float z, byte[] indicators, ByteBuffer buffer) {
+		buffer.putFloat(x);
+		buffer.putFloat(z);
 		buffer.put(indicators);
 	}
 
@@ -1,6 +1,7 @@
 package vertexDataStoring;
 
 import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 
 import org.lwjgl.BufferUtils;
@@ -9,7 +10,9 @@ import org.lwjgl.opengl.GL12;
 import org.lwjgl.opengl.GL15;
 
 import openglObjects.Attribute;
+import openglObjects.InstanceAttribute;
 import openglObjects.Vao;
+import openglObjects.Vbo;
 
 /**
  * There's some stuff that I haven't covered in here because I'm storing the
@@ -54,6 +57,89 @@ public class VaoLoader {
 		return vao;
 	}
 
+	/**
+	 * Creates the VAO for a water mesh which has the depth of the water under
+	 * each vertex baked into it. The depths are stored in a second VBO, as a
+	 * third attribute with one float per vertex.
+	 * 
+	 * @param meshData
+	 *            - All the vertex data for the water mesh.
+	 * @param depths
+	 *            - The depth of the water under each vertex.
+	 * @return The VAO containing the water mesh data.
+	 */
+	public static Vao createWaterVao(byte[] meshData, float[] depths) {
+		Vao vao = Vao.create();
+		vao.bind();
+		ByteBuffer buffer = storeMeshDataInBuffer(meshData);
+		vao.initDataFeed(buffer, GL15.GL_STATIC_DRAW, new Attribute(0, GL11.GL_FLOAT, 2),
+				new Attribute(1, GL11.GL_BYTE, 4));
+		FloatBuffer depthBuffer = BufferUtils.createFloatBuffer(depths.length);
+		depthBuffer.put(depths);
+		depthBuffer.flip();
+		vao.initDataFeed(depthBuffer, GL15.GL_STATIC_DRAW, new Attribute(3, GL11.GL_FLOAT, 1));
+		vao.unbind();
+		return vao;
+	}
+
+	/**
+	 * Adds an empty VBO for water vertex data to a VAO, with the same
+	 * attributes as {@link #createWaterVao(byte[])}. This is for water meshes
+	 * which get changed while the game is running, so the data is stored
+	 * later using the returned VBO. The VAO must be bound.
+	 * 
+	 * @param vao
+	 *            - The VAO.
+	 * @param maxVertexCount
+	 *            - The number of vertices to make room for.
+	 * @return The VBO.
+	 */
+	public static Vbo createWaterDataFeed(Vao vao, int maxVertexCount) {
+		return vao.createDataFeed(maxVertexCount, GL15.GL_DYNAMIC_DRAW, new Attribute(0, GL11.GL_FLOAT, 2),
+				new Attribute(1, GL11.GL_BYTE, 4));
+	}
+
+	/**
+	 * Adds an empty VBO for the baked water depths to a VAO, with the same
+	 * attribute as {@link #createWaterVao(byte[], float[])}. The VAO must be
+	 * bound.
+	 * 
+	 * @param vao
+	 *            - The VAO.
+	 * @param maxVertexCount
+	 *            - The number of vertices to make room for.
+	 * @return The VBO.
+	 */
+	public static Vbo createWaterDepthFeed(Vao vao, int maxVertexCount) {
+		return vao.createDataFeed(maxVertexCount, GL15.GL_DYNAMIC_DRAW, new Attribute(3, GL11.GL_FLOAT, 1));
+	}
+
+	/**
+	 * Creates the VAO for an instanced water mesh. The vertex data for the
+	 * small water patch is stored in the same format as the normal water mesh,
+	 * and the x,z offset of each instance of the patch is stored in a second
+	 * VBO as an instanced attribute.
+	 * 
+	 * @param patchData
+	 *            - The vertex data for one water patch.
+	 * @param instanceOffsets
+	 *            - The x,z offsets of all the instances of the patch.
+	 * @return The VAO containing the patch and the instance offsets.
+	 */
+	public static Vao createInstancedWaterVao(byte[] patchData, float[] instanceOffsets) {
+		Vao vao = Vao.create();
+		vao.bind();
+		ByteBuffer buffer = storeMeshDataInBuffer(patchData);
+		vao.initDataFeed(buffer, GL15.GL_STATIC_DRAW, new Attribute(0, GL11.GL_FLOAT, 2),
+				new Attribute(1, GL11.GL_BYTE, 4));
+		FloatBuffer offsets = BufferUtils.createFloatBuffer(instanceOffsets.length);
+		offsets.put(instanceOffsets);
+		offsets.flip();
+		vao.initDataFeed(offsets, GL15.GL_STATIC_DRAW, new InstanceAttribute(2, GL11.GL_FLOAT, 2));
+		vao.unbind();
+		return vao;
+	}
+
 	public static Vao createVaoNoNormals(byte[] meshData, int[] indices) {
 		Vao vao = Vao.create();
 		vao.bind();
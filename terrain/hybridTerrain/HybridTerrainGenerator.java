@@ -8,8 +8,11 @@ import generation.PerlinNoise;
 import openglObjects.Vao;
 import rendering.TerrainRenderer;
 import rendering.TerrainShader;
+import terrains.HeightPyramid;
 import terrains.Terrain;
 import terrains.TerrainGenerator;
+import terrains.TerrainMesh;
+import terrains.TerrainRegions;
 import utils.Colour;
 import utils.MyFile;
 import vertexDataStoring.VaoLoader;
@@ -34,6 +37,7 @@ public class HybridTerrainGenerator extends TerrainGenerator {
 	private static final MyFile FRAGMENT_SHADER = new MyFile("rendering", "flatTerrainFragment.glsl");
 
 	private static final int VERTEX_SIZE_BYTES = 12 + 4 + 4;// position + normal + colour
+	public static final int REGION_LEVEL = 4;// 16x16 grid squares per region
 
 	private final TerrainRenderer renderer;
 
@@ -49,21 +53,53 @@ public class HybridTerrainGenerator extends TerrainGenerator {
 
 	@Override
 	protected Terrain createTerrain(float[][] heights, Colour[][] colours) {
-		int vertexCount = calculateVertexCount(heights.length);
-		byte[] terrainData = createMeshData(heights, colours, vertexCount);
-		int[] indices = IndexGenerator.generateIndexBuffer(heights.length);
-		Vao vao = VaoLoader.createVao(terrainData, indices);
-		return new Terrain(vao, indices.length, renderer);
+		TerrainMesh mesh = createMesh(heights, colours);
+		Vao vao = VaoLoader.createVao(mesh.getVertexData(), mesh.getIndices());
+		return new Terrain(vao, mesh.getIndices().length, renderer, heights, mesh.getHeightPyramid(),
+				mesh.getRegions());
 	}
 
-	private int calculateVertexCount(int vertexLength) {
+	/**
+	 * Generates everything for the terrain's mesh apart from the VAO: the
+	 * vertex data, and the index buffer ordered by the terrain's regions. This
+	 * doesn't use OpenGL, so it can be used without a display.
+	 * 
+	 * @param heights
+	 *            - The heights of all the vertices in the terrain.
+	 * @param colours
+	 *            - The colours of all the vertices.
+	 * @return The terrain's mesh.
+	 */
+	public static TerrainMesh createMesh(float[][] heights, Colour[][] colours) {
+		byte[] terrainData = createMeshData(heights, colours);
+		HeightPyramid pyramid = new HeightPyramid(heights);
+		TerrainRegions regions = new TerrainRegions(pyramid, REGION_LEVEL);
+		int[] indices = regions.orderIndices(IndexGenerator.generateIndexBuffer(heights.length));
+		return new TerrainMesh(terrainData, indices, pyramid, regions);
+	}
+
+	/**
+	 * Creates the vertex data for the whole terrain mesh. This doesn't use
+	 * OpenGL, so it can be used without a display.
+	 * 
+	 * @param heights
+	 *            - The heights of all the vertices in the terrain.
+	 * @param colours
+	 *            - The colours of all the vertices.
+	 * @return The vertex data (position, normal and colour of each vertex).
+	 */
+	public static byte[] createMeshData(float[][] heights, Colour[][] colours) {
+		return createMeshData(heights, colours, calculateVertexCount(heights.length));
+	}
+
+	private static int calculateVertexCount(int vertexLength) {
 		int bottom2Rows = 2 * vertexLength;
 		int remainingRowCount = vertexLength - 2;
 		int topCount = remainingRowCount * (vertexLength - 1) * 2;
 		return topCount + bottom2Rows;
 	}
 
-	private byte[] createMeshData(float[][] heights, Colour[][] colours, int vertexCount) {
+	private static byte[] createMeshData(float[][] heights, Colour[][] colours, int vertexCount) {
 		int byteSize = VERTEX_SIZE_BYTES * vertexCount;
 		ByteBuffer buffer = ByteBuffer.allocate(byteSize).order(ByteOrder.nativeOrder());
 		GridSquare[] lastRow = new GridSquare[heights.length - 1];
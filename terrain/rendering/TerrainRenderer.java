@@ -1,21 +1,34 @@
 package rendering;
 
-import org.lwjgl.opengl.GL11;
 import org.lwjgl.util.vector.Vector4f;
 
+import commands.GlRenderBackend;
+import commands.ICommandUniforms;
+import commands.RenderCommand;
+import commands.RenderCommandList;
 import terrains.Terrain;
+import terrains.TerrainRegions;
 
 /**
- * A simple renderer that renders terrains.
- * 
+ * A simple renderer that renders terrains. The terrain is recorded as render
+ * commands (one for each range of the index buffer that needs drawing) which
+ * all share the same uniform values, so the uniforms only get loaded once.
+ * The camera and light values are read from the {@link FrameGlobals} uniform
+ * block, which must be up to date before the commands are executed.
+ *
  * @author Karl
  *
  */
-public class TerrainRenderer {
+public class TerrainRenderer implements ICommandUniforms {
+
+	private static final int PLANE = 0;
 
 	private final TerrainShader shader;
 	private final boolean hasIndices;
 
+	private final RenderCommandList commands = new RenderCommandList();
+	private final GlRenderBackend backend = new GlRenderBackend();
+
 	/**
 	 * @param shader
 	 *            - The shader program used for rendering this terrain.
@@ -29,29 +42,90 @@ public class TerrainRenderer {
 	}
 
 	/**
-	 * Renders a terrain to the screen. If the terrain has an index buffer the
-	 * glDrawElements is used. Otherwise glDrawArrays is used.
-	 * 
+	 * Renders a terrain to the screen straight away. If the terrain has an
+	 * index buffer the glDrawElements is used. Otherwise glDrawArrays is used.
+	 *
 	 * @param terrain
 	 *            - The terrain to be rendered.
-	 * @param camera
-	 *            - The camera being used for rendering the terrain.
-	 * @param light
-	 *            - The light being used to iluminate the terrain.
-	 * 
 	 * @param clipPlane
 	 *            - The equation of the clipping plane to be used when rendering
 	 *            the terrain. The clipping planes cut off anything in the scene
 	 *            that is rendered outside of the plane.
+	 * @param regionMask
+	 *            - Indicates which of the terrain's regions should be rendered.
+	 *            If this is null (or the terrain isn't split into regions) the
+	 *            whole terrain is rendered.
+	 */
+	public void render(Terrain terrain, Vector4f clipPlane, boolean[] regionMask) {
+		commands.clear();
+		record(commands, terrain, clipPlane, regionMask);
+		commands.execute(backend);
+	}
+
+	/**
+	 * Adds the commands for rendering a terrain to a command list. Regions
+	 * which are next to each other in the index buffer are drawn together in
+	 * one command.
+	 *
+	 * @param commandList
+	 *            - The list that the commands get added to.
+	 * @param terrain
+	 *            - The terrain to be rendered.
+	 * @param clipPlane
+	 *            - The equation of the clipping plane to be used when rendering
+	 *            the terrain.
+	 * @param regionMask
+	 *            - Indicates which of the terrain's regions should be rendered.
+	 *            If this is null (or the terrain isn't split into regions) the
+	 *            whole terrain is rendered.
 	 */
-	public void render(Terrain terrain, ICamera camera, Light light, Vector4f clipPlane) {
-		prepare(terrain, camera, light, clipPlane);
-		if (hasIndices) {
-			GL11.glDrawElements(GL11.GL_TRIANGLES, terrain.getVertexCount(), GL11.GL_UNSIGNED_INT, 0);
+	public void record(RenderCommandList commandList, Terrain terrain, Vector4f clipPlane, boolean[] regionMask) {
+		recordTerrain(commandList, shader.getProgramId(), terrain.getVao().id, this, hasIndices, terrain, clipPlane,
+				regionMask);
+	}
+
+	/**
+	 * Adds the commands for rendering a terrain to a command list, using the
+	 * given IDs instead of a renderer's shader and the terrain's VAO. Nothing
+	 * here needs OpenGL, so terrain can be recorded without a display (e.g.
+	 * to be executed by a {@link commands.RecordingRenderBackend}).
+	 * 
+	 * @param commandList
+	 *            - The list that the commands get added to.
+	 * @param programId
+	 *            - The ID of the terrain shader program.
+	 * @param vaoId
+	 *            - The ID of the terrain's VAO.
+	 * @param uniforms
+	 *            - Loads the commands' uniform values to the shader.
+	 * @param indexed
+	 *            - Whether the terrain has an index buffer.
+	 * @param terrain
+	 *            - The terrain to be rendered.
+	 * @param clipPlane
+	 *            - The equation of the clipping plane.
+	 * @param regionMask
+	 *            - Which of the terrain's regions should be rendered, or null
+	 *            for the whole terrain.
+	 */
+	public static void recordTerrain(RenderCommandList commandList, int programId, int vaoId,
+			ICommandUniforms uniforms, boolean indexed, Terrain terrain, Vector4f clipPlane, boolean[] regionMask) {
+		if (!indexed) {
+			addCommand(commandList, programId, vaoId, uniforms, clipPlane).drawArrays(0, terrain.getVertexCount());
+		} else if (regionMask == null || terrain.getRegions() == null) {
+			addCommand(commandList, programId, vaoId, uniforms, clipPlane).drawElements(0, terrain.getVertexCount());
 		} else {
-			GL11.glDrawArrays(GL11.GL_TRIANGLES, 0, terrain.getVertexCount());
+			recordRegions(commandList, programId, vaoId, uniforms, terrain, clipPlane, regionMask);
 		}
-		finish(terrain);
+	}
+
+	/**
+	 * Loads up the uniform values stored in one of this renderer's commands.
+	 */
+	@Override
+	public void loadUniforms(RenderCommand command) {
+		shader.plane.loadVec4(command.getUniform(PLANE), command.getUniform(PLANE + 1),
+				command.getUniform(PLANE + 2), command.getUniform(PLANE + 3));
 	}
 
 	/**
@@ -62,38 +136,45 @@ public class TerrainRenderer {
 	}
 
 	/**
-	 * Starts the shader program and loads up any necessary uniform variables.
-	 * 
-	 * @param terrain
-	 *            - The terrain to be rendered.
-	 * @param camera
-	 *            - The camera being used to render the scene.
-	 * @param light
-	 *            - The light in the scene.
-	 * @param clipPlane
-	 *            - The equation of the clipping plane to be used when rendering
-	 *            the terrain. The clipping planes cut off anything in the scene
-	 *            that is rendered outside of the plane.
+	 * Records the chosen regions of the terrain. The first command stores the
+	 * uniform values and the rest just copy them.
 	 */
-	private void prepare(Terrain terrain, ICamera camera, Light light, Vector4f clipPlane) {
-		terrain.getVao().bind();
-		shader.start();
-		shader.plane.loadVec4(clipPlane);
-		shader.lightBias.loadVec2(light.getLightBias());
-		shader.lightDirection.loadVec3(light.getDirection());
-		shader.lightColour.loadVec3(light.getColour().getVector());
-		shader.projectionViewMatrix.loadMatrix(camera.getProjectionViewMatrix());
+	private static void recordRegions(RenderCommandList commandList, int programId, int vaoId,
+			ICommandUniforms uniforms, Terrain terrain, Vector4f clipPlane, boolean[] regionMask) {
+		TerrainRegions regions = terrain.getRegions();
+		RenderCommand first = null;
+		int start = -1;
+		int count = 0;
+		for (int i = 0; i <= regions.getCount(); i++) {
+			boolean end = i == regions.getCount();
+			if (!end && !regionMask[i]) {
+				continue;
+			}
+			int offset = end ? -1 : regions.getIndexOffset(i);
+			if (count > 0 && (end || start + count != offset)) {
+				if (first == null) {
+					first = addCommand(commandList, programId, vaoId, uniforms, clipPlane).drawElements(start, count);
+				} else {
+					commandList.add().program(programId).vao(vaoId).copyUniforms(first).drawElements(start, count);
+				}
+				count = 0;
+			}
+			if (!end) {
+				if (count == 0) {
+					start = offset;
+				}
+				count += regions.getIndexCount(i);
+			}
+		}
 	}
 
 	/**
-	 * End the rendering process by unbinding the VAO and stopping the shader
-	 * program.
-	 * 
-	 * @param terrain
+	 * Adds a command for drawing the terrain with all the uniform values set.
+	 * The draw range still needs setting.
 	 */
-	private void finish(Terrain terrain) {
-		terrain.getVao().unbind();
-		shader.stop();
+	private static RenderCommand addCommand(RenderCommandList commandList, int programId, int vaoId,
+			ICommandUniforms uniforms, Vector4f clipPlane) {
+		return commandList.add().program(programId).vao(vaoId).uniforms(uniforms).put(clipPlane);
 	}
 
 }
@@ -6,11 +6,12 @@ layout(location = 2) in vec4 in_colour;
 
 flat out vec3 pass_colour;//The "flat" qualifier stops the colour from being interpolated over the triangles.
 
-uniform vec3 lightDirection;
-uniform vec3 lightColour;
-uniform vec2 lightBias;
-
-uniform mat4 projectionViewMatrix;
+layout(std140) uniform FrameGlobals {
+	mat4 projectionViewMatrix;
+	vec3 lightDirection;
+	vec3 lightColour;
+	vec2 lightBias;
+};
 
 uniform vec4 plane;
 
@@ -0,0 +1,383 @@
+package terrains;
+
+import java.util.stream.IntStream;
+
+import org.lwjgl.util.vector.Vector3f;
+
+/**
+ * A hierarchical min/max pyramid (basically a quadtree stored as a stack of
+ * grids) built over the terrain's heightmap. The bottom level holds the lowest
+ * and highest height of each grid square, and every level above that combines
+ * 2x2 entries from the level below, until the top level covers the whole
+ * terrain with a single entry.
+ *
+ * This makes it possible to throw away huge empty chunks of space very quickly
+ * when casting a ray against the terrain (for mouse picking, for example) -
+ * only the grid squares that the ray could possibly hit ever get tested
+ * against their actual triangles.
+ *
+ * @author Karl
+ *
+ */
+public class HeightPyramid {
+
+	private static final int PARALLEL_ROW_THRESHOLD = 64;
+	private static final float EPSILON = 0.0000001f;
+
+	private final float[][] heights;
+	private final int gridSize;
+	private final int[] levelSizes;
+	private final float[][] minHeights;
+	private final float[][] maxHeights;
+
+	private int version = 0;
+
+	/**
+	 * Builds the pyramid for a heightmap. Large heightmaps are processed in
+	 * parallel, one row at a time.
+	 *
+	 * @param heights
+	 *            - The heights of all the vertices in the terrain. The pyramid
+	 *            keeps a reference to this array, so {@link #update} needs to
+	 *            be called whenever any of these heights get changed.
+	 */
+	public HeightPyramid(float[][] heights) {
+		this.heights = heights;
+		this.gridSize = heights.length - 1;
+		this.levelSizes = calculateLevelSizes(gridSize);
+		this.minHeights = new float[levelSizes.length][];
+		this.maxHeights = new float[levelSizes.length][];
+		for (int level = 0; level < levelSizes.length; level++) {
+			minHeights[level] = new float[levelSizes[level] * levelSizes[level]];
+			maxHeights[level] = new float[levelSizes[level] * levelSizes[level]];
+			updateLevel(level, 0, 0, levelSizes[level] - 1, levelSizes[level] - 1);
+		}
+	}
+
+	/**
+	 * Updates the pyramid after some of the terrain's heights have changed.
+	 * Only the entries that are affected by the changed vertices get
+	 * recalculated, all the way up to the top of the pyramid.
+	 *
+	 * @param minX
+	 *            - The lowest x index of the changed vertices.
+	 * @param minZ
+	 *            - The lowest z index of the changed vertices.
+	 * @param maxX
+	 *            - The highest x index of the changed vertices.
+	 * @param maxZ
+	 *            - The highest z index of the changed vertices.
+	 */
+	public void update(int minX, int minZ, int maxX, int maxZ) {
+		// a vertex is a corner of the squares on either side of it
+		int startCol = clampIndex(minX - 1, gridSize);
+		int startRow = clampIndex(minZ - 1, gridSize);
+		int endCol = clampIndex(maxX, gridSize);
+		int endRow = clampIndex(maxZ, gridSize);
+		for (int level = 0; level < levelSizes.length; level++) {
+			updateLevel(level, startCol, startRow, endCol, endRow);
+			startCol >>= 1;
+			startRow >>= 1;
+			endCol >>= 1;
+			endRow >>= 1;
+		}
+		version++;
+	}
+
+	/**
+	 * @return A number which goes up every time the pyramid is updated, so that
+	 *         anything worked out from the pyramid knows when it's out of date.
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return The number of grid squares along one edge of the terrain.
+	 */
+	public int getGridSize() {
+		return gridSize;
+	}
+
+	/**
+	 * @return The number of levels in the pyramid. Level 0 is the bottom level
+	 *         with one entry per grid square.
+	 */
+	public int getLevelCount() {
+		return levelSizes.length;
+	}
+
+	/**
+	 * @param level
+	 *            - The level of the pyramid.
+	 * @return The number of entries along one edge of that level.
+	 */
+	public int getLevelSize(int level) {
+		return levelSizes[level];
+	}
+
+	/**
+	 * @return The lowest height in the area covered by an entry of the
+	 *         pyramid. An entry at level {@code n} covers a square of
+	 *         {@code 2^n} grid squares along each edge.
+	 */
+	public float getMinHeight(int level, int x, int z) {
+		return minHeights[level][z * levelSizes[level] + x];
+	}
+
+	/**
+	 * @return The highest height in the area covered by an entry of the
+	 *         pyramid.
+	 */
+	public float getMaxHeight(int level, int x, int z) {
+		return maxHeights[level][z * levelSizes[level] + x];
+	}
+
+	/**
+	 * Finds the point where a ray first hits the terrain. The pyramid is
+	 * traversed from the top down, visiting the children of each entry in the
+	 * order that the ray passes through them, and skipping any entries whose
+	 * bounding box the ray misses. When a single grid square is reached the
+	 * ray is tested against the two actual triangles of that square (using
+	 * the same triangulation as the terrain mesh).
+	 *
+	 * @param origin
+	 *            - The start point of the ray.
+	 * @param direction
+	 *            - The direction of the ray. Doesn't need to be normalized.
+	 * @param dest
+	 *            - The vector to store the result in. A new one is created if
+	 *            this is null.
+	 * @return The point where the ray first hits the terrain, or null if it
+	 *         doesn't hit the terrain at all.
+	 */
+	public Vector3f raycast(Vector3f origin, Vector3f direction, Vector3f dest) {
+		int top = levelSizes.length - 1;
+		int[] stack = new int[levelSizes.length * 4 * 3];
+		float[] childEntries = new float[4];
+		int[] childIndices = new int[4];
+		float[] range = new float[2];
+		int pointer = 0;
+		stack[pointer++] = top;
+		stack[pointer++] = 0;
+		stack[pointer++] = 0;
+		while (pointer > 0) {
+			int z = stack[--pointer];
+			int x = stack[--pointer];
+			int level = stack[--pointer];
+			if (level == 0) {
+				float t = intersectGridSquare(x, z, origin, direction);
+				if (t >= 0) {
+					return storePoint(origin, direction, t, dest);
+				}
+				continue;
+			}
+			int childLevel = level - 1;
+			int childSize = levelSizes[childLevel];
+			int childCount = 0;
+			for (int i = 0; i < 4; i++) {
+				int childX = x * 2 + (i & 1);
+				int childZ = z * 2 + (i >> 1);
+				if (childX >= childSize || childZ >= childSize) {
+					continue;
+				}
+				float entry = intersectEntry(childLevel, childX, childZ, origin, direction, range);
+				if (entry < 0) {
+					continue;
+				}
+				int insertAt = childCount++;
+				while (insertAt > 0 && childEntries[insertAt - 1] < entry) {
+					childEntries[insertAt] = childEntries[insertAt - 1];
+					childIndices[insertAt] = childIndices[insertAt - 1];
+					insertAt--;
+				}
+				childEntries[insertAt] = entry;
+				childIndices[insertAt] = i;
+			}
+			// furthest child is pushed first so that the nearest is popped first
+			for (int i = 0; i < childCount; i++) {
+				stack[pointer++] = childLevel;
+				stack[pointer++] = x * 2 + (childIndices[i] & 1);
+				stack[pointer++] = z * 2 + (childIndices[i] >> 1);
+			}
+		}
+		return null;
+	}
+
+	private static int[] calculateLevelSizes(int gridSize) {
+		int levelCount = 1;
+		for (int size = gridSize; size > 1; size = (size + 1) / 2) {
+			levelCount++;
+		}
+		int[] sizes = new int[levelCount];
+		sizes[0] = gridSize;
+		for (int i = 1; i < levelCount; i++) {
+			sizes[i] = (sizes[i - 1] + 1) / 2;
+		}
+		return sizes;
+	}
+
+	private static int clampIndex(int index, int size) {
+		return Math.max(0, Math.min(index, size - 1));
+	}
+
+	/**
+	 * Recalculates a rectangle of entries in one level of the pyramid. Bigger
+	 * rectangles have their rows processed in parallel.
+	 */
+	private void updateLevel(int level, int startX, int startZ, int endX, int endZ) {
+		IntStream rows = IntStream.rangeClosed(startZ, endZ);
+		if (endZ - startZ >= PARALLEL_ROW_THRESHOLD) {
+			rows = rows.parallel();
+		}
+		rows.forEach(z -> {
+			for (int x = startX; x <= endX; x++) {
+				if (level == 0) {
+					updateGridSquare(x, z);
+				} else {
+					updateEntry(level, x, z);
+				}
+			}
+		});
+	}
+
+	private void updateGridSquare(int col, int row) {
+		float a = heights[row][col];
+		float b = heights[row + 1][col];
+		float c = heights[row][col + 1];
+		float d = heights[row + 1][col + 1];
+		int index = row * gridSize + col;
+		minHeights[0][index] = Math.min(Math.min(a, b), Math.min(c, d));
+		maxHeights[0][index] = Math.max(Math.max(a, b), Math.max(c, d));
+	}
+
+	private void updateEntry(int level, int x, int z) {
+		int childLevel = level - 1;
+		int childSize = levelSizes[childLevel];
+		float min = Float.POSITIVE_INFINITY;
+		float max = Float.NEGATIVE_INFINITY;
+		for (int childZ = z * 2; childZ <= z * 2 + 1 && childZ < childSize; childZ++) {
+			for (int childX = x * 2; childX <= x * 2 + 1 && childX < childSize; childX++) {
+				int childIndex = childZ * childSize + childX;
+				min = Math.min(min, minHeights[childLevel][childIndex]);
+				max = Math.max(max, maxHeights[childLevel][childIndex]);
+			}
+		}
+		int index = z * levelSizes[level] + x;
+		minHeights[level][index] = min;
+		maxHeights[level][index] = max;
+	}
+
+	/**
+	 * Tests the ray against the bounding box of an entry in the pyramid.
+	 *
+	 * @return The distance along the ray (in multiples of the direction vector)
+	 *         where the ray enters the box, or -1 if the ray misses the box.
+	 */
+	private float intersectEntry(int level, int x, int z, Vector3f origin, Vector3f direction, float[] range) {
+		float minX = x << level;
+		float minZ = z << level;
+		float maxX = Math.min((x + 1) << level, gridSize);
+		float maxZ = Math.min((z + 1) << level, gridSize);
+		range[0] = 0;
+		range[1] = Float.POSITIVE_INFINITY;
+		if (!clipSlab(origin.x, direction.x, minX, maxX, range)
+				|| !clipSlab(origin.y, direction.y, getMinHeight(level, x, z), getMaxHeight(level, x, z), range)
+				|| !clipSlab(origin.z, direction.z, minZ, maxZ, range)) {
+			return -1;
+		}
+		return range[0];
+	}
+
+	/**
+	 * Narrows down the range of the ray that is inside the box, using one pair
+	 * of the box's parallel faces.
+	 *
+	 * @return False if the ray doesn't pass through the box at all.
+	 */
+	private static boolean clipSlab(float origin, float direction, float min, float max, float[] range) {
+		if (direction == 0) {
+			return origin >= min && origin <= max;
+		}
+		float t1 = (min - origin) / direction;
+		float t2 = (max - origin) / direction;
+		range[0] = Math.max(range[0], Math.min(t1, t2));
+		range[1] = Math.min(range[1], Math.max(t1, t2));
+		return range[0] <= range[1];
+	}
+
+	/**
+	 * Tests the ray against the two triangles of a grid square. The triangles
+	 * are split in the same way as in the terrain mesh - the diagonal
+	 * alternates direction from one square to the next.
+	 *
+	 * @return The distance along the ray to the nearest hit, or -1 if neither
+	 *         triangle is hit.
+	 */
+	private float intersectGridSquare(int col, int row, Vector3f origin, Vector3f direction) {
+		boolean rightHanded = col % 2 != row % 2;
+		float h0 = heights[row][col];
+		float h1 = heights[row + 1][col];
+		float h2 = heights[row][col + 1];
+		float h3 = heights[row + 1][col + 1];
+		float left;
+		float right;
+		if (rightHanded) {
+			left = intersectTriangle(origin, direction, col, h0, row, col, h1, row + 1, col + 1, h3, row + 1);
+			right = intersectTriangle(origin, direction, col + 1, h2, row, col, h0, row, col + 1, h3, row + 1);
+		} else {
+			left = intersectTriangle(origin, direction, col, h0, row, col, h1, row + 1, col + 1, h2, row);
+			right = intersectTriangle(origin, direction, col + 1, h2, row, col, h1, row + 1, col + 1, h3, row + 1);
+		}
+		if (left < 0) {
+			return right;
+		} else if (right < 0) {
+			return left;
+		}
+		return Math.min(left, right);
+	}
+
+	/**
+	 * Moller-Trumbore ray/triangle intersection test. Both sides of the
+	 * triangle count as a hit.
+	 *
+	 * @return The distance along the ray to the hit, or -1 if the triangle is
+	 *         missed.
+	 */
+	private static float intersectTriangle(Vector3f origin, Vector3f dir, float x0, float y0, float z0, float x1,
+			float y1, float z1, float x2, float y2, float z2) {
+		float e1x = x1 - x0, e1y = y1 - y0, e1z = z1 - z0;
+		float e2x = x2 - x0, e2y = y2 - y0, e2z = z2 - z0;
+		float px = dir.y * e2z - dir.z * e2y;
+		float py = dir.z * e2x - dir.x * e2z;
+		float pz = dir.x * e2y - dir.y * e2x;
+		float det = e1x * px + e1y * py + e1z * pz;
+		if (Math.abs(det) < EPSILON) {
+			return -1;
+		}
+		float invDet = 1f / det;
+		float tx = origin.x - x0, ty = origin.y - y0, tz = origin.z - z0;
+		float u = (tx * px + ty * py + tz * pz) * invDet;
+		if (u < 0 || u > 1) {
+			return -1;
+		}
+		float qx = ty * e1z - tz * e1y;
+		float qy = tz * e1x - tx * e1z;
+		float qz = tx * e1y - ty * e1x;
+		float v = (dir.x * qx + dir.y * qy + dir.z * qz) * invDet;
+		if (v < 0 || u + v > 1) {
+			return -1;
+		}
+		float t = (e2x * qx + e2y * qy + e2z * qz) * invDet;
+		return t >= 0 ? t : -1;
+	}
+
+	private static Vector3f storePoint(Vector3f origin, Vector3f direction, float t, Vector3f dest) {
+		if (dest == null) {
+			dest = new Vector3f();
+		}
+		dest.set(origin.x + direction.x * t, origin.y + direction.y * t, origin.z + direction.z * t);
+		return dest;
+	}
+
+}
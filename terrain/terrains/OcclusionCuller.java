@@ -0,0 +1,201 @@
+package terrains;
+
+import org.lwjgl.util.vector.Vector3f;
+
+/**
+ * Works out which terrain regions are hidden behind closer parts of the
+ * terrain (e.g. behind a ridge when the camera is down in a valley) so that
+ * they don't need to be rendered.
+ *
+ * The regions are processed in rings around the camera, working outwards. A
+ * "horizon" is kept for every direction around the camera, storing the
+ * steepest upwards slope that is guaranteed to be blocked by the terrain
+ * that has been processed so far. A region which can't reach above the
+ * horizon in any of the directions that it covers is occluded. Once a whole
+ * ring has been tested, its regions are added to the horizon using their
+ * lowest heights, which keeps everything conservative - a region is only ever
+ * marked as occluded if it definitely can't be seen.
+ *
+ * Looking outwards from the camera a straight line can never move back to a
+ * closer ring, which is why the rings are processed one at a time, and why
+ * regions in the same ring never occlude each other.
+ *
+ * @author Karl
+ *
+ */
+public class OcclusionCuller {
+
+	private static final int HORIZON_RESOLUTION = 1024;
+	private static final float BIN_SIZE = (float) (2 * Math.PI / HORIZON_RESOLUTION);
+
+	private final float[] horizon = new float[HORIZON_RESOLUTION];
+
+	private boolean[] visible = new boolean[0];
+	private int visibleCount;
+
+	/**
+	 * Tests all of the regions of a terrain against the horizon.
+	 *
+	 * @param regions
+	 *            - The regions of the terrain.
+	 * @param cameraPos
+	 *            - The position that the terrain is being viewed from.
+	 */
+	public void update(TerrainRegions regions, Vector3f cameraPos) {
+		if (visible.length != regions.getCount()) {
+			visible = new boolean[regions.getCount()];
+		}
+		for (int i = 0; i < HORIZON_RESOLUTION; i++) {
+			horizon[i] = Float.NEGATIVE_INFINITY;
+		}
+		int perSide = regions.getRegionsPerSide();
+		int cameraX = (int) Math.floor(cameraPos.x / regions.getRegionSize());
+		int cameraZ = (int) Math.floor(cameraPos.z / regions.getRegionSize());
+		int maxRing = Math.max(Math.max(cameraX, perSide - 1 - cameraX), Math.max(cameraZ, perSide - 1 - cameraZ));
+		visibleCount = 0;
+		for (int ring = 0; ring <= maxRing; ring++) {
+			processRing(regions, cameraPos, cameraX, cameraZ, ring, false);
+			if (ring > 0) {
+				processRing(regions, cameraPos, cameraX, cameraZ, ring, true);
+			}
+		}
+	}
+
+	/**
+	 * @return An array indicating which regions are visible. Index matches the
+	 *         region index in {@link TerrainRegions}.
+	 */
+	public boolean[] getVisibleRegions() {
+		return visible;
+	}
+
+	/**
+	 * @return The number of regions which weren't occluded in the last update.
+	 */
+	public int getVisibleCount() {
+		return visibleCount;
+	}
+
+	/**
+	 * Visits every region (that exists) in a square ring around the camera's
+	 * region. Either tests them against the horizon, or adds them to the
+	 * horizon.
+	 */
+	private void processRing(TerrainRegions regions, Vector3f cameraPos, int cameraX, int cameraZ, int ring,
+			boolean addToHorizon) {
+		int perSide = regions.getRegionsPerSide();
+		int startZ = Math.max(cameraZ - ring, 0);
+		int endZ = Math.min(cameraZ + ring, perSide - 1);
+		for (int z = startZ; z <= endZ; z++) {
+			boolean edgeRow = z == cameraZ - ring || z == cameraZ + ring;
+			int step = edgeRow ? 1 : 2 * ring;
+			for (int x = cameraX - ring; x <= cameraX + ring; x += Math.max(step, 1)) {
+				if (x < 0 || x >= perSide) {
+					continue;
+				}
+				int region = z * perSide + x;
+				if (addToHorizon) {
+					addOccluder(regions, region, cameraPos);
+				} else {
+					boolean isVisible = ring == 0 || !isOccluded(regions, region, cameraPos);
+					visible[region] = isVisible;
+					if (isVisible) {
+						visibleCount++;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks whether the highest point that a region could possibly have
+	 * appears under the horizon in every direction that the region covers.
+	 */
+	private boolean isOccluded(TerrainRegions regions, int region, Vector3f cameraPos) {
+		float heightDiff = regions.getMaxHeight(region) - cameraPos.y;
+		float distance = heightDiff > 0 ? getNearestDistance(regions, region, cameraPos)
+				: getFurthestDistance(regions, region, cameraPos);
+		float maxSlope = heightDiff / distance;
+		int firstBin = getFirstBin(regions, region, cameraPos);
+		int lastBin = getLastBin(regions, region, cameraPos);
+		for (int bin = firstBin; bin <= lastBin; bin++) {
+			if (maxSlope >= horizon[wrap(bin)]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Raises the horizon in all the directions that are completely covered by
+	 * this region. Any line of sight in one of these directions has to pass
+	 * over the whole region, and the region's terrain is at least as high as
+	 * the region's lowest height, so anything under this slope is hidden.
+	 */
+	private void addOccluder(TerrainRegions regions, int region, Vector3f cameraPos) {
+		float heightDiff = regions.getMinHeight(region) - cameraPos.y;
+		float distance = heightDiff >= 0 ? getFurthestDistance(regions, region, cameraPos)
+				: getNearestDistance(regions, region, cameraPos);
+		float slope = heightDiff / distance;
+		int firstBin = getFirstBin(regions, region, cameraPos);
+		int lastBin = getLastBin(regions, region, cameraPos);
+		// only bins that are completely covered by the region
+		for (int bin = firstBin + 1; bin < lastBin; bin++) {
+			int index = wrap(bin);
+			horizon[index] = Math.max(horizon[index], slope);
+		}
+	}
+
+	private int getFirstBin(TerrainRegions regions, int region, Vector3f cameraPos) {
+		return (int) Math.floor(getAngleRange(regions, region, cameraPos, true) / BIN_SIZE);
+	}
+
+	private int getLastBin(TerrainRegions regions, int region, Vector3f cameraPos) {
+		return (int) Math.floor(getAngleRange(regions, region, cameraPos, false) / BIN_SIZE);
+	}
+
+	/**
+	 * Calculates the smallest or largest angle (around the y axis) of the
+	 * region's corners, as seen from the camera. The angles are measured
+	 * relative to the angle of the region's centre so that regions which
+	 * cross the -PI/PI boundary are handled correctly, so the result may be
+	 * outside of the 0 to 2PI range.
+	 */
+	private float getAngleRange(TerrainRegions regions, int region, Vector3f cameraPos, boolean min) {
+		float minX = regions.getMinX(region) - cameraPos.x;
+		float minZ = regions.getMinZ(region) - cameraPos.z;
+		float maxX = regions.getMaxX(region) - cameraPos.x;
+		float maxZ = regions.getMaxZ(region) - cameraPos.z;
+		double centre = Math.atan2((minZ + maxZ) * 0.5, (minX + maxX) * 0.5);
+		double result = 0;
+		for (int corner = 0; corner < 4; corner++) {
+			double x = (corner & 1) == 0 ? minX : maxX;
+			double z = (corner & 2) == 0 ? minZ : maxZ;
+			double delta = Math.atan2(z, x) - centre;
+			if (delta > Math.PI) {
+				delta -= 2 * Math.PI;
+			} else if (delta < -Math.PI) {
+				delta += 2 * Math.PI;
+			}
+			result = min ? Math.min(result, delta) : Math.max(result, delta);
+		}
+		return (float) (centre + result + Math.PI);
+	}
+
+	private static float getNearestDistance(TerrainRegions regions, int region, Vector3f cameraPos) {
+		float dx = Math.max(Math.max(regions.getMinX(region) - cameraPos.x, cameraPos.x - regions.getMaxX(region)), 0);
+		float dz = Math.max(Math.max(regions.getMinZ(region) - cameraPos.z, cameraPos.z - regions.getMaxZ(region)), 0);
+		return (float) Math.sqrt(dx * dx + dz * dz);
+	}
+
+	private static float getFurthestDistance(TerrainRegions regions, int region, Vector3f cameraPos) {
+		float dx = Math.max(Math.abs(regions.getMinX(region) - cameraPos.x), Math.abs(regions.getMaxX(region) - cameraPos.x));
+		float dz = Math.max(Math.abs(regions.getMinZ(region) - cameraPos.z), Math.abs(regions.getMaxZ(region) - cameraPos.z));
+		return (float) Math.sqrt(dx * dx + dz * dz);
+	}
+
+	private static int wrap(int bin) {
+		return ((bin % HORIZON_RESOLUTION) + HORIZON_RESOLUTION) % HORIZON_RESOLUTION;
+	}
+
+}
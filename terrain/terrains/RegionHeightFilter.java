@@ -0,0 +1,78 @@
+package terrains;
+
+/**
+ * Picks out the terrain regions which have some terrain above (or below) a
+ * certain height. The reflection pass only renders terrain above the water
+ * and the refraction pass only renders terrain below the water, but the clip
+ * plane only throws the rest away after it's been through the vertex shader.
+ * Using the lowest and highest height of each region, the regions which would
+ * be completely clipped away can be skipped without drawing them at all.
+ *
+ * The result only depends on the terrain's heights, so it's kept and reused
+ * until either the height or the terrain changes.
+ *
+ * @author Karl
+ *
+ */
+public class RegionHeightFilter {
+
+	private final boolean above;
+
+	private boolean[] selected = new boolean[0];
+	private int selectedCount;
+	private TerrainRegions cachedRegions;
+	private int cachedVersion;
+	private float cachedHeight;
+
+	/**
+	 * @param above
+	 *            - True if the regions with terrain above the height should be
+	 *            picked, or false for regions with terrain below the height.
+	 */
+	public RegionHeightFilter(boolean above) {
+		this.above = above;
+	}
+
+	/**
+	 * Finds the regions that have some terrain on the correct side of a
+	 * height.
+	 *
+	 * @param regions
+	 *            - The regions of the terrain.
+	 * @param height
+	 *            - The height of the clip plane.
+	 * @return An array indicating which regions have terrain on the correct
+	 *         side of the height. Index matches the region index in
+	 *         {@link TerrainRegions}.
+	 */
+	public boolean[] select(TerrainRegions regions, float height) {
+		if (regions != cachedRegions || regions.getVersion() != cachedVersion || height != cachedHeight) {
+			update(regions, height);
+		}
+		return selected;
+	}
+
+	/**
+	 * @return The number of regions picked by the last selection.
+	 */
+	public int getSelectedCount() {
+		return selectedCount;
+	}
+
+	private void update(TerrainRegions regions, float height) {
+		if (selected.length != regions.getCount()) {
+			selected = new boolean[regions.getCount()];
+		}
+		selectedCount = 0;
+		for (int i = 0; i < selected.length; i++) {
+			selected[i] = above ? regions.getMaxHeight(i) >= height : regions.getMinHeight(i) <= height;
+			if (selected[i]) {
+				selectedCount++;
+			}
+		}
+		cachedRegions = regions;
+		cachedVersion = regions.getVersion();
+		cachedHeight = height;
+	}
+
+}
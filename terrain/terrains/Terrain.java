@@ -1,10 +1,10 @@
 package terrains;
 
+import org.lwjgl.util.vector.Vector3f;
 import org.lwjgl.util.vector.Vector4f;
 
+import commands.RenderCommandList;
 import openglObjects.Vao;
-import rendering.ICamera;
-import rendering.Light;
 import rendering.TerrainRenderer;
 
 public class Terrain {
@@ -12,11 +12,26 @@ public class Terrain {
 	private final Vao vao;
 	private final int vertexCount;
 	private final TerrainRenderer renderer;
+	private final float[][] heights;
+	private final HeightPyramid heightPyramid;
+	private final TerrainRegions regions;
 	
-	public Terrain(Vao vao, int vertexCount, TerrainRenderer renderer){
+	public Terrain(Vao vao, int vertexCount, TerrainRenderer renderer, float[][] heights){
+		this(vao, vertexCount, renderer, heights, new HeightPyramid(heights), null);
+	}
+	
+	/**
+	 * Creates a terrain which can be rendered region by region. The terrain's
+	 * index buffer must have been ordered by the regions.
+	 */
+	public Terrain(Vao vao, int vertexCount, TerrainRenderer renderer, float[][] heights, HeightPyramid heightPyramid,
+			TerrainRegions regions){
 		this.vao = vao;
 		this.vertexCount = vertexCount;
 		this.renderer = renderer;
+		this.heights = heights;
+		this.heightPyramid = heightPyramid;
+		this.regions = regions;
 	}
 	
 	public int getVertexCount(){
@@ -27,8 +42,72 @@ public class Terrain {
 		return vao;
 	}
 	
-	public void render(ICamera camera, Light light, Vector4f clipPlane){
-		renderer.render(this, camera, light, clipPlane);
+	/**
+	 * @return The heights of all the vertices in the terrain.
+	 */
+	public float[][] getHeights(){
+		return heights;
+	}
+	
+	/**
+	 * @return The min/max height pyramid built over this terrain's heights.
+	 */
+	public HeightPyramid getHeightPyramid(){
+		return heightPyramid;
+	}
+	
+	/**
+	 * @return The regions that this terrain is split into, or null if the
+	 *         terrain can only be rendered in one go.
+	 */
+	public TerrainRegions getRegions(){
+		return regions;
+	}
+	
+	/**
+	 * Finds the point where a ray (e.g. from the mouse) first hits the terrain.
+	 * 
+	 * @param origin
+	 *            - The start of the ray.
+	 * @param direction
+	 *            - The direction of the ray.
+	 * @param dest
+	 *            - Where to store the result. Can be null.
+	 * @return The intersection point, or null if the ray misses the terrain.
+	 */
+	public Vector3f raycast(Vector3f origin, Vector3f direction, Vector3f dest){
+		return heightPyramid.raycast(origin, direction, dest);
+	}
+	
+	/**
+	 * Renders the whole terrain. The {@link rendering.FrameGlobals} need to be
+	 * up to date for the camera and light being used.
+	 */
+	public void render(Vector4f clipPlane){
+		renderer.render(this, clipPlane, null);
+	}
+	
+	/**
+	 * Renders only some of the terrain's regions.
+	 * 
+	 * @param regionMask
+	 *            - Indicates which regions should be rendered. All regions are
+	 *            rendered if this is null.
+	 */
+	public void render(Vector4f clipPlane, boolean[] regionMask){
+		renderer.render(this, clipPlane, regionMask);
+	}
+	
+	/**
+	 * Adds the commands for rendering some of the terrain's regions to a
+	 * command list, instead of rendering them straight away.
+	 * 
+	 * @param regionMask
+	 *            - Indicates which regions should be rendered. All regions are
+	 *            rendered if this is null.
+	 */
+	public void record(RenderCommandList commands, Vector4f clipPlane, boolean[] regionMask){
+		renderer.record(commands, this, clipPlane, regionMask);
 	}
 	
 	public void delete(){
@@ -58,13 +58,14 @@ public abstract class TerrainGenerator {
 	/**
 	 * Uses the perlin noise generator (which might actually not be using the
 	 * Perlin Noise algorithm - I'm not quite sure if it is or isn't) to
-	 * generate heights for all of the terrain's vertices.
+	 * generate heights for all of the terrain's vertices. This doesn't use
+	 * OpenGL, so it can be used without a display.
 	 * 
 	 * @param gridSize - The number of grid squares along one edge of the terrain.
 	 * @param perlinNoise - The heights generator.
 	 * @return All the heights for the vertices.
 	 */
-	private float[][] generateHeights(int gridSize, PerlinNoise perlinNoise) {
+	public static float[][] generateHeights(int gridSize, PerlinNoise perlinNoise) {
 		float heights[][] = new float[gridSize + 1][gridSize + 1];
 		for (int z = 0; z < heights.length; z++) {
 			for (int x = 0; x < heights[z].length; x++) {
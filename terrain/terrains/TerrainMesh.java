@@ -0,0 +1,54 @@
+package terrains;
+
+/**
+ * Everything that gets generated for a terrain's mesh before it's loaded up
+ * to a VAO: the vertex data, the index buffer (ordered by region), and the
+ * height pyramid and regions that the index buffer was ordered with. None of
+ * this needs OpenGL, so a terrain's mesh can be generated (and checked) without
+ * a display.
+ *
+ * @author Karl
+ *
+ */
+public class TerrainMesh {
+
+	private final byte[] vertexData;
+	private final int[] indices;
+	private final HeightPyramid heightPyramid;
+	private final TerrainRegions regions;
+
+	public TerrainMesh(byte[] vertexData, int[] indices, HeightPyramid heightPyramid, TerrainRegions regions) {
+		this.vertexData = vertexData;
+		this.indices = indices;
+		this.heightPyramid = heightPyramid;
+		this.regions = regions;
+	}
+
+	/**
+	 * @return The vertex data, in the format that gets stored in the VAO.
+	 */
+	public byte[] getVertexData() {
+		return vertexData;
+	}
+
+	/**
+	 * @return The indices for the index buffer, or null if the mesh isn't
+	 *         indexed.
+	 */
+	public int[] getIndices() {
+		return indices;
+	}
+
+	public HeightPyramid getHeightPyramid() {
+		return heightPyramid;
+	}
+
+	/**
+	 * @return The regions that the index buffer is ordered by, or null if the
+	 *         terrain isn't split into regions.
+	 */
+	public TerrainRegions getRegions() {
+		return regions;
+	}
+
+}
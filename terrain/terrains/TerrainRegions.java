@@ -0,0 +1,150 @@
+package terrains;
+
+/**
+ * Splits the terrain up into square regions of grid squares, so that parts of
+ * the terrain can be skipped when rendering. The index buffer is reordered so
+ * that the triangles of each region are stored next to each other, meaning
+ * that each region can be drawn with a single draw call using a range of the
+ * index buffer. The size of the regions is chosen to match a level of the
+ * height pyramid, so the lowest and highest height of each region can be read
+ * straight out of the pyramid (and so stays up to date when the pyramid is
+ * updated).
+ *
+ * @author Karl
+ *
+ */
+public class TerrainRegions {
+
+	private static final int INDICES_PER_SQUARE = 6;
+
+	private final HeightPyramid pyramid;
+	private final int level;
+	private final int regionSize;
+	private final int regionsPerSide;
+	private final int[] indexOffsets;
+	private final int[] indexCounts;
+
+	/**
+	 * @param pyramid
+	 *            - The height pyramid of the terrain.
+	 * @param level
+	 *            - The level of the pyramid that the regions match up with.
+	 *            Each region is {@code 2^level} grid squares along each edge.
+	 */
+	public TerrainRegions(HeightPyramid pyramid, int level) {
+		this.pyramid = pyramid;
+		this.level = Math.min(level, pyramid.getLevelCount() - 1);
+		this.regionSize = 1 << this.level;
+		this.regionsPerSide = pyramid.getLevelSize(this.level);
+		this.indexOffsets = new int[regionsPerSide * regionsPerSide];
+		this.indexCounts = new int[regionsPerSide * regionsPerSide];
+	}
+
+	/**
+	 * Reorders the terrain's index buffer so that the triangles in each region
+	 * are all stored together. The index buffer must store the 6 indices of
+	 * each grid square one after the other, with the grid squares in rows (as
+	 * created by the IndexGenerator). Also records where in the new index
+	 * buffer each region's indices are.
+	 *
+	 * @param indices
+	 *            - The original terrain index buffer.
+	 * @return The reordered index buffer.
+	 */
+	public int[] orderIndices(int[] indices) {
+		int gridSize = pyramid.getGridSize();
+		int[] ordered = new int[indices.length];
+		int pointer = 0;
+		for (int regionZ = 0; regionZ < regionsPerSide; regionZ++) {
+			for (int regionX = 0; regionX < regionsPerSide; regionX++) {
+				int region = regionZ * regionsPerSide + regionX;
+				indexOffsets[region] = pointer;
+				int endRow = Math.min((regionZ + 1) * regionSize, gridSize);
+				int endCol = Math.min((regionX + 1) * regionSize, gridSize);
+				for (int row = regionZ * regionSize; row < endRow; row++) {
+					for (int col = regionX * regionSize; col < endCol; col++) {
+						int source = (row * gridSize + col) * INDICES_PER_SQUARE;
+						System.arraycopy(indices, source, ordered, pointer, INDICES_PER_SQUARE);
+						pointer += INDICES_PER_SQUARE;
+					}
+				}
+				indexCounts[region] = pointer - indexOffsets[region];
+			}
+		}
+		return ordered;
+	}
+
+	/**
+	 * @return The total number of regions.
+	 */
+	public int getCount() {
+		return indexOffsets.length;
+	}
+
+	/**
+	 * @return The number of regions along each edge of the terrain.
+	 */
+	public int getRegionsPerSide() {
+		return regionsPerSide;
+	}
+
+	/**
+	 * @return The number of grid squares along each edge of a region.
+	 */
+	public int getRegionSize() {
+		return regionSize;
+	}
+
+	/**
+	 * @return The index of the first index of this region in the index buffer.
+	 */
+	public int getIndexOffset(int region) {
+		return indexOffsets[region];
+	}
+
+	/**
+	 * @return The number of indices used by this region.
+	 */
+	public int getIndexCount(int region) {
+		return indexCounts[region];
+	}
+
+	public float getMinX(int region) {
+		return (region % regionsPerSide) * regionSize;
+	}
+
+	public float getMinZ(int region) {
+		return (region / regionsPerSide) * regionSize;
+	}
+
+	public float getMaxX(int region) {
+		return Math.min(getMinX(region) + regionSize, pyramid.getGridSize());
+	}
+
+	public float getMaxZ(int region) {
+		return Math.min(getMinZ(region) + regionSize, pyramid.getGridSize());
+	}
+
+	/**
+	 * @return A number which changes whenever the heights of the regions
+	 *         change.
+	 */
+	public int getVersion() {
+		return pyramid.getVersion();
+	}
+
+	/**
+	 * @return The height of the lowest vertex in the region.
+	 */
+	public float getMinHeight(int region) {
+		return pyramid.getMinHeight(level, region % regionsPerSide, region / regionsPerSide);
+	}
+
+	/**
+	 * @return The height of the highest vertex in the region.
+	 */
+	public float getMaxHeight(int region) {
+		return pyramid.getMaxHeight(level, region % regionsPerSide, region / regionsPerSide);
+	}
+
+}
@@ -0,0 +1,170 @@
+package water;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import org.lwjgl.util.vector.Vector3f;
+
+import openglObjects.Vao;
+import openglObjects.Vbo;
+import vertexDataStoring.VaoLoader;
+
+/**
+ * A water mesh which uses bigger grid squares further away from the camera
+ * (see {@link WaterLodBuilder}). The detail levels are chosen again whenever
+ * the camera moves, but the mesh only gets rebuilt when they actually change.
+ * 
+ * The VAO is created once, and a rebuilt mesh is stored in the same VBOs. The
+ * VBOs are made a bit bigger than the biggest mesh so far, so they don't need
+ * resizing every time the mesh grows a little. The mesh data and the baked
+ * depths are put together in buffers which are reused, so nothing gets
+ * allocated when the mesh is rebuilt unless it's bigger than ever before.
+ * 
+ * The tile can also be created without a VAO, in which case the mesh is still
+ * built (and the depths baked) but never stored anywhere, so that it can be
+ * used without a display.
+ * 
+ * @author Karl
+ *
+ */
+public class LodWaterTile extends WaterTile {
+
+	private static final float SPARE_ROOM = 1.5f;
+	private static final int BYTES_IN_FLOAT = 4;
+
+	private final WaterLodBuilder builder;
+	private final float[][] terrainHeights;
+	private final boolean createVao;
+
+	private Vao vao;
+	private Vbo meshVbo;
+	private Vbo depthVbo;
+	private int maxVertexCount;
+	private int vertexCount;
+	private FloatBuffer depths = FloatBuffer.allocate(0);
+
+	private float lastX = Float.NaN;
+	private float lastY = Float.NaN;
+	private float lastZ = Float.NaN;
+
+	/**
+	 * @param builder
+	 *            - Builds the mesh.
+	 * @param height
+	 *            - The height of the water.
+	 * @param terrainHeights
+	 *            - The heights of the terrain, used to bake the depth of the
+	 *            water into the mesh. Can be null, in which case the depth
+	 *            isn't baked.
+	 * @param createVao
+	 *            - Whether the mesh should be stored in a VAO.
+	 */
+	protected LodWaterTile(WaterLodBuilder builder, float height, float[][] terrainHeights, boolean createVao) {
+		super(null, 0, height);
+		this.builder = builder;
+		this.terrainHeights = terrainHeights;
+		this.createVao = createVao;
+	}
+
+	/**
+	 * Chooses the detail levels for the camera's new position, and rebuilds
+	 * the mesh if they have changed.
+	 * 
+	 * @param cameraPosition
+	 *            - The position of the camera in the world.
+	 */
+	@Override
+	public void update(Vector3f cameraPosition) {
+		float heightAboveWater = Math.abs(cameraPosition.y - getHeight());
+		if (cameraPosition.x == lastX && heightAboveWater == lastY && cameraPosition.z == lastZ) {
+			return;
+		}
+		lastX = cameraPosition.x;
+		lastY = heightAboveWater;
+		lastZ = cameraPosition.z;
+		if (builder.select(cameraPosition.x, heightAboveWater, cameraPosition.z)) {
+			rebuild();
+		}
+	}
+
+	@Override
+	public Vao getVao() {
+		return vao;
+	}
+
+	@Override
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	@Override
+	public boolean hasBakedDepth() {
+		return terrainHeights != null;
+	}
+
+	@Override
+	public void delete() {
+		if (vao != null) {
+			vao.delete(true);
+		}
+	}
+
+	/**
+	 * Builds the mesh for the chosen detail levels and stores it in the VBOs.
+	 */
+	private void rebuild() {
+		ByteBuffer meshData = builder.getMeshData();
+		vertexCount = meshData.remaining() / WaterLodBuilder.VERTEX_SIZE_BYTES;
+		if (vertexCount > maxVertexCount) {
+			maxVertexCount = (int) (vertexCount * SPARE_ROOM);
+		}
+		if (createVao) {
+			if (vao == null) {
+				createVao();
+			}
+			storeData(meshVbo, maxVertexCount * WaterLodBuilder.VERTEX_SIZE_BYTES, meshData);
+		}
+		if (terrainHeights != null) {
+			if (depths.capacity() < vertexCount) {
+				depths = ByteBuffer.allocateDirect(maxVertexCount * BYTES_IN_FLOAT).order(ByteOrder.nativeOrder())
+						.asFloatBuffer();
+			}
+			WaterDepthBaker.bakeDepths(meshData, getHeight(), terrainHeights, depths);
+			if (createVao) {
+				storeData(depthVbo, maxVertexCount * BYTES_IN_FLOAT, depths);
+			}
+		}
+	}
+
+	private void createVao() {
+		vao = Vao.create();
+		vao.bind();
+		meshVbo = VaoLoader.createWaterDataFeed(vao, maxVertexCount);
+		if (terrainHeights != null) {
+			depthVbo = VaoLoader.createWaterDepthFeed(vao, maxVertexCount);
+		}
+		vao.unbind();
+	}
+
+	/**
+	 * Stores new data at the start of a VBO. The VBO's storage is allocated
+	 * again first (at the same size, unless it has grown), which lets the
+	 * driver give it new memory instead of waiting for the GPU to finish
+	 * drawing with the old mesh.
+	 */
+	private static void storeData(Vbo vbo, int sizeInBytes, ByteBuffer data) {
+		vbo.bind();
+		vbo.allocateData(sizeInBytes);
+		vbo.storeData(0, data);
+		vbo.unbind();
+	}
+
+	private static void storeData(Vbo vbo, int sizeInBytes, FloatBuffer data) {
+		vbo.bind();
+		vbo.allocateData(sizeInBytes);
+		vbo.storeData(0, data);
+		vbo.unbind();
+	}
+
+}
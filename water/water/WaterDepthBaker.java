@@ -0,0 +1,103 @@
+package water;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.stream.IntStream;
+
+/**
+ * Works out how deep the water is under each vertex of a water mesh, using
+ * the terrain's heightmap. If the terrain never changes then this never
+ * changes either, so it can be worked out once and stored as an extra vertex
+ * attribute. The water shader can then use it for the murkiness and the soft
+ * edges instead of sampling the refraction pass's depth texture, which means
+ * the refraction FBO can use a render buffer for its depth attachment.
+ * 
+ * Each vertex is independent, so big meshes are split into chunks which get
+ * baked in parallel.
+ * 
+ * @author Karl
+ *
+ */
+public class WaterDepthBaker {
+
+	private static final int VERTEX_SIZE_BYTES = 8 + 4;
+	private static final int CHUNK_SIZE = 16384;
+
+	/**
+	 * Works out the depth of the water under every vertex in a water mesh.
+	 * 
+	 * @param meshData
+	 *            - The vertex data of the water mesh (as created by the
+	 *            {@link WaterGenerator}).
+	 * @param waterHeight
+	 *            - The height of the water.
+	 * @param terrainHeights
+	 *            - The heights of the terrain's vertices.
+	 * @return The depth under each vertex. This is negative where the terrain
+	 *         is above the water.
+	 */
+	public static float[] bakeDepths(byte[] meshData, float waterHeight, float[][] terrainHeights) {
+		int vertexCount = meshData.length / VERTEX_SIZE_BYTES;
+		float[] depths = new float[vertexCount];
+		ByteBuffer buffer = ByteBuffer.wrap(meshData).order(ByteOrder.nativeOrder());
+		int chunkCount = (vertexCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		IntStream chunks = IntStream.range(0, chunkCount);
+		if (chunkCount > 1) {
+			chunks = chunks.parallel();
+		}
+		chunks.forEach(chunk -> {
+			int end = Math.min((chunk + 1) * CHUNK_SIZE, vertexCount);
+			for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+				float x = buffer.getFloat(i * VERTEX_SIZE_BYTES);
+				float z = buffer.getFloat(i * VERTEX_SIZE_BYTES + 4);
+				depths[i] = waterHeight - getTerrainHeight(terrainHeights, x, z);
+			}
+		});
+		return depths;
+	}
+
+	/**
+	 * Works out the depth of the water under every vertex in a water mesh and
+	 * stores them in a buffer, without allocating anything. This is for small
+	 * meshes which get rebuilt while the game is running, so it isn't done in
+	 * parallel.
+	 * 
+	 * @param meshData
+	 *            - The vertex data of the water mesh, between the buffer's
+	 *            position and its limit.
+	 * @param waterHeight
+	 *            - The height of the water.
+	 * @param terrainHeights
+	 *            - The heights of the terrain's vertices.
+	 * @param depths
+	 *            - The buffer to store the depth under each vertex in. It is
+	 *            cleared first, and flipped once the depths are stored.
+	 */
+	public static void bakeDepths(ByteBuffer meshData, float waterHeight, float[][] terrainHeights,
+			FloatBuffer depths) {
+		int start = meshData.position();
+		int vertexCount = meshData.remaining() / VERTEX_SIZE_BYTES;
+		depths.clear();
+		for (int i = 0; i < vertexCount; i++) {
+			float x = meshData.getFloat(start + i * VERTEX_SIZE_BYTES);
+			float z = meshData.getFloat(start + i * VERTEX_SIZE_BYTES + 4);
+			depths.put(waterHeight - getTerrainHeight(terrainHeights, x, z));
+		}
+		depths.flip();
+	}
+
+	/**
+	 * Gets the height of the terrain vertex at a grid position. All the water
+	 * vertices are at whole-number positions, so they're always exactly on a
+	 * terrain vertex. Any water sticking out past the edge of the terrain uses
+	 * the height of the nearest edge vertex.
+	 */
+	private static float getTerrainHeight(float[][] terrainHeights, float x, float z) {
+		int maxIndex = terrainHeights.length - 1;
+		int gridX = Math.min(Math.max(Math.round(x), 0), maxIndex);
+		int gridZ = Math.min(Math.max(Math.round(z), 0), maxIndex);
+		return terrainHeights[gridZ][gridX];
+	}
+
+}
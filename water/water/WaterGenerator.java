@@ -2,8 +2,7 @@ package water;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-
-import org.lwjgl.util.vector.Vector2f;
+import java.util.Arrays;
 
 import openglObjects.Vao;
 import vertexDataStoring.DataStoring;
@@ -27,9 +26,77 @@ public class WaterGenerator {
 														// indicator
 
 	/**
-	 * Generates a water mesh of a given size. First the total number of
-	 * vertices in the mesh is calculated. Then all the vertex data for the mesh
-	 * is generated and stored in a byte[]. A VAO is then created, and the
+	 * The furthest that the waves can move the water surface up or down (the
+	 * "waveAmplitude" in the vertex shader).
+	 */
+	public static final float MAX_WAVE_HEIGHT = WaveModel.WAVE_AMPLITUDE;
+
+	/**
+	 * The x,z offsets of the 4 corners of a grid square from the square's top
+	 * left corner. The corners are in the following order: 0 = top left, 1 =
+	 * bottom left, 2 = top right, 3 = bottom right.
+	 */
+	private static final int[] CORNER_X = { 0, 0, 1, 1 };
+	private static final int[] CORNER_Z = { 0, 1, 0, 1 };
+
+	/**
+	 * The corner used by each of the 6 vertices of a grid square. The first 3
+	 * are the left triangle and the last 3 are the right triangle.
+	 */
+	private static final int[] SQUARE_VERTEX_CORNERS = { 0, 1, 2, 2, 1, 3 };
+	private static final byte[][] SQUARE_INDICATORS = calculateSquareIndicators();
+
+	/**
+	 * Generates the water for the world in one of the {@link WaterMode}s. The
+	 * water only covers the parts of the world where the terrain dips below
+	 * the water surface.
+	 * 
+	 * @param mode
+	 *            - How the water mesh is made and rendered.
+	 * @param gridCount
+	 *            - The number of grid squares along each edge of the water.
+	 * @param patchSize
+	 *            - The number of grid squares along each edge of a patch, if
+	 *            the water is instanced.
+	 * @param height
+	 *            - The height of the water mesh in the world.
+	 * @param terrainHeights
+	 *            - The heights of the terrain's vertices.
+	 * @return The newly constructed water mesh.
+	 */
+	public static WaterTile generate(WaterMode mode, int gridCount, int patchSize, float height,
+			float[][] terrainHeights) {
+		return generate(mode, gridCount, patchSize, height, terrainHeights, true);
+	}
+
+	/**
+	 * Creates the same water as
+	 * {@link #generate(WaterMode, int, int, float, float[][])}, but without
+	 * any VAOs. This doesn't use OpenGL, so the water can be recorded (see
+	 * {@link waterRendering.WaterRenderer#recordWater}) and updated without a
+	 * display.
+	 * 
+	 * @param mode
+	 *            - How the water mesh is made and rendered.
+	 * @param gridCount
+	 *            - The number of grid squares along each edge of the water.
+	 * @param patchSize
+	 *            - The number of grid squares along each edge of a patch, if
+	 *            the water is instanced.
+	 * @param height
+	 *            - The height of the water mesh in the world.
+	 * @param terrainHeights
+	 *            - The heights of the terrain's vertices.
+	 * @return The water, without a VAO.
+	 */
+	public static WaterTile createTile(WaterMode mode, int gridCount, int patchSize, float height,
+			float[][] terrainHeights) {
+		return generate(mode, gridCount, patchSize, height, terrainHeights, false);
+	}
+
+	/**
+	 * Generates a water mesh of a given size. The vertex data for the mesh is
+	 * generated (see {@link #createMesh(int)}), then a VAO is created, and the
 	 * vertex data is stored in it.
 	 * 
 	 * @param gridCount
@@ -39,10 +106,333 @@ public class WaterGenerator {
 	 * @return The newly constructed water mesh.
 	 */
 	public static WaterTile generate(int gridCount, float height) {
+		return createTile(createMesh(gridCount), height, true);
+	}
+
+	/**
+	 * Generates a water mesh which only covers the parts of the world where
+	 * the terrain dips below the water surface (taking the height of the waves
+	 * into account). Grid squares where the terrain is always above the water
+	 * are left out completely, as the water there could never be seen. The
+	 * depth of the water under each vertex is also baked into the mesh (see
+	 * {@link WaterDepthBaker}).
+	 * 
+	 * @param gridCount
+	 *            - The number of grid squares along each edge of the mesh.
+	 * @param height
+	 *            - The height of the water mesh in the world.
+	 * @param terrainHeights
+	 *            - The heights of the terrain's vertices.
+	 * @return The newly constructed water mesh.
+	 */
+	public static WaterTile generate(int gridCount, float height, float[][] terrainHeights) {
+		return createTile(createMesh(gridCount, height, terrainHeights), height, true);
+	}
+
+	/**
+	 * Generates an instanced water mesh. Every grid square of the water is
+	 * exactly the same apart from its position, so instead of creating one
+	 * huge mesh covering the whole world, the mesh for one small patch is
+	 * created and then rendered lots of times using instancing, with each
+	 * instance offset to a different part of the world. This means the VBO
+	 * only needs to hold a few kilobytes of data, no matter how big the water
+	 * is.
+	 * 
+	 * If the size of the water isn't a multiple of the patch size then the
+	 * water will stick out a little bit past the edge of the world.
+	 * 
+	 * @param gridCount
+	 *            - The number of grid squares along each edge of the water.
+	 * @param patchSize
+	 *            - The number of grid squares along each edge of the patch.
+	 * @param height
+	 *            - The height of the water mesh in the world.
+	 * @return The newly constructed water mesh.
+	 */
+	public static WaterTile generateInstanced(int gridCount, int patchSize, float height) {
+		return generateInstanced(gridCount, patchSize, height, null);
+	}
+
+	/**
+	 * Generates an instanced water mesh, but only places patches where some
+	 * of the terrain under the patch dips below the water surface.
+	 * 
+	 * @param gridCount
+	 *            - The number of grid squares along each edge of the water.
+	 * @param patchSize
+	 *            - The number of grid squares along each edge of the patch.
+	 * @param height
+	 *            - The height of the water mesh in the world.
+	 * @param terrainHeights
+	 *            - The heights of the terrain's vertices, or null if the water
+	 *            should cover the whole area.
+	 * @return The newly constructed water mesh.
+	 */
+	public static WaterTile generateInstanced(int gridCount, int patchSize, float height, float[][] terrainHeights) {
+		return createTile(createInstancedMesh(gridCount, patchSize, height, terrainHeights), height, true);
+	}
+
+	/**
+	 * Generates a water mesh whose grid squares get bigger further away from
+	 * the camera. The mesh itself is only built when the tile is first updated
+	 * with the camera's position, and is rebuilt whenever the camera moves far
+	 * enough for the detail levels to change. If the terrain heights are given then the depth
+	 * of the water is baked into the mesh every time it gets rebuilt.
+	 * 
+	 * @param gridCount
+	 *            - The number of grid squares along each edge of the water.
+	 * @param height
+	 *            - The height of the water mesh in the world.
+	 * @param terrainHeights
+	 *            - The heights of the terrain's vertices, or null if the water
+	 *            should cover the whole area.
+	 * @return The newly constructed water mesh.
+	 */
+	public static WaterTile generateLod(int gridCount, float height, float[][] terrainHeights) {
+		return createLodTile(gridCount, height, terrainHeights, true);
+	}
+
+	/**
+	 * Creates the mesh for {@link #generate(int, float)} without loading it
+	 * to a VAO. This doesn't use OpenGL, so it can be used without a display.
+	 * 
+	 * @param gridCount
+	 *            - The number of grid squares along each edge of the mesh.
+	 * @return The water mesh.
+	 */
+	public static WaterMesh createMesh(int gridCount) {
 		int totalVertexCount = gridCount * gridCount * VERTICES_PER_SQUARE;
-		byte[] waterMeshData = createMeshData(gridCount, totalVertexCount);
-		Vao vao = VaoLoader.createWaterVao(waterMeshData);
-		return new WaterTile(vao, totalVertexCount, height);
+		byte[] waterMeshData = createMeshData(gridCount, null, totalVertexCount);
+		return new WaterMesh(waterMeshData, totalVertexCount, null, null, calculateMaskBounds(gridCount, null, 0));
+	}
+
+	/**
+	 * Creates the mesh for {@link #generate(int, float, float[][])} (including
+	 * the baked depths) without loading it to a VAO. This doesn't use OpenGL,
+	 * so it can be used without a display.
+	 * 
+	 * @param gridCount
+	 *            - The number of grid squares along each edge of the mesh.
+	 * @param height
+	 *            - The height of the water mesh in the world.
+	 * @param terrainHeights
+	 *            - The heights of the terrain's vertices.
+	 * @return The water mesh.
+	 */
+	public static WaterMesh createMesh(int gridCount, float height, float[][] terrainHeights) {
+		WaterMask mask = new WaterMask(terrainHeights, height + MAX_WAVE_HEIGHT);
+		int totalVertexCount = countWaterSquares(gridCount, mask) * VERTICES_PER_SQUARE;
+		byte[] waterMeshData = createMeshData(gridCount, mask, totalVertexCount);
+		float[] depths = WaterDepthBaker.bakeDepths(waterMeshData, height, terrainHeights);
+		return new WaterMesh(waterMeshData, totalVertexCount, depths, null, calculateMaskBounds(gridCount, mask, 0));
+	}
+
+	/**
+	 * Creates the patch mesh and instance offsets for
+	 * {@link #generateInstanced(int, int, float, float[][])} without loading
+	 * them to a VAO. This doesn't use OpenGL, so it can be used without a
+	 * display.
+	 * 
+	 * @param gridCount
+	 *            - The number of grid squares along each edge of the water.
+	 * @param patchSize
+	 *            - The number of grid squares along each edge of the patch.
+	 * @param height
+	 *            - The height of the water mesh in the world.
+	 * @param terrainHeights
+	 *            - The heights of the terrain's vertices, or null if the water
+	 *            should cover the whole area.
+	 * @return The water mesh.
+	 */
+	public static WaterMesh createInstancedMesh(int gridCount, int patchSize, float height, float[][] terrainHeights) {
+		WaterMask mask = terrainHeights == null ? null : new WaterMask(terrainHeights, height + MAX_WAVE_HEIGHT);
+		int patchVertexCount = patchSize * patchSize * VERTICES_PER_SQUARE;
+		byte[] patchMeshData = createMeshData(patchSize, null, patchVertexCount);
+		float[] instanceOffsets = createInstanceOffsets(gridCount, patchSize, mask);
+		return new WaterMesh(patchMeshData, patchVertexCount, null, instanceOffsets,
+				calculateInstanceBounds(instanceOffsets, patchSize));
+	}
+
+	private static WaterTile generate(WaterMode mode, int gridCount, int patchSize, float height,
+			float[][] terrainHeights, boolean createVao) {
+		switch (mode) {
+		case LOD:
+			return createLodTile(gridCount, height, terrainHeights, createVao);
+		case INSTANCED:
+			return createTile(createInstancedMesh(gridCount, patchSize, height, terrainHeights), height, createVao);
+		default:
+			return createTile(createMesh(gridCount, height, terrainHeights), height, createVao);
+		}
+	}
+
+	/**
+	 * Sets up the water for {@link #generateLod(int, float, float[][])}.
+	 * 
+	 * @param createVao
+	 *            - Whether the mesh should be stored in a VAO every time it
+	 *            gets rebuilt.
+	 */
+	private static WaterTile createLodTile(int gridCount, float height, float[][] terrainHeights,
+			boolean createVao) {
+		WaterMask mask = terrainHeights == null ? null : new WaterMask(terrainHeights, height + MAX_WAVE_HEIGHT);
+		WaterTile water = new LodWaterTile(new WaterLodBuilder(gridCount, mask), height, terrainHeights, createVao);
+		// big grid squares at the edge can stick out a bit
+		float[] bounds = calculateMaskBounds(gridCount, mask, WaterLodBuilder.MAX_CELL_SIZE);
+		water.setBounds(bounds[0], bounds[1], bounds[2], bounds[3]);
+		return water;
+	}
+
+	/**
+	 * Loads a water mesh up to a VAO, using whichever layout the mesh needs.
+	 * 
+	 * @param mesh
+	 *            - The mesh.
+	 * @param height
+	 *            - The height of the water mesh in the world.
+	 * @param createVao
+	 *            - Whether the mesh should be loaded to a VAO at all. If not,
+	 *            the water only knows how many vertices and instances it has.
+	 * @return The water.
+	 */
+	private static WaterTile createTile(WaterMesh mesh, float height, boolean createVao) {
+		WaterTile water;
+		if (!createVao) {
+			int instanceCount = mesh.isInstanced() ? mesh.getInstanceOffsets().length / 2 : 0;
+			water = new WaterTile(null, mesh.getVertexCount(), height, instanceCount, mesh.getDepths() != null);
+		} else if (mesh.isInstanced()) {
+			Vao vao = VaoLoader.createInstancedWaterVao(mesh.getVertexData(), mesh.getInstanceOffsets());
+			water = new WaterTile(vao, mesh.getVertexCount(), height, mesh.getInstanceOffsets().length / 2);
+		} else if (mesh.getDepths() != null) {
+			Vao vao = VaoLoader.createWaterVao(mesh.getVertexData(), mesh.getDepths());
+			water = new WaterTile(vao, mesh.getVertexCount(), height, 0, true);
+		} else {
+			Vao vao = VaoLoader.createWaterVao(mesh.getVertexData());
+			water = new WaterTile(vao, mesh.getVertexCount(), height);
+		}
+		float[] bounds = mesh.getBounds();
+		water.setBounds(bounds[0], bounds[1], bounds[2], bounds[3]);
+		return water;
+	}
+
+	/**
+	 * Works out the area covered by the grid squares which need water.
+	 * 
+	 * @param gridCount
+	 *            - The number of grid squares along each edge of the water.
+	 * @param mask
+	 *            - Indicates where water is needed. Can be null, in which case
+	 *            the whole area is covered.
+	 * @param padding
+	 *            - How far past the edges of the grid squares the mesh might
+	 *            stick out.
+	 * @return The min x, min z, max x and max z of the area.
+	 */
+	private static float[] calculateMaskBounds(int gridCount, WaterMask mask, float padding) {
+		int minX = mask == null ? 0 : gridCount;
+		int minZ = mask == null ? 0 : gridCount;
+		int maxX = mask == null ? gridCount : 0;
+		int maxZ = mask == null ? gridCount : 0;
+		if (mask != null) {
+			for (int row = 0; row < gridCount; row++) {
+				for (int col = 0; col < gridCount; col++) {
+					if (mask.needsWater(col, row)) {
+						minX = Math.min(minX, col);
+						minZ = Math.min(minZ, row);
+						maxX = Math.max(maxX, col + 1);
+						maxZ = Math.max(maxZ, row + 1);
+					}
+				}
+			}
+		}
+		if (minX > maxX) {
+			return new float[] { 0, 0, 0, 0 };
+		}
+		return new float[] { minX - padding, minZ - padding, maxX + padding, maxZ + padding };
+	}
+
+	/**
+	 * Works out the area covered by all the patches of instanced water.
+	 */
+	private static float[] calculateInstanceBounds(float[] instanceOffsets, int patchSize) {
+		if (instanceOffsets.length == 0) {
+			return new float[] { 0, 0, 0, 0 };
+		}
+		float minX = Float.POSITIVE_INFINITY;
+		float minZ = Float.POSITIVE_INFINITY;
+		float maxX = Float.NEGATIVE_INFINITY;
+		float maxZ = Float.NEGATIVE_INFINITY;
+		for (int i = 0; i < instanceOffsets.length; i += 2) {
+			minX = Math.min(minX, instanceOffsets[i]);
+			minZ = Math.min(minZ, instanceOffsets[i + 1]);
+			maxX = Math.max(maxX, instanceOffsets[i] + patchSize);
+			maxZ = Math.max(maxZ, instanceOffsets[i + 1] + patchSize);
+		}
+		return new float[] { minX, minZ, maxX, maxZ };
+	}
+
+	/**
+	 * Calculates the x,z offsets of all the patch instances needed to cover the
+	 * water area.
+	 * 
+	 * @param gridCount
+	 *            - The number of grid squares along each edge of the water.
+	 * @param patchSize
+	 *            - The number of grid squares along each edge of a patch.
+	 * @param mask
+	 *            - Indicates where water is needed. Can be null, in which case
+	 *            patches cover the whole area.
+	 * @return The x,z offset of each instance.
+	 */
+	private static float[] createInstanceOffsets(int gridCount, int patchSize, WaterMask mask) {
+		int patchesPerSide = (gridCount + patchSize - 1) / patchSize;
+		float[] offsets = new float[patchesPerSide * patchesPerSide * 2];
+		int pointer = 0;
+		for (int row = 0; row < patchesPerSide; row++) {
+			for (int col = 0; col < patchesPerSide; col++) {
+				if (mask == null || mask.needsWater(col * patchSize, row * patchSize, patchSize)) {
+					offsets[pointer++] = col * patchSize;
+					offsets[pointer++] = row * patchSize;
+				}
+			}
+		}
+		return pointer == offsets.length ? offsets : Arrays.copyOf(offsets, pointer);
+	}
+
+	/**
+	 * Counts the grid squares that need water.
+	 * 
+	 * @param gridCount
+	 *            - The number of grid squares along each edge of the mesh.
+	 * @param mask
+	 *            - Indicates where water is needed.
+	 * @return The number of grid squares which need water.
+	 */
+	private static int countWaterSquares(int gridCount, WaterMask mask) {
+		int count = 0;
+		for (int row = 0; row < gridCount; row++) {
+			for (int col = 0; col < gridCount; col++) {
+				if (mask.needsWater(col, row)) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Generates all the vertex data for a water mesh. This doesn't use OpenGL,
+	 * so it can be used without a display.
+	 * 
+	 * @param gridCount
+	 *            - The number of grid squares along one edge of the mesh.
+	 * @param mask
+	 *            - Indicates which grid squares need water. If this is null
+	 *            then every grid square is stored.
+	 * @return The vertex data (stored as bytes) for the entire mesh.
+	 */
+	public static byte[] createMeshData(int gridCount, WaterMask mask) {
+		int squareCount = mask == null ? gridCount * gridCount : countWaterSquares(gridCount, mask);
+		return createMeshData(gridCount, mask, squareCount * VERTICES_PER_SQUARE);
 	}
 
 	/**
@@ -55,26 +445,33 @@ public class WaterGenerator {
 	 * 
 	 * @param gridCount
 	 *            - The number of grid squares along one edge of the mesh.
+	 * @param mask
+	 *            - Indicates which grid squares need water. If this is null
+	 *            then every grid square is stored.
 	 * @param totalVertexCount
 	 *            - The total number of vertices that will be in the mesh.
 	 * @return The vertex data (stored as bytes) for the entire mesh.
 	 */
-	private static byte[] createMeshData(int gridCount, int totalVertexCount) {
+	private static byte[] createMeshData(int gridCount, WaterMask mask, int totalVertexCount) {
 		int byteSize = VERTEX_SIZE_BYTES * totalVertexCount;
 		ByteBuffer buffer = ByteBuffer.allocate(byteSize).order(ByteOrder.nativeOrder());
 		for (int row = 0; row < gridCount; row++) {
 			for (int col = 0; col < gridCount; col++) {
-				storeGridSquare(col, row, buffer);
+				if (mask == null || mask.needsWater(col, row)) {
+					storeGridSquare(col, row, buffer);
+				}
 			}
 		}
 		return buffer.array();
 	}
 
 	/**
-	 * Generates all the vertex data for a grid square. The corner positions of
-	 * the grid square are calculated and then the data for the two triangles in
-	 * this square is stored. Note that the data for the two triangles is stored
-	 * separately, meaning that the data for 6 vertices is stored.
+	 * Stores the vertex data for the two triangles of a grid square. Every grid
+	 * square is exactly the same apart from its position, so the corner used
+	 * by each of the 6 vertices and the indicator bytes of each vertex are
+	 * looked up from the precomputed tables, and only the position needs
+	 * working out. Nothing gets allocated here, which makes a big difference
+	 * when generating large oceans.
 	 * 
 	 * @param col
 	 *            - The column number of this grid square in the grid.
@@ -84,101 +481,40 @@ public class WaterGenerator {
 	 *            - The buffer where all the vertex data is being collected.
 	 */
 	private static void storeGridSquare(int col, int row, ByteBuffer buffer) {
-		Vector2f[] cornerPos = calculateCornerPositions(col, row);
-		storeTriangle(cornerPos, buffer, true);
-		storeTriangle(cornerPos, buffer, false);
+		for (int i = 0; i < VERTICES_PER_SQUARE; i++) {
+			int corner = SQUARE_VERTEX_CORNERS[i];
+			DataStoring.packVertexData(col + CORNER_X[corner], row + CORNER_Z[corner], SQUARE_INDICATORS[i], buffer);
+		}
 	}
 
 	/**
-	 * Stores the vertex data for a given triangle of the mesh into the
-	 * ByteBuffer. First it is determined which 3 of the vertices of the current
-	 * grid square make up the triangle. The indexes for a grid square are as
-	 * follows:
-	 * 
-	 * 0 = top left, 1 = bottom left, 2 = top right, 3 = bottom right.
+	 * Works out the 4 indicator values for each of the 6 vertices in a grid
+	 * square. This is done by calculating the vector from the current vertex
+	 * to each of the other two vertices in the current triangle. The offsets
+	 * are then stored as bytes (not converted to bytes, but simply cast to
+	 * bytes). The size of each grid square must be an integer value for this
+	 * to work, otherwise the offsets wouldn't be able to be represented
+	 * correctly as bytes.
 	 * 
-	 * This is the order that the corner positions are stored in the "cornerPos"
-	 * array.
+	 * The vertices of each triangle are stored in the order that they appear
+	 * in {@link #SQUARE_VERTEX_CORNERS}, and for each vertex the "next" vertex
+	 * in the triangle is used for the first offset, and the one after that for
+	 * the second offset.
 	 * 
-	 * Once it has been determined which 3 vertices make up the triangle, the
-	 * vertex data for those 3 vertices is stored in the ByteBuffer. For each
-	 * vertex the x,z position is stored, along with the 4 indicator values.
-	 * 
-	 * @param cornerPos
-	 *            - The 4 corner positions for the current grid square, stored
-	 *            in the order specified above.
-	 * @param buffer
-	 *            - The buffer containing all the vertex data for the mesh.
-	 * @param left
-	 *            - Indicates whether the triangle being stored is the triangle
-	 *            on the left or the right of the current grid square.
+	 * @return The 4 indicator bytes for each vertex in a grid square.
 	 */
-	private static void storeTriangle(Vector2f[] cornerPos, ByteBuffer buffer, boolean left) {
-		int index0 = left ? 0 : 2;
-		int index1 = 1;
-		int index2 = left ? 2 : 3;
-		DataStoring.packVertexData(cornerPos[index0], getIndicators(index0, cornerPos, index1, index2), buffer);
-		DataStoring.packVertexData(cornerPos[index1], getIndicators(index1, cornerPos, index2, index0), buffer);
-		DataStoring.packVertexData(cornerPos[index2], getIndicators(index2, cornerPos, index0, index1), buffer);
-	}
-
-	/**
-	 * Calculates the x,z positions of the 4 corners of a grid square.
-	 * 
-	 * @param col
-	 *            - The column number of the grid square.
-	 * @param row
-	 *            - The row number of the grid square.
-	 * @return An array contain 4 positions. Each 2D position is the x,z
-	 *         position of one of the corners. The corners are stored in the
-	 *         following order: 0 = top left, 1 = bottom left, 2 = top right, 3
-	 *         = bottom right
-	 */
-	private static Vector2f[] calculateCornerPositions(int col, int row) {
-		Vector2f[] vertices = new Vector2f[4];
-		vertices[0] = new Vector2f(col, row);
-		vertices[1] = new Vector2f(col, row + 1);
-		vertices[2] = new Vector2f(col + 1, row);
-		vertices[3] = new Vector2f(col + 1, row + 1);
-		return vertices;
-	}
-
-	/**
-	 * Gets the 4 indicator values for a certain vertex. This is done by
-	 * calculating the vector from the current vertex to each of the other two
-	 * vertices in the current triangle.
-	 * 
-	 * The 3 vertex positions are taken from the "vertexPositions" array, and
-	 * then the offset vectors are calculated by subtracting the current vertex
-	 * position from the other vertex position.
-	 * 
-	 * The offsets are then stored in an array as bytes (not converted to bytes,
-	 * but simply cast to bytes) and returned. The size of each grid square must
-	 * be an integer value for this to work, otherwise the offsets wouldn't be
-	 * able to be represented correctly as bytes.
-	 * 
-	 * @param currentVertex
-	 *            - The index of the current vertex in the current grid square
-	 *            (A number between 0 and 3).
-	 * @param vertexPositions
-	 *            - The 4 corner positions of the current grid square, stored in
-	 *            the following order: 0 = top left, 1 = bottom left, 2 = top
-	 *            right, 3 = bottom right
-	 * @param vertex1
-	 *            - The index of one of the other vertices in the triangle
-	 *            (number between 0 and 3).
-	 * @param vertex2
-	 *            - The index of the other vertex in the triangle (number
-	 *            between 0 and 3).
-	 * @return
-	 */
-	private static byte[] getIndicators(int currentVertex, Vector2f[] vertexPositions, int vertex1, int vertex2) {
-		Vector2f currentVertexPos = vertexPositions[currentVertex];
-		Vector2f vertex1Pos = vertexPositions[vertex1];
-		Vector2f vertex2Pos = vertexPositions[vertex2];
-		Vector2f offset1 = Vector2f.sub(vertex1Pos, currentVertexPos, null);
-		Vector2f offset2 = Vector2f.sub(vertex2Pos, currentVertexPos, null);
-		return new byte[] { (byte) offset1.x, (byte) offset1.y, (byte) offset2.x, (byte) offset2.y };
+	private static byte[][] calculateSquareIndicators() {
+		byte[][] indicators = new byte[VERTICES_PER_SQUARE][];
+		for (int i = 0; i < VERTICES_PER_SQUARE; i++) {
+			int triangleStart = i - (i % 3);
+			int current = SQUARE_VERTEX_CORNERS[i];
+			int vertex1 = SQUARE_VERTEX_CORNERS[triangleStart + (i + 1) % 3];
+			int vertex2 = SQUARE_VERTEX_CORNERS[triangleStart + (i + 2) % 3];
+			indicators[i] = new byte[] { (byte) (CORNER_X[vertex1] - CORNER_X[current]),
+					(byte) (CORNER_Z[vertex1] - CORNER_Z[current]), (byte) (CORNER_X[vertex2] - CORNER_X[current]),
+					(byte) (CORNER_Z[vertex2] - CORNER_Z[current]) };
+		}
+		return indicators;
 	}
 
 }
@@ -0,0 +1,401 @@
+package water;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import vertexDataStoring.DataStoring;
+
+/**
+ * Builds a water mesh where the size of the grid squares grows with the
+ * distance from the camera. Far away from the camera the waves are so small on
+ * screen that a 1x1 grid isn't needed, so this cuts down the number of
+ * vertices (each of which works out 3 distorted positions in the vertex
+ * shader) massively for big oceans.
+ *
+ * The water is split up using a quadtree. Each leaf of the quadtree is a patch
+ * of {@link #PATCH_CELLS}x{@link #PATCH_CELLS} grid squares, so bigger leaves
+ * have bigger grid squares. Nodes near the camera get split up until they
+ * reach the smallest size, which has 1x1 grid squares. The tree is then
+ * balanced so that neighbouring leaves are never more than one level apart.
+ *
+ * Where a patch is next to a bigger (coarser) patch the vertices along that
+ * edge which don't exist in the coarser patch get snapped onto the previous
+ * vertex along the edge, so that both patches share exactly the same edge and
+ * there are no cracks in the water. Any triangles squashed flat by this are
+ * left out. Because the positions of the snapped vertices are exactly the
+ * same as the ones in the coarse patch, the waves move them the same amount
+ * and the water stays watertight when it's distorted too.
+ *
+ * Choosing the leaves is cheap, so it can be done every frame, but building
+ * the mesh (and uploading it) isn't. {@link #select(float, float, float)}
+ * only reports a change when the chosen leaves are actually different, and a
+ * node which is already split only gets merged back together once the camera
+ * is a bit further away than the distance where it got split. This stops the
+ * mesh being rebuilt over and over while the camera moves back and forth
+ * around the split distance.
+ *
+ * All the grid positions are still whole numbers, so the offsets stored in the
+ * indicator bytes are still exact. The grid squares are never made bigger
+ * than {@link #MAX_CELL_SIZE}, which keeps the largest offset (two grid
+ * squares along a snapped edge) well inside the range of a byte.
+ *
+ * @author Karl
+ *
+ */
+public class WaterLodBuilder {
+
+	public static final int PATCH_CELLS = 8;
+	public static final int MIN_NODE_SIZE = PATCH_CELLS;
+	public static final int MAX_CELL_SIZE = 32;
+
+	/**
+	 * A node gets split up if the camera is closer to it than its size
+	 * multiplied by this.
+	 */
+	private static final float LOD_RANGE = 2f;
+
+	/**
+	 * A node which was split last time only gets merged again once the camera
+	 * is further away than its size multiplied by this.
+	 */
+	private static final float MERGE_RANGE = 2.5f;
+
+	static final int VERTEX_SIZE_BYTES = 8 + 4;
+	private static final int VERTICES_PER_SQUARE = 6;
+
+	private static final int[] CORNER_X = { 0, 0, 1, 1 };
+	private static final int[] CORNER_Z = { 0, 1, 0, 1 };
+	private static final int[] SQUARE_VERTEX_CORNERS = { 0, 1, 2, 2, 1, 3 };
+
+	private final int gridCount;
+	private final int rootSize;
+	private final int slotsPerSide;
+	private final WaterMask mask;
+
+	/**
+	 * The size of the leaf covering each {@link #MIN_NODE_SIZE} sized slot of
+	 * the water, or 0 for slots outside of the water.
+	 */
+	private final int[] slotLeafSizes;
+
+	/**
+	 * The slot leaf sizes of the last selection, or all 0 if nothing has been
+	 * selected yet.
+	 */
+	private final int[] selectedLeafSizes;
+
+	private int[] leafX = new int[64];
+	private int[] leafZ = new int[64];
+	private int[] leafSize = new int[64];
+	private int leafCount = 0;
+
+	private final int[] cornerX = new int[4];
+	private final int[] cornerZ = new int[4];
+	private final byte[] indicators = new byte[4];
+	private ByteBuffer buffer = ByteBuffer.allocateDirect(0);
+
+	/**
+	 * @param gridCount
+	 *            - The number of 1x1 grid squares along each edge of the
+	 *            water.
+	 * @param mask
+	 *            - Indicates where water is needed. Can be null, in which case
+	 *            the whole area is covered.
+	 */
+	public WaterLodBuilder(int gridCount, WaterMask mask) {
+		this.gridCount = gridCount;
+		this.mask = mask;
+		int size = MIN_NODE_SIZE;
+		while (size < gridCount) {
+			size *= 2;
+		}
+		this.rootSize = size;
+		this.slotsPerSide = (gridCount + MIN_NODE_SIZE - 1) / MIN_NODE_SIZE;
+		this.slotLeafSizes = new int[slotsPerSide * slotsPerSide];
+		this.selectedLeafSizes = new int[slotsPerSide * slotsPerSide];
+	}
+
+	/**
+	 * Builds the mesh data for the water as seen from a certain position. This
+	 * ignores any earlier selection, so the result only depends on the
+	 * position.
+	 *
+	 * @param cameraX
+	 *            - The x position of the camera.
+	 * @param cameraY
+	 *            - The height of the camera above the water.
+	 * @param cameraZ
+	 *            - The z position of the camera.
+	 * @return The vertex data for the mesh, in the same format as the normal
+	 *         water mesh.
+	 */
+	public byte[] build(float cameraX, float cameraY, float cameraZ) {
+		Arrays.fill(selectedLeafSizes, 0);
+		select(cameraX, cameraY, cameraZ);
+		ByteBuffer meshData = getMeshData();
+		byte[] data = new byte[meshData.remaining()];
+		meshData.get(data);
+		return data;
+	}
+
+	/**
+	 * Chooses the leaves of the quadtree for a camera position, taking the
+	 * last selection into account (see {@link #MERGE_RANGE}). Nothing is
+	 * allocated once the leaf arrays are big enough.
+	 *
+	 * @param cameraX
+	 *            - The x position of the camera.
+	 * @param cameraY
+	 *            - The height of the camera above the water.
+	 * @param cameraZ
+	 *            - The z position of the camera.
+	 * @return True if the leaves are different to the last selection, in
+	 *         which case the mesh needs building again.
+	 */
+	public boolean select(float cameraX, float cameraY, float cameraZ) {
+		leafCount = 0;
+		subdivide(0, 0, rootSize, cameraX, cameraY, cameraZ);
+		Arrays.fill(slotLeafSizes, 0);
+		for (int i = 0; i < leafCount; i++) {
+			markSlots(i);
+		}
+		balance();
+		if (Arrays.equals(slotLeafSizes, selectedLeafSizes)) {
+			return false;
+		}
+		System.arraycopy(slotLeafSizes, 0, selectedLeafSizes, 0, slotLeafSizes.length);
+		return true;
+	}
+
+	/**
+	 * Stores the mesh data for the last selection in a buffer which is reused
+	 * every time, so nothing gets allocated once the buffer is big enough. The
+	 * buffer has room for as many patches as the leaf arrays can hold, so it
+	 * only grows when they do, rather than every time the mesh gets a patch
+	 * bigger than ever before.
+	 *
+	 * @return The vertex data for the mesh, between the buffer's position and
+	 *         its limit. Only valid until this is next called.
+	 */
+	public ByteBuffer getMeshData() {
+		int maxBytes = leafX.length * PATCH_CELLS * PATCH_CELLS * VERTICES_PER_SQUARE * VERTEX_SIZE_BYTES;
+		if (buffer.capacity() < maxBytes) {
+			buffer = ByteBuffer.allocateDirect(maxBytes).order(ByteOrder.nativeOrder());
+		}
+		buffer.clear();
+		for (int i = 0; i < leafCount; i++) {
+			storePatch(i);
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * @return The number of patches in the last mesh that was built.
+	 */
+	public int getPatchCount() {
+		return leafCount;
+	}
+
+	private void subdivide(int x, int z, int size, float cameraX, float cameraY, float cameraZ) {
+		if (x >= gridCount || z >= gridCount) {
+			return;
+		}
+		if (size > MIN_NODE_SIZE && shouldSplit(x, z, size, cameraX, cameraY, cameraZ)) {
+			int half = size / 2;
+			subdivide(x, z, half, cameraX, cameraY, cameraZ);
+			subdivide(x + half, z, half, cameraX, cameraY, cameraZ);
+			subdivide(x, z + half, half, cameraX, cameraY, cameraZ);
+			subdivide(x + half, z + half, half, cameraX, cameraY, cameraZ);
+		} else {
+			addLeaf(x, z, size);
+		}
+	}
+
+	private boolean shouldSplit(int x, int z, int size, float cameraX, float cameraY, float cameraZ) {
+		if (size / PATCH_CELLS > MAX_CELL_SIZE) {
+			return true;
+		}
+		float dx = Math.max(Math.max(x - cameraX, cameraX - (x + size)), 0);
+		float dz = Math.max(Math.max(z - cameraZ, cameraZ - (z + size)), 0);
+		float distanceSqr = dx * dx + dz * dz + cameraY * cameraY;
+		float range = size * (wasSplit(x, z, size) ? MERGE_RANGE : LOD_RANGE);
+		return distanceSqr < range * range;
+	}
+
+	/**
+	 * @return True if the node was split up in the last selection.
+	 */
+	private boolean wasSplit(int x, int z, int size) {
+		int selectedSize = selectedLeafSizes[(z / MIN_NODE_SIZE) * slotsPerSide + x / MIN_NODE_SIZE];
+		return selectedSize != 0 && selectedSize < size;
+	}
+
+	/**
+	 * Splits leaves until no leaf has a neighbour which is less than half of
+	 * its size. Splitting a leaf can cause its other neighbours to need
+	 * splitting, so this keeps going until nothing changes.
+	 */
+	private void balance() {
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int i = 0; i < leafCount; i++) {
+				while (leafSize[i] > MIN_NODE_SIZE && hasSmallNeighbour(i)) {
+					splitLeaf(i);
+					changed = true;
+				}
+			}
+		}
+	}
+
+	private boolean hasSmallNeighbour(int leaf) {
+		int limit = leafSize[leaf] / 2;
+		int startX = leafX[leaf] / MIN_NODE_SIZE;
+		int startZ = leafZ[leaf] / MIN_NODE_SIZE;
+		int slots = leafSize[leaf] / MIN_NODE_SIZE;
+		for (int i = 0; i < slots; i++) {
+			if (isSmallerThan(startX - 1, startZ + i, limit) || isSmallerThan(startX + slots, startZ + i, limit)
+					|| isSmallerThan(startX + i, startZ - 1, limit) || isSmallerThan(startX + i, startZ + slots, limit)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isSmallerThan(int slotX, int slotZ, int size) {
+		int slotSize = getSlotLeafSize(slotX, slotZ);
+		return slotSize != 0 && slotSize < size;
+	}
+
+	/**
+	 * Replaces a leaf with its first quarter, and adds the other 3 quarters to
+	 * the end of the list.
+	 */
+	private void splitLeaf(int leaf) {
+		int x = leafX[leaf];
+		int z = leafZ[leaf];
+		int half = leafSize[leaf] / 2;
+		leafSize[leaf] = half;
+		markSlots(leaf);
+		addSplitChild(x + half, z, half);
+		addSplitChild(x, z + half, half);
+		addSplitChild(x + half, z + half, half);
+	}
+
+	private void addSplitChild(int x, int z, int size) {
+		if (x < gridCount && z < gridCount) {
+			addLeaf(x, z, size);
+			markSlots(leafCount - 1);
+		}
+	}
+
+	private void addLeaf(int x, int z, int size) {
+		if (leafCount == leafX.length) {
+			leafX = Arrays.copyOf(leafX, leafCount * 2);
+			leafZ = Arrays.copyOf(leafZ, leafCount * 2);
+			leafSize = Arrays.copyOf(leafSize, leafCount * 2);
+		}
+		leafX[leafCount] = x;
+		leafZ[leafCount] = z;
+		leafSize[leafCount] = size;
+		leafCount++;
+	}
+
+	private void markSlots(int leaf) {
+		int startX = leafX[leaf] / MIN_NODE_SIZE;
+		int startZ = leafZ[leaf] / MIN_NODE_SIZE;
+		int endX = Math.min(startX + leafSize[leaf] / MIN_NODE_SIZE, slotsPerSide);
+		int endZ = Math.min(startZ + leafSize[leaf] / MIN_NODE_SIZE, slotsPerSide);
+		for (int slotZ = startZ; slotZ < endZ; slotZ++) {
+			for (int slotX = startX; slotX < endX; slotX++) {
+				slotLeafSizes[slotZ * slotsPerSide + slotX] = leafSize[leaf];
+			}
+		}
+	}
+
+	private int getSlotLeafSize(int slotX, int slotZ) {
+		if (slotX < 0 || slotZ < 0 || slotX >= slotsPerSide || slotZ >= slotsPerSide) {
+			return 0;
+		}
+		return slotLeafSizes[slotZ * slotsPerSide + slotX];
+	}
+
+	/**
+	 * Stores all the grid squares of a patch. The edges of the patch which are
+	 * next to a coarser patch are found first, so that the vertices along them
+	 * can be snapped.
+	 */
+	private void storePatch(int leaf) {
+		int x = leafX[leaf];
+		int z = leafZ[leaf];
+		int size = leafSize[leaf];
+		int cellSize = size / PATCH_CELLS;
+		int slotX = x / MIN_NODE_SIZE;
+		int slotZ = z / MIN_NODE_SIZE;
+		int slots = size / MIN_NODE_SIZE;
+		boolean left = getSlotLeafSize(slotX - 1, slotZ) > size;
+		boolean right = getSlotLeafSize(slotX + slots, slotZ) > size;
+		boolean top = getSlotLeafSize(slotX, slotZ - 1) > size;
+		boolean bottom = getSlotLeafSize(slotX, slotZ + slots) > size;
+		for (int row = 0; row < PATCH_CELLS; row++) {
+			for (int col = 0; col < PATCH_CELLS; col++) {
+				int cellX = x + col * cellSize;
+				int cellZ = z + row * cellSize;
+				if (cellX >= gridCount || cellZ >= gridCount) {
+					continue;
+				}
+				if (mask != null && !mask.needsWater(cellX, cellZ, cellSize)) {
+					continue;
+				}
+				for (int corner = 0; corner < 4; corner++) {
+					int col2 = col + CORNER_X[corner];
+					int row2 = row + CORNER_Z[corner];
+					if (((left && col2 == 0) || (right && col2 == PATCH_CELLS)) && row2 % 2 == 1) {
+						row2--;
+					} else if (((top && row2 == 0) || (bottom && row2 == PATCH_CELLS)) && col2 % 2 == 1) {
+						col2--;
+					}
+					cornerX[corner] = x + col2 * cellSize;
+					cornerZ[corner] = z + row2 * cellSize;
+				}
+				storeTriangle(0);
+				storeTriangle(3);
+			}
+		}
+	}
+
+	/**
+	 * Stores the 3 vertices of a triangle in the current grid square, unless
+	 * the snapping has moved two of its vertices to the same place. In the
+	 * corner of a patch where two of its edges have been snapped a triangle
+	 * can end up with all 3 vertices in a line. That triangle has to be kept,
+	 * because once the waves have moved its vertices it fills the gap between
+	 * the triangles on either side of it.
+	 */
+	private void storeTriangle(int start) {
+		int a = SQUARE_VERTEX_CORNERS[start];
+		int b = SQUARE_VERTEX_CORNERS[start + 1];
+		int c = SQUARE_VERTEX_CORNERS[start + 2];
+		if (isSamePoint(a, b) || isSamePoint(b, c) || isSamePoint(a, c)) {
+			return;
+		}
+		storeVertex(a, b, c);
+		storeVertex(b, c, a);
+		storeVertex(c, a, b);
+	}
+
+	private void storeVertex(int current, int vertex1, int vertex2) {
+		indicators[0] = (byte) (cornerX[vertex1] - cornerX[current]);
+		indicators[1] = (byte) (cornerZ[vertex1] - cornerZ[current]);
+		indicators[2] = (byte) (cornerX[vertex2] - cornerX[current]);
+		indicators[3] = (byte) (cornerZ[vertex2] - cornerZ[current]);
+		DataStoring.packVertexData(cornerX[current], cornerZ[current], indicators, buffer);
+	}
+
+	private boolean isSamePoint(int cornerA, int cornerB) {
+		return cornerX[cornerA] == cornerX[cornerB] && cornerZ[cornerA] == cornerZ[cornerB];
+	}
+
+}
@@ -0,0 +1,91 @@
+package water;
+
+/**
+ * Keeps track of which parts of the world actually need water. There's no
+ * point generating (and then vertex shading and depth testing) water in places
+ * where the terrain is always above the water surface, because the water
+ * there will never be seen. A grid square needs water if any of the terrain
+ * around it (the vertices of the square itself and of the squares surrounding
+ * it) dips below the highest point that the waves can reach.
+ * 
+ * A summed-area table of the "low" grid squares is stored so that any square
+ * area of the world can be checked for water with just a few lookups.
+ * 
+ * @author Karl
+ *
+ */
+public class WaterMask {
+
+	private final int gridSize;
+	private final int[] lowSquareSums;
+
+	/**
+	 * @param terrainHeights
+	 *            - The heights of all the terrain's vertices.
+	 * @param maxWaterHeight
+	 *            - The highest height that the water surface can reach.
+	 */
+	public WaterMask(float[][] terrainHeights, float maxWaterHeight) {
+		this.gridSize = terrainHeights.length - 1;
+		this.lowSquareSums = new int[(gridSize + 1) * (gridSize + 1)];
+		calculateSums(terrainHeights, maxWaterHeight);
+	}
+
+	/**
+	 * Checks if any grid square in a square area needs water.
+	 * 
+	 * @param x
+	 *            - The x position of the area's top left grid square.
+	 * @param z
+	 *            - The z position of the area's top left grid square.
+	 * @param size
+	 *            - The number of grid squares along each edge of the area.
+	 * @return True if water is needed somewhere in the area.
+	 */
+	public boolean needsWater(int x, int z, int size) {
+		if (x + size > gridSize || z + size > gridSize || x < 0 || z < 0) {
+			// no terrain outside of the terrain's grid to hide the water
+			return true;
+		}
+		int startX = Math.max(x - 1, 0);
+		int startZ = Math.max(z - 1, 0);
+		int endX = Math.min(x + size + 1, gridSize);
+		int endZ = Math.min(z + size + 1, gridSize);
+		return getSum(endX, endZ) - getSum(startX, endZ) - getSum(endX, startZ) + getSum(startX, startZ) > 0;
+	}
+
+	/**
+	 * Checks if a single grid square needs water.
+	 */
+	public boolean needsWater(int x, int z) {
+		return needsWater(x, z, 1);
+	}
+
+	/**
+	 * Fills in the summed-area table. Each entry holds the number of low grid
+	 * squares above and to the left of that point. A low grid square is one
+	 * that has at least one corner below the max water height.
+	 */
+	private void calculateSums(float[][] heights, float maxWaterHeight) {
+		int stride = gridSize + 1;
+		for (int z = 0; z < gridSize; z++) {
+			int rowSum = 0;
+			for (int x = 0; x < gridSize; x++) {
+				if (isLow(heights, x, z, maxWaterHeight)) {
+					rowSum++;
+				}
+				lowSquareSums[(z + 1) * stride + x + 1] = lowSquareSums[z * stride + x + 1] + rowSum;
+			}
+		}
+	}
+
+	private static boolean isLow(float[][] heights, int x, int z, float maxWaterHeight) {
+		return heights[z][x] < maxWaterHeight || heights[z + 1][x] < maxWaterHeight
+				|| heights[z][x + 1] < maxWaterHeight || heights[z + 1][x + 1] < maxWaterHeight;
+	}
+
+	private int getSum(int x, int z) {
+		return lowSquareSums[z * (gridSize + 1) + x];
+	}
+
+}
@@ -0,0 +1,79 @@
+package water;
+
+/**
+ * Everything that gets generated for a water mesh before it's loaded up to a
+ * VAO: the vertex data, the depth of the water under each vertex (if the depth
+ * is baked in), the offsets of the instances (if the mesh is instanced), and
+ * the area of the world that the water covers. None of this needs OpenGL, so
+ * water meshes can be generated (and checked) without a display.
+ *
+ * @author Karl
+ *
+ */
+public class WaterMesh {
+
+	private final byte[] vertexData;
+	private final int vertexCount;
+	private final float[] depths;
+	private final float[] instanceOffsets;
+	private final float[] bounds;
+
+	/**
+	 * @param vertexData
+	 *            - The vertex data, in the format that gets stored in the VAO.
+	 * @param vertexCount
+	 *            - The number of vertices in the mesh.
+	 * @param depths
+	 *            - The depth of the water under each vertex, or null if the
+	 *            depth isn't baked in.
+	 * @param instanceOffsets
+	 *            - The x,z offset of each instance of the mesh, or null if the
+	 *            mesh isn't instanced.
+	 * @param bounds
+	 *            - The min x, min z, max x and max z of the area covered.
+	 */
+	public WaterMesh(byte[] vertexData, int vertexCount, float[] depths, float[] instanceOffsets, float[] bounds) {
+		this.vertexData = vertexData;
+		this.vertexCount = vertexCount;
+		this.depths = depths;
+		this.instanceOffsets = instanceOffsets;
+		this.bounds = bounds;
+	}
+
+	public byte[] getVertexData() {
+		return vertexData;
+	}
+
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	/**
+	 * @return The depth of the water under each vertex, or null if the depth
+	 *         isn't baked in.
+	 */
+	public float[] getDepths() {
+		return depths;
+	}
+
+	/**
+	 * @return The x,z offset of each instance, or null if the mesh isn't
+	 *         instanced.
+	 */
+	public float[] getInstanceOffsets() {
+		return instanceOffsets;
+	}
+
+	public boolean isInstanced() {
+		return instanceOffsets != null;
+	}
+
+	/**
+	 * @return The min x, min z, max x and max z of the area covered by the
+	 *         water.
+	 */
+	public float[] getBounds() {
+		return bounds;
+	}
+
+}
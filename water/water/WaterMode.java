@@ -0,0 +1,29 @@
+package water;
+
+/**
+ * The different ways that the water mesh can be generated and rendered (see
+ * {@link WaterGenerator#generate(WaterMode, int, int, float, float[][])}).
+ * 
+ * @author Karl
+ *
+ */
+public enum WaterMode {
+
+	/**
+	 * One mesh covering all the water in full detail, with the depth of the
+	 * water baked into it.
+	 */
+	FULL,
+
+	/**
+	 * One small patch which is rendered lots of times using instancing.
+	 */
+	INSTANCED,
+
+	/**
+	 * One mesh whose grid squares get bigger further away from the camera,
+	 * with the depth of the water baked into it.
+	 */
+	LOD;
+
+}
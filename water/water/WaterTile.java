@@ -1,5 +1,7 @@
 package water;
 
+import org.lwjgl.util.vector.Vector3f;
+
 import openglObjects.Vao;
 
 /**
@@ -15,11 +17,45 @@ public class WaterTile {
 	private final Vao vao;
 	private final int vertexCount;
 	private final float height;
+	private final int instanceCount;
+	private final boolean bakedDepth;
+
+	private boolean hasBounds = false;
+	private float minX;
+	private float minZ;
+	private float maxX;
+	private float maxZ;
 
 	protected WaterTile(Vao vao, int vertexCount, float height) {
+		this(vao, vertexCount, height, 0, false);
+	}
+
+	/**
+	 * @param instanceCount
+	 *            - The number of instances of the mesh that should be rendered,
+	 *            or 0 if the mesh isn't instanced.
+	 */
+	protected WaterTile(Vao vao, int vertexCount, float height, int instanceCount) {
+		this(vao, vertexCount, height, instanceCount, false);
+	}
+
+	/**
+	 * The VAO can be null for water that only gets recorded into command lists
+	 * without an OpenGL context (e.g. in benchmarks).
+	 * 
+	 * @param instanceCount
+	 *            - The number of instances of the mesh that should be rendered,
+	 *            or 0 if the mesh isn't instanced.
+	 * @param bakedDepth
+	 *            - Whether the VAO has the depth of the water under each vertex
+	 *            stored in it.
+	 */
+	public WaterTile(Vao vao, int vertexCount, float height, int instanceCount, boolean bakedDepth) {
 		this.vao = vao;
 		this.height = height;
 		this.vertexCount = vertexCount;
+		this.instanceCount = instanceCount;
+		this.bakedDepth = bakedDepth;
 	}
 
 	/**
@@ -37,12 +73,83 @@ public class WaterTile {
 	}
 
 	/**
-	 * @return The total number of vertices in the water mesh.
+	 * @return The total number of vertices in the water mesh. For an instanced
+	 *         mesh this is the number of vertices in one instance.
 	 */
 	public int getVertexCount() {
 		return vertexCount;
 	}
 
+	/**
+	 * @return True if the water is made up of one small patch which is
+	 *         rendered lots of times using instancing.
+	 */
+	public boolean isInstanced() {
+		return instanceCount > 0;
+	}
+
+	/**
+	 * @return The number of instances of the mesh that should be rendered.
+	 */
+	public int getInstanceCount() {
+		return instanceCount;
+	}
+
+	/**
+	 * @return True if the depth of the water under each vertex has been baked
+	 *         into the mesh, meaning the refraction depth texture isn't needed
+	 *         to render this water.
+	 */
+	public boolean hasBakedDepth() {
+		return bakedDepth;
+	}
+
+	/**
+	 * @return True if the area covered by the water is known.
+	 */
+	public boolean hasBounds() {
+		return hasBounds;
+	}
+
+	public float getMinX() {
+		return minX;
+	}
+
+	public float getMinZ() {
+		return minZ;
+	}
+
+	public float getMaxX() {
+		return maxX;
+	}
+
+	public float getMaxZ() {
+		return maxZ;
+	}
+
+	/**
+	 * Sets the area of the world that the water covers (not counting the
+	 * waves).
+	 */
+	protected void setBounds(float minX, float minZ, float maxX, float maxZ) {
+		this.hasBounds = true;
+		this.minX = minX;
+		this.minZ = minZ;
+		this.maxX = maxX;
+		this.maxZ = maxZ;
+	}
+
+	/**
+	 * Updates the water mesh for the camera's new position. The normal water
+	 * mesh covers the whole world in the same detail, so nothing needs doing
+	 * here.
+	 * 
+	 * @param cameraPosition
+	 *            - The position of the camera in the world.
+	 */
+	public void update(Vector3f cameraPosition) {
+	}
+
 	/**
 	 * Deletes the VAO when the game closes.
 	 */
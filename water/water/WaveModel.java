@@ -0,0 +1,210 @@
+package water;
+
+import org.lwjgl.util.vector.Vector3f;
+
+/**
+ * A CPU copy of the wave calculations in the water vertex shader, so that the
+ * height of the water surface can be found at any point in the world (e.g. for
+ * making things float). The calculations here must be kept exactly the same as
+ * "generateOffset" and "applyDistortion" in waterVertex.glsl, and all the
+ * maths is done with floats in the same order as the shader does it.
+ *
+ * In the shader every vertex of the grid gets moved in all 3 directions, so
+ * the triangle that ends up over a point isn't necessarily the one that was
+ * over it before the waves moved it (the vertices can move up to
+ * {@link #WAVE_AMPLITUDE} sideways along each axis). To find the height at a
+ * point the grid triangles around it are moved in the same way as in the
+ * shader, and the height is interpolated across the moved triangle that the
+ * point is under. This uses the same triangles as the full detail (1x1) water
+ * mesh. The LOD water mesh uses bigger triangles far from the camera, so out
+ * there the rendered water won't match this exactly.
+ *
+ * @author Karl
+ *
+ */
+public class WaveModel {
+
+	public static final float WAVE_LENGTH = 4.0f;
+	public static final float WAVE_AMPLITUDE = 0.2f;
+
+	private static final int[] CORNER_X = { 0, 0, 1, 1 };
+	private static final int[] CORNER_Z = { 0, 1, 0, 1 };
+
+	/**
+	 * The corners of the two triangles in a grid square, in the same order as
+	 * in the water mesh.
+	 */
+	private static final int[] TRIANGLE_CORNERS = { 0, 1, 2, 2, 1, 3 };
+
+	private final float height;
+	private float waveTime = 0;
+
+	private final float[] cornerX = new float[4];
+	private final float[] cornerY = new float[4];
+	private final float[] cornerZ = new float[4];
+	private float bestHeight;
+	private float bestInside;
+
+	/**
+	 * @param height
+	 *            - The height of the water when it's undisturbed.
+	 */
+	public WaveModel(float height) {
+		this.height = height;
+	}
+
+	/**
+	 * Sets the current wave time. This should be the same value that is being
+	 * loaded up to the "waveTime" uniform in the water shader.
+	 *
+	 * @param waveTime
+	 *            - The wave time.
+	 */
+	public void setWaveTime(float waveTime) {
+		this.waveTime = waveTime;
+	}
+
+	public float getWaveTime() {
+		return waveTime;
+	}
+
+	public float getBaseHeight() {
+		return height;
+	}
+
+	/**
+	 * Works out the height of the water surface at a point in the world. The
+	 * grid square that the point is in gets checked first, which is nearly
+	 * always where the point ends up. If the waves have moved the triangles
+	 * away from the point then the 8 grid squares around it are checked too.
+	 * Nothing is allocated, but this means that a WaveModel shouldn't be used
+	 * by more than one thread at a time.
+	 *
+	 * @param x
+	 *            - The x coordinate of the point.
+	 * @param z
+	 *            - The z coordinate of the point.
+	 * @return The height of the water surface.
+	 */
+	public float getHeight(float x, float z) {
+		int gridX = (int) Math.floor(x);
+		int gridZ = (int) Math.floor(z);
+		bestInside = Float.NEGATIVE_INFINITY;
+		testGridSquare(gridX, gridZ, x, z);
+		if (bestInside >= 0) {
+			return bestHeight;
+		}
+		for (int squareZ = gridZ - 1; squareZ <= gridZ + 1; squareZ++) {
+			for (int squareX = gridX - 1; squareX <= gridX + 1; squareX++) {
+				if (squareX != gridX || squareZ != gridZ) {
+					testGridSquare(squareX, squareZ, x, z);
+				}
+			}
+		}
+		return bestHeight;
+	}
+
+	/**
+	 * Works out the height of the water surface at lots of points at once.
+	 * Nothing is allocated, so this can be called every update for lots of
+	 * floating objects.
+	 *
+	 * @param xs
+	 *            - The x coordinates of the points.
+	 * @param zs
+	 *            - The z coordinates of the points.
+	 * @param out
+	 *            - The array that the heights get stored in.
+	 * @throws IllegalArgumentException
+	 *             If the three arrays aren't all the same length.
+	 */
+	public void sampleHeights(float[] xs, float[] zs, float[] out) {
+		if (zs.length != xs.length || out.length != xs.length) {
+			throw new IllegalArgumentException("Different numbers of x coords (" + xs.length + "), z coords ("
+					+ zs.length + ") and heights (" + out.length + ").");
+		}
+		for (int i = 0; i < xs.length; i++) {
+			out[i] = getHeight(xs[i], zs[i]);
+		}
+	}
+
+	/**
+	 * Moves a grid vertex of the water mesh in the same way as
+	 * "applyDistortion" in the vertex shader.
+	 *
+	 * @param gridX
+	 *            - The x coordinate of the grid vertex.
+	 * @param gridZ
+	 *            - The z coordinate of the grid vertex.
+	 * @param dest
+	 *            - The vector that the moved position gets stored in. A new one
+	 *            is created if this is null.
+	 * @return The position of the vertex after the waves have moved it.
+	 */
+	public Vector3f getDistortedVertex(float gridX, float gridZ, Vector3f dest) {
+		if (dest == null) {
+			dest = new Vector3f();
+		}
+		float xDistortion = generateOffset(gridX, gridZ, 0.2f, 0.1f);
+		float yDistortion = generateOffset(gridX, gridZ, 0.1f, 0.3f);
+		float zDistortion = generateOffset(gridX, gridZ, 0.15f, 0.2f);
+		dest.set(gridX + xDistortion, height + yDistortion, gridZ + zDistortion);
+		return dest;
+	}
+
+	/**
+	 * Moves the 4 corners of a grid square in the same way as the shader, and
+	 * tests the point against the square's two triangles. The triangle that
+	 * the point is furthest inside of is remembered, along with the height of
+	 * the triangle at the point. Being inside means that all 3 barycentric
+	 * coordinates are positive, so the triangle with the highest smallest
+	 * coordinate is the best match (if the point is right on an edge, rounding
+	 * could otherwise make it miss both triangles).
+	 */
+	private void testGridSquare(int gridX, int gridZ, float x, float z) {
+		for (int i = 0; i < 4; i++) {
+			float vertexX = gridX + CORNER_X[i];
+			float vertexZ = gridZ + CORNER_Z[i];
+			cornerX[i] = vertexX + generateOffset(vertexX, vertexZ, 0.2f, 0.1f);
+			cornerY[i] = height + generateOffset(vertexX, vertexZ, 0.1f, 0.3f);
+			cornerZ[i] = vertexZ + generateOffset(vertexX, vertexZ, 0.15f, 0.2f);
+		}
+		for (int i = 0; i < TRIANGLE_CORNERS.length; i += 3) {
+			testTriangle(TRIANGLE_CORNERS[i], TRIANGLE_CORNERS[i + 1], TRIANGLE_CORNERS[i + 2], x, z);
+		}
+	}
+
+	private void testTriangle(int a, int b, int c, float x, float z) {
+		float det = (cornerZ[b] - cornerZ[c]) * (cornerX[a] - cornerX[c])
+				+ (cornerX[c] - cornerX[b]) * (cornerZ[a] - cornerZ[c]);
+		float weightA = ((cornerZ[b] - cornerZ[c]) * (x - cornerX[c]) + (cornerX[c] - cornerX[b]) * (z - cornerZ[c]))
+				/ det;
+		float weightB = ((cornerZ[c] - cornerZ[a]) * (x - cornerX[c]) + (cornerX[a] - cornerX[c]) * (z - cornerZ[c]))
+				/ det;
+		float weightC = 1 - weightA - weightB;
+		float inside = Math.min(Math.min(weightA, weightB), weightC);
+		if (inside > bestInside) {
+			bestInside = inside;
+			bestHeight = weightA * cornerY[a] + weightB * cornerY[b] + weightC * cornerY[c];
+		}
+	}
+
+	/**
+	 * The same as "generateOffset" in the vertex shader.
+	 */
+	private float generateOffset(float x, float z, float val1, float val2) {
+		float radiansX = ((mod(x + z * x * val1, WAVE_LENGTH) / WAVE_LENGTH) + waveTime * mod(x * 0.8f + z, 1.5f))
+				* 2.0f * (float) Math.PI;
+		float radiansZ = ((mod(val2 * (z * x + x * z), WAVE_LENGTH) / WAVE_LENGTH) + waveTime * 2.0f * mod(x, 2.0f))
+				* 2.0f * (float) Math.PI;
+		return WAVE_AMPLITUDE * 0.5f * ((float) Math.sin(radiansZ) + (float) Math.cos(radiansX));
+	}
+
+	/**
+	 * GLSL's "mod", which (unlike Java's %) always has the same sign as y.
+	 */
+	private static float mod(float x, float y) {
+		return x - y * (float) Math.floor(x / y);
+	}
+
+}
@@ -1,29 +1,49 @@
 package waterRendering;
 
-import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL13;
-
+import commands.GlRenderBackend;
+import commands.ICommandUniforms;
+import commands.RenderCommand;
+import commands.RenderCommandList;
+import rendering.FrameGlobals;
 import rendering.ICamera;
-import rendering.Light;
-import utils.OpenGlUtils;
+import utils.IClock;
 import water.WaterTile;
+import water.WaveModel;
 
 /**
  * Simple rendering code for rendering the water mesh. Most of the work is done
  * in the shaders, so the code here is relatively basic. It mostly just involves
  * loading up a load of uniform variables to the shaders before rendering the
- * mesh.
+ * mesh. The camera matrix and the light are read from the {@link FrameGlobals}
+ * uniform block, which must be up to date before the water is drawn.
  * 
  * @author Karl
  *
  */
-public class WaterRenderer {
+public class WaterRenderer implements ICommandUniforms {
+
+	/**
+	 * How much the "waveTime" moves on per second.
+	 */
+	public static final float WAVE_SPEED = 0.12f;
 
-	private static final float WAVE_SPEED = 0.002f;
+	private static final float NANOS_PER_SECOND = 1000000000f;
+
+	private static final int CAMERA_POS = 0;
+	private static final int NEAR_FAR_PLANES = 3;
+	private static final int HEIGHT = 5;
+	private static final int WAVE_TIME = 6;
+	private static final int BAKED_DEPTH = 7;
 
 	private final WaterShader shader;
 
+	private final RenderCommandList commands = new RenderCommandList();
+	private final GlRenderBackend backend = new GlRenderBackend();
+
+	private final IClock clock = IClock.SYSTEM;
+
 	private float time = 0;
+	private long lastTime = -1;
 
 	/**
 	 * Initialises the shader program that will be used to render the water.
@@ -33,16 +53,47 @@ public class WaterRenderer {
 	}
 
 	/**
-	 * Renders the water. The render call here is "glDrawArrays" instead of
-	 * "glDrawElements" because no vertices are shared, so indices would be
-	 * pointless.
+	 * Renders the water straight away.
 	 * 
 	 * @param water
 	 *            - The water being rendered.
 	 * @param camera
 	 *            - The camera being used to render the water.
-	 * @param light
-	 *            - The light in the scene.
+	 * @param reflectionTexture
+	 *            - The reflection texture.
+	 * @param refractionTexture
+	 *            - The refraction texture.
+	 * @param depthTexture
+	 *            - An image of the depth buffer for the scene.
+	 */
+	public void render(WaterTile water, ICamera camera, int reflectionTexture, int refractionTexture,
+			int depthTexture) {
+		commands.clear();
+		record(commands, water, camera, reflectionTexture, refractionTexture, depthTexture);
+		commands.execute(backend);
+	}
+
+	/**
+	 * Adds the command for rendering the water to a command list. The draw
+	 * call is "glDrawArrays" instead of "glDrawElements" because no vertices
+	 * are shared, so indices would be pointless. Instanced water gets all its
+	 * patches rendered in one go with "glDrawArraysInstanced". The water is
+	 * drawn in the transparent layer, so that it gets drawn after the terrain
+	 * with alpha blending enabled (for the soft edges).
+	 * 
+	 * This also moves the waves on (see {@link #nextWaveTime()}), so it should
+	 * be called once per frame.
+	 * If the wave time is kept somewhere else (e.g. by a simulation running on
+	 * another thread) then
+	 * {@link #record(RenderCommandList, WaterTile, ICamera, float, int, int, int)}
+	 * should be used instead.
+	 * 
+	 * @param commandList
+	 *            - The list that the command gets added to.
+	 * @param water
+	 *            - The water being rendered.
+	 * @param camera
+	 *            - The camera being used to render the water.
 	 * @param reflectionTexture
 	 *            - The reflection texture - an image of the scene taken with an
 	 *            inverted camera. This will be applied to the water's surface
@@ -55,139 +106,133 @@ public class WaterRenderer {
 	 *            same effect could be achieved using alpha blending.
 	 * @param depthTexture
 	 *            - An image of the depth buffer for the scene. This is used to
-	 *            apply depth effects to the water.
+	 *            apply depth effects to the water. Not used if the water has
+	 *            its depth baked into the mesh.
 	 */
-	public void render(WaterTile water, ICamera camera, Light light, int reflectionTexture, int refractionTexture,
-			int depthTexture) {
-		prepare(water, camera, light);
-		bindTextures(reflectionTexture, refractionTexture, depthTexture);
-		GL11.glDrawArrays(GL11.GL_TRIANGLES, 0, water.getVertexCount());
-		finish(water);
+	public void record(RenderCommandList commandList, WaterTile water, ICamera camera, int reflectionTexture,
+			int refractionTexture, int depthTexture) {
+		record(commandList, water, camera, nextWaveTime(), reflectionTexture, refractionTexture, depthTexture);
 	}
 
 	/**
-	 * Deletes the shader program after the game closes.
+	 * Moves the waves on by the real time that has passed since this was last
+	 * called, so that the waves move at the same speed whatever the frame rate
+	 * is. Used when the renderer keeps the wave time itself.
+	 * 
+	 * @return The new "waveTime" value.
 	 */
-	public void cleanUp() {
-		shader.cleanUp();
+	public float nextWaveTime() {
+		long now = clock.nanoTime();
+		if (lastTime >= 0) {
+			time += WAVE_SPEED * (now - lastTime) / NANOS_PER_SECOND;
+		}
+		lastTime = now;
+		return time;
 	}
 
 	/**
-	 * Binds the VAO, enables alpha blending (for the soft edges) and prepares
-	 * the shader program.
+	 * Adds the command for rendering the water to a command list, with the
+	 * waves at a given point in time.
 	 * 
+	 * @param commandList
+	 *            - The list that the command gets added to.
 	 * @param water
-	 *            - The water tile.
+	 *            - The water being rendered.
 	 * @param camera
-	 *            - The scene's camera.
-	 * @param light
-	 *            - The scene's light.
-	 */
-	private void prepare(WaterTile water, ICamera camera, Light light) {
-		water.getVao().bind();
-		OpenGlUtils.enableAlphaBlending();
-		prepareShader(water, camera, light);
-	}
-
-	/**
-	 * Binds the three textures to three separate texture units.
-	 * 
+	 *            - The camera being used to render the water.
+	 * @param waveTime
+	 *            - The "waveTime" value to render the waves with.
 	 * @param reflectionTexture
-	 *            - Inverted image of the scene for simulating reflection.
+	 *            - The reflection texture.
 	 * @param refractionTexture
-	 *            - Image of the scene from cameras position to simulate
-	 *            refraction.
+	 *            - The refraction texture.
 	 * @param depthTexture
-	 *            - Image of the depth buffer of the current scene.
-	 */
-	private void bindTextures(int reflectionTexture, int refractionTexture, int depthTexture) {
-		bindTextureToUnit(reflectionTexture, WaterShader.REFLECT_TEX_UNIT);
-		bindTextureToUnit(refractionTexture, WaterShader.REFRACT_TEX_UNIT);
-		bindTextureToUnit(depthTexture, WaterShader.DEPTH_TEX_UNIT);
-	}
-
-	/**
-	 * Binds a texture to a given unit.
-	 * 
-	 * @param textureId
-	 *            - The ID of the texture object.
-	 * @param textureUnit
-	 *            - The index of the texture unit.
+	 *            - An image of the depth buffer for the scene.
 	 */
-	private void bindTextureToUnit(int textureId, int textureUnit) {
-		GL13.glActiveTexture(GL13.GL_TEXTURE0 + textureUnit);
-		GL11.glBindTexture(GL11.GL_TEXTURE_2D, textureId);
+	public void record(RenderCommandList commandList, WaterTile water, ICamera camera, float waveTime,
+			int reflectionTexture, int refractionTexture, int depthTexture) {
+		this.time = waveTime;
+		recordWater(commandList, shader.getProgramId(), water.getVao().id, this, water, camera, time,
+				reflectionTexture, refractionTexture, depthTexture);
 	}
 
 	/**
-	 * Finish rendering the water. Simply unbinds the VAO, stops the water
-	 * shader program and disables alpha blending.
-	 * 
-	 * @param water
-	 *            - The water that was being rendered.
-	 */
-	private void finish(WaterTile water) {
-		water.getVao().unbind();
-		shader.stop();
-		OpenGlUtils.disableBlending();
-	}
-
-	/**
-	 * Starts the shaders and loads up a load of uniform variables. Obviously if
-	 * the uniform values aren't changing then you don't need to load them up
-	 * every frame. E.G, if the light colour/position never changes then just
-	 * load this up once when the game starts.
+	 * Adds the command for rendering the water to a command list, using the
+	 * given IDs instead of the renderer's shader and the water's VAO. Nothing
+	 * here needs OpenGL, so the water can be recorded without a display (e.g.
+	 * to be executed by a {@link commands.RecordingRenderBackend}). Unlike
+	 * {@link #record(RenderCommandList, WaterTile, ICamera, int, int, int)}
+	 * this doesn't move the waves on.
 	 * 
+	 * @param commandList
+	 *            - The list that the command gets added to.
+	 * @param programId
+	 *            - The ID of the water shader program.
+	 * @param vaoId
+	 *            - The ID of the water's VAO.
+	 * @param uniforms
+	 *            - Loads the command's uniform values to the shader.
 	 * @param water
 	 *            - The water being rendered.
 	 * @param camera
-	 *            - The scene's camera.
-	 * @param light
-	 *            - The light in the scene.
+	 *            - The camera being used to render the water.
+	 * @param waveTime
+	 *            - The current "waveTime" value.
+	 * @param reflectionTexture
+	 *            - The reflection texture.
+	 * @param refractionTexture
+	 *            - The refraction texture.
+	 * @param depthTexture
+	 *            - An image of the depth buffer for the scene.
 	 */
-	private void prepareShader(WaterTile water, ICamera camera, Light light) {
-		shader.start();
-		updateTime();
-		loadCameraVariables(camera);
-		loadLightVariables(light);
-		shader.height.loadFloat(water.getHeight());
+	public static void recordWater(RenderCommandList commandList, int programId, int vaoId,
+			ICommandUniforms uniforms, WaterTile water, ICamera camera, float waveTime, int reflectionTexture,
+			int refractionTexture, int depthTexture) {
+		RenderCommand command = commandList.add().program(programId).vao(vaoId)
+				.layer(RenderCommand.LAYER_TRANSPARENT);
+		command.texture(WaterShader.REFLECT_TEX_UNIT, reflectionTexture);
+		command.texture(WaterShader.REFRACT_TEX_UNIT, refractionTexture);
+		if (!water.hasBakedDepth()) {
+			command.texture(WaterShader.DEPTH_TEX_UNIT, depthTexture);
+		}
+		command.uniforms(uniforms).put(camera.getPosition()).put(camera.getNearPlane()).put(camera.getFarPlane());
+		command.put(water.getHeight()).put(waveTime).put(water.hasBakedDepth() ? 1 : 0);
+		if (water.isInstanced()) {
+			command.drawArraysInstanced(0, water.getVertexCount(), water.getInstanceCount());
+		} else {
+			command.drawArrays(0, water.getVertexCount());
+		}
 	}
 
 	/**
-	 * Loads up uniform variables to do with the light source. If the light
-	 * parameters aren't changing then don't bother doing this every frame!
-	 * 
-	 * @param light
-	 *            - The light source.
+	 * Loads up the uniform values stored in the water's command. The waveTime
+	 * is an ever-increasing value used in the distortion calculation, which
+	 * allows the distortion to change over time.
 	 */
-	private void loadLightVariables(Light light) {
-		shader.lightBias.loadVec2(light.getLightBias());
-		shader.lightDirection.loadVec3(light.getDirection());
-		shader.lightColour.loadVec3(light.getColour().getVector());
+	@Override
+	public void loadUniforms(RenderCommand command) {
+		shader.cameraPos.loadVec3(command.getUniform(CAMERA_POS), command.getUniform(CAMERA_POS + 1),
+				command.getUniform(CAMERA_POS + 2));
+		shader.nearFarPlanes.loadVec2(command.getUniform(NEAR_FAR_PLANES), command.getUniform(NEAR_FAR_PLANES + 1));
+		shader.height.loadFloat(command.getUniform(HEIGHT));
+		shader.waveTime.loadFloat(command.getUniform(WAVE_TIME));
+		shader.useBakedDepth.loadBoolean(command.getUniform(BAKED_DEPTH) != 0);
 	}
 
 	/**
-	 * Loads up the camera uniform variables to the shader.
-	 * 
-	 * @param camera
-	 *            - The scene's camera.
+	 * @return The current "waveTime" value being used by the water shader.
+	 *         Give this to a {@link WaveModel} to find the height of the water
+	 *         surface on the CPU.
 	 */
-	private void loadCameraVariables(ICamera camera) {
-		shader.projectionViewMatrix.loadMatrix(camera.getProjectionViewMatrix());
-		shader.cameraPos.loadVec3(camera.getPosition());
-		shader.nearFarPlanes.loadVec2(camera.getNearPlane(), camera.getFarPlane());
+	public float getWaveTime() {
+		return time;
 	}
 
 	/**
-	 * Updates the "waveTime" variables and loads it to the shader. This
-	 * ever-increasing value is used in the distortion calculation. Because this
-	 * value changes over time it allows the distortion to also change over
-	 * time. Without this changing variable the water distortion would be still
-	 * and un-moving.
+	 * Deletes the shader program after the game closes.
 	 */
-	private void updateTime() {
-		time += WAVE_SPEED;
-		shader.waveTime.loadFloat(time);
+	public void cleanUp() {
+		shader.cleanUp();
 	}
 
 }
@@ -1,15 +1,18 @@
 package waterRendering;
 
+import rendering.FrameGlobals;
 import shaders.ShaderProgram;
+import shaders.UniformBoolean;
 import shaders.UniformFloat;
-import shaders.UniformMatrix;
 import shaders.UniformSampler;
 import shaders.UniformVec2;
 import shaders.UniformVec3;
 import utils.MyFile;
 
 /**
- * Represents the water's shader program. Handles all the uniform variables.
+ * Represents the water's shader program. Handles all the uniform variables,
+ * apart from the camera and light values shared with the terrain shader,
+ * which come from the {@link FrameGlobals} uniform block.
  * 
  * @author Karl
  *
@@ -23,14 +26,11 @@ public class WaterShader extends ShaderProgram {
 	private static final MyFile VERTEX_SHADER = new MyFile("waterRendering", "waterVertex.glsl");
 	private static final MyFile FRAGMENT_SHADER = new MyFile("waterRendering", "waterFragment.glsl");
 
-	protected UniformMatrix projectionViewMatrix = new UniformMatrix("projectionViewMatrix");
 	protected UniformFloat height = new UniformFloat("height");
 	protected UniformVec3 cameraPos = new UniformVec3("cameraPos");
 	protected UniformVec2 nearFarPlanes = new UniformVec2("nearFarPlanes");
 	protected UniformFloat waveTime = new UniformFloat("waveTime");
-	protected UniformVec3 lightDirection = new UniformVec3("lightDirection");
-	protected UniformVec3 lightColour = new UniformVec3("lightColour");
-	protected UniformVec2 lightBias = new UniformVec2("lightBias");
+	protected UniformBoolean useBakedDepth = new UniformBoolean("useBakedDepth");
 
 	protected UniformSampler reflectionTexture = new UniformSampler("reflectionTexture");
 	protected UniformSampler refractionTexture = new UniformSampler("refractionTexture");
@@ -38,8 +38,9 @@ public class WaterShader extends ShaderProgram {
 
 	public WaterShader() {
 		super(VERTEX_SHADER, FRAGMENT_SHADER);
-		super.storeAllUniformLocations(projectionViewMatrix, height, reflectionTexture, refractionTexture, depthTexture,
-				cameraPos, nearFarPlanes, waveTime, lightDirection, lightColour, lightBias);
+		super.storeAllUniformLocations(height, reflectionTexture, refractionTexture, depthTexture, cameraPos,
+				nearFarPlanes, waveTime, useBakedDepth);
+		super.bindUniformBlock(FrameGlobals.BLOCK_NAME, FrameGlobals.BINDING_POINT);
 		linkTextureUnits();
 	}
 
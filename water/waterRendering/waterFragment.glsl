@@ -15,11 +15,13 @@ in vec3 pass_normal;
 in vec3 pass_toCameraVector;
 in vec3 pass_specular;
 in vec3 pass_diffuse;
+in float pass_depth;
 
 uniform sampler2D reflectionTexture;
 uniform sampler2D refractionTexture;
 uniform sampler2D depthTexture;
 uniform vec2 nearFarPlanes;
+uniform bool useBakedDepth;
 
 vec3 applyMurkiness(vec3 refractColour, float waterDepth){
 	float murkyFactor = clamp(waterDepth / murkyDepth, 0.0, 1.0);
@@ -33,7 +35,16 @@ float toLinearDepth(float zDepth){
 	return 2.0 * near * far / (far + near - (2.0 * zDepth - 1.0) * (far - near));
 }
 
+float calculateBakedWaterDepth(){
+	//baked depth is straight down, but the view ray goes through the water at an angle
+	float viewAngle = max(normalize(pass_toCameraVector).y, 0.05);
+	return pass_depth / viewAngle;
+}
+
 float calculateWaterDepth(vec2 texCoords){
+	if(useBakedDepth){
+		return calculateBakedWaterDepth();
+	}
 	float depth = texture(depthTexture, texCoords).r;
 	float floorDistance = toLinearDepth(depth);
 	depth = gl_FragCoord.z;
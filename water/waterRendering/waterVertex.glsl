@@ -9,6 +9,8 @@ const float shineDamper = 20.0;
 
 layout(location = 0) in vec2 in_position;
 layout(location = 1) in vec4 in_indicators;
+layout(location = 2) in vec2 in_offset;//per-instance offset of the patch (0,0 when not instanced)
+layout(location = 3) in float in_depth;//baked depth of the water under this vertex (if there is one)
 
 out vec4 pass_clipSpaceGrid;
 out vec4 pass_clipSpaceReal;
@@ -16,16 +18,18 @@ out vec3 pass_normal;
 out vec3 pass_toCameraVector;
 out vec3 pass_specular;
 out vec3 pass_diffuse;
+out float pass_depth;
 
 uniform float height;
 uniform vec3 cameraPos;
 uniform float waveTime;
 
-uniform vec3 lightDirection;
-uniform vec3 lightColour;
-uniform vec2 lightBias;
-
-uniform mat4 projectionViewMatrix;
+layout(std140) uniform FrameGlobals {
+	mat4 projectionViewMatrix;
+	vec3 lightDirection;
+	vec3 lightColour;
+	vec2 lightBias;
+};
 
 vec3 calcSpecularLighting(vec3 toCamVector, vec3 toLightVector, vec3 normal){
 	vec3 reflectedLightDirection = reflect(-toLightVector, normal);
@@ -62,7 +66,8 @@ vec3 applyDistortion(vec3 vertex){
 void main(void){
 	
 	//get the grid position of all 3 vertices in the triangle
-	vec3 currentVertex = vec3(in_position.x, height, in_position.y);
+	vec2 gridPosition = in_position + in_offset;
+	vec3 currentVertex = vec3(gridPosition.x, height, gridPosition.y);
 	vec3 vertex1 = currentVertex + vec3(in_indicators.x, 0.0, in_indicators.y);
 	vec3 vertex2 = currentVertex + vec3(in_indicators.z, 0.0, in_indicators.w);
 	
@@ -75,6 +80,9 @@ void main(void){
 	
 	pass_normal = calcNormal(currentVertex, vertex1, vertex2);
 	
+	//the waves make the water a bit deeper or shallower
+	pass_depth = in_depth + (currentVertex.y - height);
+	
 	pass_clipSpaceReal = projectionViewMatrix * vec4(currentVertex, 1.0);
 	gl_Position = pass_clipSpaceReal;
 	